@@ -8,12 +8,19 @@ import com.toomasr.sgf4j.Sgf;
 import com.toomasr.sgf4j.parser.Game;
 import com.toomasr.sgf4j.parser.GameNode;
 import com.toomasr.sgf4j.parser.Util;
+import featurecat.lizzie.analysis.AbstractGtpBasedAnalyzer;
+import featurecat.lizzie.analysis.BestMoveObserver;
+import featurecat.lizzie.analysis.EnginePool;
+import featurecat.lizzie.analysis.GameReviewer;
 import featurecat.lizzie.analysis.GnuGoScoreEstimator;
 import featurecat.lizzie.analysis.Leelaz;
+import featurecat.lizzie.analysis.MoveData;
+import featurecat.lizzie.analysis.NativeScoreEstimator;
 import featurecat.lizzie.analysis.ScoreEstimator;
 import featurecat.lizzie.analysis.ZenScoreEstimator;
 import featurecat.lizzie.gui.*;
 import featurecat.lizzie.rules.*;
+import featurecat.lizzie.util.StartupTimer;
 import featurecat.lizzie.util.ThreadPoolUtil;
 import org.apache.commons.collections4.CollectionUtils;
 import org.apache.commons.lang3.StringUtils;
@@ -42,9 +49,13 @@ import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.*;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.stream.Collectors;
 
 /**
@@ -78,11 +89,15 @@ public class Lizzie {
     public static ScoreEstimator scoreEstimator = null;
     public static GameStatusManager gameStatusManager = new GameStatusManager();
     public static LiveStatus liveStatus = new LiveStatus();
+    private static GameReviewer gameReviewer = null;
+    private static final StartupTimer startupTimer = new StartupTimer();
 
     static {
-        readSettingFile();
+        startupTimer.run("settings", () -> {
+            readSettingFile();
 
-        migrateSettings();
+            migrateSettings();
+        });
 
         // Sometimes gson will fail to parse the file
         if (optionSetting == null
@@ -138,6 +153,9 @@ public class Lizzie {
         }
 
         Lizzie.leelaz.close();
+        if (gameReviewer != null) {
+            gameReviewer.close();
+        }
 
         ThreadPoolUtil.shutdownAndAwaitTermination(Lizzie.miscExecutor);
         if (scoreEstimator != null) {
@@ -160,57 +178,75 @@ public class Lizzie {
 
     /**
      * Launches the game window, and runs the game.
+     * <p>
+     * The engine is started, which includes loading its network and detecting its capabilities, while the windows are
+     * built, and the fonts are loaded at the same time too. The time taken by each phase is logged once the engine
+     * gives its first suggestion.
      */
     public static void main(String[] args) {
-        // Use system default look and feel
-        try {
-            UIManager.setLookAndFeel(UIManager.getSystemLookAndFeelClassName());
-        } catch (Exception e1) {
-            // Use Nimbus look and feel which looks better
-            try {
-                for (LookAndFeelInfo info : UIManager.getInstalledLookAndFeels()) {
-                    if ("Nimbus".equals(info.getName())) {
-                        UIManager.setLookAndFeel(info.getClassName());
-                        break;
-                    }
-                }
-            } catch (Exception e2) {
-                // If Nimbus is not available, leave it for default
-            }
-        }
+        ExecutorService startupExecutor = Executors.newFixedThreadPool(2, runnable -> {
+            Thread thread = new Thread(runnable, "startup");
+            thread.setDaemon(true);
+            return thread;
+        });
+        CompletableFuture<Void> fontsRegistered = CompletableFuture.runAsync(
+                () -> startupTimer.run("fonts", LizzieFrame::registerFonts), startupExecutor);
 
-        gtpConsole = new GtpConsoleDialog(null);
-        optionSetting.getGtpConsoleWindowState().applyStateTo(gtpConsole);
-        gtpConsole.setVisible(true);
+        startupTimer.run("look and feel", Lizzie::setLookAndFeel);
+
+        startupTimer.run("GTP console", () -> {
+            gtpConsole = new GtpConsoleDialog(null);
+            optionSetting.getGtpConsoleWindowState().applyStateTo(gtpConsole);
+            gtpConsole.setVisible(true);
+        });
 
         leelaz = new Leelaz(optionSetting.getLeelazCommandLine());
         board = new Board();
-        leelaz.startEngine();
         board.linkBoardWithAnalyzeEngine();
+        leelaz.registerBestMoveObserver(new FirstSuggestionObserver());
 
-        frame = new LizzieFrame();
+        CompletableFuture<Void> engineStarted = CompletableFuture.runAsync(() -> {
+            startupTimer.run("engine", leelaz::startEngine);
+            // Analysis starts while the windows are still being built
+            leelaz.setThinking(true);
+        }, startupExecutor);
 
-        analysisDialog = AnalysisFrame.createAnalysisDialog(frame);
-        analysisFrame = (AnalysisFrame) analysisDialog.getContentPane();
+        fontsRegistered.join();
+        startupTimer.run("main window", () -> {
+            frame = new LizzieFrame();
 
-        optionDialog = new OptionDialog(frame);
-        optionDialog.setDialogSetting(optionSetting);
+            analysisDialog = AnalysisFrame.createAnalysisDialog(frame);
+            analysisFrame = (AnalysisFrame) analysisDialog.getContentPane();
 
-        winrateHistogramDialog = new WinrateHistogramDialog(frame);
+            optionDialog = new OptionDialog(frame);
+            optionDialog.setDialogSetting(optionSetting);
 
-        setGuiPosition();
+            winrateHistogramDialog = new WinrateHistogramDialog(frame);
 
-        analysisDialog.setVisible(optionSetting.isAnalysisWindowShow());
-        winrateHistogramDialog.setVisible(optionSetting.isWinrateHistogramWindowShow());
+            setGuiPosition();
 
-        if (Files.exists(Paths.get("Zen.dll")) && Files.exists(Paths.get("YAZenGtp.exe"))) {
-            scoreEstimator = new ZenScoreEstimator("YAZenGtp.exe");
-        } else if (Files.exists(Paths.get("gnugo")) || Files.exists(Paths.get("gnugo.exe"))) {
-            scoreEstimator = new GnuGoScoreEstimator("./gnugo --mode gtp");
+            analysisDialog.setVisible(optionSetting.isAnalysisWindowShow());
+            winrateHistogramDialog.setVisible(optionSetting.isWinrateHistogramWindowShow());
+        });
+
+        startupTimer.run("score estimator", () -> {
+            if (Files.exists(Paths.get("Zen.dll")) && Files.exists(Paths.get("YAZenGtp.exe"))) {
+                scoreEstimator = new ZenScoreEstimator("YAZenGtp.exe");
+            } else if (Files.exists(Paths.get("gnugo")) || Files.exists(Paths.get("gnugo.exe"))) {
+                scoreEstimator = new GnuGoScoreEstimator("./gnugo --mode gtp");
+            } else {
+                scoreEstimator = new NativeScoreEstimator();
+            }
+        });
+
+        try {
+            engineStarted.join();
+        } catch (CompletionException e) {
+            logger.error("Error in starting the engine.", e.getCause());
         }
+        startupExecutor.shutdown();
 
         try {
-            leelaz.setThinking(true);
             gtpConsole.setVisible(optionSetting.isGtpConsoleWindowShow());
             exitLatch.await();
         } catch (InterruptedException e) {
@@ -220,6 +256,48 @@ public class Lizzie {
         exitLizzie(lizzieExitCode);
     }
 
+    private static void setLookAndFeel() {
+        // Use system default look and feel
+        try {
+            UIManager.setLookAndFeel(UIManager.getSystemLookAndFeelClassName());
+        } catch (Exception e1) {
+            // Use Nimbus look and feel which looks better
+            try {
+                for (LookAndFeelInfo info : UIManager.getInstalledLookAndFeels()) {
+                    if ("Nimbus".equals(info.getName())) {
+                        UIManager.setLookAndFeel(info.getClassName());
+                        break;
+                    }
+                }
+            } catch (Exception e2) {
+                // If Nimbus is not available, leave it for default
+            }
+        }
+    }
+
+    /**
+     * Ends the startup timing at the first suggestion of the engine, and logs the report.
+     */
+    private static class FirstSuggestionObserver implements BestMoveObserver {
+        private final AtomicBoolean reported = new AtomicBoolean(false);
+
+        @Override
+        public void bestMovesUpdated(List<MoveData> newBestMoves) {
+            if (CollectionUtils.isEmpty(newBestMoves) || !reported.compareAndSet(false, true)) {
+                return;
+            }
+
+            startupTimer.mark("first suggestion");
+            logger.info(startupTimer.report());
+            // Not from inside the notification
+            miscExecutor.execute(() -> leelaz.unregisterBestMoveObserver(this));
+        }
+
+        @Override
+        public void engineRestarted() {
+        }
+    }
+
     public static void clearBoardAndState() {
         board.clear();
     }
@@ -311,12 +389,12 @@ public class Lizzie {
         if (changeMoveDialog.isUserApproved()) {
             int moveNumber = changeMoveDialog.getMoveNumber();
             String correctedMove = changeMoveDialog.getCorrectedMove().trim().toUpperCase();
-            int[] convertedCoords = Board.convertDisplayNameToCoordinates(correctedMove);
+            int[] convertedCoords = board.getGeometry().convertDisplayNameToCoordinates(correctedMove);
             if (StringUtils.equalsIgnoreCase(correctedMove, "pass")) {
                 Lizzie.miscExecutor.execute(() -> board.changeMove(moveNumber, (int[]) null));
             } else if (StringUtils.equalsIgnoreCase(correctedMove, "swap") || StringUtils.startsWithIgnoreCase(correctedMove, "trans")) {
                 Lizzie.miscExecutor.execute(() -> board.swapMoveColor(moveNumber));
-            } else if (Board.isValid(convertedCoords)) {
+            } else if (board.getGeometry().isValid(convertedCoords)) {
                 Lizzie.miscExecutor.execute(() -> board.changeMove(moveNumber, convertedCoords));
             } else {
                 JOptionPane.showMessageDialog(frame, resourceBundle.getString("Lizzie.prompt.invalidCoordinates"), "Lizzie", JOptionPane.ERROR_MESSAGE);
@@ -346,29 +424,91 @@ public class Lizzie {
         SwingUtilities.invokeLater(() -> frame.setEngineProfile(Lizzie.optionSetting.getLeelazCommandLine()));
     }
 
+    /**
+     * Starts reviewing the main line of the game on a pool of engines of the current profile, or stops the ongoing
+     * review. Winrates and variations fill in as positions are done.
+     */
+    public static synchronized void toggleGameReview() {
+        if (gameReviewer != null) {
+            GameReviewer stoppedReviewer = gameReviewer;
+            gameReviewer = null;
+            // Interrupting the running positions waits for them, keep it off the event dispatch thread
+            new Thread(stoppedReviewer::close).start();
+            return;
+        }
+
+        // The pool runs the engine of the current profile, which the current analyzer speaks to
+        AbstractGtpBasedAnalyzer analyzer = leelaz == null ? null : leelaz.getAnalyzer();
+        if (analyzer == null || !GameReviewer.isSupported(analyzer.getAnalyzerKind())) {
+            SwingUtilities.invokeLater(() -> JOptionPane.showMessageDialog(frame, resourceBundle.getString("Lizzie.prompt.gameReviewNotSupported"), "Lizzie", JOptionPane.ERROR_MESSAGE));
+            return;
+        }
+
+        EnginePool enginePool = EnginePool.forProfile(optionSetting.getLeelazCommandLine());
+        GameReviewer reviewer = new GameReviewer(enginePool, analyzer.getAnalyzerKind(), optionSetting.getReviewVisits(), optionSetting.getReviewTimeLimit() * 1000L);
+        gameReviewer = reviewer;
+        reviewer.review(board.getSnapshot().getInitialNode(), Lizzie::positionReviewed).addListener(() -> {
+            synchronized (Lizzie.class) {
+                if (gameReviewer == reviewer) {
+                    gameReviewer = null;
+                }
+            }
+            // Stopping the engines takes a while
+            new Thread(() -> {
+                reviewer.close();
+                enginePool.close();
+            }).start();
+        }, miscExecutor);
+    }
+
+    public static synchronized boolean isReviewingGame() {
+        return gameReviewer != null;
+    }
+
+    private static void positionReviewed(BoardHistoryNode node, List<MoveData> bestMoves) {
+        board.updateVariations(node, bestMoves);
+
+        SwingUtilities.invokeLater(() -> {
+            WinrateHistogramTableModel tableModel = (WinrateHistogramTableModel) winrateHistogramDialog.getTableWinrateHistory().getModel();
+            tableModel.updateHistogramData(node.getData());
+            frame.repaint();
+        });
+    }
+
+    /**
+     * Collects the moves of a game, then applies them to the board in one batch.
+     */
     private static class MoveReplayer {
         private boolean nextIsBlack;
         private int placedMoveCount;
+        private final List<Move> moves;
 
         public MoveReplayer() {
             nextIsBlack = true;
             placedMoveCount = 0;
+            moves = new ArrayList<>();
         }
 
         public void playMove(boolean isBlack, int x, int y) {
+            // Colors follow the turn when applied, so an illegal move that gets skipped does not recolor the rest
             if (nextIsBlack == isBlack) {
-                Lizzie.board.place(x, y);
+                moves.add(Move.place(x, y));
                 nextIsBlack = !nextIsBlack;
 
                 placedMoveCount += 1;
             } else {
-                Lizzie.board.pass();
-                Lizzie.board.place(x, y);
+                moves.add(Move.pass());
+                moves.add(Move.place(x, y));
 
                 placedMoveCount += 2;
             }
         }
 
+        public void applyMoves() {
+            Lizzie.board.applyMoves(moves);
+            moves.clear();
+        }
+
         public int getPlacedMoveCount() {
             return placedMoveCount;
         }
@@ -422,6 +562,7 @@ public class Lizzie {
                 }
                 while ((node = node.getNextNode()) != null);
 
+                replayer.applyMoves();
                 liveStatus.setHiddenMoveCount(preplacedStonesCount);
             } catch (Exception e) {
                 // Ignore
@@ -472,7 +613,7 @@ public class Lizzie {
 
     @NotNull
     private static Game snapshotCurrentGame() {
-        final int BOARD_SIZE = Lizzie.optionSetting.getBoardSize().getWidth();
+        final int BOARD_SIZE = board.getGeometry().getSize();
         Game game = new Game();
 
         game.addProperty("FF", "4"); // SGF version: 4
@@ -551,7 +692,7 @@ public class Lizzie {
     }
 
     private static void addTryPlayTree(GameNode baseSgfNode, BoardHistoryNode baseNode, BoardHistoryNode tryPlayBeginNode) {
-        final int BOARD_SIZE = Lizzie.optionSetting.getBoardSize().getWidth();
+        final int BOARD_SIZE = board.getGeometry().getSize();
         GameNode previousSgfNode = baseSgfNode;
 
         for (BoardHistoryNode p = tryPlayBeginNode; p != null; p = p.getNext()) {
@@ -617,31 +758,23 @@ public class Lizzie {
     }
 
     private static void addVariationTree(GameNode baseNode, VariationData variationData) {
-        final int BOARD_SIZE = Lizzie.optionSetting.getBoardSize().getWidth();
+        final int BOARD_SIZE = board.getGeometry().getSize();
         Stone baseColor = baseNode.isBlack() ? Stone.BLACK : Stone.WHITE;
         GameNode previousNode = baseNode;
 
         int variationMoveCount = 0;
-        for (int[] variation : variationData.getVariation()) {
+        for (int point : variationData.getVariation()) {
             GameNode gameNode = new GameNode(previousNode);
 
-            int x, y;
-            if (variation == null) {
+            int x = PointCodec.getX(point), y = PointCodec.getY(point);
+            String moveKey = Objects.equals(baseColor.opposite(), Stone.BLACK) ? "B" : "W";
+            String moveValue;
+            if (x < 0 || x >= BOARD_SIZE || y < 0 || y >= BOARD_SIZE) {
                 // Pass
-                x = BOARD_SIZE;
-                y = BOARD_SIZE;
+                moveValue = Util.coordToAlpha.get(BOARD_SIZE) + Util.coordToAlpha.get(BOARD_SIZE);
             } else {
-                x = variation[0];
-                y = variation[1];
-
-                if (x < 0 || x >= BOARD_SIZE || y < 0 || y >= BOARD_SIZE) {
-                    x = BOARD_SIZE;
-                    y = BOARD_SIZE;
-                }
+                moveValue = PointCodec.getSgfLetters(point);
             }
-
-            String moveKey = Objects.equals(baseColor.opposite(), Stone.BLACK) ? "B" : "W";
-            String moveValue = Util.coordToAlpha.get(x) + Util.coordToAlpha.get(y);
             gameNode.addProperty(moveKey, moveValue);
 
             if (previousNode == baseNode && variationData.getPlayouts() > 100) {
@@ -4,6 +4,7 @@ import com.google.common.util.concurrent.ListenableFuture;
 import org.eclipse.collections.api.list.ImmutableList;
 import org.eclipse.collections.impl.factory.Lists;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
@@ -96,17 +97,42 @@ public abstract class AbstractAnalyzer implements Analyzer {
         try {
             return postRawGtpCommand(command);
         } finally {
-            boolean analyzingOngoingAfter = isAnalyzingOngoingAfterCommand(command);
-            if (isAnalyzingEnabled()) {
-                analyzingOngoing = true;
-                if (!analyzingOngoingAfter) {
-                    doStartAnalyzing();
-                }
-            } else {
-                analyzingOngoing = false;
-                if (analyzingOngoingAfter) {
-                    doStopAnalyzing();
-                }
+            restoreAnalyzingAfterCommand(command);
+        }
+    }
+
+    /**
+     * Posts several commands back to back and restores the analyzing state once after the last one, so the engine
+     * does not restart analyzing between them.
+     *
+     * @param commands the commands
+     * @return the futures of the commands, in the same order
+     */
+    public synchronized List<ListenableFuture<List<String>>> postGtpCommands(List<String> commands) {
+        List<ListenableFuture<List<String>>> futures = new ArrayList<>(commands.size());
+        try {
+            for (String command : commands) {
+                futures.add(postRawGtpCommand(command));
+            }
+        } finally {
+            if (!commands.isEmpty()) {
+                restoreAnalyzingAfterCommand(commands.get(commands.size() - 1));
+            }
+        }
+        return futures;
+    }
+
+    private void restoreAnalyzingAfterCommand(String command) {
+        boolean analyzingOngoingAfter = isAnalyzingOngoingAfterCommand(command);
+        if (isAnalyzingEnabled()) {
+            analyzingOngoing = true;
+            if (!analyzingOngoingAfter) {
+                doStartAnalyzing();
+            }
+        } else {
+            analyzingOngoing = false;
+            if (analyzingOngoingAfter) {
+                doStopAnalyzing();
             }
         }
     }
@@ -1,6 +1,9 @@
 package featurecat.lizzie.analysis;
 
 import com.google.common.util.concurrent.ListenableFuture;
+import featurecat.lizzie.Lizzie;
+import featurecat.lizzie.rules.BoardHistoryList;
+import featurecat.lizzie.rules.BoardStateChangeObserver;
 
 import java.util.List;
 import java.util.concurrent.TimeUnit;
@@ -12,12 +15,55 @@ public abstract class AbstractGtpBasedAnalyzer extends AbstractAnalyzer {
     public AbstractGtpBasedAnalyzer(GtpClient gtpClient, boolean owningTheClient) {
         this.gtpClient = gtpClient;
         this.owningTheClient = owningTheClient;
+
+        final GtpClientMetrics metrics = gtpClient.getMetrics();
+        observers = new BestMoveObserverCollection() {
+            @Override
+            public void bestMovesUpdated(List<MoveData> newBestMoves) {
+                metrics.recordBestMovesUpdate();
+                super.bestMovesUpdated(newBestMoves);
+            }
+        };
+
+        if (gtpClient instanceof SocketGtpClient) {
+            ((SocketGtpClient) gtpClient).registerReconnectObserver(this::engineReconnected);
+        }
     }
 
     public GtpClient getGtpClient() {
         return gtpClient;
     }
 
+    /**
+     * @return the protocol this analyzer speaks with its engine
+     */
+    public abstract EngineCapabilityCache.AnalyzerKind getAnalyzerKind();
+
+    /**
+     * @return the observer that keeps the engine position in step with the board, null if none
+     */
+    protected BoardStateChangeObserver getBoardSynchronizer() {
+        return null;
+    }
+
+    /**
+     * Sets the whole position up again, as the engine behind a new connection may have lost it, starting with the board
+     * size since a fresh engine is back at its default one. Analyzing resumes after the replay if it is enabled.
+     */
+    protected void engineReconnected() {
+        BoardStateChangeObserver synchronizer = getBoardSynchronizer();
+        if (synchronizer == null) {
+            return;
+        }
+
+        synchronized (Lizzie.board) {
+            BoardHistoryList history = Lizzie.board.getHistory();
+            // Raw, so that analyzing is not restarted before the replay
+            postRawGtpCommand("boardsize " + Lizzie.board.getGeometry().getSize());
+            synchronizer.boardCleared(history.getInitialNode(), history.getHead());
+        }
+    }
+
     @Override
     protected ListenableFuture<List<String>> postRawGtpCommand(String command) {
         return gtpClient.postCommand(command);
@@ -1,10 +1,57 @@
 package featurecat.lizzie.analysis;
 
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.MoreExecutors;
 import featurecat.lizzie.rules.*;
+import org.eclipse.collections.api.list.MutableList;
+import org.eclipse.collections.impl.factory.Lists;
 
-import java.util.OptionalInt;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
 
+/**
+ * Keeps the position of an engine in step with the board head. The synchronizer remembers which history node the
+ * engine reaches after each posted command. When the head moves, commands that are still staged and no longer
+ * needed are cancelled, then only the difference from the common ancestor is sent: undos followed by plays, or
+ * clear_board and a full replay when that is shorter. Scrolling back and forth therefore does not build up long
+ * undo/play chains.
+ * <p>
+ * Only successful responses move the known engine position. A command the engine rejects, or one left without a
+ * response by a lost engine, means the engine position is unknown: the remaining staged commands are cancelled and
+ * the next synchronization replays the whole line after clear_board.
+ */
 public abstract class BoardStateSynchronizer implements BoardStateChangeObserver {
+    /**
+     * A posted synchronization command, with the nodes the engine is at before and after it is executed.
+     */
+    private static class SyncCommand {
+        private final ListenableFuture<List<String>> future;
+        // Null when the engine position before the command does not matter, as for clear_board
+        private final BoardHistoryNode origin;
+        private final BoardHistoryNode target;
+        private final int generation;
+
+        private SyncCommand(ListenableFuture<List<String>> future, BoardHistoryNode origin, BoardHistoryNode target, int generation) {
+            this.future = future;
+            this.origin = origin;
+            this.target = target;
+            this.generation = generation;
+        }
+    }
+
+    // Commands posted but not yet completed, oldest first. Completion listeners remove entries without locking.
+    private final ConcurrentLinkedDeque<SyncCommand> pendingCommands = new ConcurrentLinkedDeque<>();
+    // Node the engine is known to be at, null until the first synchronization or after a failed command
+    private volatile BoardHistoryNode confirmedNode;
+    // Bumped by a full replay and by a failed command, the responses of older commands no longer tell anything
+    private final AtomicInteger generation = new AtomicInteger();
+    // Set by a failed command until the next full replay
+    private volatile boolean outOfStep;
+    // Until the first command is posted, the engine is assumed to follow the board
+    private boolean posted;
+
     @Override
     public void mainStreamAppended(BoardHistoryNode newNodeBegin, BoardHistoryNode head) {
     }
@@ -14,56 +61,201 @@ public abstract class BoardStateSynchronizer implements BoardStateChangeObserver
     }
 
     @Override
-    public void headMoved(BoardHistoryNode oldHead, BoardHistoryNode newHead) {
-        if (oldHead.getNext() == newHead) {
-            // Move forward
-            replayMove(newHead.getData());
-        } else if (oldHead.getPrevious() == newHead) {
-            // Moved back
-            handleGtpCommand("undo");
-        } else {
-            OptionalInt distanceOpt = oldHead.distanceTo(newHead);
-            if (distanceOpt.isPresent()) {
-                int distance = distanceOpt.getAsInt();
-                if (distance > 0) {
-                    // Forward
-                    BoardHistoryNode p = oldHead.getNext();
-                    while (true) {
-                        replayMove(p.getData());
-
-                        if (p == newHead) {
-                            break;
-                        }
-                        p = p.getNext();
-                    }
-                } else if (distance < 0) {
-                    for (int i = 0; i < -distance; ++i) {
-                        handleGtpCommand("undo");
-                    }
+    public synchronized void headMoved(BoardHistoryNode oldHead, BoardHistoryNode newHead) {
+        BoardHistoryNode engineNode = cancelStagedCommands();
+        if (outOfStep) {
+            // Unknown, which makes syncFrom replay from scratch
+            engineNode = null;
+        } else if (engineNode == null && !posted) {
+            // The engine is assumed to follow the board from the start
+            engineNode = oldHead;
+        }
+
+        syncFrom(engineNode, newHead);
+    }
+
+    @Override
+    public synchronized void boardCleared(BoardHistoryNode initialNode, BoardHistoryNode initialHead) {
+        cancelStagedCommands();
+        replayFromScratch(initialNode, initialHead);
+    }
+
+    /**
+     * Sends clear_board and the moves up to the head. The engine position no longer depends on earlier commands.
+     */
+    private void replayFromScratch(BoardHistoryNode initialNode, BoardHistoryNode head) {
+        generation.incrementAndGet();
+        outOfStep = false;
+
+        MutableList<String> commands = Lists.mutable.with("clear_board");
+        MutableList<BoardHistoryNode> targets = Lists.mutable.with(initialNode);
+        appendReplay(initialNode, head, commands, targets);
+        post(null, commands, targets);
+    }
+
+    /**
+     * @return the node the engine is at once the commands that could not be cancelled are executed, null when unknown
+     */
+    private BoardHistoryNode cancelStagedCommands() {
+        BoardHistoryNode engineNode = confirmedNode;
+        SyncCommand last;
+        while ((last = pendingCommands.peekLast()) != null) {
+            if (last.future.cancel(false) || last.future.isCancelled()) {
+                // Either way the engine never saw it
+                pendingCommands.removeLastOccurrence(last);
+                engineNode = last.origin;
+            } else {
+                // Already sent to the engine, and so is everything before it
+                return last.target;
+            }
+        }
+
+        return engineNode;
+    }
+
+    private void syncFrom(BoardHistoryNode engineNode, BoardHistoryNode newHead) {
+        if (engineNode == newHead) {
+            return;
+        }
+
+        // Walk both nodes up to their common ancestor
+        int undoCount = 0;
+        MutableList<BoardHistoryNode> forwardPath = Lists.mutable.empty();
+        BoardHistoryNode from = engineNode;
+        BoardHistoryNode to = newHead;
+        while (from != null && to != null && from != to) {
+            if (from.getDepth() >= to.getDepth()) {
+                from = from.getPrevious();
+                ++undoCount;
+            } else {
+                forwardPath.add(to);
+                to = to.getPrevious();
+            }
+        }
+
+        if (from == null || to == null || undoCount + forwardPath.size() > newHead.getDepth() + 1) {
+            // Unknown or unrelated nodes, or replaying from scratch is shorter
+            BoardHistoryNode initialNode = newHead;
+            while (initialNode.getPrevious() != null) {
+                initialNode = initialNode.getPrevious();
+            }
+            replayFromScratch(initialNode, newHead);
+            return;
+        }
+
+        MutableList<String> commands = Lists.mutable.empty();
+        MutableList<BoardHistoryNode> targets = Lists.mutable.empty();
+        BoardHistoryNode node = engineNode;
+        for (int i = 0; i < undoCount; ++i) {
+            node = node.getPrevious();
+            commands.add("undo");
+            targets.add(node);
+        }
+        for (BoardHistoryNode next : forwardPath.asReversed()) {
+            String command = replayCommandOf(next.getData());
+            if (command != null) {
+                commands.add(command);
+                targets.add(next);
+            }
+        }
+        post(engineNode, commands, targets);
+    }
+
+    /**
+     * Appends the moves leading from a node to one of its descendants.
+     */
+    private void appendReplay(BoardHistoryNode ancestor, BoardHistoryNode descendant, MutableList<String> commands, MutableList<BoardHistoryNode> targets) {
+        MutableList<BoardHistoryNode> path = Lists.mutable.empty();
+        for (BoardHistoryNode node = descendant; node != null && node != ancestor; node = node.getPrevious()) {
+            path.add(node);
+        }
+        for (BoardHistoryNode node : path.asReversed()) {
+            String command = replayCommandOf(node.getData());
+            if (command != null) {
+                commands.add(command);
+                targets.add(node);
+            }
+        }
+    }
+
+    /**
+     * Posts commands, each of them taking the engine from the target of the previous one to its own target.
+     *
+     * @param origin the node the engine is at before the first command, null when it does not matter
+     */
+    private void post(BoardHistoryNode origin, List<String> commands, List<BoardHistoryNode> targets) {
+        if (commands.isEmpty()) {
+            return;
+        }
+
+        posted = true;
+        int postGeneration = generation.get();
+        List<ListenableFuture<List<String>>> futures = handleGtpCommands(commands);
+        for (int i = 0; i < futures.size(); ++i) {
+            BoardHistoryNode commandOrigin = i == 0 ? origin : targets.get(i - 1);
+            SyncCommand command = new SyncCommand(futures.get(i), commandOrigin, targets.get(i), postGeneration);
+            pendingCommands.addLast(command);
+            // Runs on the client's threads, possibly holding its locks, so it must not take the lock of this object
+            command.future.addListener(() -> commandCompleted(command), MoreExecutors.directExecutor());
+        }
+    }
+
+    private void commandCompleted(SyncCommand command) {
+        if (command.future.isCancelled()) {
+            return;
+        }
+        pendingCommands.remove(command);
+        if (command.generation != generation.get()) {
+            return;
+        }
+
+        if (isSuccessful(command.future)) {
+            confirmedNode = command.target;
+        } else if (generation.compareAndSet(command.generation, command.generation + 1)) {
+            // The engine is somewhere else than expected, so the commands after this one would only add to the mess
+            confirmedNode = null;
+            outOfStep = true;
+            for (SyncCommand pending : pendingCommands) {
+                if (pending.future.cancel(false) || pending.future.isCancelled()) {
+                    pendingCommands.remove(pending);
                 }
             }
         }
     }
 
-    @Override
-    public void boardCleared(BoardHistoryNode initialNode, BoardHistoryNode initialHead) {
-        handleGtpCommand("clear_board");
+    private static boolean isSuccessful(ListenableFuture<List<String>> future) {
+        try {
+            return GtpCommand.isSuccessfulResponse(future.get());
+        } catch (InterruptedException | ExecutionException e) {
+            return false;
+        }
     }
 
-    private void replayMove(BoardData data) {
+    /**
+     * @return the play command of the move leading to the position, null for the initial position
+     */
+    static String replayCommandOf(BoardData data) {
         String move;
         if (data.getLastMove() == null) {
             move = "pass";
         } else {
-            move = Board.convertCoordinatesToName(data.getLastMove());
+            move = data.getGeometry().convertCoordinatesToName(data.getLastMove());
         }
 
         if (data.getLastMoveColor() == Stone.BLACK) {
-            handleGtpCommand(String.format("play %s %s", "B", move));
+            return String.format("play %s %s", "B", move);
         } else if (data.getLastMoveColor() == Stone.WHITE) {
-            handleGtpCommand(String.format("play %s %s", "W", move));
+            return String.format("play %s %s", "W", move);
+        } else {
+            return null;
         }
     }
 
-    protected abstract void handleGtpCommand(String command);
+    /**
+     * Posts the commands of one synchronization step in order.
+     *
+     * @param commands the commands
+     * @return the futures of the commands, in the same order
+     */
+    protected abstract List<ListenableFuture<List<String>>> handleGtpCommands(List<String> commands);
 }
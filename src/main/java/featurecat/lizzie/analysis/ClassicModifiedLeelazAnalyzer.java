@@ -1,18 +1,19 @@
 package featurecat.lizzie.analysis;
 
+import com.google.common.util.concurrent.ListenableFuture;
 import org.apache.commons.lang3.StringUtils;
 import org.eclipse.collections.impl.factory.Lists;
 import org.jetbrains.annotations.NotNull;
 import featurecat.lizzie.Lizzie;
 import featurecat.lizzie.rules.BoardHistoryNode;
 import featurecat.lizzie.rules.BoardStateChangeObserver;
+import featurecat.lizzie.util.EngineDispatcher;
 import featurecat.lizzie.util.ThreadPoolUtil;
 
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
 
 public class ClassicModifiedLeelazAnalyzer extends AbstractGtpBasedAnalyzer {
@@ -27,7 +28,7 @@ public class ClassicModifiedLeelazAnalyzer extends AbstractGtpBasedAnalyzer {
     public ClassicModifiedLeelazAnalyzer(GtpClient gtpClient) {
         super(gtpClient, true);
 
-        notificationExecutor = Executors.newSingleThreadExecutor();
+        notificationExecutor = EngineDispatcher.newLane("analyzer notification");
         readingPonderOutput = false;
         bestMoves = Lists.mutable.withInitialCapacity(32);
         boardSyncObserver = new BoardStateSynchronizer() {
@@ -44,8 +45,8 @@ public class ClassicModifiedLeelazAnalyzer extends AbstractGtpBasedAnalyzer {
             }
 
             @Override
-            protected void handleGtpCommand(String command) {
-                ClassicModifiedLeelazAnalyzer.this.postGtpCommand(command);
+            protected List<ListenableFuture<List<String>>> handleGtpCommands(List<String> commands) {
+                return ClassicModifiedLeelazAnalyzer.this.postGtpCommands(commands);
             }
         };
 
@@ -56,6 +57,16 @@ public class ClassicModifiedLeelazAnalyzer extends AbstractGtpBasedAnalyzer {
         Lizzie.board.registerBoardStateChangeObserver(boardSyncObserver);
     }
 
+    @Override
+    public EngineCapabilityCache.AnalyzerKind getAnalyzerKind() {
+        return EngineCapabilityCache.AnalyzerKind.CLASSIC_MODIFIED_LEELAZ;
+    }
+
+    @Override
+    protected BoardStateChangeObserver getBoardSynchronizer() {
+        return boardSyncObserver;
+    }
+
     @Override
     protected void doStartAnalyzing() {
         gtpClient.postCommand("time_left b 0 0");
@@ -0,0 +1,207 @@
+package featurecat.lizzie.analysis;
+
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.reflect.TypeToken;
+import featurecat.lizzie.util.ArgumentTokenizer;
+import org.apache.commons.collections4.CollectionUtils;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.lang.reflect.Type;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Remembers what engine capability detection found out about an engine, so a known engine gets its analyzer without
+ * probing. An engine is identified by its command line together with the path, size and modification time of its
+ * binary, so replacing the binary or changing its arguments probes again. The cache is kept in a JSON file.
+ */
+public class EngineCapabilityCache {
+    private static final Logger logger = LogManager.getLogger(EngineCapabilityCache.class);
+
+    public static final String CACHE_FILE = "engine-capabilities.json";
+
+    private static final EngineCapabilityCache instance = new EngineCapabilityCache(Paths.get(CACHE_FILE));
+
+    public enum AnalyzerKind {
+        LEELAZ_V2,
+        LEELAZ_V1,
+        CLASSIC_MODIFIED_LEELAZ,
+        PHOENIX
+    }
+
+    /**
+     * The detection result of one engine.
+     */
+    public static class Capability {
+        private String engineName;
+        private AnalyzerKind analyzerKind;
+        private boolean pipelining;
+        private long detectedTime;
+
+        public Capability(String engineName, AnalyzerKind analyzerKind, boolean pipelining) {
+            this.engineName = engineName;
+            this.analyzerKind = analyzerKind;
+            this.pipelining = pipelining;
+            this.detectedTime = System.currentTimeMillis();
+        }
+
+        public String getEngineName() {
+            return engineName;
+        }
+
+        public AnalyzerKind getAnalyzerKind() {
+            return analyzerKind;
+        }
+
+        public boolean isPipelining() {
+            return pipelining;
+        }
+
+        public long getDetectedTime() {
+            return detectedTime;
+        }
+    }
+
+    private final Path cacheFile;
+    private final Gson gson;
+    private Map<String, Capability> capabilities;
+
+    public EngineCapabilityCache(Path cacheFile) {
+        this.cacheFile = cacheFile;
+        gson = new GsonBuilder().setPrettyPrinting().create();
+        capabilities = null;
+    }
+
+    public static EngineCapabilityCache getInstance() {
+        return instance;
+    }
+
+    /**
+     * Computes the cache key of an engine profile.
+     *
+     * @param commandLine the engine profile
+     * @return the key, null if the engine binary cannot be found, such as for a remote engine
+     */
+    public static String keyOf(String commandLine) {
+        List<String> arguments = ArgumentTokenizer.tokenize(commandLine);
+        if (CollectionUtils.isEmpty(arguments)) {
+            return null;
+        }
+
+        Path binary = findBinary(arguments.get(0));
+        if (binary == null) {
+            return null;
+        }
+
+        BasicFileAttributes attributes;
+        try {
+            binary = binary.toRealPath();
+            attributes = Files.readAttributes(binary, BasicFileAttributes.class);
+        } catch (IOException e) {
+            return null;
+        }
+
+        Hasher hasher = Hashing.sha256().newHasher()
+                .putString(binary.toString(), StandardCharsets.UTF_8)
+                .putLong(attributes.size())
+                .putLong(attributes.lastModifiedTime().toMillis());
+        for (String argument : arguments) {
+            hasher.putInt(argument.length()).putString(argument, StandardCharsets.UTF_8);
+        }
+        return hasher.hash().toString();
+    }
+
+    private static Path findBinary(String program) {
+        Path path;
+        try {
+            path = Paths.get(program);
+        } catch (RuntimeException e) {
+            return null;
+        }
+        if (Files.isRegularFile(path)) {
+            return path;
+        }
+        if (path.getNameCount() > 1) {
+            return null;
+        }
+
+        // Looked up like the shell does
+        for (String directory : StringUtils.split(StringUtils.defaultString(System.getenv("PATH")), File.pathSeparator)) {
+            for (String extension : new String[]{"", ".exe"}) {
+                Path candidate = Paths.get(directory, program + extension);
+                if (Files.isRegularFile(candidate)) {
+                    return candidate;
+                }
+            }
+        }
+        return null;
+    }
+
+    public synchronized Capability get(String key) {
+        return key == null ? null : getCapabilities().get(key);
+    }
+
+    public synchronized void put(String key, Capability capability) {
+        if (key == null) {
+            return;
+        }
+
+        getCapabilities().put(key, capability);
+        save();
+    }
+
+    public synchronized void remove(String key) {
+        if (key != null && getCapabilities().remove(key) != null) {
+            save();
+        }
+    }
+
+    private Map<String, Capability> getCapabilities() {
+        if (capabilities == null) {
+            capabilities = load();
+        }
+        return capabilities;
+    }
+
+    private Map<String, Capability> load() {
+        if (!Files.exists(cacheFile)) {
+            return new HashMap<>();
+        }
+
+        Type mapType = new TypeToken<HashMap<String, Capability>>() {
+        }.getType();
+        try (Reader reader = Files.newBufferedReader(cacheFile, StandardCharsets.UTF_8)) {
+            Map<String, Capability> loaded = gson.fromJson(reader, mapType);
+            if (loaded != null) {
+                loaded.values().removeIf(capability -> capability == null || capability.getAnalyzerKind() == null);
+                return loaded;
+            }
+        } catch (Exception e) {
+            logger.error("Error in reading engine capability cache.", e);
+        }
+        return new HashMap<>();
+    }
+
+    private void save() {
+        try (Writer writer = Files.newBufferedWriter(cacheFile, StandardCharsets.UTF_8)) {
+            gson.toJson(capabilities, writer);
+        } catch (Exception e) {
+            logger.error("Error in writing engine capability cache.", e);
+        }
+    }
+}
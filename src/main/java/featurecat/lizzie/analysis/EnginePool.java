@@ -0,0 +1,320 @@
+package featurecat.lizzie.analysis;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import featurecat.lizzie.Lizzie;
+import featurecat.lizzie.rules.BoardHistoryNode;
+import featurecat.lizzie.util.GenericLizzieException;
+import featurecat.lizzie.util.ThreadPoolUtil;
+import org.apache.commons.pool2.BasePooledObjectFactory;
+import org.apache.commons.pool2.PooledObject;
+import org.apache.commons.pool2.impl.DefaultPooledObject;
+import org.apache.commons.pool2.impl.GenericObjectPool;
+import org.apache.commons.pool2.impl.GenericObjectPoolConfig;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.eclipse.collections.api.list.MutableList;
+import org.eclipse.collections.impl.factory.Lists;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * A pool of warm engine processes started from one engine profile. Engines are leased with a position, which is set
+ * up by clear_board and a replay of the moves, and go back to the pool when the lease is closed. Idle engines are
+ * health checked in the background, engines idle for too long beyond the warm count are stopped, and crashed engines
+ * are replaced.
+ */
+public class EnginePool implements AutoCloseable {
+    private static final Logger logger = LogManager.getLogger(EnginePool.class);
+
+    private static final long HEALTH_CHECK_TIMEOUT_SECONDS = 5;
+    private static final long ENGINE_READY_TIMEOUT_SECONDS = 60;
+    private static final long EVICTION_INTERVAL_MILLIS = 30_000;
+
+    /**
+     * An engine borrowed from the pool. Closing the lease returns the engine.
+     */
+    public class Lease implements AutoCloseable {
+        private final GtpClient gtpClient;
+        private final BoardHistoryNode position;
+        private boolean broken;
+        private boolean closed;
+
+        private Lease(GtpClient gtpClient, BoardHistoryNode position) {
+            this.gtpClient = gtpClient;
+            this.position = position;
+            broken = false;
+            closed = false;
+        }
+
+        public GtpClient getGtpClient() {
+            return gtpClient;
+        }
+
+        public BoardHistoryNode getPosition() {
+            return position;
+        }
+
+        /**
+         * Marks the engine as unusable, it is stopped instead of returned when the lease is closed.
+         */
+        public void markBroken() {
+            broken = true;
+        }
+
+        @Override
+        public synchronized void close() {
+            if (closed) {
+                return;
+            }
+            closed = true;
+
+            if (broken) {
+                invalidate(gtpClient);
+            } else {
+                pool.returnObject(gtpClient);
+            }
+        }
+    }
+
+    private class EngineFactory extends BasePooledObjectFactory<GtpClient> {
+        @Override
+        public GtpClient create() {
+            GtpClient gtpClient = new GtpClientBuilder()
+                    .setCommandLine(commandLine)
+                    .build();
+            gtpClient.registerEngineExitObserver(exitCode -> {
+                if (!stoppingEngines.remove(gtpClient)) {
+                    logger.warn("Pooled engine exited unexpectedly with code {}.", exitCode);
+                    replaceCrashedEngines();
+                }
+            });
+            gtpClient.start();
+
+            // Loading the network happens before the first response
+            if (!isResponding(gtpClient, ENGINE_READY_TIMEOUT_SECONDS)) {
+                stopEngine(gtpClient);
+                throw new GenericLizzieException(ImmutableMap.of(GtpBasedAnalyzerBuilder.REASON, GtpBasedAnalyzerBuilder.ENGINE_NOT_FUNCTION));
+            }
+            if (gtpClient instanceof GeneralGtpClient) {
+                ((GeneralGtpClient) gtpClient).detectPipelining();
+            }
+
+            return gtpClient;
+        }
+
+        @Override
+        public PooledObject<GtpClient> wrap(GtpClient gtpClient) {
+            return new DefaultPooledObject<>(gtpClient);
+        }
+
+        @Override
+        public boolean validateObject(PooledObject<GtpClient> pooledObject) {
+            GtpClient gtpClient = pooledObject.getObject();
+            return gtpClient.isRunning() && !gtpClient.isShutdown() && isResponding(gtpClient, HEALTH_CHECK_TIMEOUT_SECONDS);
+        }
+
+        @Override
+        public void passivateObject(PooledObject<GtpClient> pooledObject) {
+            // Any command stops an ongoing analysis
+            if (!isResponding(pooledObject.getObject(), HEALTH_CHECK_TIMEOUT_SECONDS)) {
+                throw new GenericLizzieException("Engine does not respond after being returned.");
+            }
+        }
+
+        @Override
+        public void destroyObject(PooledObject<GtpClient> pooledObject) {
+            stopEngine(pooledObject.getObject());
+        }
+    }
+
+    private final String commandLine;
+    private final GenericObjectPool<GtpClient> pool;
+    private final ExecutorService maintenanceExecutor;
+    // Engines being stopped on purpose, their exit is not a crash
+    private final Set<GtpClient> stoppingEngines;
+
+    /**
+     * Creates the pool and starts the warm engines in the background.
+     *
+     * @param commandLine        the engine profile
+     * @param maxEngines         the maximum number of engine processes
+     * @param warmEngines        the number of idle engines always kept running
+     * @param idleTimeoutSeconds the idle time after which engines beyond the warm ones are stopped
+     */
+    public EnginePool(String commandLine, int maxEngines, int warmEngines, long idleTimeoutSeconds) {
+        this.commandLine = commandLine;
+        maintenanceExecutor = Executors.newSingleThreadExecutor();
+        stoppingEngines = ConcurrentHashMap.newKeySet();
+
+        GenericObjectPoolConfig<GtpClient> config = new GenericObjectPoolConfig<>();
+        config.setMaxTotal(maxEngines);
+        config.setMaxIdle(maxEngines);
+        config.setMinIdle(Math.min(warmEngines, maxEngines));
+        config.setTestOnBorrow(true);
+        config.setTestWhileIdle(true);
+        config.setTimeBetweenEvictionRunsMillis(EVICTION_INTERVAL_MILLIS);
+        // Check every idle engine on each run
+        config.setNumTestsPerEvictionRun(-1);
+        config.setSoftMinEvictableIdleTimeMillis(TimeUnit.SECONDS.toMillis(idleTimeoutSeconds));
+        config.setMinEvictableIdleTimeMillis(-1);
+        config.setJmxEnabled(false);
+
+        pool = new GenericObjectPool<>(new EngineFactory(), config);
+        maintenanceExecutor.execute(this::prepareWarmEngines);
+    }
+
+    /**
+     * Creates a pool for an engine profile with the pool settings of the options.
+     *
+     * @param commandLine the engine profile
+     * @return the pool
+     */
+    public static EnginePool forProfile(String commandLine) {
+        return new EnginePool(commandLine
+                , Lizzie.optionSetting.getEnginePoolSize()
+                , Lizzie.optionSetting.getEnginePoolWarmCount()
+                , Lizzie.optionSetting.getEnginePoolIdleTimeout());
+    }
+
+    public String getCommandLine() {
+        return commandLine;
+    }
+
+    public int getMaxEngines() {
+        return pool.getMaxTotal();
+    }
+
+    public int getIdleEngineCount() {
+        return pool.getNumIdle();
+    }
+
+    public int getLeasedEngineCount() {
+        return pool.getNumActive();
+    }
+
+    /**
+     * Borrows an engine and sets it up at a position, waiting for an engine to be free if needed.
+     *
+     * @param position the position
+     * @param timeout  the maximum time to wait for a free engine and for the position set up
+     * @param timeUnit the unit of the timeout
+     * @return the lease of the engine
+     * @throws GenericLizzieException if no working engine is available in time
+     */
+    public Lease lease(BoardHistoryNode position, long timeout, TimeUnit timeUnit) {
+        GtpClient gtpClient;
+        try {
+            gtpClient = pool.borrowObject(timeUnit.toMillis(timeout));
+        } catch (Exception e) {
+            throw new GenericLizzieException("No engine available in the pool.", e);
+        }
+
+        Lease lease = new Lease(gtpClient, position);
+        try {
+            setPosition(gtpClient, position, timeout, timeUnit);
+        } catch (RuntimeException e) {
+            lease.markBroken();
+            lease.close();
+            throw e;
+        }
+        return lease;
+    }
+
+    private static void setPosition(GtpClient gtpClient, BoardHistoryNode position, long timeout, TimeUnit timeUnit) {
+        MutableList<String> moves = Lists.mutable.empty();
+        for (BoardHistoryNode node = position; node != null; node = node.getPrevious()) {
+            String command = BoardStateSynchronizer.replayCommandOf(node.getData());
+            if (command != null) {
+                moves.add(command);
+            }
+        }
+
+        List<ListenableFuture<List<String>>> futures = new ArrayList<>(moves.size() + 2);
+        futures.add(gtpClient.postCommand("boardsize " + position.getData().getGeometry().getSize()));
+        futures.add(gtpClient.postCommand("clear_board"));
+        for (String command : moves.asReversed()) {
+            futures.add(gtpClient.postCommand(command));
+        }
+
+        List<List<String>> responses;
+        try {
+            responses = Futures.allAsList(futures).get(timeout, timeUnit);
+        } catch (InterruptedException | ExecutionException | TimeoutException e) {
+            throw new GenericLizzieException("Failed to set up the position of a pooled engine.", e);
+        }
+        if (!responses.stream().allMatch(GtpCommand::isSuccessfulResponse)) {
+            throw new GenericLizzieException("The pooled engine rejected the position.");
+        }
+    }
+
+    private static boolean isResponding(GtpClient gtpClient, long timeoutSeconds) {
+        List<String> response = null;
+        try {
+            response = gtpClient.postCommand("name").get(timeoutSeconds, TimeUnit.SECONDS);
+        } catch (InterruptedException | ExecutionException | TimeoutException e) {
+            // Not responding
+        }
+        return GtpCommand.isSuccessfulResponse(response);
+    }
+
+    private void stopEngine(GtpClient gtpClient) {
+        stoppingEngines.add(gtpClient);
+        gtpClient.shutdown(HEALTH_CHECK_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        stoppingEngines.remove(gtpClient);
+    }
+
+    private void invalidate(GtpClient gtpClient) {
+        try {
+            pool.invalidateObject(gtpClient);
+        } catch (Exception e) {
+            logger.error("Error in stopping a pooled engine.", e);
+        }
+    }
+
+    private void replaceCrashedEngines() {
+        if (pool.isClosed()) {
+            return;
+        }
+
+        // Exit observers run on the engine's own threads, which must not wait for the engine shutdown
+        maintenanceExecutor.execute(() -> {
+            try {
+                pool.evict();
+            } catch (Exception e) {
+                logger.error("Error in removing crashed engines.", e);
+            }
+            prepareWarmEngines();
+        });
+    }
+
+    private void prepareWarmEngines() {
+        if (pool.isClosed()) {
+            return;
+        }
+
+        try {
+            pool.preparePool();
+        } catch (Exception e) {
+            logger.error("Error in starting pooled engines.", e);
+        }
+    }
+
+    /**
+     * Stops the idle engines at once and leased engines when they are returned.
+     */
+    @Override
+    public void close() {
+        pool.close();
+        ThreadPoolUtil.shutdownAndAwaitTermination(maintenanceExecutor);
+    }
+}
@@ -0,0 +1,175 @@
+package featurecat.lizzie.analysis;
+
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.ListeningExecutorService;
+import com.google.common.util.concurrent.MoreExecutors;
+import featurecat.lizzie.analysis.EngineCapabilityCache.AnalyzerKind;
+import featurecat.lizzie.rules.BoardHistoryNode;
+import featurecat.lizzie.util.ThreadPoolUtil;
+import org.apache.commons.collections4.CollectionUtils;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BiConsumer;
+import java.util.stream.Collectors;
+
+/**
+ * Analyses every position of a game line on the engines of a pool, one position per engine at a time. Each position
+ * gets the same budget: the analysis stops when the candidate moves reach the visit count or when the time is up,
+ * whichever comes first. A game therefore takes about positions * budget / engines of wall time.
+ * <p>
+ * Positions are analysed with lz-analyze, so only engines speaking one of its versions can review games, see
+ * {@link #isSupported(AnalyzerKind)}.
+ */
+public class GameReviewer implements AutoCloseable {
+    private static final Logger logger = LogManager.getLogger(GameReviewer.class);
+
+    // Centiseconds between two analysis reports of the engine
+    private static final int ANALYZE_INTERVAL = 50;
+    // Positions queue up for an engine, so the wait may last for many positions
+    private static final long LEASE_TIMEOUT_MINUTES = 30;
+
+    private final EnginePool enginePool;
+    private final AnalyzerKind analyzerKind;
+    private final int visitBudget;
+    private final long timeBudgetMillis;
+    private final ListeningExecutorService workers;
+    private final List<ListenableFuture<?>> positionFutures;
+    private final AtomicBoolean cancelled;
+
+    /**
+     * @param enginePool       the engines to analyse on
+     * @param analyzerKind     the protocol of the engines, must be supported
+     * @param visitBudget      the total visits of the candidate moves after which a position is done
+     * @param timeBudgetMillis the time after which a position is done
+     */
+    public GameReviewer(EnginePool enginePool, AnalyzerKind analyzerKind, int visitBudget, long timeBudgetMillis) {
+        if (!isSupported(analyzerKind)) {
+            throw new IllegalArgumentException("Engines of kind " + analyzerKind + " cannot review games.");
+        }
+
+        this.enginePool = enginePool;
+        this.analyzerKind = analyzerKind;
+        this.visitBudget = visitBudget;
+        this.timeBudgetMillis = timeBudgetMillis;
+        workers = MoreExecutors.listeningDecorator(Executors.newFixedThreadPool(enginePool.getMaxEngines()));
+        positionFutures = new CopyOnWriteArrayList<>();
+        cancelled = new AtomicBoolean(false);
+    }
+
+    /**
+     * Queues the positions from a node to the end of its line. Positions are handed out in order, so results mostly
+     * arrive from the beginning of the game onwards.
+     *
+     * @param firstNode      the first position to analyse
+     * @param resultConsumer receives each position with its candidate moves, called from the worker threads
+     * @return a future completed when every position is done
+     */
+    public ListenableFuture<?> review(BoardHistoryNode firstNode, BiConsumer<BoardHistoryNode, List<MoveData>> resultConsumer) {
+        List<ListenableFuture<?>> futures = new ArrayList<>();
+        for (BoardHistoryNode node = firstNode; node != null; node = node.getNext()) {
+            final BoardHistoryNode position = node;
+            futures.add(workers.submit(() -> reviewPosition(position, resultConsumer)));
+        }
+        positionFutures.addAll(futures);
+
+        return Futures.successfulAsList(futures);
+    }
+
+    /**
+     * @param analyzerKind the protocol of an engine
+     * @return whether or not engines of the kind can review games
+     */
+    public static boolean isSupported(AnalyzerKind analyzerKind) {
+        return analyzerKind == AnalyzerKind.LEELAZ_V2 || analyzerKind == AnalyzerKind.LEELAZ_V1;
+    }
+
+    public boolean isCancelled() {
+        return cancelled.get();
+    }
+
+    private void reviewPosition(BoardHistoryNode position, BiConsumer<BoardHistoryNode, List<MoveData>> resultConsumer) {
+        if (cancelled.get()) {
+            return;
+        }
+
+        try (EnginePool.Lease lease = enginePool.lease(position, LEASE_TIMEOUT_MINUTES, TimeUnit.MINUTES)) {
+            List<MoveData> bestMoves = analyze(lease.getGtpClient());
+            if (CollectionUtils.isNotEmpty(bestMoves) && !cancelled.get()) {
+                resultConsumer.accept(position, bestMoves);
+            }
+        } catch (RuntimeException e) {
+            logger.error("Error in reviewing move " + position.getData().getMoveNumber() + ".", e);
+        }
+    }
+
+    private List<MoveData> analyze(GtpClient gtpClient) {
+        AtomicReference<List<MoveData>> latestBestMoves = new AtomicReference<>(Collections.emptyList());
+        CountDownLatch budgetReached = new CountDownLatch(1);
+        // Version 1 prints one move per line, so the moves are collected across lines
+        Map<Integer, MoveData> collectedMoves = new ConcurrentHashMap<>();
+
+        gtpClient.postCommand("lz-analyze " + ANALYZE_INTERVAL, true, line -> {
+            if (!StringUtils.startsWith(line, "info")) {
+                return;
+            }
+
+            List<MoveData> bestMoves;
+            if (analyzerKind == AnalyzerKind.LEELAZ_V2) {
+                bestMoves = OfficialLeelazAnalyzerV2.parseMoveDataLine(line);
+            } else {
+                MoveData moveData = OfficialLeelazAnalyzerV1.parseMoveDataLine(line);
+                if (moveData == null) {
+                    return;
+                }
+                collectedMoves.put(moveData.getPoint(), moveData);
+                bestMoves = collectedMoves.values().stream()
+                        .sorted(Comparator.comparingInt(MoveData::getPlayouts).reversed())
+                        .collect(Collectors.toList());
+            }
+            if (CollectionUtils.isEmpty(bestMoves)) {
+                return;
+            }
+
+            latestBestMoves.set(bestMoves);
+            if (bestMoves.stream().mapToInt(MoveData::getPlayouts).sum() >= visitBudget) {
+                budgetReached.countDown();
+            }
+        });
+
+        try {
+            budgetReached.await(timeBudgetMillis, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            // Cancelled, keep the interrupt so that the worker stops after returning the engine
+            Thread.currentThread().interrupt();
+        }
+
+        // Returning the engine stops the analysis
+        return latestBestMoves.get();
+    }
+
+    /**
+     * Drops the positions not started yet and interrupts the running ones.
+     */
+    @Override
+    public void close() {
+        if (!cancelled.getAndSet(true)) {
+            positionFutures.forEach(future -> future.cancel(true));
+            ThreadPoolUtil.shutdownAndAwaitTermination(workers);
+        }
+    }
+}
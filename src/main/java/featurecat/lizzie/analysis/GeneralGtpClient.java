@@ -4,14 +4,17 @@ import com.zaxxer.nuprocess.NuAbstractProcessHandler;
 import com.zaxxer.nuprocess.NuProcess;
 import com.zaxxer.nuprocess.NuProcessBuilder;
 import com.zaxxer.nuprocess.NuProcessHandler;
-import org.apache.commons.lang3.tuple.ImmutablePair;
 import org.jtrim2.utils.ObjectFinalizer;
 import featurecat.lizzie.util.ArgumentTokenizer;
+import featurecat.lizzie.util.EngineDispatcher;
+import featurecat.lizzie.util.LineDecoder;
 import featurecat.lizzie.util.ThreadPoolUtil;
 
 import java.io.Closeable;
 import java.io.IOException;
 import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Objects;
 import java.util.concurrent.*;
@@ -19,6 +22,36 @@ import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 public class GeneralGtpClient implements GtpClient {
+    private static final int PIPELINING_PROBE_ID = 90001;
+    // Keeps Leela Zero based engines busy for one network evaluation, without changing the position
+    private static final String PIPELINING_PROBE_COMMAND = "heatmap";
+    private static final long PIPELINING_PROBE_TIMEOUT_SECONDS = 5;
+    private static final int PIPELINING_PROBE_ATTEMPTS = 3;
+
+    /**
+     * A command in the staging or running queue together with the consumer of its output lines.
+     */
+    protected static class CommandEntry {
+        private final GeneralGtpFuture future;
+        private final Consumer<String> outputConsumer;
+
+        public CommandEntry(GeneralGtpFuture future, Consumer<String> outputConsumer) {
+            this.future = future;
+            this.outputConsumer = outputConsumer;
+        }
+
+        public GeneralGtpFuture getFuture() {
+            return future;
+        }
+
+        /**
+         * @return the consumer of the output lines, null if the lines are collected into the response
+         */
+        public Consumer<String> getOutputConsumer() {
+            return outputConsumer;
+        }
+    }
+
     protected class GeneralGtpProcessHandler extends NuAbstractProcessHandler implements Closeable {
         private final ObjectFinalizer objectFinalizer;
 
@@ -26,36 +59,39 @@ public class GeneralGtpClient implements GtpClient {
         protected ExecutorService stderrProcessor;
         protected ExecutorService miscProcessor;
 
-        protected StringBuilder stdoutLineBuilder;
-        protected StringBuilder stderrLineBuilder;
+        protected LineDecoder stdoutLineDecoder;
+        protected LineDecoder stderrLineDecoder;
         protected boolean inCommandResponse;
 
         public GeneralGtpProcessHandler() {
             objectFinalizer = new ObjectFinalizer(this::doCleanup, "GtpClientHandler.cleanup");
 
-            stdoutProcessor = Executors.newSingleThreadExecutor();
-            stderrProcessor = Executors.newSingleThreadExecutor();
-            miscProcessor = Executors.newSingleThreadExecutor();
-            stdoutLineBuilder = new StringBuilder(2048);
-            stderrLineBuilder = new StringBuilder(2048);
+            // Ordered lanes on the shared dispatcher, so engines do not cost threads of their own
+            stdoutProcessor = EngineDispatcher.newLane("GTP stdout");
+            stderrProcessor = EngineDispatcher.newLane("GTP stderr");
+            miscProcessor = EngineDispatcher.newLane("GTP misc");
+            stdoutLineDecoder = new LineDecoder(StandardCharsets.UTF_8);
+            stderrLineDecoder = new LineDecoder(StandardCharsets.UTF_8);
             inCommandResponse = false;
         }
 
         @Override
         public void onStart(final NuProcess nuProcess) {
-            miscProcessor.execute(() -> engineStartedObserverList.forEach(observer -> observer.accept(nuProcess.getPID())));
+            engineStarted(nuProcess.getPID());
+        }
+
+        protected void engineStarted(final int pid) {
+            miscProcessor.execute(() -> engineStartedObserverList.forEach(observer -> observer.accept(pid)));
         }
 
         @Override
         public void onExit(final int statusCode) {
-            ImmutablePair<GeneralGtpFuture, Consumer<String>> futurePair;
+            CommandEntry entry;
 
-            while ((futurePair = runningCommandQueue.poll()) != null) {
-                futurePair.getLeft().markCompleted();
-            }
+            abortRunningCommandsAfterPendingLines();
 
-            while ((futurePair = stagineCommandQueue.poll()) != null) {
-                futurePair.getLeft().markCompleted();
+            while ((entry = stagineCommandQueue.poll()) != null) {
+                entry.getFuture().markCompleted();
             }
 
             miscProcessor.execute(() -> engineExitObserverList.forEach(observer -> observer.accept(statusCode)));
@@ -63,79 +99,166 @@ public class GeneralGtpClient implements GtpClient {
             engineExit = true;
         }
 
+        /**
+         * Completes the commands sent to an engine that went away with the response received so far. Staged commands
+         * are kept. The lines already read from the engine may still wait on the stdout lane, so the abort is queued
+         * behind them: they still reach the commands they answer, and none is left over for the commands sent next.
+         * Blocks until the abort is done.
+         */
+        protected void abortRunningCommandsAfterPendingLines() {
+            ExecutorService processor = stdoutProcessor;
+            if (processor == null) {
+                abortRunningCommands();
+                return;
+            }
+
+            try {
+                processor.submit(this::abortRunningCommands).get();
+            } catch (RejectedExecutionException | ExecutionException e) {
+                // The lane is shut down, so no line is waiting any more
+                abortRunningCommands();
+            } catch (InterruptedException e) {
+                abortRunningCommands();
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        private synchronized void abortRunningCommands() {
+            CommandEntry entry;
+            while ((entry = pollRunningCommand()) != null) {
+                entry.getFuture().markCompleted();
+            }
+            inCommandResponse = false;
+            stdoutLineDecoder.reset();
+        }
+
         @Override
         public void onStdout(final ByteBuffer buffer, final boolean closed) {
             if (!closed) {
-                final byte[] bytes = new byte[buffer.remaining()];
-                // You must update buffer.position() before returning (either implicitly,
-                // like this, or explicitly) to indicate how many bytes your handler has consumed.
-                buffer.get(bytes);
-
-                stdoutProcessor.execute(() -> {
-                    for (byte b : bytes) {
-                        stdoutLineBuilder.append((char) b);
-                        if (b == '\n') {
-                            onEngineStdoutLine(stdoutLineBuilder.toString());
-                            stdoutLineBuilder = new StringBuilder(2048);
-                        }
-                    }
-                });
+                // Decoding consumes the buffer, which must happen before returning. Only complete lines are handed over.
+                final int byteCount = buffer.remaining();
+                final List<String> lines = decodeLines(stdoutLineDecoder, buffer);
+                metrics.recordStdout(lines.size(), byteCount);
+                if (!lines.isEmpty()) {
+                    stdoutProcessor.execute(() -> lines.forEach(this::onEngineStdoutLine));
+                }
             }
         }
 
         @Override
         public void onStderr(final ByteBuffer buffer, final boolean closed) {
             if (!closed) {
-                final byte[] bytes = new byte[buffer.remaining()];
-                // You must update buffer.position() before returning (either implicitly,
-                // like this, or explicitly) to indicate how many bytes your handler has consumed.
-                buffer.get(bytes);
-
-                stderrProcessor.execute(() -> {
-                    for (byte b : bytes) {
-                        stderrLineBuilder.append((char) b);
-                        if (b == '\n') {
-                            onEngineStderrLine(stderrLineBuilder.toString());
-                            stderrLineBuilder = new StringBuilder(2048);
-                        }
-                    }
-                });
+                final List<String> lines = decodeLines(stderrLineDecoder, buffer);
+                if (!lines.isEmpty()) {
+                    stderrProcessor.execute(() -> lines.forEach(this::onEngineStderrLine));
+                }
             }
         }
 
+        private List<String> decodeLines(LineDecoder lineDecoder, ByteBuffer buffer) {
+            List<String> lines = new ArrayList<>(4);
+            lineDecoder.decode(buffer, lines::add);
+            return lines;
+        }
+
         @Override
         public synchronized boolean onStdinReady(final ByteBuffer buffer) {
-            if (!runningCommandQueue.isEmpty() && runningCommandQueue.stream().anyMatch(pair -> !pair.getLeft().isContinuous())) {
+            boolean wantMore = writeStagedCommands(buffer);
+            if (buffer.position() > 0) {
+                buffer.flip();
+            }
+            return wantMore;
+        }
+
+        /**
+         * Moves the staged commands that may be sent now into the buffer, as many as fit.
+         *
+         * @param buffer the buffer in write mode, left unflipped
+         * @return whether or not more commands are waiting to be written
+         */
+        protected synchronized boolean writeStagedCommands(final ByteBuffer buffer) {
+            if (!pipelining && runningNonContinuousCount > 0) {
                 return false;
             }
 
-            ImmutablePair<GeneralGtpFuture, Consumer<String>> futurePair = stagineCommandQueue.poll();
-            if (futurePair != null) {
-                GeneralGtpFuture future = futurePair.getLeft();
-                buffer.put(future.getCommand().getBytes());
-                if (!future.getCommand().endsWith("\n")) {
-                    buffer.put((byte) '\n');
+            boolean wantMore = false;
+            CommandEntry entry;
+            while ((entry = stagineCommandQueue.peek()) != null) {
+                GeneralGtpFuture future = entry.getFuture();
+                byte[] commandBytes = toCommandBytes(future.getCommand());
+                if (buffer.position() > 0 && commandBytes.length > buffer.remaining()) {
+                    // The rest goes in the next write
+                    wantMore = true;
+                    break;
+                }
+                if (!stagineCommandQueue.remove(entry)) {
+                    // Cancelled meanwhile
+                    continue;
                 }
-                buffer.flip();
 
-                runningCommandQueue.offer(futurePair);
+                buffer.put(commandBytes);
+                future.markSent();
+                metrics.recordQueueWait(future.getSentNanos() - future.getStagedNanos());
+                offerRunningCommand(entry);
                 miscProcessor.execute(() -> engineGtpCommandObserverList.forEach(observer -> observer.accept(future.getCommand())));
 
-                // In case of some particular situations
-                if (future.isContinuous() && !stagineCommandQueue.isEmpty()) {
-                    return true;
+                if (!pipelining) {
+                    // In case of some particular situations
+                    wantMore = future.isContinuous() && !stagineCommandQueue.isEmpty();
+                    break;
                 }
             }
 
-            return false;
+            return wantMore;
+        }
+
+        private byte[] toCommandBytes(String command) {
+            return command.endsWith("\n") ? command.getBytes() : (command + "\n").getBytes();
+        }
+
+        /**
+         * Pipelined commands are answered in order. If the engine echoes an id that belongs to a later command, the
+         * commands before it got no response and are completed as they are.
+         *
+         * @param headerLine the response header line
+         */
+        private void skipUnansweredCommands(String headerLine) {
+            int responseId = GtpCommand.parseCommandId(headerLine, 1);
+            CommandEntry head = runningCommandQueue.peek();
+            // Only a mismatch needs a look further down the queue
+            if (responseId < 0 || head == null || head.getFuture().getCommandId() == responseId
+                    || runningCommandQueue.stream().noneMatch(running -> running.getFuture().getCommandId() == responseId)) {
+                return;
+            }
+
+            CommandEntry entry;
+            while ((entry = runningCommandQueue.peek()) != null && entry.getFuture().getCommandId() != responseId) {
+                pollRunningCommand();
+                entry.getFuture().markCompleted();
+            }
+        }
+
+        private void offerRunningCommand(CommandEntry entry) {
+            runningCommandQueue.offer(entry);
+            if (!entry.getFuture().isContinuous()) {
+                ++runningNonContinuousCount;
+            }
+        }
+
+        private CommandEntry pollRunningCommand() {
+            CommandEntry entry = runningCommandQueue.poll();
+            if (entry != null && !entry.getFuture().isContinuous()) {
+                --runningNonContinuousCount;
+            }
+            return entry;
         }
 
         protected synchronized void onEngineStdoutLine(final String line) {
             engineStdoutLineConsumerList.forEach(consumer -> consumer.accept(line));
             if (inCommandResponse) {
-                ImmutablePair<GeneralGtpFuture, Consumer<String>> futurePair = Objects.requireNonNull(runningCommandQueue.peek());
-                GeneralGtpFuture future = Objects.requireNonNull(futurePair.getLeft());
-                Consumer<String> commandOutputConsumer = futurePair.getRight();
+                CommandEntry entry = Objects.requireNonNull(runningCommandQueue.peek());
+                GeneralGtpFuture future = entry.getFuture();
+                Consumer<String> commandOutputConsumer = entry.getOutputConsumer();
                 List<String> response = future.getResponse();
 
                 if (commandOutputConsumer == null) {
@@ -145,38 +268,45 @@ public class GeneralGtpClient implements GtpClient {
                 }
 
                 if (line.equals("\n") || line.equals("\r\n") || line.equals("\r")) {
+                    if (!future.isContinuous()) {
+                        metrics.recordExecution(System.nanoTime() - future.getStartedNanos());
+                    }
                     future.markCompleted();
 
-                    runningCommandQueue.poll();
+                    pollRunningCommand();
                     inCommandResponse = false;
 
                     // Notify for next command processing
-                    if (runningCommandQueue.stream().allMatch(pair -> pair.getLeft().isContinuous()) && !stagineCommandQueue.isEmpty()) {
-                        gtpProcess.wantWrite();
+                    if (runningNonContinuousCount == 0 && !stagineCommandQueue.isEmpty()) {
+                        requestStdinWrite();
                     }
                 } else {
                     // Prevent stuck
-                    if (future.isContinuous() && runningCommandQueue.stream().allMatch(pair -> pair.getLeft().isContinuous()) && !stagineCommandQueue.isEmpty()) {
-                        gtpProcess.wantWrite();
+                    if (future.isContinuous() && runningNonContinuousCount == 0 && !stagineCommandQueue.isEmpty()) {
+                        requestStdinWrite();
                     }
                 }
             } else if (line.startsWith("=") || line.startsWith("?")) {
                 inCommandResponse = true;
+                if (pipelining) {
+                    skipUnansweredCommands(line);
+                }
 
-                ImmutablePair<GeneralGtpFuture, Consumer<String>> futurePair = Objects.requireNonNull(runningCommandQueue.peek());
-                GeneralGtpFuture future = Objects.requireNonNull(futurePair.getLeft());
-                Consumer<String> commandOutputConsumer = futurePair.getRight();
+                CommandEntry entry = Objects.requireNonNull(runningCommandQueue.peek());
+                GeneralGtpFuture future = entry.getFuture();
+                Consumer<String> commandOutputConsumer = entry.getOutputConsumer();
                 List<String> response = future.getResponse();
 
                 future.markStarted();
+                metrics.recordResponseDelay(future.getStartedNanos() - future.getSentNanos());
 
                 if (commandOutputConsumer == null) {
                     response.add(line);
                 } else {
                     commandOutputConsumer.accept(line);
                     // Prevent stuck
-                    if (future.isContinuous() && runningCommandQueue.stream().allMatch(pair -> pair.getLeft().isContinuous()) && !stagineCommandQueue.isEmpty()) {
-                        gtpProcess.wantWrite();
+                    if (future.isContinuous() && runningNonContinuousCount == 0 && !stagineCommandQueue.isEmpty()) {
+                        requestStdinWrite();
                     }
                 }
             } else {
@@ -217,10 +347,12 @@ public class GeneralGtpClient implements GtpClient {
 
     private final ObjectFinalizer objectFinalizer;
     private List<String> gtpCommandLine;
-    private NuProcessHandler gtpProcessHandler;
+    protected NuProcessHandler gtpProcessHandler;
     private NuProcess gtpProcess;
-    private ConcurrentLinkedQueue<ImmutablePair<GeneralGtpFuture, Consumer<String>>> stagineCommandQueue;
-    private ConcurrentLinkedQueue<ImmutablePair<GeneralGtpFuture, Consumer<String>>> runningCommandQueue;
+    private ConcurrentLinkedQueue<CommandEntry> stagineCommandQueue;
+    private ConcurrentLinkedQueue<CommandEntry> runningCommandQueue;
+    // Number of running commands that are not continuous, guarded by the process handler
+    private int runningNonContinuousCount;
     private List<Consumer<String>> engineDiagnosticLineConsumerList;
     private List<Consumer<String>> engineStdoutLineConsumerList;
     private List<Consumer<String>> engineStderrLineConsumerList;
@@ -228,6 +360,8 @@ public class GeneralGtpClient implements GtpClient {
     private List<Consumer<Integer>> engineExitObserverList;
     private List<Consumer<String>> engineGtpCommandObserverList;
     private boolean engineExit;
+    private volatile boolean pipelining;
+    private volatile GtpClientMetrics metrics;
 
     public GeneralGtpClient(String commandLine) {
         this(ArgumentTokenizer.tokenize(commandLine));
@@ -239,6 +373,7 @@ public class GeneralGtpClient implements GtpClient {
         gtpCommandLine = commandLine;
         stagineCommandQueue = new ConcurrentLinkedQueue<>();
         runningCommandQueue = new ConcurrentLinkedQueue<>();
+        runningNonContinuousCount = 0;
         engineDiagnosticLineConsumerList = new CopyOnWriteArrayList<>();
         engineStdoutLineConsumerList = new CopyOnWriteArrayList<>();
         engineStderrLineConsumerList = new CopyOnWriteArrayList<>();
@@ -246,6 +381,8 @@ public class GeneralGtpClient implements GtpClient {
         engineExitObserverList = new CopyOnWriteArrayList<>();
         engineGtpCommandObserverList = new CopyOnWriteArrayList<>();
         engineExit = false;
+        pipelining = false;
+        setMetrics(new GtpClientMetrics());
     }
 
     public void registerDiagnosticLineConsumer(Consumer<String> consumer) {
@@ -277,16 +414,95 @@ public class GeneralGtpClient implements GtpClient {
     }
 
     public boolean removeCommandFromStagineQueue(GeneralGtpFuture future) {
-        return stagineCommandQueue.removeIf(futurePair -> futurePair.getLeft().equals(future));
+        return stagineCommandQueue.removeIf(entry -> entry.getFuture().equals(future));
+    }
+
+    @Override
+    public GtpClientMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Reports to the given metrics instead of the client's own, for numbers that outlive the client.
+     *
+     * @param metrics the metrics
+     */
+    public void setMetrics(GtpClientMetrics metrics) {
+        metrics.bindQueues(stagineCommandQueue::size, runningCommandQueue::size);
+        this.metrics = metrics;
+    }
+
+    public boolean isPipelining() {
+        return pipelining;
+    }
+
+    /**
+     * In pipelining mode every staged command that fits in the stdin buffer is written at once, without waiting for
+     * the responses of the running commands. Only enable it for engines that passed {@link #detectPipelining()}.
+     *
+     * @param pipelining whether or not to pipeline commands
+     */
+    public void setPipelining(boolean pipelining) {
+        this.pipelining = pipelining;
+    }
+
+    /**
+     * Enables pipelining if the engine passes a probe of what the mode relies on: a command written while an earlier
+     * one is still executing is read and answered after it, rather than dropped or taken as an interruption of the
+     * earlier one. The probe posts a numbered heatmap, which makes the engine evaluate its network once, and posts a
+     * second numbered command as soon as the first is written, so that it goes out in a write of its own. The engine
+     * passes if the second command was written before the first was answered, and both are answered successfully in
+     * order, echoing their ids. Engines that answer the first one before the second is written, or that do not know
+     * heatmap, are not pipelined.
+     * <p>
+     * A write request made while the stdin callback that wrote the first command is returning may be dropped by
+     * NuProcess, and then waits for the next request. A probe where both commands succeed without overlapping is
+     * therefore tried again a few times before giving up.
+     *
+     * @return whether or not pipelining is enabled
+     */
+    public boolean detectPipelining() {
+        pipelining = true;
+
+        boolean supported = false;
+        try {
+            for (int attempt = 0; attempt < PIPELINING_PROBE_ATTEMPTS && !supported; ++attempt) {
+                int firstId = PIPELINING_PROBE_ID + 2 * attempt;
+                GeneralGtpFuture first = (GeneralGtpFuture) postCommand(firstId + " " + PIPELINING_PROBE_COMMAND);
+                long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(PIPELINING_PROBE_TIMEOUT_SECONDS);
+                // Spins rather than sleeps, as the engine may be done with the first command in a few milliseconds
+                while (first.getSentNanos() == 0 && !first.isDone() && System.nanoTime() < deadline) {
+                    Thread.yield();
+                }
+                GeneralGtpFuture second = (GeneralGtpFuture) postCommand((firstId + 1) + " name");
+
+                List<String> firstResponse = first.get(PIPELINING_PROBE_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+                List<String> secondResponse = second.get(PIPELINING_PROBE_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+                boolean answered = GtpCommand.isSuccessfulResponse(firstResponse) && GtpCommand.isSuccessfulResponse(secondResponse)
+                        && GtpCommand.parseCommandId(firstResponse.get(0), 1) == firstId
+                        && GtpCommand.parseCommandId(secondResponse.get(0), 1) == firstId + 1;
+                if (!answered) {
+                    break;
+                }
+                supported = second.getSentNanos() != 0 && second.getSentNanos() - first.getStartedNanos() < 0;
+            }
+        } catch (ExecutionException | TimeoutException e) {
+            // Not supported
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        pipelining = supported;
+        return supported;
     }
 
     @Override
     public GtpFuture postCommand(String command, boolean continuous, Consumer<String> commandOutputConsumer) {
         GeneralGtpFuture future = new GeneralGtpFuture(command, this, continuous);
         synchronized (gtpProcessHandler) {
-            stagineCommandQueue.offer(ImmutablePair.of(future, commandOutputConsumer));
-            if (runningCommandQueue.isEmpty() || runningCommandQueue.stream().allMatch(pair -> pair.getLeft().isContinuous())) {
-                gtpProcess.wantWrite();
+            stagineCommandQueue.offer(new CommandEntry(future, commandOutputConsumer));
+            if (pipelining || runningNonContinuousCount == 0) {
+                requestStdinWrite();
             }
         }
 
@@ -307,11 +523,48 @@ public class GeneralGtpClient implements GtpClient {
     protected void setUpOtherProcessParameters(NuProcessBuilder processBuilder) {
     }
 
+    /**
+     * Asks the engine transport to call the process handler for writing staged commands.
+     */
+    protected void requestStdinWrite() {
+        NuProcess process = gtpProcess;
+        if (process != null) {
+            process.wantWrite();
+        }
+    }
+
+    /**
+     * @return whether or not commands have been sent to the engine without their response completed
+     */
+    protected boolean hasRunningCommands() {
+        return !runningCommandQueue.isEmpty();
+    }
+
     protected NuProcessHandler provideProcessHandler() {
         return this.new GeneralGtpProcessHandler();
     }
 
     private int doShutdown(long timeout, TimeUnit timeUnit) {
+        int exitCode = stopEngine(timeout, timeUnit);
+
+        if (gtpProcessHandler instanceof Closeable) {
+            try {
+                ((Closeable) gtpProcessHandler).close();
+                gtpProcessHandler = null;
+            } catch (IOException e) {
+                // Do nothing
+            }
+        }
+
+        return exitCode;
+    }
+
+    /**
+     * Asks the engine to quit and ends the engine process if it does not.
+     *
+     * @return the exit code, {@link Integer#MIN_VALUE} if unknown
+     */
+    protected int stopEngine(long timeout, TimeUnit timeUnit) {
         int exitCode = Integer.MIN_VALUE;
         if (gtpProcess != null && gtpProcess.isRunning()) {
             try {
@@ -331,15 +584,6 @@ public class GeneralGtpClient implements GtpClient {
             gtpProcess = null;
         }
 
-        if (gtpProcessHandler instanceof Closeable) {
-            try {
-                ((Closeable) gtpProcessHandler).close();
-                gtpProcessHandler = null;
-            } catch (IOException e) {
-                // Do nothing
-            }
-        }
-
         return exitCode;
     }
 
@@ -13,12 +13,16 @@ public class GeneralGtpFuture implements GtpFuture {
     private final CountDownLatch completionLatch;
     private final String command;
     private final boolean continuous;
+    private final int commandId;
     private List<String> response;
     private GeneralGtpClient gtpClient;
     private boolean triedCancelling;
     private boolean cancelled;
     private boolean normalCompleted;
     private boolean started;
+    private final long stagedNanos;
+    private volatile long sentNanos;
+    private volatile long startedNanos;
     private MutableList<ImmutablePair<Runnable, Executor>> completedListenerList;
     private MutableList<ImmutablePair<Runnable, Executor>> startedListenerList;
 
@@ -26,12 +30,16 @@ public class GeneralGtpFuture implements GtpFuture {
         completionLatch = new CountDownLatch(1);
         this.command = command;
         this.continuous = continuous;
+        this.commandId = GtpCommand.parseCommandId(command, 0);
         this.gtpClient = gtpClient;
         response = new ArrayList<>();
         triedCancelling = false;
         cancelled = false;
         normalCompleted = false;
         started = false;
+        stagedNanos = System.nanoTime();
+        sentNanos = 0;
+        startedNanos = 0;
         completedListenerList = Lists.mutable.empty();
         startedListenerList = Lists.mutable.empty();
     }
@@ -52,6 +60,38 @@ public class GeneralGtpFuture implements GtpFuture {
         return continuous;
     }
 
+    /**
+     * @return the numeric id the command was sent with, -1 if none
+     */
+    public int getCommandId() {
+        return commandId;
+    }
+
+    /**
+     * @return the {@link System#nanoTime()} at which the command was posted
+     */
+    public long getStagedNanos() {
+        return stagedNanos;
+    }
+
+    /**
+     * @return the {@link System#nanoTime()} at which the command was written to the engine, 0 if not yet
+     */
+    public long getSentNanos() {
+        return sentNanos;
+    }
+
+    /**
+     * @return the {@link System#nanoTime()} at which the first line of the response arrived, 0 if not yet
+     */
+    public long getStartedNanos() {
+        return startedNanos;
+    }
+
+    void markSent() {
+        sentNanos = System.nanoTime();
+    }
+
     synchronized void markCompleted() {
         normalCompleted = true;
         completionLatch.countDown();
@@ -61,6 +101,7 @@ public class GeneralGtpFuture implements GtpFuture {
 
     synchronized void markStarted() {
         started = true;
+        startedNanos = System.nanoTime();
 
         notifyStarted();
     }
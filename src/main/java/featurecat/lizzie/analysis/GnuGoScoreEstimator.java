@@ -5,7 +5,7 @@ import org.apache.commons.lang3.tuple.ImmutablePair;
 import org.eclipse.collections.api.list.primitive.MutableDoubleList;
 import org.eclipse.collections.impl.list.mutable.primitive.DoubleArrayList;
 import featurecat.lizzie.Lizzie;
-import featurecat.lizzie.rules.Board;
+import featurecat.lizzie.rules.BoardGeometry;
 
 import java.util.List;
 import java.util.regex.Matcher;
@@ -47,8 +47,10 @@ public class GnuGoScoreEstimator extends GtpBasedScoreEstimator {
 
     @Override
     public double[] estimateInfluences() {
+        BoardGeometry geometry = Lizzie.board.getGeometry();
+        int boardSize = geometry.getSize();
         List<String> response = estimateInfluencesRaw();
-        MutableDoubleList influences = new DoubleArrayList(Board.BOARD_SIZE * Board.BOARD_SIZE);
+        MutableDoubleList influences = new DoubleArrayList(boardSize * boardSize);
         for (String influenceLineString : response) {
             String[] influenceLine = influenceLineString.split("\\s+");
             for (String influenceString : influenceLine) {
@@ -60,10 +62,10 @@ public class GnuGoScoreEstimator extends GtpBasedScoreEstimator {
             }
         }
 
-        double[] influencesAdjusted = new double[Board.BOARD_SIZE * Board.BOARD_SIZE];
-        for (int i = 0; i < Board.BOARD_SIZE; i++) {
-            for (int j = 0; j < Board.BOARD_SIZE; j++) {
-                influencesAdjusted[Board.getIndex(i, j)] = -influences.get(Board.getIndex(Board.BOARD_SIZE - 1 - j, i));
+        double[] influencesAdjusted = new double[boardSize * boardSize];
+        for (int i = 0; i < boardSize; i++) {
+            for (int j = 0; j < boardSize; j++) {
+                influencesAdjusted[geometry.getIndex(i, j)] = -influences.get(geometry.getIndex(boardSize - 1 - j, i));
             }
         }
 
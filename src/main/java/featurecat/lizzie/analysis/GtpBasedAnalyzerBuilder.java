@@ -1,10 +1,19 @@
 package featurecat.lizzie.analysis;
 
 import com.google.common.collect.ImmutableMap;
+import com.google.common.util.concurrent.FutureCallback;
+import com.google.common.util.concurrent.Futures;
 import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.MoreExecutors;
 import org.apache.commons.lang3.StringUtils;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import featurecat.lizzie.Lizzie;
+import featurecat.lizzie.analysis.EngineCapabilityCache.AnalyzerKind;
+import featurecat.lizzie.analysis.EngineCapabilityCache.Capability;
 import featurecat.lizzie.util.GenericLizzieException;
 import org.apache.commons.lang3.builder.Builder;
+import org.jetbrains.annotations.NotNull;
 
 import java.util.List;
 import java.util.concurrent.CountDownLatch;
@@ -14,11 +23,15 @@ import java.util.concurrent.TimeoutException;
 import java.util.function.Consumer;
 
 public class GtpBasedAnalyzerBuilder implements Builder<AbstractGtpBasedAnalyzer> {
+    private static final Logger logger = LogManager.getLogger(GtpBasedAnalyzerBuilder.class);
+
     public static final String REASON = "REASON";
     public static final String ENGINE_NOT_FUNCTION = "ENGINE_NOT_FUNCTION";
     public static final String ENGINE_NOT_SUPPORTED = "ENGINE_NOT_SUPPORTED";
 
     private GtpClient gtpClient;
+    private String commandLine;
+    private EngineCapabilityCache capabilityCache;
 
     public GtpBasedAnalyzerBuilder setGtpClient(GtpClient gtpClient) {
         this.gtpClient = gtpClient;
@@ -26,12 +39,52 @@ public class GtpBasedAnalyzerBuilder implements Builder<AbstractGtpBasedAnalyzer
         return this;
     }
 
+    /**
+     * Enables the capability cache for the engine started from the given profile. A known engine gets its analyzer at
+     * once, while the detection result is checked again in the background.
+     *
+     * @param commandLine     the engine profile the client was started from
+     * @param capabilityCache the cache
+     * @return this builder
+     */
+    public GtpBasedAnalyzerBuilder setCapabilityCache(String commandLine, EngineCapabilityCache capabilityCache) {
+        this.commandLine = commandLine;
+        this.capabilityCache = capabilityCache;
+
+        return this;
+    }
+
     @Override
     public AbstractGtpBasedAnalyzer build() {
         if (!gtpClient.isRunning()) {
             gtpClient.start();
         }
 
+        String cacheKey = capabilityCache == null ? null : EngineCapabilityCache.keyOf(commandLine);
+        Capability cachedCapability = cacheKey == null ? null : capabilityCache.get(cacheKey);
+        if (cachedCapability != null) {
+            if (gtpClient instanceof GeneralGtpClient) {
+                ((GeneralGtpClient) gtpClient).setPipelining(cachedCapability.isPipelining());
+            }
+            // Posted before anything the analyzer sends, so the check does not disturb analyzing
+            revalidate(cacheKey, cachedCapability);
+            return createAnalyzer(cachedCapability.getAnalyzerKind());
+        }
+
+        Capability capability = detectCapability();
+        if (cacheKey != null) {
+            capabilityCache.put(cacheKey, capability);
+        }
+        return createAnalyzer(capability.getAnalyzerKind());
+    }
+
+    /**
+     * Probes the running engine for its name, the analyzer it needs and whether it can take pipelined commands.
+     * Pipelining is left enabled on a {@link GeneralGtpClient} that passed the probe.
+     *
+     * @return the detected capability
+     */
+    Capability detectCapability() {
         // Check for engine ready
         ListenableFuture<List<String>> future = gtpClient.postCommand("name");
         List<String> nameResponse = null;
@@ -44,22 +97,115 @@ public class GtpBasedAnalyzerBuilder implements Builder<AbstractGtpBasedAnalyzer
         if (!GtpCommand.isSuccessfulResponse(nameResponse)) {
             throw new GenericLizzieException(ImmutableMap.of(REASON, ENGINE_NOT_FUNCTION));
         }
+        boolean pipelining = false;
+        if (gtpClient instanceof GeneralGtpClient) {
+            // Bulk board synchronization writes many commands at once on engines that allow it
+            pipelining = ((GeneralGtpClient) gtpClient).detectPipelining();
+        }
+
         String name = GtpCommand.getLineWithoutResponseHeader(nameResponse, 0).trim();
+        AnalyzerKind analyzerKind;
         if (name.equals("Leela Zero")) {
             int leelazEngineVersion = getLeelazEngineVersion();
             if (leelazEngineVersion == 2) {
-                return new OfficialLeelazAnalyzerV2(gtpClient);
+                analyzerKind = AnalyzerKind.LEELAZ_V2;
             } else if (leelazEngineVersion == 1) {
-                return new OfficialLeelazAnalyzerV1(gtpClient);
+                analyzerKind = AnalyzerKind.LEELAZ_V1;
             } else {
                 detectCorrectModifiedLeelazEngine();
-                return new ClassicModifiedLeelazAnalyzer(gtpClient);
+                analyzerKind = AnalyzerKind.CLASSIC_MODIFIED_LEELAZ;
             }
         } else if (name.equals("Leela Zero Phoenix")) {
-            return new PhoenixGoAnalyzer(gtpClient);
+            analyzerKind = AnalyzerKind.PHOENIX;
         } else {
             throw new GenericLizzieException(ImmutableMap.of(REASON, ENGINE_NOT_SUPPORTED));
         }
+
+        return new Capability(name, analyzerKind, pipelining);
+    }
+
+    private AbstractGtpBasedAnalyzer createAnalyzer(AnalyzerKind analyzerKind) {
+        switch (analyzerKind) {
+            case LEELAZ_V2:
+                return new OfficialLeelazAnalyzerV2(gtpClient);
+            case LEELAZ_V1:
+                return new OfficialLeelazAnalyzerV1(gtpClient);
+            case CLASSIC_MODIFIED_LEELAZ:
+                return new ClassicModifiedLeelazAnalyzer(gtpClient);
+            case PHOENIX:
+                return new PhoenixGoAnalyzer(gtpClient);
+            default:
+                throw new GenericLizzieException(ImmutableMap.of(REASON, ENGINE_NOT_SUPPORTED));
+        }
+    }
+
+    /**
+     * Checks a cached detection result against the running engine without probing it: the name and command list are
+     * asked up front, and the first analysis line tells the lz-analyze protocol version. A mismatch drops the cache
+     * entry, so the next start probes again.
+     */
+    private void revalidate(String cacheKey, Capability capability) {
+        ListenableFuture<List<String>> nameFuture = gtpClient.postCommand("name");
+        ListenableFuture<List<String>> listCommandsFuture = gtpClient.postCommand("list_commands");
+
+        Futures.addCallback(Futures.allAsList(nameFuture, listCommandsFuture), new FutureCallback<List<List<String>>>() {
+            @Override
+            public void onSuccess(List<List<String>> responses) {
+                List<String> nameResponse = responses.get(0);
+                List<String> listCommandsResponse = responses.get(1);
+                if (!GtpCommand.isSuccessfulResponse(nameResponse) || !GtpCommand.isSuccessfulResponse(listCommandsResponse)) {
+                    invalidate(cacheKey, "the engine did not answer");
+                    return;
+                }
+
+                String name = GtpCommand.getLineWithoutResponseHeader(nameResponse, 0).trim();
+                boolean hasLzAnalyze = listCommandsResponse.stream().anyMatch(s -> StringUtils.containsIgnoreCase(s, "lz-analyze"));
+                boolean expectsLzAnalyze = capability.getAnalyzerKind() == AnalyzerKind.LEELAZ_V2
+                        || capability.getAnalyzerKind() == AnalyzerKind.LEELAZ_V1;
+                if (!name.equals(capability.getEngineName())) {
+                    invalidate(cacheKey, "the engine name is now " + name);
+                } else if (capability.getAnalyzerKind() != AnalyzerKind.PHOENIX && hasLzAnalyze != expectsLzAnalyze) {
+                    invalidate(cacheKey, "lz-analyze support has changed");
+                }
+            }
+
+            @Override
+            public void onFailure(@NotNull Throwable t) {
+                invalidate(cacheKey, t.getMessage());
+            }
+        }, MoreExecutors.directExecutor());
+
+        if (capability.getAnalyzerKind() == AnalyzerKind.LEELAZ_V2 || capability.getAnalyzerKind() == AnalyzerKind.LEELAZ_V1) {
+            OfficialV2LeelazEngineDetector detector = new OfficialV2LeelazEngineDetector() {
+                // Lines already dispatched may still arrive after unregistering
+                private boolean checked = false;
+
+                @Override
+                public void accept(String line) {
+                    if (checked) {
+                        return;
+                    }
+                    super.accept(line);
+                    if (getLatch().getCount() == 0) {
+                        checked = true;
+                        gtpClient.unregisterStdoutLineConsumer(this);
+                        int expectedVersion = capability.getAnalyzerKind() == AnalyzerKind.LEELAZ_V2 ? 2 : 1;
+                        if (getVersion() != expectedVersion) {
+                            invalidate(cacheKey, "the lz-analyze output is now version " + getVersion());
+                        }
+                    }
+                }
+            };
+            gtpClient.registerStdoutLineConsumer(detector);
+        }
+    }
+
+    private void invalidate(String cacheKey, String reason) {
+        // Listeners run on the engine output threads, which must not wait for the file
+        Lizzie.miscExecutor.execute(() -> {
+            logger.warn("Cached engine capability is out of date ({}), the engine will be probed at the next start.", reason);
+            capabilityCache.remove(cacheKey);
+        });
     }
 
     private int getLeelazEngineVersion() {
@@ -108,6 +254,14 @@ public class GtpBasedAnalyzerBuilder implements Builder<AbstractGtpBasedAnalyzer
         private CountDownLatch latch = new CountDownLatch(1);
         private int version = 1;
 
+        CountDownLatch getLatch() {
+            return latch;
+        }
+
+        int getVersion() {
+            return version;
+        }
+
         @Override
         public void accept(String line) {
             if (StringUtils.isEmpty(line)) {
@@ -1,9 +1,12 @@
 package featurecat.lizzie.analysis;
 
+import com.google.common.util.concurrent.ListenableFuture;
 import featurecat.lizzie.Lizzie;
 import featurecat.lizzie.rules.*;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.OptionalInt;
 import java.util.function.Consumer;
 
@@ -18,8 +21,8 @@ public abstract class GtpBasedScoreEstimator implements ScoreEstimator {
         gtpClient = new GeneralGtpClient(commandLine);
         gtpClient.start();
 
-        gtpClient.postCommand("boardsize " + Board.BOARD_SIZE);
-        if (Board.BOARD_SIZE == 19) {
+        gtpClient.postCommand("boardsize " + Lizzie.board.getGeometry().getSize());
+        if (Lizzie.board.getGeometry().getSize() == 19) {
             gtpClient.postCommand("komi 7.5");
             komi = 7.5;
         } else {
@@ -43,8 +46,12 @@ public abstract class GtpBasedScoreEstimator implements ScoreEstimator {
             }
 
             @Override
-            protected void handleGtpCommand(String command) {
-                gtpClient.postCommand(command);
+            protected List<ListenableFuture<List<String>>> handleGtpCommands(List<String> commands) {
+                List<ListenableFuture<List<String>>> futures = new ArrayList<>(commands.size());
+                for (String command : commands) {
+                    futures.add(gtpClient.postCommand(command));
+                }
+                return futures;
             }
         };
 
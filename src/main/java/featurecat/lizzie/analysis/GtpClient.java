@@ -12,6 +12,8 @@ public interface GtpClient extends ExtendedGtpCommand, AutoCloseable {
 
     boolean isShutdown();
 
+    GtpClientMetrics getMetrics();
+
     void registerStdoutLineConsumer(Consumer<String> consumer);
 
     void unregisterStdoutLineConsumer(Consumer<String> consumer);
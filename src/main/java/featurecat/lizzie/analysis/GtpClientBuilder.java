@@ -16,6 +16,7 @@ public class GtpClientBuilder implements Builder<GtpClient> {
     private List<String> commandLine = null;
     private Map<String, String> environment = null;
     private Path initialCurrentDirectory = null;
+    private GtpClientMetrics metrics = null;
 
     public GtpClientBuilder setCommandLine(List<String> commandLine) {
         this.commandLine = commandLine;
@@ -42,6 +43,11 @@ public class GtpClientBuilder implements Builder<GtpClient> {
         return this;
     }
 
+    public GtpClientBuilder setMetrics(GtpClientMetrics metrics) {
+        this.metrics = metrics;
+        return this;
+    }
+
     @Override
     public GtpClient build() {
         if (CollectionUtils.isEmpty(commandLine)) {
@@ -50,9 +56,13 @@ public class GtpClientBuilder implements Builder<GtpClient> {
 
         GeneralGtpClient gtpClient;
 
+        // A profile of the form tcp://host:port names a remote engine
+        SocketGtpClient socketGtpClient = commandLine.size() == 1 ? SocketGtpClient.ofProfile(commandLine.get(0)) : null;
         final boolean environmentSet = MapUtils.isNotEmpty(environment);
         final boolean initialCurrentDirectorySet = initialCurrentDirectory != null && Files.exists(initialCurrentDirectory);
-        if (environmentSet || initialCurrentDirectorySet) {
+        if (socketGtpClient != null) {
+            gtpClient = socketGtpClient;
+        } else if (environmentSet || initialCurrentDirectorySet) {
             gtpClient = new GeneralGtpClient(commandLine) {
                 @Override
                 protected void setUpOtherProcessParameters(NuProcessBuilder processBuilder) {
@@ -68,6 +78,9 @@ public class GtpClientBuilder implements Builder<GtpClient> {
         } else {
             gtpClient = new GeneralGtpClient(commandLine);
         }
+        if (metrics != null) {
+            gtpClient.setMetrics(metrics);
+        }
 
         return gtpClient;
     }
@@ -0,0 +1,280 @@
+package featurecat.lizzie.analysis;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.IntSupplier;
+
+/**
+ * Latency and throughput numbers of a GTP client, to tell a slow engine apart from commands queueing up in the client.
+ * A command waits in the staging queue until it is written to the engine (queue wait), then until the first line of
+ * its response arrives (response delay), then until its response is complete (execution). With pipelining the
+ * response delay includes the commands still running ahead of it in the engine. Continuous commands such as
+ * lz-analyze run until they are stopped, so their execution is not counted.
+ * <p>
+ * One instance may outlive several clients, as the analyzer engine keeps its numbers across restarts.
+ */
+public class GtpClientMetrics implements GtpClientMetricsMXBean {
+    private static final Logger logger = LogManager.getLogger(GtpClientMetrics.class);
+
+    private static final double NANOS_IN_MILLISECOND = TimeUnit.MILLISECONDS.toNanos(1);
+
+    /**
+     * Durations with their mean, maximum and an exponential moving average of the recent ones.
+     */
+    private static class DurationStat {
+        private static final double RECENT_WEIGHT = 0.2;
+
+        private long count;
+        private long totalNanos;
+        private long maxNanos;
+        private double recentNanos;
+
+        synchronized void record(long nanos) {
+            recentNanos = count == 0 ? nanos : recentNanos + RECENT_WEIGHT * (nanos - recentNanos);
+            ++count;
+            totalNanos += nanos;
+            maxNanos = Math.max(maxNanos, nanos);
+        }
+
+        synchronized long getCount() {
+            return count;
+        }
+
+        synchronized double getMeanMillis() {
+            return count == 0 ? 0 : totalNanos / NANOS_IN_MILLISECOND / count;
+        }
+
+        synchronized double getRecentMillis() {
+            return recentNanos / NANOS_IN_MILLISECOND;
+        }
+
+        synchronized double getMaxMillis() {
+            return maxNanos / NANOS_IN_MILLISECOND;
+        }
+
+        synchronized void reset() {
+            count = 0;
+            totalNanos = 0;
+            maxNanos = 0;
+            recentNanos = 0;
+        }
+    }
+
+    /**
+     * Counts events and reports the rate over the last completed interval of at least a second.
+     */
+    private static class RateMeter {
+        private static final long INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+        private final AtomicLong count = new AtomicLong();
+        private long intervalStartNanos = System.nanoTime();
+        private long intervalStartCount;
+        private double rate;
+
+        void record(long amount) {
+            count.addAndGet(amount);
+        }
+
+        synchronized double getRate() {
+            long now = System.nanoTime();
+            long elapsed = now - intervalStartNanos;
+            if (elapsed >= INTERVAL_NANOS) {
+                long current = count.get();
+                rate = (current - intervalStartCount) * (double) INTERVAL_NANOS / elapsed;
+                intervalStartNanos = now;
+                intervalStartCount = current;
+            }
+            return rate;
+        }
+
+        synchronized void reset() {
+            count.set(0);
+            intervalStartNanos = System.nanoTime();
+            intervalStartCount = 0;
+            rate = 0;
+        }
+    }
+
+    private final DurationStat queueWait;
+    private final DurationStat responseDelay;
+    private final DurationStat execution;
+    private final RateMeter stdoutLines;
+    private final RateMeter stdoutBytes;
+    private final RateMeter bestMovesUpdates;
+    private final AtomicLong engineRestartCount;
+    private volatile IntSupplier stagedCommandCountSupplier;
+    private volatile IntSupplier runningCommandCountSupplier;
+    private ObjectName registeredName;
+
+    public GtpClientMetrics() {
+        queueWait = new DurationStat();
+        responseDelay = new DurationStat();
+        execution = new DurationStat();
+        stdoutLines = new RateMeter();
+        stdoutBytes = new RateMeter();
+        bestMovesUpdates = new RateMeter();
+        engineRestartCount = new AtomicLong();
+        stagedCommandCountSupplier = () -> 0;
+        runningCommandCountSupplier = () -> 0;
+        registeredName = null;
+    }
+
+    /**
+     * Publishes the metrics on the platform MBean server under featurecat.lizzie:type=GtpClient,name=...
+     *
+     * @param name the name of the client
+     */
+    public synchronized void registerMBean(String name) {
+        unregisterMBean();
+
+        try {
+            ObjectName objectName = new ObjectName("featurecat.lizzie:type=GtpClient,name=" + ObjectName.quote(name));
+            ManagementFactory.getPlatformMBeanServer().registerMBean(this, objectName);
+            registeredName = objectName;
+        } catch (JMException e) {
+            logger.warn("Failed to register the GTP client metrics of " + name + ".", e);
+        }
+    }
+
+    public synchronized void unregisterMBean() {
+        if (registeredName == null) {
+            return;
+        }
+
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        try {
+            server.unregisterMBean(registeredName);
+        } catch (JMException e) {
+            // Already gone
+        }
+        registeredName = null;
+    }
+
+    void bindQueues(IntSupplier stagedCommandCountSupplier, IntSupplier runningCommandCountSupplier) {
+        this.stagedCommandCountSupplier = stagedCommandCountSupplier;
+        this.runningCommandCountSupplier = runningCommandCountSupplier;
+    }
+
+    void recordQueueWait(long nanos) {
+        queueWait.record(nanos);
+    }
+
+    void recordResponseDelay(long nanos) {
+        responseDelay.record(nanos);
+    }
+
+    void recordExecution(long nanos) {
+        execution.record(nanos);
+    }
+
+    void recordStdout(int lines, int bytes) {
+        stdoutLines.record(lines);
+        stdoutBytes.record(bytes);
+    }
+
+    public void recordBestMovesUpdate() {
+        bestMovesUpdates.record(1);
+    }
+
+    public void recordEngineRestart() {
+        engineRestartCount.incrementAndGet();
+    }
+
+    @Override
+    public long getCommandCount() {
+        return queueWait.getCount();
+    }
+
+    @Override
+    public double getMeanQueueWaitMillis() {
+        return queueWait.getMeanMillis();
+    }
+
+    @Override
+    public double getRecentQueueWaitMillis() {
+        return queueWait.getRecentMillis();
+    }
+
+    @Override
+    public double getMaxQueueWaitMillis() {
+        return queueWait.getMaxMillis();
+    }
+
+    @Override
+    public double getMeanResponseDelayMillis() {
+        return responseDelay.getMeanMillis();
+    }
+
+    @Override
+    public double getRecentResponseDelayMillis() {
+        return responseDelay.getRecentMillis();
+    }
+
+    @Override
+    public double getMaxResponseDelayMillis() {
+        return responseDelay.getMaxMillis();
+    }
+
+    @Override
+    public double getMeanExecutionMillis() {
+        return execution.getMeanMillis();
+    }
+
+    @Override
+    public double getRecentExecutionMillis() {
+        return execution.getRecentMillis();
+    }
+
+    @Override
+    public double getMaxExecutionMillis() {
+        return execution.getMaxMillis();
+    }
+
+    @Override
+    public int getStagedCommandCount() {
+        return stagedCommandCountSupplier.getAsInt();
+    }
+
+    @Override
+    public int getRunningCommandCount() {
+        return runningCommandCountSupplier.getAsInt();
+    }
+
+    @Override
+    public double getStdoutLinesPerSecond() {
+        return stdoutLines.getRate();
+    }
+
+    @Override
+    public double getStdoutBytesPerSecond() {
+        return stdoutBytes.getRate();
+    }
+
+    @Override
+    public double getBestMovesUpdatesPerSecond() {
+        return bestMovesUpdates.getRate();
+    }
+
+    @Override
+    public long getEngineRestartCount() {
+        return engineRestartCount.get();
+    }
+
+    @Override
+    public void reset() {
+        queueWait.reset();
+        responseDelay.reset();
+        execution.reset();
+        stdoutLines.reset();
+        stdoutBytes.reset();
+        bestMovesUpdates.reset();
+        engineRestartCount.set(0);
+    }
+}
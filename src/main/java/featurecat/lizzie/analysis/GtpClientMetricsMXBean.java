@@ -0,0 +1,40 @@
+package featurecat.lizzie.analysis;
+
+/**
+ * Management interface of {@link GtpClientMetrics}. Times are in milliseconds, rates per second.
+ */
+public interface GtpClientMetricsMXBean {
+    long getCommandCount();
+
+    double getMeanQueueWaitMillis();
+
+    double getRecentQueueWaitMillis();
+
+    double getMaxQueueWaitMillis();
+
+    double getMeanResponseDelayMillis();
+
+    double getRecentResponseDelayMillis();
+
+    double getMaxResponseDelayMillis();
+
+    double getMeanExecutionMillis();
+
+    double getRecentExecutionMillis();
+
+    double getMaxExecutionMillis();
+
+    int getStagedCommandCount();
+
+    int getRunningCommandCount();
+
+    double getStdoutLinesPerSecond();
+
+    double getStdoutBytesPerSecond();
+
+    double getBestMovesUpdatesPerSecond();
+
+    long getEngineRestartCount();
+
+    void reset();
+}
@@ -81,6 +81,30 @@ public interface GtpCommand {
         return removeResponseHeaderInPlace(Lists.mutable.ofAll(response));
     }
 
+    /**
+     * Reads the numeric id in front of a command, or behind the status character of a response header.
+     *
+     * @param line   the command or response line
+     * @param offset where the id would begin
+     * @return the id, -1 if there is none
+     */
+    static int parseCommandId(String line, int offset) {
+        int id = -1;
+        int length = line.length();
+        for (int i = offset; i < length; ++i) {
+            char c = line.charAt(i);
+            if (c >= '0' && c <= '9') {
+                id = (id < 0 ? 0 : id * 10) + (c - '0');
+                if (id > 99999999) {
+                    return -1;
+                }
+            } else {
+                return Character.isWhitespace(c) ? id : -1;
+            }
+        }
+        return id;
+    }
+
     static MutableIntList parseResponseIntTable(List<String> response) {
         MutableIntList result = new IntArrayList();
         for (String lineString : response) {
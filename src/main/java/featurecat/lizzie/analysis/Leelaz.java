@@ -23,10 +23,13 @@ public class Leelaz implements AutoCloseable {
     private static final Logger logger = LogManager.getLogger(Leelaz.class);
     private static final ResourceBundle resourceBundle = ResourceBundle.getBundle("featurecat.lizzie.i18n.GuiBundle");
 
-    private AbstractGtpBasedAnalyzer analyzer;
+    // Set by the startup thread while the GUI registers its observers
+    private volatile AbstractGtpBasedAnalyzer analyzer;
     private boolean normalExit;
     private String commandLine;
     private ImmutableList<BestMoveObserver> registeredBestMoveObservers;
+    // Kept across engine restarts
+    private final GtpClientMetrics metrics;
 
     /**
      * Initializes the leelaz process and starts reading output
@@ -35,6 +38,8 @@ public class Leelaz implements AutoCloseable {
         analyzer = null;
         this.commandLine = commandline;
         registeredBestMoveObservers = Lists.immutable.empty();
+        metrics = new GtpClientMetrics();
+        metrics.registerMBean("Analyzer");
     }
 
     public boolean isNormalExit() {
@@ -49,6 +54,10 @@ public class Leelaz implements AutoCloseable {
         return analyzer;
     }
 
+    public GtpClientMetrics getMetrics() {
+        return metrics;
+    }
+
     private void exitNotification(int exitCode) {
         if (!isNormalExit()) {
             // Prevent hang in callbacks
@@ -95,6 +104,7 @@ public class Leelaz implements AutoCloseable {
             analyzer.shutdown(60, TimeUnit.SECONDS);
             analyzer = null;
         }
+        metrics.unregisterMBean();
     }
 
     @Override
@@ -109,6 +119,7 @@ public class Leelaz implements AutoCloseable {
         // Create gtp client
         GtpClient analyzeGtpClient = new GtpClientBuilder()
                 .setCommandLine(commandLine)
+                .setMetrics(metrics)
                 .build();
 
         Consumer<Integer> exitListener = this::exitNotification;
@@ -118,10 +129,14 @@ public class Leelaz implements AutoCloseable {
             Lizzie.gtpConsole.linkToGtpClient(analyzeGtpClient);
             analyzeGtpClient.start();
 
-            analyzer = new GtpBasedAnalyzerBuilder()
+            AbstractGtpBasedAnalyzer newAnalyzer = new GtpBasedAnalyzerBuilder()
                     .setGtpClient(analyzeGtpClient)
+                    .setCapabilityCache(commandLine, EngineCapabilityCache.getInstance())
                     .build();
-            analyzer.registerListOfBestMoveObserver(registeredBestMoveObservers);
+            synchronized (this) {
+                newAnalyzer.registerListOfBestMoveObserver(registeredBestMoveObservers);
+                analyzer = newAnalyzer;
+            }
         } catch (GenericLizzieException e) {
             String reason = String.valueOf(e.get(GtpBasedAnalyzerBuilder.REASON));
             switch (reason) {
@@ -160,6 +175,7 @@ public class Leelaz implements AutoCloseable {
 
     public void restartEngine(String commandLine) {
         shutdownEngine();
+        metrics.recordEngineRestart();
 
         this.commandLine = commandLine;
         startEngine();
@@ -168,12 +184,13 @@ public class Leelaz implements AutoCloseable {
 
     public void restartEngine() {
         shutdownEngine();
+        metrics.recordEngineRestart();
 
         startEngine();
         setThinking(true);
     }
 
-    public void registerBestMoveObserver(BestMoveObserver observer) {
+    public synchronized void registerBestMoveObserver(BestMoveObserver observer) {
         if (analyzer != null) {
             analyzer.registerBestMoveObserver(observer);
         }
@@ -181,7 +198,7 @@ public class Leelaz implements AutoCloseable {
         registeredBestMoveObservers = registeredBestMoveObservers.newWith(observer);
     }
 
-    public void unregisterBestMoveObserver(BestMoveObserver observer) {
+    public synchronized void unregisterBestMoveObserver(BestMoveObserver observer) {
         if (analyzer != null) {
             analyzer.unregisterBestMoveObserver(observer);
         }
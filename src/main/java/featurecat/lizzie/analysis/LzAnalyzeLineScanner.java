@@ -0,0 +1,320 @@
+package featurecat.lizzie.analysis;
+
+import featurecat.lizzie.rules.PointCodec;
+import org.eclipse.collections.api.list.MutableList;
+import org.eclipse.collections.impl.factory.Lists;
+
+import java.util.Arrays;
+
+/**
+ * Reads the info lines of lz-analyze in one pass over the characters, creating the move data as it goes with the moves
+ * as {@link PointCodec} codes. Example:
+ * info move D16 visits 7 winrate 4704 prior 2305 lcb 4563 order 0 pv D16 Q16 D4
+ * <p>
+ * Between winrate and pv any field may appear with a single value, the known ones are network (or N, or prior) for the
+ * policy, while order, lcb and fields of newer engines are skipped. A scanner is made for each line, so lines can be
+ * read from any number of threads.
+ */
+public class LzAnalyzeLineScanner {
+    private static final String COLUMN_LETTERS = "ABCDEFGHJKLMNOPQRSTabcdefghjklmnopqrst";
+    // Decimals with more digits than this are left to Double.parseDouble to stay exact
+    private static final int MAX_EXACT_DIGITS = 15;
+    private static final double[] POWERS_OF_TEN = new double[MAX_EXACT_DIGITS + 1];
+
+    static {
+        POWERS_OF_TEN[0] = 1;
+        for (int i = 1; i < POWERS_OF_TEN.length; ++i) {
+            POWERS_OF_TEN[i] = POWERS_OF_TEN[i - 1] * 10;
+        }
+    }
+
+    private final String line;
+    private final int length;
+    private int position;
+    // Reused by the blocks of the line
+    private int[] variationBuffer;
+    // Set by scanNumber
+    private double numberValue;
+    private boolean numberHasPoint;
+
+    private LzAnalyzeLineScanner(String line) {
+        this.line = line;
+        length = line.length();
+        position = 0;
+        variationBuffer = new int[32];
+    }
+
+    /**
+     * Reads the first move of a line, for engines printing one move per line.
+     *
+     * @param line an output line
+     * @return the move data, null if the line does not start with a valid info block
+     */
+    public static MoveData parseFirstMove(String line) {
+        if (line == null) {
+            return null;
+        }
+        return new LzAnalyzeLineScanner(line).scanInfo();
+    }
+
+    /**
+     * Reads all the moves of a line, for engines printing all moves in one line. Reading stops at the first block that
+     * is not valid.
+     *
+     * @param line an output line
+     * @return the move data in the order of the line, null if the line does not start with a valid info block
+     */
+    public static MutableList<MoveData> parseMoves(String line) {
+        if (line == null) {
+            return null;
+        }
+
+        LzAnalyzeLineScanner scanner = new LzAnalyzeLineScanner(line);
+        MoveData first = scanner.scanInfo();
+        if (first == null) {
+            return null;
+        }
+
+        MutableList<MoveData> moves = Lists.mutable.with(first);
+        while (true) {
+            int blockStart = scanner.position;
+            if (!scanner.skipSpaces()) {
+                break;
+            }
+            MoveData next = scanner.scanInfo();
+            if (next == null) {
+                scanner.position = blockStart;
+                break;
+            }
+            moves.add(next);
+        }
+        return moves;
+    }
+
+    private MoveData scanInfo() {
+        if (!keyword("info") || !skipSpaces() || !keyword("move") || !skipSpaces()) {
+            return null;
+        }
+
+        int moveEnd = scanMove(position);
+        if (moveEnd < 0) {
+            return null;
+        }
+        int point = PointCodec.parse(line, position, moveEnd);
+        position = moveEnd;
+
+        if (!skipSpaces() || !keyword("visits") || !skipSpaces()) {
+            return null;
+        }
+        int playouts = scanInt();
+        if (playouts == Integer.MIN_VALUE) {
+            return null;
+        }
+
+        if (!skipSpaces() || !keyword("winrate") || !skipSpaces() || !scanNumber()) {
+            return null;
+        }
+        double winrate = numberValue / 100.0;
+
+        double probability = 0.0;
+        while (true) {
+            if (!skipSpaces()) {
+                return null;
+            }
+
+            int keyStart = position;
+            int keyEnd = tokenEnd(keyStart);
+            if (keyEnd == keyStart) {
+                return null;
+            }
+            position = keyEnd;
+            if (isToken(keyStart, keyEnd, "pv")) {
+                break;
+            }
+
+            if (!skipSpaces()) {
+                return null;
+            }
+            if (isToken(keyStart, keyEnd, "network") || isToken(keyStart, keyEnd, "N") || isToken(keyStart, keyEnd, "prior")) {
+                if (!scanNumber()) {
+                    return null;
+                }
+                // Older engines print the percentage times 100
+                probability = numberHasPoint ? numberValue : numberValue / 100.0;
+            } else {
+                position = tokenEnd(position);
+            }
+        }
+
+        int variationLength = 0;
+        while (true) {
+            int spacesStart = position;
+            if (!skipSpaces()) {
+                break;
+            }
+            int nextMoveEnd = scanMove(position);
+            if (nextMoveEnd < 0) {
+                position = spacesStart;
+                break;
+            }
+            if (variationLength == variationBuffer.length) {
+                variationBuffer = Arrays.copyOf(variationBuffer, variationLength * 2);
+            }
+            variationBuffer[variationLength++] = PointCodec.parse(line, position, nextMoveEnd);
+            position = nextMoveEnd;
+        }
+
+        return new MoveData(point, playouts, winrate, probability, Arrays.copyOf(variationBuffer, variationLength));
+    }
+
+    private static boolean isSpace(char c) {
+        return c == ' ' || c == '\t' || c == '\r' || c == '\n';
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    /**
+     * @return false if there is no space
+     */
+    private boolean skipSpaces() {
+        int start = position;
+        while (position < length && isSpace(line.charAt(position))) {
+            ++position;
+        }
+        return position > start;
+    }
+
+    private int tokenEnd(int start) {
+        int end = start;
+        while (end < length && !isSpace(line.charAt(end))) {
+            ++end;
+        }
+        return end;
+    }
+
+    private boolean isToken(int start, int end, String token) {
+        return end - start == token.length() && line.regionMatches(start, token, 0, token.length());
+    }
+
+    private boolean keyword(String keyword) {
+        if (!line.startsWith(keyword, position)) {
+            return false;
+        }
+        position += keyword.length();
+        return true;
+    }
+
+    /**
+     * Checks for a whole move token, such as D16 or pass.
+     *
+     * @return the end of the move, -1 if there is no move at start
+     */
+    private int scanMove(int start) {
+        int end = tokenEnd(start);
+        if (end - start == 4 && line.regionMatches(true, start, "pass", 0, 4)) {
+            return end;
+        }
+
+        if (end - start < 2 || COLUMN_LETTERS.indexOf(line.charAt(start)) < 0) {
+            return -1;
+        }
+        int index = start + 1;
+        char sign = line.charAt(index);
+        if (sign == '+' || sign == '-') {
+            ++index;
+        }
+        if (index == end) {
+            return -1;
+        }
+        for (; index < end; ++index) {
+            if (!isDigit(line.charAt(index))) {
+                return -1;
+            }
+        }
+        return end;
+    }
+
+    /**
+     * @return the value, Integer.MIN_VALUE if there is no valid integer
+     */
+    private int scanInt() {
+        int index = position;
+        boolean negative = false;
+        if (index < length && (line.charAt(index) == '+' || line.charAt(index) == '-')) {
+            negative = line.charAt(index) == '-';
+            ++index;
+        }
+
+        int digitsStart = index;
+        long value = 0;
+        while (index < length && isDigit(line.charAt(index))) {
+            value = value * 10 + (line.charAt(index) - '0');
+            if (value > Integer.MAX_VALUE) {
+                return Integer.MIN_VALUE;
+            }
+            ++index;
+        }
+        if (index == digitsStart) {
+            return Integer.MIN_VALUE;
+        }
+
+        position = index;
+        return (int) (negative ? -value : value);
+    }
+
+    /**
+     * Reads a decimal such as 4704, -3 or 23.05 into numberValue and numberHasPoint.
+     *
+     * @return false if there is no valid decimal
+     */
+    private boolean scanNumber() {
+        int start = position;
+        int index = start;
+        boolean negative = false;
+        if (index < length && (line.charAt(index) == '+' || line.charAt(index) == '-')) {
+            negative = line.charAt(index) == '-';
+            ++index;
+        }
+
+        long mantissa = 0;
+        int digitCount = 0;
+        int fractionDigitCount = 0;
+        boolean hasPoint = false;
+        int integerDigitsStart = index;
+        while (index < length) {
+            char c = line.charAt(index);
+            if (isDigit(c)) {
+                if (digitCount < MAX_EXACT_DIGITS) {
+                    mantissa = mantissa * 10 + (c - '0');
+                }
+                ++digitCount;
+                if (hasPoint) {
+                    ++fractionDigitCount;
+                }
+            } else if (c == '.' && !hasPoint && index > integerDigitsStart) {
+                hasPoint = true;
+            } else {
+                break;
+            }
+            ++index;
+        }
+        if (digitCount == 0) {
+            return false;
+        }
+
+        if (digitCount <= MAX_EXACT_DIGITS) {
+            // Both are exact doubles, so the division is rounded just like parsing
+            numberValue = mantissa / POWERS_OF_TEN[fractionDigitCount];
+            if (negative) {
+                numberValue = -numberValue;
+            }
+        } else {
+            numberValue = Double.parseDouble(line.substring(start, index));
+        }
+        numberHasPoint = hasPoint;
+        position = index;
+        return true;
+    }
+}
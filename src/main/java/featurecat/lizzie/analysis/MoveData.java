@@ -3,31 +3,40 @@ package featurecat.lizzie.analysis;
 import com.google.common.base.MoreObjects;
 import com.google.common.base.Objects;
 import featurecat.lizzie.Lizzie;
-import featurecat.lizzie.rules.Board;
+import featurecat.lizzie.rules.BoardGeometry;
+import featurecat.lizzie.rules.PointCodec;
 
+import java.util.Arrays;
 import java.util.List;
-import java.util.stream.Collectors;
 
 /**
- * Holds best move data
+ * Holds best move data. The move and its variation are {@link PointCodec} codes.
  */
 public class MoveData {
-    private final String coordinate;
+    private final int point;
     private final int playouts;
     private final double winrate;
     private final double probability;
-    private final List<String> variation;
+    private final int[] variation;
 
-    public MoveData(String coordinate, int playouts, double winrate, double probability, List<String> variation) {
-        this.coordinate = coordinate;
+    public MoveData(int point, int playouts, double winrate, double probability, int[] variation) {
+        this.point = point;
         this.playouts = playouts;
         this.winrate = winrate;
         this.probability = probability;
         this.variation = variation;
     }
 
+    public MoveData(String coordinate, int playouts, double winrate, double probability, List<String> variation) {
+        this(PointCodec.parse(coordinate), playouts, winrate, probability, variation.stream().mapToInt(PointCodec::parse).toArray());
+    }
+
+    public int getPoint() {
+        return point;
+    }
+
     public String getCoordinate() {
-        return coordinate;
+        return PointCodec.getName(point);
     }
 
     public int getPlayouts() {
@@ -42,46 +51,37 @@ public class MoveData {
         return probability;
     }
 
-    public List<String> getVariation() {
+    /**
+     * @return the point codes of the variation, shared and not to be modified
+     */
+    public int[] getVariation() {
         return variation;
     }
 
     public String getMoveDisplayString() {
-        if (Lizzie.optionSetting.isA1OnTop()) {
-            return coordinate;
-        } else {
-            return flipAxisForMove(coordinate);
-        }
+        return Lizzie.board.getGeometry().getPointDisplayName(point);
     }
 
     public String getVariationDisplayString() {
-        if (Lizzie.optionSetting.isA1OnTop()) {
-            return String.join(" ", variation);
-        } else {
-            List<String> newVarAxis = variation.stream().map(MoveData::flipAxisForMove).collect(Collectors.toList());
-            return String.join(" ", newVarAxis);
-        }
-    }
-
-    private static String flipAxisForMove(String move) {
-        int[] coords = Board.convertNameToCoordinates(move);
-        int x = coords[0], y = coords[1];
-
-        if (Board.isValid(x, y)) {
-            return Board.alphabet.substring(x, x + 1) + (Board.BOARD_SIZE - y);
-        } else {
-            return "Pass";
+        BoardGeometry geometry = Lizzie.board.getGeometry();
+        StringBuilder builder = new StringBuilder(variation.length * 4);
+        for (int move : variation) {
+            if (builder.length() > 0) {
+                builder.append(' ');
+            }
+            builder.append(geometry.getPointDisplayName(move));
         }
+        return builder.toString();
     }
 
     @Override
     public String toString() {
         return MoreObjects.toStringHelper(this)
-                .add("coordinate", coordinate)
+                .add("coordinate", getCoordinate())
                 .add("playouts", playouts)
                 .add("winrate", winrate)
                 .add("probability", probability)
-                .add("variation", variation)
+                .add("variation", Arrays.toString(variation))
                 .toString();
     }
 
@@ -90,15 +90,15 @@ public class MoveData {
         if (this == o) return true;
         if (o == null || getClass() != o.getClass()) return false;
         MoveData moveData = (MoveData) o;
-        return playouts == moveData.playouts &&
+        return point == moveData.point &&
+                playouts == moveData.playouts &&
                 Double.compare(moveData.winrate, winrate) == 0 &&
                 Double.compare(moveData.probability, probability) == 0 &&
-                Objects.equal(coordinate, moveData.coordinate) &&
-                Objects.equal(variation, moveData.variation);
+                Arrays.equals(variation, moveData.variation);
     }
 
     @Override
     public int hashCode() {
-        return Objects.hashCode(coordinate, playouts, winrate, probability, variation);
+        return Objects.hashCode(point, playouts, winrate, probability, Arrays.hashCode(variation));
     }
 }
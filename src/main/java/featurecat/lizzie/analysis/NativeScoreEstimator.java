@@ -0,0 +1,310 @@
+package featurecat.lizzie.analysis;
+
+import featurecat.lizzie.Lizzie;
+import featurecat.lizzie.gui.BoardRenderer;
+import featurecat.lizzie.rules.*;
+import org.apache.commons.lang3.tuple.ImmutablePair;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * In-process score estimator working on {@link BitBoard} masks. Stones are judged dead by comparing the reach of
+ * both colors around each chain, chains proven alive by Benson's algorithm are never dead, then every empty region
+ * bordered by one color only is counted for that color (area scoring). Regions bordered by both colors are split by
+ * influence. No engine process is involved, an estimate takes microseconds.
+ */
+public class NativeScoreEstimator implements DetailedScoreEstimator {
+    // influence added at each distance from the nearest stone of a color, summing to 1 on the stones themselves
+    private static final double[] INFLUENCE_WEIGHTS = {0.4, 0.25, 0.15, 0.1, 0.1};
+    // average influence lead of the enemy over a chain and its liberties for the chain to be dead
+    private static final double DEAD_MARGIN = 0.4;
+    // influence needed to count a point of a contested region as territory
+    private static final double TERRITORY_THRESHOLD = 0.15;
+
+    private final BoardStateChangeObserver boardStateChangeObserver;
+    private final Consumer<Integer> boardSizeChangeObserver;
+
+    private volatile double komi;
+    private volatile boolean running;
+
+    public NativeScoreEstimator() {
+        komi = defaultKomi(Lizzie.board.getGeometry().getSize());
+        running = true;
+
+        // Estimates are cheap, so a shown territory overlay follows the board instead of being cleared
+        boardStateChangeObserver = new BoardStateChangeObserver() {
+            @Override
+            public void mainStreamAppended(BoardHistoryNode newNodeBegin, BoardHistoryNode head) {
+                refreshInfluences(head);
+            }
+
+            @Override
+            public void mainStreamCut(BoardHistoryNode nodeBeforeCutPoint, BoardHistoryNode head) {
+                refreshInfluences(head);
+            }
+
+            @Override
+            public void headMoved(BoardHistoryNode oldHead, BoardHistoryNode newHead) {
+                refreshInfluences(newHead);
+            }
+
+            @Override
+            public void boardCleared(BoardHistoryNode initialNode, BoardHistoryNode initialHead) {
+                refreshInfluences(initialHead);
+            }
+        };
+        boardSizeChangeObserver = newSize -> komi = defaultKomi(newSize);
+
+        Lizzie.board.registerBoardStateChangeObserver(boardStateChangeObserver);
+        Board.registerBoardSizeChangeObserver(boardSizeChangeObserver);
+    }
+
+    private static double defaultKomi(int boardSize) {
+        return boardSize == 19 ? 7.5 : 6.5;
+    }
+
+    private void refreshInfluences(BoardHistoryNode head) {
+        BoardRenderer renderer = Lizzie.frame == null ? null : Lizzie.frame.getBoardRenderer();
+        if (renderer != null && renderer.isShowingInfluences()) {
+            renderer.updateInfluences(estimateInfluences(head.getData()));
+        }
+    }
+
+    @Override
+    public void setKomi(double komi) {
+        this.komi = komi;
+    }
+
+    @Override
+    public double getKomi() {
+        return komi;
+    }
+
+    @Override
+    public ImmutablePair<String, Double> estimateScore() {
+        double score = estimateDetailedScore().getScore();
+        if (score < 0) {
+            return ImmutablePair.of("W", -score);
+        } else {
+            return ImmutablePair.of("B", score);
+        }
+    }
+
+    @Override
+    public String estimateScoreRaw() {
+        ImmutablePair<String, Double> score = estimateScore();
+        return score.getLeft() + "+" + score.getRight();
+    }
+
+    @Override
+    public double[] estimateInfluences() {
+        return estimateInfluences(Lizzie.board.getSnapshot().getData());
+    }
+
+    /**
+     * @param data the position
+     * @return ownership of every point from -1 (white) to 1 (black), indexed like {@link BoardGeometry#getIndex(int, int)}
+     */
+    public double[] estimateInfluences(BoardData data) {
+        return new Estimation(BitBoard.of(data)).ownership;
+    }
+
+    @Override
+    public List<String> estimateInfluencesRaw() {
+        BoardData data = Lizzie.board.getSnapshot().getData();
+        BoardGeometry geometry = data.getGeometry();
+        double[] influences = estimateInfluences(data);
+
+        List<String> lines = new ArrayList<>(geometry.getSize());
+        for (int y = 0; y < geometry.getSize(); ++y) {
+            StringBuilder line = new StringBuilder();
+            for (int x = 0; x < geometry.getSize(); ++x) {
+                if (x > 0) {
+                    line.append(' ');
+                }
+                line.append(String.format("%5.2f", influences[geometry.getIndex(x, y)]));
+            }
+            lines.add(line.toString());
+        }
+        return lines;
+    }
+
+    @Override
+    public DetailedScore estimateDetailedScore() {
+        return estimateDetailedScore(Lizzie.board.getSnapshot().getData());
+    }
+
+    /**
+     * Area score of a position. Territory counts are the points owned besides the owner's living stones, so they
+     * include the dead stones of the opponent.
+     *
+     * @param data the position
+     * @return the detailed score, positive for black
+     */
+    public DetailedScore estimateDetailedScore(BoardData data) {
+        return estimateDetailedScore(BitBoard.of(data), data.getBlackPrisonersCount(), data.getWhitePrisonersCount(), komi);
+    }
+
+    static DetailedScore estimateDetailedScore(BitBoard bitBoard, int blackPrisonersCount, int whitePrisonersCount, double komi) {
+        Estimation estimation = new Estimation(bitBoard);
+
+        int blackStones = estimation.blackAlive.cardinality();
+        int whiteStones = estimation.whiteAlive.cardinality();
+        int blackTerritoryCount = estimation.blackArea.cardinality() - blackStones;
+        int whiteTerritoryCount = estimation.whiteArea.cardinality() - whiteStones;
+        double score = estimation.blackArea.cardinality() - estimation.whiteArea.cardinality() - komi;
+
+        return new DetailedScore(blackTerritoryCount, whiteTerritoryCount
+                , estimation.blackDead.cardinality(), estimation.whiteDead.cardinality()
+                , blackPrisonersCount, whitePrisonersCount, score);
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    @Override
+    public String getEstimatorName() {
+        return "Lizzie";
+    }
+
+    @Override
+    public void close() {
+        if (running) {
+            running = false;
+            Lizzie.board.unregisterBoardStateChangeObserver(boardStateChangeObserver);
+            Board.unregisterBoardSizeChangeObserver(boardSizeChangeObserver);
+        }
+    }
+
+    /**
+     * Dead stones, area and ownership of one position.
+     */
+    private static class Estimation {
+        private final int boardSize;
+        private final PointMask blackAlive;
+        private final PointMask whiteAlive;
+        private final PointMask blackDead;
+        private final PointMask whiteDead;
+        private final PointMask blackArea;
+        private final PointMask whiteArea;
+        private final double[] ownership;
+
+        private Estimation(BitBoard bitBoard) {
+            boardSize = bitBoard.getBoardSize();
+
+            // Benson regions are made of the points a color does not occupy, so they may hold enemy chains
+            PointMask blackTerritory = bitBoard.getUnconditionalTerritory(Stone.BLACK);
+            PointMask whiteTerritory = bitBoard.getUnconditionalTerritory(Stone.WHITE);
+
+            PointMask black = bitBoard.getStones(Stone.BLACK);
+            PointMask white = bitBoard.getStones(Stone.WHITE);
+            blackDead = findDeadStones(bitBoard, Stone.BLACK, black, white, whiteTerritory);
+            whiteDead = findDeadStones(bitBoard, Stone.WHITE, white, black, blackTerritory);
+            blackAlive = black.copy().andNot(blackDead);
+            whiteAlive = white.copy().andNot(whiteDead);
+
+            double[] influences = new double[boardSize * boardSize];
+            spread(blackAlive, whiteAlive, 1, influences);
+            spread(whiteAlive, blackAlive, -1, influences);
+
+            // Living stones are never in the enemy territory, the two areas only need the territories kept apart
+            blackArea = blackAlive.copy().or(blackTerritory);
+            whiteArea = whiteAlive.copy().or(whiteTerritory.copy().andNot(blackArea));
+
+            // every region of empty points and dead stones belongs to the only color around it, if any
+            PointMask open = blackAlive.copy().or(whiteAlive).invert();
+            PointMask remaining = open.copy().andNot(blackArea).andNot(whiteArea);
+            for (int index = remaining.firstIndex(); index >= 0; index = remaining.firstIndex()) {
+                PointMask region = PointMask.of(boardSize, index).floodFill(open);
+                remaining.andNot(region);
+
+                PointMask border = region.neighbours();
+                boolean touchesBlack = border.intersects(blackAlive);
+                boolean touchesWhite = border.intersects(whiteAlive);
+                if (touchesBlack && !touchesWhite) {
+                    blackArea.or(region.andNot(whiteArea));
+                } else if (touchesWhite && !touchesBlack) {
+                    whiteArea.or(region.andNot(blackArea));
+                } else if (touchesBlack) {
+                    region.andNot(blackArea).andNot(whiteArea).forEach(point -> {
+                        if (influences[point] >= TERRITORY_THRESHOLD) {
+                            blackArea.set(point);
+                        } else if (influences[point] <= -TERRITORY_THRESHOLD) {
+                            whiteArea.set(point);
+                        }
+                    });
+                }
+            }
+
+            ownership = new double[boardSize * boardSize];
+            for (int i = 0; i < ownership.length; ++i) {
+                if (blackArea.contains(i)) {
+                    ownership[i] = 1;
+                } else if (whiteArea.contains(i)) {
+                    ownership[i] = -1;
+                } else {
+                    ownership[i] = Math.max(-1, Math.min(1, influences[i]));
+                }
+            }
+        }
+
+        /**
+         * A chain is dead when, judged without the chain itself, the enemy reaches the chain and its liberties much
+         * more strongly than the other friendly stones do. Chains inside the unconditional territory of the enemy are
+         * always dead, other chains alive by Benson's algorithm are never dead.
+         */
+        private PointMask findDeadStones(BitBoard bitBoard, Stone color, PointMask own, PointMask enemy, PointMask enemyTerritory) {
+            PointMask dead = PointMask.empty(boardSize);
+            PointMask unconditionallyAlive = bitBoard.getUnconditionallyAlive(color);
+            for (PointMask chain : bitBoard.getChains(color)) {
+                if (chain.intersects(enemyTerritory)) {
+                    dead.or(chain);
+                    continue;
+                }
+                if (chain.intersects(unconditionallyAlive)) {
+                    continue;
+                }
+
+                PointMask area = chain.copy().or(bitBoard.getLiberties(chain));
+                PointMask friends = own.copy().andNot(chain);
+                double friendlyReach = reach(friends, enemy, area);
+                double enemyReach = reach(enemy, friends, area);
+                if (enemyReach - friendlyReach > DEAD_MARGIN * area.cardinality()) {
+                    dead.or(chain);
+                }
+            }
+            return dead;
+        }
+
+        /**
+         * @return the influence of the stones summed over the area, spreading around the blocking stones
+         */
+        private static double reach(PointMask stones, PointMask blocking, PointMask area) {
+            PointMask passable = blocking.copy().invert();
+            PointMask reached = stones.copy();
+            double total = 0;
+            for (double weight : INFLUENCE_WEIGHTS) {
+                total += weight * reached.copy().and(area).cardinality();
+                reached.or(reached.neighbours().and(passable));
+            }
+            return total;
+        }
+
+        /**
+         * Adds the influence of the stones, spreading around the blocking stones, to every point they reach.
+         */
+        private static void spread(PointMask stones, PointMask blocking, double sign, double[] influences) {
+            PointMask passable = blocking.copy().invert();
+            PointMask reached = stones.copy();
+            for (double weight : INFLUENCE_WEIGHTS) {
+                double delta = sign * weight;
+                reached.forEach(point -> influences[point] += delta);
+                reached.or(reached.neighbours().and(passable));
+            }
+        }
+    }
+}
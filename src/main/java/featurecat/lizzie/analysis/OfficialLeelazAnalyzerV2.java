@@ -1,28 +1,19 @@
 package featurecat.lizzie.analysis;
 
-import com.google.common.collect.Streams;
+import com.google.common.util.concurrent.ListenableFuture;
 import org.apache.commons.collections4.CollectionUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.eclipse.collections.api.list.MutableList;
-import org.eclipse.collections.api.map.MutableMap;
-import org.eclipse.collections.impl.factory.Lists;
-import org.eclipse.collections.impl.factory.Maps;
-import org.parboiled.BaseParser;
-import org.parboiled.Parboiled;
-import org.parboiled.Rule;
-import org.parboiled.parserunners.AbstractParseRunner;
-import org.parboiled.parserunners.ReportingParseRunner;
-import org.parboiled.support.ParsingResult;
 import featurecat.lizzie.Lizzie;
 import featurecat.lizzie.rules.BoardHistoryNode;
 import featurecat.lizzie.rules.BoardStateChangeObserver;
+import featurecat.lizzie.util.EngineDispatcher;
 import featurecat.lizzie.util.ThreadPoolUtil;
 
 import java.util.Collections;
+import java.util.List;
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
-import java.util.stream.Collectors;
 
 public class OfficialLeelazAnalyzerV2 extends AbstractGtpBasedAnalyzer {
     private static final long MILLISECONDS_IN_SECOND = 1000;
@@ -34,7 +25,7 @@ public class OfficialLeelazAnalyzerV2 extends AbstractGtpBasedAnalyzer {
     public OfficialLeelazAnalyzerV2(GtpClient gtpClient) {
         super(gtpClient, true);
 
-        notificationExecutor = Executors.newSingleThreadExecutor();
+        notificationExecutor = EngineDispatcher.newLane("analyzer notification");
         boardSyncObserver = new BoardStateSynchronizer() {
             @Override
             public void headMoved(BoardHistoryNode oldHead, BoardHistoryNode newHead) {
@@ -49,8 +40,8 @@ public class OfficialLeelazAnalyzerV2 extends AbstractGtpBasedAnalyzer {
             }
 
             @Override
-            protected void handleGtpCommand(String command) {
-                OfficialLeelazAnalyzerV2.this.postGtpCommand(command);
+            protected List<ListenableFuture<List<String>>> handleGtpCommands(List<String> commands) {
+                return OfficialLeelazAnalyzerV2.this.postGtpCommands(commands);
             }
         };
 
@@ -71,6 +62,16 @@ public class OfficialLeelazAnalyzerV2 extends AbstractGtpBasedAnalyzer {
         gtpClient.postCommand("name");
     }
 
+    @Override
+    public EngineCapabilityCache.AnalyzerKind getAnalyzerKind() {
+        return EngineCapabilityCache.AnalyzerKind.LEELAZ_V2;
+    }
+
+    @Override
+    protected BoardStateChangeObserver getBoardSynchronizer() {
+        return boardSyncObserver;
+    }
+
     @Override
     protected boolean isAnalyzingOngoingAfterCommand(String command) {
         return StringUtils.startsWithIgnoreCase(command, "lz-analyze")
@@ -112,156 +113,7 @@ public class OfficialLeelazAnalyzerV2 extends AbstractGtpBasedAnalyzer {
         notificationExecutor.execute(() -> observers.bestMovesUpdated(currentBestMoves));
     }
 
-    private static final EngineOutputLineParser parser = Parboiled.createParser(EngineOutputLineParser.class);
-    private static final AbstractParseRunner<?> runner = new ReportingParseRunner(parser.EngineLine());
-
     public static MutableList<MoveData> parseMoveDataLine(String line) {
-        ParsingResult<?> result = runner.run(line);
-        if (!result.matched) {
-            return null;
-        }
-
-        return Streams.stream(result.valueStack)
-                .map(o -> {
-                    MutableMap<String, Object> data = (MutableMap<String, Object>) o;
-
-                    MutableList<String> variation = (MutableList<String>) data.get("PV");
-                    String coordinate = (String) data.get("MOVE");
-                    int playouts = Integer.parseInt((String) data.get("CALCULATION"));
-                    double winrate = Double.parseDouble((String) data.get("VALUE")) / 100.0;
-                    double probability = getRate((String) data.get("POLICY"));
-
-                    return new MoveData(coordinate, playouts, winrate, probability, variation);
-                })
-                .collect(Collectors.toCollection(Lists.mutable::empty))
-                .reverseThis()
-                ;
-    }
-
-    private static double getRate(String rateString) {
-        if (StringUtils.isEmpty(rateString)) {
-            return 0.0;
-        }
-
-        if (rateString.indexOf('.') >= 0) {
-            return Double.parseDouble(rateString);
-        } else {
-            return Double.parseDouble(rateString) / 100.0;
-        }
-    }
-
-    static class EngineOutputLineParser extends BaseParser<Object> {
-        Rule EngineLine() {
-            return Sequence(
-                    MoveData()
-                    , ZeroOrMore(
-                            Sequence(Spaces(), MoveData())
-                    )
-            );
-        }
-
-        // info move D16 visits 7 winrate 4704 pv D16 Q16 D4
-        Rule MoveData() {
-            return Sequence(
-                    String("info"), pushInitialValueMap()
-                    , Spaces()
-                    , String("move")
-                    , Spaces()
-                    , Move(), saveMatchToValueMap("MOVE")
-                    , Spaces()
-                    , String("visits")
-                    , Spaces()
-                    , IntNumber(), saveMatchToValueMap("CALCULATION")
-                    , Spaces()
-                    , String("winrate")
-                    , Spaces()
-                    , DoubleNumber(), saveMatchToValueMap("VALUE")
-                    , Optional(
-                            Spaces()
-                            , FirstOf(String("network"), String("N"))
-                            , Spaces()
-                            , DoubleNumber(), saveMatchToValueMap("POLICY")
-                    )
-                    , Optional(
-                            Spaces()
-                            , String("order")
-                            , Spaces()
-                            , DoubleNumber(), saveMatchToValueMap("ORDER")
-                    )
-                    , Spaces()
-                    , String("pv"), saveAttrToValueMap("PV", Lists.mutable.empty())
-                    , ZeroOrMore(Sequence(Spaces(), Move(), pushMatchToList("PV")))
-            );
-        }
-
-        Rule Move() {
-            return FirstOf(Coord(), IgnoreCase("pass"));
-        }
-
-        Rule Coord() {
-            return Sequence(XCoord(), YCoord());
-        }
-
-        Rule XCoord() {
-            return AnyOf("ABCDEFGHJKLMNOPQRSTabcdefghjklmnopqrst");
-        }
-
-        Rule YCoord() {
-            return IntNumber();
-        }
-
-        Rule DoubleNumber() {
-            return Sequence(
-                    Optional(AnyOf("+-")),
-                    OneOrMore(Digit()),
-                    Optional(Ch('.'), ZeroOrMore(Digit()))
-            );
-        }
-
-        Rule IntNumber() {
-            return Sequence(Optional(AnyOf("+-")), OneOrMore(Digit()));
-        }
-
-        Rule Digit() {
-            return CharRange('0', '9');
-        }
-
-        Rule Spaces() {
-            return OneOrMore(SpaceChar());
-        }
-
-        Rule SpaceChar() {
-            return AnyOf(" \t\r\n");
-        }
-
-        boolean pushInitialValueMap() {
-            MutableMap<String, Object> valueMap = Maps.mutable.empty();
-            push(valueMap);
-
-            return true;
-        }
-
-        boolean saveMatchToValueMap(String key) {
-            return saveAttrToValueMap(key, match());
-        }
-
-        boolean saveAttrToValueMap(String key, Object value) {
-            MutableMap<String, Object> valueMap = (MutableMap<String, Object>) peek();
-            valueMap.put(key, value);
-
-            return true;
-        }
-
-        boolean pushMatchToList(String listKey) {
-            return pushToList(listKey, match());
-        }
-
-        boolean pushToList(String listKey, String value) {
-            MutableMap<String, Object> valueMap = (MutableMap<String, Object>) peek();
-            MutableList<String> list = (MutableList<String>) valueMap.get(listKey);
-            list.add(value);
-
-            return true;
-        }
+        return LzAnalyzeLineScanner.parseMoves(line);
     }
 }
@@ -1,8 +1,10 @@
 package featurecat.lizzie.analysis;
 
+import com.google.common.util.concurrent.ListenableFuture;
 import featurecat.lizzie.Lizzie;
 import featurecat.lizzie.rules.BoardHistoryNode;
 import featurecat.lizzie.rules.BoardStateChangeObserver;
+import featurecat.lizzie.util.EngineDispatcher;
 import featurecat.lizzie.util.ThreadPoolUtil;
 import org.apache.commons.collections4.CollectionUtils;
 import org.apache.commons.lang3.StringUtils;
@@ -18,8 +20,8 @@ import org.parboiled.parserunners.ReportingParseRunner;
 import org.parboiled.support.ParsingResult;
 
 import java.util.Collections;
+import java.util.List;
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
@@ -30,7 +32,7 @@ public class PhoenixGoAnalyzer extends AbstractGtpBasedAnalyzer {
     public PhoenixGoAnalyzer(GtpClient gtpClient) {
         super(gtpClient, true);
 
-        notificationExecutor = Executors.newSingleThreadExecutor();
+        notificationExecutor = EngineDispatcher.newLane("analyzer notification");
         boardSyncObserver = new BoardStateSynchronizer() {
             @Override
             public void headMoved(BoardHistoryNode oldHead, BoardHistoryNode newHead) {
@@ -45,8 +47,8 @@ public class PhoenixGoAnalyzer extends AbstractGtpBasedAnalyzer {
             }
 
             @Override
-            protected void handleGtpCommand(String command) {
-                PhoenixGoAnalyzer.this.postGtpCommand(command);
+            protected List<ListenableFuture<List<String>>> handleGtpCommands(List<String> commands) {
+                return PhoenixGoAnalyzer.this.postGtpCommands(commands);
             }
         };
 
@@ -57,6 +59,16 @@ public class PhoenixGoAnalyzer extends AbstractGtpBasedAnalyzer {
         Lizzie.board.registerBoardStateChangeObserver(boardSyncObserver);
     }
 
+    @Override
+    public EngineCapabilityCache.AnalyzerKind getAnalyzerKind() {
+        return EngineCapabilityCache.AnalyzerKind.PHOENIX;
+    }
+
+    @Override
+    protected BoardStateChangeObserver getBoardSynchronizer() {
+        return boardSyncObserver;
+    }
+
     @Override
     protected void doStartAnalyzing() {
 
@@ -0,0 +1,324 @@
+package featurecat.lizzie.analysis;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A GTP client for an engine behind a TCP port, such as one served by "socat TCP-LISTEN:port,fork EXEC:leelaz". The
+ * commands go through the same staging and running queues as for a local process, driven by one non-blocking
+ * selector thread. Only the engine's stdout is carried by the connection, so analyzers that read stderr do not work
+ * remotely.
+ * <p>
+ * A lost connection completes the running commands and is reconnected with a growing delay, staged commands are sent
+ * once connected again. The engine behind the port may have lost its position, so reconnect observers are notified to
+ * set it up again. When the connection stays down for too long the client reports the engine as exited. An idle
+ * connection is checked with a name command now and then.
+ */
+public class SocketGtpClient extends GeneralGtpClient {
+    private static final Logger logger = LogManager.getLogger(SocketGtpClient.class);
+
+    public static final String SCHEME = "tcp";
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final long TICK_MILLIS = 1000;
+    private static final long CONNECT_TIMEOUT_MILLIS = TimeUnit.SECONDS.toMillis(10);
+    private static final long MIN_RECONNECT_DELAY_MILLIS = 500;
+    private static final long MAX_RECONNECT_DELAY_MILLIS = TimeUnit.SECONDS.toMillis(30);
+    private static final long RECONNECT_GIVE_UP_MILLIS = TimeUnit.MINUTES.toMillis(5);
+    private static final long KEEPALIVE_INTERVAL_MILLIS = TimeUnit.SECONDS.toMillis(30);
+    private static final long KEEPALIVE_TIMEOUT_MILLIS = TimeUnit.SECONDS.toMillis(15);
+
+    private final InetSocketAddress address;
+    private final long keepaliveIntervalMillis;
+    private final long keepaliveTimeoutMillis;
+    private final List<Runnable> reconnectObserverList;
+    private final CountDownLatch eventLoopFinished;
+    private Selector selector;
+    private Thread eventLoop;
+    private volatile boolean connected;
+    private volatile boolean writeRequested;
+    private volatile boolean closing;
+
+    public SocketGtpClient(String host, int port) {
+        this(host, port, KEEPALIVE_INTERVAL_MILLIS, KEEPALIVE_TIMEOUT_MILLIS);
+    }
+
+    /**
+     * @param keepaliveIntervalMillis the idle time after which the connection is checked
+     * @param keepaliveTimeoutMillis  the time the engine has to answer the check
+     */
+    SocketGtpClient(String host, int port, long keepaliveIntervalMillis, long keepaliveTimeoutMillis) {
+        super(Collections.singletonList(SCHEME + "://" + host + ":" + port));
+
+        address = InetSocketAddress.createUnresolved(host, port);
+        this.keepaliveIntervalMillis = keepaliveIntervalMillis;
+        this.keepaliveTimeoutMillis = keepaliveTimeoutMillis;
+        reconnectObserverList = new CopyOnWriteArrayList<>();
+        eventLoopFinished = new CountDownLatch(1);
+        connected = false;
+        writeRequested = true;
+        closing = false;
+    }
+
+    /**
+     * Parses an engine profile of the form tcp://host:port.
+     *
+     * @param commandLine the engine profile
+     * @return the client, null if the profile is not a TCP address
+     */
+    public static SocketGtpClient ofProfile(String commandLine) {
+        URI uri;
+        try {
+            uri = URI.create(commandLine.trim());
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+
+        if (!SCHEME.equalsIgnoreCase(uri.getScheme()) || uri.getHost() == null || uri.getPort() < 0) {
+            return null;
+        }
+        return new SocketGtpClient(uri.getHost(), uri.getPort());
+    }
+
+    /**
+     * Registers an observer called after the connection is back, from the client's own threads.
+     *
+     * @param observer the observer
+     */
+    public void registerReconnectObserver(Runnable observer) {
+        reconnectObserverList.add(observer);
+    }
+
+    public void unregisterReconnectObserver(Runnable observer) {
+        reconnectObserverList.remove(observer);
+    }
+
+    @Override
+    public void start() {
+        gtpProcessHandler = provideProcessHandler();
+        try {
+            selector = Selector.open();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        eventLoop = new Thread(this::runEventLoop, "GTP socket " + address.getHostString() + ":" + address.getPort());
+        eventLoop.setDaemon(true);
+        eventLoop.start();
+    }
+
+    private GeneralGtpProcessHandler handler() {
+        return (GeneralGtpProcessHandler) gtpProcessHandler;
+    }
+
+    private void runEventLoop() {
+        boolean everConnected = false;
+        long disconnectedSince = System.currentTimeMillis();
+        long reconnectDelay = MIN_RECONNECT_DELAY_MILLIS;
+
+        while (!closing) {
+            try (SocketChannel channel = SocketChannel.open()) {
+                connect(channel);
+
+                if (everConnected) {
+                    logger.info("Reconnected to the engine at {}.", address);
+                    handler().miscProcessor.execute(() -> reconnectObserverList.forEach(Runnable::run));
+                } else {
+                    handler().engineStarted(-1);
+                    everConnected = true;
+                }
+                reconnectDelay = MIN_RECONNECT_DELAY_MILLIS;
+
+                serve(channel);
+            } catch (IOException e) {
+                if (!closing) {
+                    logger.warn("Connection to the engine at " + address + " failed.", e);
+                }
+            } finally {
+                if (connected) {
+                    disconnectedSince = System.currentTimeMillis();
+                }
+                connected = false;
+            }
+
+            if (closing || Thread.currentThread().isInterrupted()) {
+                break;
+            }
+            // Nothing to reconnect to if the engine was never reached
+            if (!everConnected || System.currentTimeMillis() - disconnectedSince > RECONNECT_GIVE_UP_MILLIS) {
+                logger.error("Giving up on the engine at {}.", address);
+                break;
+            }
+
+            handler().abortRunningCommandsAfterPendingLines();
+            try {
+                Thread.sleep(reconnectDelay);
+            } catch (InterruptedException e) {
+                break;
+            }
+            reconnectDelay = Math.min(reconnectDelay * 2, MAX_RECONNECT_DELAY_MILLIS);
+        }
+
+        try {
+            selector.close();
+        } catch (IOException e) {
+            // Do nothing
+        }
+        handler().onExit(closing ? 0 : -1);
+        eventLoopFinished.countDown();
+    }
+
+    private void connect(SocketChannel channel) throws IOException {
+        InetSocketAddress resolvedAddress = new InetSocketAddress(address.getHostString(), address.getPort());
+        if (resolvedAddress.isUnresolved()) {
+            throw new IOException("Unknown host " + address.getHostString());
+        }
+
+        channel.configureBlocking(false);
+        channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+        channel.setOption(StandardSocketOptions.SO_KEEPALIVE, true);
+
+        if (!channel.connect(resolvedAddress)) {
+            SelectionKey key = channel.register(selector, SelectionKey.OP_CONNECT);
+            long deadline = System.currentTimeMillis() + CONNECT_TIMEOUT_MILLIS;
+            while (!channel.finishConnect()) {
+                long remaining = deadline - System.currentTimeMillis();
+                if (remaining <= 0 || closing) {
+                    throw new IOException("Timeout when connecting to " + address);
+                }
+                selector.select(remaining);
+                selector.selectedKeys().clear();
+            }
+            key.interestOps(0);
+        }
+    }
+
+    /**
+     * Moves the data until the connection is lost, the engine stops answering, or the client is shut down.
+     */
+    private void serve(SocketChannel channel) throws IOException {
+        SelectionKey key = channel.register(selector, SelectionKey.OP_READ);
+        ByteBuffer readBuffer = ByteBuffer.allocate(BUFFER_SIZE);
+        ByteBuffer writeBuffer = ByteBuffer.allocate(BUFFER_SIZE);
+        writeBuffer.flip();
+
+        connected = true;
+        // Commands staged while disconnected go out first
+        writeRequested = true;
+        long lastActivity = System.currentTimeMillis();
+        GtpFuture keepaliveFuture = null;
+        long keepaliveSentTime = 0;
+
+        while (!Thread.currentThread().isInterrupted()) {
+            int interestOps = SelectionKey.OP_READ;
+            if (writeBuffer.hasRemaining() || writeRequested) {
+                interestOps |= SelectionKey.OP_WRITE;
+            }
+            key.interestOps(interestOps);
+            selector.select(TICK_MILLIS);
+
+            Iterator<SelectionKey> selectedKeys = selector.selectedKeys().iterator();
+            while (selectedKeys.hasNext()) {
+                SelectionKey selectedKey = selectedKeys.next();
+                selectedKeys.remove();
+
+                if (selectedKey.isReadable()) {
+                    readBuffer.clear();
+                    int count = channel.read(readBuffer);
+                    if (count < 0) {
+                        return;
+                    }
+                    if (count > 0) {
+                        readBuffer.flip();
+                        handler().onStdout(readBuffer, false);
+                        lastActivity = System.currentTimeMillis();
+                    }
+                }
+
+                if (selectedKey.isValid() && selectedKey.isWritable()) {
+                    if (!writeBuffer.hasRemaining()) {
+                        writeRequested = false;
+                        writeBuffer.clear();
+                        if (handler().writeStagedCommands(writeBuffer)) {
+                            writeRequested = true;
+                        }
+                        writeBuffer.flip();
+                    }
+                    if (writeBuffer.hasRemaining()) {
+                        channel.write(writeBuffer);
+                        lastActivity = System.currentTimeMillis();
+                    }
+                }
+            }
+
+            long now = System.currentTimeMillis();
+            if (keepaliveFuture != null) {
+                if (keepaliveFuture.isDone()) {
+                    keepaliveFuture = null;
+                } else if (now - keepaliveSentTime > keepaliveTimeoutMillis) {
+                    logger.warn("The engine at {} stopped answering.", address);
+                    return;
+                }
+            } else if (now - lastActivity > keepaliveIntervalMillis && !hasRunningCommands() && !closing) {
+                // Only when idle, any command would stop an ongoing analysis
+                keepaliveFuture = postCommand("name");
+                keepaliveSentTime = now;
+            }
+        }
+    }
+
+    @Override
+    protected void requestStdinWrite() {
+        writeRequested = true;
+        Selector currentSelector = selector;
+        if (currentSelector != null) {
+            currentSelector.wakeup();
+        }
+    }
+
+    @Override
+    protected int stopEngine(long timeout, TimeUnit timeUnit) {
+        if (eventLoop == null || eventLoopFinished.getCount() == 0) {
+            return Integer.MIN_VALUE;
+        }
+
+        closing = true;
+        // The engine closes the connection after answering quit
+        postCommand("quit");
+        try {
+            if (!eventLoopFinished.await(timeout, timeUnit)) {
+                eventLoop.interrupt();
+                if (!eventLoopFinished.await(timeout, timeUnit)) {
+                    return Integer.MIN_VALUE;
+                }
+            }
+        } catch (InterruptedException e) {
+            eventLoop.interrupt();
+            Thread.currentThread().interrupt();
+            return Integer.MIN_VALUE;
+        }
+
+        return 0;
+    }
+
+    @Override
+    public boolean isRunning() {
+        return connected;
+    }
+}
@@ -4,7 +4,8 @@ import org.apache.commons.lang3.tuple.ImmutablePair;
 import org.eclipse.collections.api.list.primitive.MutableDoubleList;
 import org.eclipse.collections.api.list.primitive.MutableIntList;
 import org.eclipse.collections.impl.list.mutable.primitive.DoubleArrayList;
-import featurecat.lizzie.rules.Board;
+import featurecat.lizzie.Lizzie;
+import featurecat.lizzie.rules.BoardGeometry;
 
 import java.util.List;
 
@@ -34,6 +35,8 @@ public class ZenScoreEstimator extends GtpBasedScoreEstimator implements Detaile
 
     @Override
     public double[] estimateInfluences() {
+        BoardGeometry geometry = Lizzie.board.getGeometry();
+        int boardSize = geometry.getSize();
         List<String> response = estimateInfluencesRaw();
         MutableIntList territories = GtpCommand.parseResponseIntTable(response);
         MutableDoubleList influences = territories.collectDouble(influence -> {
@@ -45,12 +48,12 @@ public class ZenScoreEstimator extends GtpBasedScoreEstimator implements Detaile
                 influence = -800;
             }
             return influence / 800.0;
-        }, new DoubleArrayList(Board.BOARD_SIZE * Board.BOARD_SIZE));
+        }, new DoubleArrayList(boardSize * boardSize));
 
-        double[] influencesAdjusted = new double[Board.BOARD_SIZE * Board.BOARD_SIZE];
-        for (int i = 0; i < Board.BOARD_SIZE; i++) {
-            for (int j = 0; j < Board.BOARD_SIZE; j++) {
-                influencesAdjusted[Board.getIndex(j, Board.BOARD_SIZE - 1 - i)] = influences.get(Board.getIndex(i, j));
+        double[] influencesAdjusted = new double[boardSize * boardSize];
+        for (int i = 0; i < boardSize; i++) {
+            for (int j = 0; j < boardSize; j++) {
+                influencesAdjusted[geometry.getIndex(j, boardSize - 1 - i)] = influences.get(geometry.getIndex(i, j));
             }
         }
 
@@ -62,8 +62,9 @@ public class AnalysisFrame extends JPanel {
     }
 
     private void handleTableClick(int row, int col) {
-        if ((Lizzie.board.getData().isBlackToPlay() && Lizzie.optionSetting.isShowBlackSuggestion()
-                || !Lizzie.board.getData().isBlackToPlay() && Lizzie.optionSetting.isShowWhiteSuggestion())) {
+        boolean blackToPlay = Lizzie.board.getSnapshot().isBlackToPlay();
+        if ((blackToPlay && Lizzie.optionSetting.isShowBlackSuggestion()
+                || !blackToPlay && Lizzie.optionSetting.isShowWhiteSuggestion())) {
             if (row == analysisTableModel.getSelectedMoveIndex()) {
                 analysisTable.clearSelection();
                 analysisTableModel.setSelectedMove(null);
@@ -4,7 +4,7 @@ import com.google.common.collect.ImmutableList;
 import featurecat.lizzie.Lizzie;
 import featurecat.lizzie.analysis.BestMoveObserver;
 import featurecat.lizzie.analysis.MoveData;
-import featurecat.lizzie.rules.Board;
+import featurecat.lizzie.rules.PointCodec;
 
 import javax.swing.*;
 import javax.swing.table.AbstractTableModel;
@@ -86,7 +86,7 @@ public class AnalysisTableModel extends AbstractTableModel {
 
         int index = 0;
         for (MoveData data : bestMoves) {
-            if (data.getCoordinate().equals(selectedMove.getCoordinate())) {
+            if (data.getPoint() == selectedMove.getPoint()) {
                 break;
             } else {
                 ++index;
@@ -98,10 +98,10 @@ public class AnalysisTableModel extends AbstractTableModel {
 
     public void selectOrDeselectMoveByCoord(int[] mouseCoords) {
         MoveData mouseOnMove = null;
-        if (mouseCoords != null) {
+        if (mouseCoords != null && Lizzie.board.getGeometry().isValid(mouseCoords)) {
+            int mousePoint = PointCodec.of(mouseCoords[0], mouseCoords[1]);
             for (MoveData data : bestMoves) {
-                int[] coords = Board.convertNameToCoordinates(data.getCoordinate());
-                if (coords[0] == mouseCoords[0] && coords[1] == mouseCoords[1]) {
+                if (data.getPoint() == mousePoint) {
                     mouseOnMove = data;
                     break;
                 }
@@ -31,6 +31,8 @@ public class BoardRenderer {
     private int scaledMargin, availableLength, squareLength, stoneRadius;
     private AtomicReference<List<MoveData>> bestMovesUpdated = new AtomicReference<>();
     private MoveData branch = null;
+    // number of leading moves of the branch that can be played on the shown position
+    private int branchPlayableLength = 0;
 
     private double[] influences = null;
 
@@ -40,7 +42,14 @@ public class BoardRenderer {
     private BufferedImage cachedStonesImage = null;
     private BufferedImage cachedStonesShadowImage = null;
     private AtomicBoolean cachedStonesImageForceRefresh = new AtomicBoolean(false);
-    private Zobrist cachedZhash = new Zobrist(); // defaults to an empty board
+    private Zobrist cachedZhash = null; // null until the stones are drawn once
+    // kernel of the shown position, copied to check each branch until the position changes
+    private BitBoard cachedBitBoard = null;
+    private BoardData cachedBitBoardData = null;
+    // board state of the paint in progress
+    private BoardSnapshot boardSnapshot;
+    // geometry of the last painted board, also used to map mouse positions
+    private BoardGeometry geometry;
 
     private BufferedImage branchStonesImage = null;
     private BufferedImage branchStonesShadowImage = null;
@@ -49,6 +58,8 @@ public class BoardRenderer {
     private BoardStateChangeObserver boardStateChangeObserver;
 
     public BoardRenderer() {
+        geometry = Lizzie.board.getGeometry();
+
         // register repaint events
         bestMoveObserver = new BestMoveObserver() {
             @Override
@@ -114,6 +125,10 @@ public class BoardRenderer {
         this.influences = influences;
     }
 
+    public boolean isShowingInfluences() {
+        return influences != null;
+    }
+
     /**
      * Draw a go board
      */
@@ -121,6 +136,9 @@ public class BoardRenderer {
         if (Lizzie.frame == null || Lizzie.board == null)
             return;
 
+        // every part of one paint reads the same board state
+        boardSnapshot = Lizzie.board.getSnapshot();
+        geometry = boardSnapshot.getData().getGeometry();
         setupSizeParameters();
 
 //        Stopwatch timer = new Stopwatch();
@@ -177,11 +195,11 @@ public class BoardRenderer {
 
             // draw the lines
             g.setColor(Color.BLACK);
-            for (int i = 0; i < Board.BOARD_SIZE; i++) {
+            for (int i = 0; i < geometry.getSize(); i++) {
                 g.drawLine(x + scaledMargin, y + scaledMargin + squareLength * i,
                         x + scaledMargin + availableLength - 1, y + scaledMargin + squareLength * i);
             }
-            for (int i = 0; i < Board.BOARD_SIZE; i++) {
+            for (int i = 0; i < geometry.getSize(); i++) {
                 g.drawLine(x + scaledMargin + squareLength * i, y + scaledMargin,
                         x + scaledMargin + squareLength * i, y + scaledMargin + availableLength - 1);
             }
@@ -193,17 +211,17 @@ public class BoardRenderer {
             if (Lizzie.optionSetting.isShowAxis()) {
                 g.setColor(Color.BLACK);
                 String alphabet = "ABCDEFGHJKLMNOPQRST";
-                for (int i = 0; i < Board.BOARD_SIZE; i++) {
+                for (int i = 0; i < geometry.getSize(); i++) {
                     drawString(g, x + scaledMargin + squareLength * i, y + scaledMargin / 2, "Open Sans", "" + alphabet.charAt(i), stoneRadius * 4 / 5, stoneRadius);
                     drawString(g, x + scaledMargin + squareLength * i, y - scaledMargin / 2 + boardLength, "Open Sans", "" + alphabet.charAt(i), stoneRadius * 4 / 5, stoneRadius);
                 }
-                for (int i = 0; i < Board.BOARD_SIZE; i++) {
+                for (int i = 0; i < geometry.getSize(); i++) {
                     if (Lizzie.optionSetting.isA1OnTop()) {
                         drawString(g, x + scaledMargin / 2, y + scaledMargin + squareLength * i, "Open Sans", "" + (i + 1), stoneRadius * 4 / 5, stoneRadius);
                         drawString(g, x - scaledMargin / 2 + +boardLength, y + scaledMargin + squareLength * i, "Open Sans", "" + (i + 1), stoneRadius * 4 / 5, stoneRadius);
                     } else {
-                        drawString(g, x + scaledMargin / 2, y + scaledMargin + squareLength * i, "Open Sans", "" + (Board.BOARD_SIZE - i), stoneRadius * 4 / 5, stoneRadius);
-                        drawString(g, x - scaledMargin / 2 + +boardLength, y + scaledMargin + squareLength * i, "Open Sans", "" + (Board.BOARD_SIZE - i), stoneRadius * 4 / 5, stoneRadius);
+                        drawString(g, x + scaledMargin / 2, y + scaledMargin + squareLength * i, "Open Sans", "" + (geometry.getSize() - i), stoneRadius * 4 / 5, stoneRadius);
+                        drawString(g, x - scaledMargin / 2 + +boardLength, y + scaledMargin + squareLength * i, "Open Sans", "" + (geometry.getSize() - i), stoneRadius * 4 / 5, stoneRadius);
                     }
                 }
             }
@@ -220,15 +238,15 @@ public class BoardRenderer {
      * @param g graphics2d to draw
      */
     private void drawStarPoints(Graphics2D g) {
-        if (Board.BOARD_SIZE == 5) {
+        if (geometry.getSize() == 5) {
             drawStarPoints5x5(g);
-        } else if (Board.BOARD_SIZE == 7) {
+        } else if (geometry.getSize() == 7) {
             drawStarPoints7x7(g);
-        } else if (Board.BOARD_SIZE == 9) {
+        } else if (geometry.getSize() == 9) {
             drawStarPoints9x9(g);
-        } else if (Board.BOARD_SIZE == 13) {
+        } else if (geometry.getSize() == 13) {
             drawStarPoints13x13(g);
-        } else if (Board.BOARD_SIZE == 15) {
+        } else if (geometry.getSize() == 15) {
             drawStarPoints15x15(g);
         } else {
             drawStarPoints19x19(g);
@@ -344,7 +362,7 @@ public class BoardRenderer {
         // draw a new image if frame size changes or board state changes
         if (cachedStonesImage == null || cachedStonesImage.getWidth() != boardLength ||
                 cachedStonesImage.getHeight() != boardLength ||
-                !cachedZhash.equals(Lizzie.board.getData().getZobrist()) ||
+                cachedZhash == null || !cachedZhash.equals(boardSnapshot.getData().getZobrist()) ||
                 cachedStonesImageForceRefresh.getAndSet(false)) {
 
             cachedStonesImage = new BufferedImage(boardLength, boardLength, BufferedImage.TYPE_INT_ARGB);
@@ -356,15 +374,16 @@ public class BoardRenderer {
             g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
             gShadow.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
 
-            for (int i = 0; i < Board.BOARD_SIZE; i++) {
-                for (int j = 0; j < Board.BOARD_SIZE; j++) {
+            BoardData boardData = boardSnapshot.getData();
+            for (int i = 0; i < geometry.getSize(); i++) {
+                for (int j = 0; j < geometry.getSize(); j++) {
                     int stoneX = scaledMargin + squareLength * i;
                     int stoneY = scaledMargin + squareLength * j;
-                    drawStone(g, gShadow, stoneX, stoneY, Lizzie.board.getStones()[Board.getIndex(i, j)]);
+                    drawStone(g, gShadow, stoneX, stoneY, boardData.getStone(geometry.getIndex(i, j)));
                 }
             }
 
-            cachedZhash = Lizzie.board.getData().getZobrist();
+            cachedZhash = boardData.getZobrist();
             g.dispose();
             gShadow.dispose();
         }
@@ -391,28 +410,29 @@ public class BoardRenderer {
 
         g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
 
-        Stone color = Lizzie.board.getData().getLastMoveColor();
+        Stone color = boardSnapshot.getData().getLastMoveColor();
         if (color == Stone.EMPTY) {
             color = Stone.WHITE;
         }
+        branchPlayableLength = countPlayableMoves(branch.getVariation(), color.opposite(), Lizzie.optionSetting.getVariationLimit());
 
         int variationCount = 0;
-        for (String variation : branch.getVariation()) {
+        for (int point : branch.getVariation()) {
             color = color.opposite();
             ++variationCount;
             // limit variation stones
             // note that move number display is in another function
-            if (variationCount > Lizzie.optionSetting.getVariationLimit()) {
+            if (variationCount > branchPlayableLength) {
                 break;
             }
 
-            int[] coords = Board.convertNameToCoordinates(variation);
-            if (Board.isValid(coords[0], coords[1])) {
-                int stoneX = scaledMargin + squareLength * coords[0];
-                int stoneY = scaledMargin + squareLength * coords[1];
+            if (geometry.isValidPoint(point)) {
+                int pointX = PointCodec.getX(point), pointY = PointCodec.getY(point);
+                int stoneX = scaledMargin + squareLength * pointX;
+                int stoneY = scaledMargin + squareLength * pointY;
 
                 // check if board is empty to prevent overwriting stones if there are under-the-stones situations
-                if (Lizzie.board.getStones()[Board.getIndex(coords[0], coords[1])] == Stone.EMPTY)
+                if (boardSnapshot.getData().getStone(geometry.getIndex(pointX, pointY)) == Stone.EMPTY)
                     drawVariationStone(g, gShadow, stoneX, stoneY, color.unGhosted());
             }
         }
@@ -421,6 +441,48 @@ public class BoardRenderer {
         gShadow.dispose();
     }
 
+    /**
+     * Plays a variation on a {@link BitBoard} of the shown position, since the engine may suggest a line for a position
+     * that is already gone. Only the point of each move is checked: it must be empty, not the ko point and not suicide.
+     *
+     * @param variation  the variation
+     * @param firstColor the color of the first move
+     * @param limit      the most moves to check
+     * @return number of leading moves that are legal in turn, at most the limit
+     */
+    private int countPlayableMoves(int[] variation, Stone firstColor, int limit) {
+        BoardData boardData = boardSnapshot.getData();
+        if (cachedBitBoardData != boardData) {
+            cachedBitBoard = BitBoard.of(boardData);
+            cachedBitBoardData = boardData;
+        }
+
+        BitBoard bitBoard = cachedBitBoard.copy();
+        Stone color = firstColor;
+        int count = 0;
+        for (int point : variation) {
+            if (count >= limit) {
+                break;
+            }
+
+            if (PointCodec.isPass(point)) {
+                bitBoard.pass();
+            } else {
+                if (!geometry.isValidPoint(point)) {
+                    break;
+                }
+                int index = geometry.getIndex(PointCodec.getX(point), PointCodec.getY(point));
+                if (bitBoard.getStone(index) != Stone.EMPTY || index == bitBoard.getKoIndex(color) || bitBoard.isSuicide(index, color)) {
+                    break;
+                }
+                bitBoard.play(index, color);
+            }
+            ++count;
+            color = color.opposite();
+        }
+        return count;
+    }
+
     /**
      * render the shadows and stones in correct background-foreground order
      */
@@ -438,12 +500,13 @@ public class BoardRenderer {
     private void drawMoveNumbers(Graphics2D g) {
         g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
 
-        int[] lastMove = Lizzie.board.getLastMove();
-        int lastMoveNumber = Lizzie.board.getData().getMoveNumber();
+        BoardData boardData = boardSnapshot.getData();
+        int[] lastMove = boardData.getLastMove();
+        int lastMoveNumber = boardData.getMoveNumber();
 
         // mark last coordinate with a small circle
-        if (!Lizzie.board.isInTryPlayState() && (!Lizzie.optionSetting.isShowMoveNumber() || branch != null)
-                || Lizzie.board.isInTryPlayState() && lastMoveNumber <= Lizzie.board.getTryPlayStateBeginMoveNumber()) {
+        if (!boardSnapshot.isInTryPlayState() && (!Lizzie.optionSetting.isShowMoveNumber() || branch != null)
+                || boardSnapshot.isInTryPlayState() && lastMoveNumber <= boardSnapshot.getTryPlayStateBeginMoveNumber()) {
             if (lastMove != null) {
                 // mark the last coordinate
                 int lastMoveMarkerRadius = stoneRadius / 2;
@@ -451,46 +514,46 @@ public class BoardRenderer {
                 int stoneY = y + scaledMargin + squareLength * lastMove[1];
 
                 // set color to the opposite color of whatever is on the board
-                g.setColor(Lizzie.board.getStones()[Board.getIndex(lastMove[0], lastMove[1])].isWhite() ?
+                g.setColor(boardData.getStone(geometry.getIndex(lastMove[0], lastMove[1])).isWhite() ?
                         Color.BLACK : Color.WHITE);
                 drawCircle(g, stoneX, stoneY, lastMoveMarkerRadius);
             } else if (lastMoveNumber != 0) {
                 // mark pass
-                g.setColor(Lizzie.board.getData().isBlackToPlay() ? new Color(255, 255, 255, 150) : new Color(0, 0, 0, 150));
+                g.setColor(boardSnapshot.isBlackToPlay() ? new Color(255, 255, 255, 150) : new Color(0, 0, 0, 150));
                 g.fillOval(x + boardLength / 2 - 4 * stoneRadius, y + boardLength / 2 - 4 * stoneRadius, stoneRadius * 8, stoneRadius * 8);
-                g.setColor(Lizzie.board.getData().isBlackToPlay() ? new Color(0, 0, 0, 255) : new Color(255, 255, 255, 255));
+                g.setColor(boardSnapshot.isBlackToPlay() ? new Color(0, 0, 0, 255) : new Color(255, 255, 255, 255));
                 drawString(g, x + boardLength / 2, y + boardLength / 2, "Open Sans", "pass", stoneRadius * 4, stoneRadius * 6);
             }
         }
 
-        if (!Lizzie.board.isInTryPlayState() && Lizzie.optionSetting.isShowMoveNumber() && branch == null
-                || Lizzie.board.isInTryPlayState()) { // at this time, isShowMoveNumber is true, or is in try play state
+        if (!boardSnapshot.isInTryPlayState() && Lizzie.optionSetting.isShowMoveNumber() && branch == null
+                || boardSnapshot.isInTryPlayState()) { // at this time, isShowMoveNumber is true, or is in try play state
             // draw existing stones
-            int[] moveNumberList = Lizzie.board.getMoveNumberList();
             int moveNumberBaseFix = Lizzie.liveStatus.getHiddenMoveCount();
-            if (Lizzie.board.isInTryPlayState()) {
-                moveNumberBaseFix = Lizzie.board.getTryPlayStateBeginMoveNumber();
+            if (boardSnapshot.isInTryPlayState()) {
+                moveNumberBaseFix = boardSnapshot.getTryPlayStateBeginMoveNumber();
             }
 
-            for (int i = 0; i < Board.BOARD_SIZE; i++) {
-                for (int j = 0; j < Board.BOARD_SIZE; j++) {
+            for (int i = 0; i < geometry.getSize(); i++) {
+                for (int j = 0; j < geometry.getSize(); j++) {
                     int stoneX = x + scaledMargin + squareLength * i;
                     int stoneY = y + scaledMargin + squareLength * j;
 
-                    int index = Board.getIndex(i, j);
-                    if (lastMoveNumber - moveNumberList[index] >= Lizzie.optionSetting.getNumberOfLastMovesShown()) {
+                    int index = geometry.getIndex(i, j);
+                    int moveNumberAtThisPoint = boardData.getMoveNumberOnBoard(index);
+                    if (lastMoveNumber - moveNumberAtThisPoint >= Lizzie.optionSetting.getNumberOfLastMovesShown()) {
                         continue;
                     }
 
-                    Stone stoneAtThisPoint = Lizzie.board.getStones()[index];
+                    Stone stoneAtThisPoint = boardData.getStone(index);
                     // don't write the move number if either: the move number is 0, or there will already be playout information written
-                    if (moveNumberList[index] - moveNumberBaseFix > 0) {
+                    if (moveNumberAtThisPoint - moveNumberBaseFix > 0) {
                         if (lastMove != null && i == lastMove[0] && j == lastMove[1])
                             g.setColor(Color.RED.brighter());//stoneAtThisPoint.isBlack() ? Color.RED.brighter() : Color.BLUE.brighter());
                         else
                             g.setColor(stoneAtThisPoint.isBlack() ? Color.WHITE : Color.BLACK);
 
-                        String moveNumberString = String.valueOf(moveNumberList[index] - moveNumberBaseFix);
+                        String moveNumberString = String.valueOf(moveNumberAtThisPoint - moveNumberBaseFix);
                         drawString(g, stoneX, stoneY, "Open Sans", moveNumberString, (float) (stoneRadius * 1.4), (int) (stoneRadius * 1.4));
                     }
                 }
@@ -498,35 +561,35 @@ public class BoardRenderer {
 
             // draw pass with number
             if (lastMove == null && lastMoveNumber != 0 && lastMoveNumber - moveNumberBaseFix >= 0) {
-                g.setColor(Lizzie.board.getData().isBlackToPlay() ? new Color(255, 255, 255, 150) : new Color(0, 0, 0, 150));
+                g.setColor(boardSnapshot.isBlackToPlay() ? new Color(255, 255, 255, 150) : new Color(0, 0, 0, 150));
                 g.fillOval(x + boardLength / 2 - 4 * stoneRadius, y + boardLength / 2 - 4 * stoneRadius, stoneRadius * 8, stoneRadius * 8);
                 g.setColor(Color.RED);
                 drawString(g, x + boardLength / 2, y + boardLength / 2, "Open Sans", Font.PLAIN, String.valueOf(lastMoveNumber - moveNumberBaseFix), stoneRadius * 4, stoneRadius * 6, 1);
-                g.setColor(Lizzie.board.getData().isBlackToPlay() ? new Color(0, 0, 0, 255) : new Color(255, 255, 255, 255));
+                g.setColor(boardSnapshot.isBlackToPlay() ? new Color(0, 0, 0, 255) : new Color(255, 255, 255, 255));
                 drawString(g, x + boardLength / 2, y + boardLength / 2 + stoneRadius, "Open Sans", "pass", stoneRadius * 4, stoneRadius * 6);
             }
         }
 
         if (branch != null) {
             int variationBase = 0;
-            if (Lizzie.board.isInTryPlayState()) {
-                variationBase = lastMoveNumber - Lizzie.board.getTryPlayStateBeginMoveNumber();
+            if (boardSnapshot.isInTryPlayState()) {
+                variationBase = lastMoveNumber - boardSnapshot.getTryPlayStateBeginMoveNumber();
                 if (variationBase < 0) {
                     variationBase = 0;
                 }
             }
             // draw branch number
             int nextVariationNumber = 0;
-            if (Lizzie.board.isInTryPlayState()) {
+            if (boardSnapshot.isInTryPlayState()) {
                 // try play state: show successive move number
                 nextVariationNumber = variationBase;
             }
 
-            Stone nextStone = Lizzie.board.getData().getLastMoveColor();
+            Stone nextStone = boardSnapshot.getData().getLastMoveColor();
             if (nextStone == Stone.EMPTY) {
                 nextStone = Stone.WHITE;
             }
-            for (String move : branch.getVariation()) {
+            for (int point : branch.getVariation()) {
                 ++nextVariationNumber;
 
                 // Flip stone
@@ -537,15 +600,14 @@ public class BoardRenderer {
                     continue;
                 }
 
-                // limit variation number to settings
+                // limit variation number to settings and to the moves that can be played
                 // note that stone drawing is at another place
-                if (nextVariationNumber - variationBase > Lizzie.optionSetting.getVariationLimit()) {
+                if (nextVariationNumber - variationBase > branchPlayableLength) {
                     break;
                 }
 
-                int[] coords = Board.convertNameToCoordinates(move);
-                int i = coords[0], j = coords[1];
-                if (Board.isValid(i, j)) {
+                if (geometry.isValidPoint(point)) {
+                    int i = PointCodec.getX(point), j = PointCodec.getY(point);
                     int stoneX = x + scaledMargin + squareLength * i;
                     int stoneY = y + scaledMargin + squareLength * j;
 
@@ -569,8 +631,8 @@ public class BoardRenderer {
      */
     private void drawLeelazSuggestions(Graphics2D g) {
         List<MoveData> bestMoves = bestMovesUpdated.get();
-        if ((Lizzie.board.getData().isBlackToPlay() && Lizzie.optionSetting.isShowBlackSuggestion()
-                || !Lizzie.board.getData().isBlackToPlay() && Lizzie.optionSetting.isShowWhiteSuggestion()) && CollectionUtils.isNotEmpty(bestMoves)) {
+        if ((boardSnapshot.isBlackToPlay() && Lizzie.optionSetting.isShowBlackSuggestion()
+                || !boardSnapshot.isBlackToPlay() && Lizzie.optionSetting.isShowWhiteSuggestion()) && CollectionUtils.isNotEmpty(bestMoves)) {
             int maxPlayouts = bestMoves.stream().max(Comparator.comparingInt(MoveData::getPlayouts)).get().getPlayouts();
             for (MoveData move : bestMoves) {
                 boolean isBestMove = bestMoves.get(0) == move;
@@ -579,9 +641,13 @@ public class BoardRenderer {
 
                 double percentPlayouts = (double) move.getPlayouts() / maxPlayouts;
 
-                int[] coordinates = Board.convertNameToCoordinates(move.getCoordinate());
-                int suggestionX = x + scaledMargin + squareLength * coordinates[0];
-                int suggestionY = y + scaledMargin + squareLength * coordinates[1];
+                if (!geometry.isValidPoint(move.getPoint())) {
+                    // A pass has no place on the board
+                    continue;
+                }
+                int suggestionX = x + scaledMargin + squareLength * PointCodec.getX(move.getPoint());
+                int suggestionY = y + scaledMargin + squareLength * PointCodec.getY(move.getPoint());
+                boolean isBranchMove = branch != null && branch.getPoint() == move.getPoint();
 
                 // -0.32 = Greenest hue, 0 = Reddest hue
                 float hue = (float) (-0.32 * Math.max(0, Math.log(percentPlayouts) / HUE_SCALING_FACTOR + 1));
@@ -601,8 +667,7 @@ public class BoardRenderer {
                     fillCircle(g, suggestionX, suggestionY, stoneRadius);
                 }
 
-                if (branch == null || isBestMove && !branch.getCoordinate().equalsIgnoreCase("Pass")
-                        && Arrays.equals(Board.convertNameToCoordinates(branch.getCoordinate()), coordinates)) {
+                if (branch == null || isBestMove && isBranchMove) {
                     // highlight LeelaZero's top recommended move
                     int strokeWidth = 1;
                     if (isBestMove) { // this is the best move
@@ -617,17 +682,16 @@ public class BoardRenderer {
                 }
 
 
-                if (branch == null && alpha >= MIN_ALPHA_TO_DISPLAY_TEXT || branch != null && !branch.getCoordinate().equalsIgnoreCase("Pass")
-                        && Arrays.equals(Board.convertNameToCoordinates(branch.getCoordinate()), coordinates)) {
+                if (branch == null && alpha >= MIN_ALPHA_TO_DISPLAY_TEXT || isBranchMove) {
                     double roundedWinrate = Math.round(move.getWinrate() * 10) / 10.0;
 
                     if (Lizzie.optionSetting.isAlwaysShowBlackWinrate()) {
-                        if (!Lizzie.board.getData().isBlackToPlay()) {
+                        if (!boardSnapshot.isBlackToPlay()) {
                             roundedWinrate = 100.0 - roundedWinrate;
                         }
                         g.setColor(Color.BLACK);
                     } else if (Lizzie.optionSetting.isShowWhiteWinrateWithWhiteFonts()) {
-                        if (Lizzie.board.getData().isBlackToPlay()) {
+                        if (boardSnapshot.isBlackToPlay()) {
                             g.setColor(Color.BLACK);
                         } else {
                             g.setColor(Color.WHITE);
@@ -637,7 +701,7 @@ public class BoardRenderer {
                     }
 
                     if (branch != null) {
-                        if (Lizzie.board.getData().isBlackToPlay()) {
+                        if (boardSnapshot.isBlackToPlay()) {
                             g.setColor(Color.WHITE);
                         } else {
                             g.setColor(Color.BLACK);
@@ -649,9 +713,9 @@ public class BoardRenderer {
                 }
             }
 
-            int[] nextMove = Lizzie.board.getNextMoveCoordinate();
+            int[] nextMove = boardSnapshot.getNextMoveCoordinate();
             if (Lizzie.optionSetting.isShowNextMove() && nextMove != null) {
-                if (Lizzie.board.getData().isBlackToPlay()) {
+                if (boardSnapshot.isBlackToPlay()) {
                     g.setColor(Color.BLACK);
                 } else {
                     g.setColor(Color.WHITE);
@@ -664,15 +728,15 @@ public class BoardRenderer {
     }
 
     private void drawInfluences(Graphics2D g) {
-        if (ArrayUtils.isNotEmpty(influences) && influences.length == Board.BOARD_SIZE * Board.BOARD_SIZE) {
+        if (ArrayUtils.isNotEmpty(influences) && influences.length == geometry.getSize() * geometry.getSize()) {
             Composite oldComposite = g.getComposite();
             g.setComposite(COMPOSITE_6);
             try {
-                for (int i = 0; i < Board.BOARD_SIZE; i++) {
-                    for (int j = 0; j < Board.BOARD_SIZE; j++) {
+                for (int i = 0; i < geometry.getSize(); i++) {
+                    for (int j = 0; j < geometry.getSize(); j++) {
                         int influenceX = x + scaledMargin + squareLength * i;
                         int influenceY = y + scaledMargin + squareLength * j;
-                        drawInfluence(g, influenceX, influenceY, influences[Board.getIndex(i, j)]);
+                        drawInfluence(g, influenceX, influenceY, influences[geometry.getIndex(i, j)]);
                     }
                 }
             } finally {
@@ -723,25 +787,25 @@ public class BoardRenderer {
     /**
      * Calculates the lengths and pixel margins from a given boardLength.
      *
-     * @param boardLength go board's length in pixels; must be boardLength >= BOARD_SIZE - 1
+     * @param boardLength go board's length in pixels; must be boardLength >= board size - 1
      * @return an array containing the three outputs: new boardLength, scaledMargin, availableLength
      */
-    private static int[] calculatePixelMargins(int boardLength) {
-        if (boardLength < Board.BOARD_SIZE - 1)
-            throw new IllegalArgumentException("boardLength may not be less than " + (Board.BOARD_SIZE - 1) + ", but was " + boardLength);
+    private int[] calculatePixelMargins(int boardLength) {
+        if (boardLength < geometry.getSize() - 1)
+            throw new IllegalArgumentException("boardLength may not be less than " + (geometry.getSize() - 1) + ", but was " + boardLength);
 
         int scaledMargin;
         int availableLength;
 
         // decrease boardLength until the availableLength will result in square board intersections
-        double margin = (Lizzie.optionSetting.isShowAxis() ? MARGIN_WITH_COORDS : MARGIN) / Board.BOARD_SIZE * 19.0;
+        double margin = (Lizzie.optionSetting.isShowAxis() ? MARGIN_WITH_COORDS : MARGIN) / geometry.getSize() * 19.0;
         boardLength++;
         do {
             boardLength--;
             scaledMargin = (int) (margin * boardLength);
             availableLength = boardLength - 2 * scaledMargin;
         }
-        while (!((availableLength - 1) % (Board.BOARD_SIZE - 1) == 0));
+        while (!((availableLength - 1) % (geometry.getSize() - 1) == 0));
         // this will be true if BOARD_SIZE - 1 square intersections, plus one line, will fit
 
         return new int[]{boardLength, scaledMargin, availableLength};
@@ -1073,7 +1137,7 @@ public class BoardRenderer {
      *
      * @param x x pixel coordinate
      * @param y y pixel coordinate
-     * @return if there is a valid coordinate, an array (x, y) where x and y are between 0 and BOARD_SIZE - 1. Otherwise, returns null
+     * @return if there is a valid coordinate, an array (x, y) where x and y are between 0 and board size - 1. Otherwise, returns null
      */
     public int[] convertScreenToCoordinates(int x, int y) {
         int marginLength; // the pixel width of the margins
@@ -1092,7 +1156,7 @@ public class BoardRenderer {
         y = (y - this.y - marginLength + squareSize / 2) / squareSize;
 
         // return these values if they are valid board coordinates
-        if (Board.isValid(x, y))
+        if (geometry.isValid(x, y))
             return new int[]{x, y};
         else
             return null;
@@ -1105,6 +1169,6 @@ public class BoardRenderer {
      * @return the board length of each intersection square
      */
     private int calculateSquareLength(int availableLength) {
-        return availableLength / (Board.BOARD_SIZE - 1);
+        return availableLength / (geometry.getSize() - 1);
     }
 }
\ No newline at end of file
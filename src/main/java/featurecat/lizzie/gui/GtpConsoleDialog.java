@@ -33,11 +33,13 @@ public class GtpConsoleDialog extends JDialog {
     private JPanel panelInfoUtil;
     private JToolBar toolBarConsole;
     private JButton buttonClear;
+    private JToggleButton buttonMetrics;
     private JPanel panelHint;
     private JLabel labelHint;
     private JPanel panelGtpCommand;
     private JLabel labelGtpCommand;
     private JTextField textFieldGtpCommandInput;
+    private GtpMetricsPanel panelMetrics;
     // JFormDesigner - End of variables declaration  //GEN-END:variables
 
     private static final ImmutableSet<String> ANALYZE_COMMAND = Sets.immutable.of("lz-analyze", "lz-analyze_genmove");
@@ -122,6 +124,7 @@ public class GtpConsoleDialog extends JDialog {
         this.gtpClient.registerStdoutLineConsumer(stdoutConsumer);
         this.gtpClient.registerStderrLineConsumer(stderrConsumer);
         this.gtpClient.registerEngineExitObserver(exitObserver);
+        panelMetrics.setMetrics(gtpClient.getMetrics());
     }
 
     private void textFieldGtpCommandInputActionPerformed(ActionEvent e) {
@@ -145,6 +148,11 @@ public class GtpConsoleDialog extends JDialog {
         textLineManager.clear();
     }
 
+    private void buttonMetricsActionPerformed(ActionEvent e) {
+        panelMetrics.setVisible(buttonMetrics.isSelected());
+        revalidate();
+    }
+
     private void initComponents() {
         // JFormDesigner - Component initialization - DO NOT MODIFY  //GEN-BEGIN:initComponents
         // Generated using JFormDesigner non-commercial license
@@ -154,11 +162,13 @@ public class GtpConsoleDialog extends JDialog {
         panelInfoUtil = new JPanel();
         toolBarConsole = new JToolBar();
         buttonClear = new JButton();
+        buttonMetrics = new JToggleButton();
         panelHint = new JPanel();
         labelHint = new JLabel();
         panelGtpCommand = new JPanel();
         labelGtpCommand = new JLabel();
         textFieldGtpCommandInput = new JTextField();
+        panelMetrics = new GtpMetricsPanel();
 
         //======== this ========
         setTitle(bundle.getString("GtpConsoleDialog.this.title"));
@@ -200,6 +210,12 @@ public class GtpConsoleDialog extends JDialog {
                 buttonClear.setToolTipText(bundle.getString("GtpConsoleDialog.buttonClear.toolTipText"));
                 buttonClear.addActionListener(e -> buttonClearActionPerformed(e));
                 toolBarConsole.add(buttonClear);
+
+                //---- buttonMetrics ----
+                buttonMetrics.setText(bundle.getString("GtpConsoleDialog.buttonMetrics.text"));
+                buttonMetrics.setToolTipText(bundle.getString("GtpConsoleDialog.buttonMetrics.toolTipText"));
+                buttonMetrics.addActionListener(e -> buttonMetricsActionPerformed(e));
+                toolBarConsole.add(buttonMetrics);
             }
             panelInfoUtil.add(toolBarConsole, new TableLayoutConstraints(0, 0, 0, 0, TableLayoutConstraints.FULL, TableLayoutConstraints.FULL));
 
@@ -236,6 +252,10 @@ public class GtpConsoleDialog extends JDialog {
             panelGtpCommand.add(textFieldGtpCommandInput, new TableLayoutConstraints(1, 0, 1, 0, TableLayoutConstraints.FULL, TableLayoutConstraints.FULL));
         }
         contentPane.add(panelGtpCommand, BorderLayout.SOUTH);
+
+        //---- panelMetrics ----
+        panelMetrics.setVisible(false);
+        contentPane.add(panelMetrics, BorderLayout.EAST);
         pack();
         setLocationRelativeTo(getOwner());
         // JFormDesigner - End of component initialization  //GEN-END:initComponents
@@ -0,0 +1,127 @@
+package featurecat.lizzie.gui;
+
+import featurecat.lizzie.analysis.GtpClientMetrics;
+
+import javax.swing.*;
+import javax.swing.table.AbstractTableModel;
+import java.awt.*;
+import java.util.Arrays;
+import java.util.ResourceBundle;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * Shows the latency and throughput numbers of a GTP client, refreshed every second while visible.
+ */
+@SuppressWarnings("serial")
+public class GtpMetricsPanel extends JPanel {
+    private static final ResourceBundle resourceBundle = ResourceBundle.getBundle("featurecat.lizzie.i18n.GuiBundle");
+    private static final int REFRESH_INTERVAL_MILLIS = 1000;
+
+    private static final String[] METRIC_KEYS = {
+            "GtpMetricsPanel.commandCount",
+            "GtpMetricsPanel.queueWait",
+            "GtpMetricsPanel.responseDelay",
+            "GtpMetricsPanel.execution",
+            "GtpMetricsPanel.stagedCommands",
+            "GtpMetricsPanel.runningCommands",
+            "GtpMetricsPanel.stdoutLines",
+            "GtpMetricsPanel.stdoutBytes",
+            "GtpMetricsPanel.bestMovesUpdates",
+            "GtpMetricsPanel.engineRestarts",
+    };
+
+    private class MetricsTableModel extends AbstractTableModel {
+        private final String[] values = new String[METRIC_KEYS.length];
+
+        void refresh() {
+            if (metrics == null) {
+                Arrays.fill(values, "");
+            } else {
+                values[0] = String.valueOf(metrics.getCommandCount());
+                values[1] = formatDurations(metrics.getRecentQueueWaitMillis(), metrics.getMeanQueueWaitMillis(), metrics.getMaxQueueWaitMillis());
+                values[2] = formatDurations(metrics.getRecentResponseDelayMillis(), metrics.getMeanResponseDelayMillis(), metrics.getMaxResponseDelayMillis());
+                values[3] = formatDurations(metrics.getRecentExecutionMillis(), metrics.getMeanExecutionMillis(), metrics.getMaxExecutionMillis());
+                values[4] = String.valueOf(metrics.getStagedCommandCount());
+                values[5] = String.valueOf(metrics.getRunningCommandCount());
+                values[6] = formatRate(GtpClientMetrics::getStdoutLinesPerSecond);
+                values[7] = formatRate(GtpClientMetrics::getStdoutBytesPerSecond);
+                values[8] = formatRate(GtpClientMetrics::getBestMovesUpdatesPerSecond);
+                values[9] = String.valueOf(metrics.getEngineRestartCount());
+            }
+            fireTableDataChanged();
+        }
+
+        private String formatDurations(double recent, double mean, double max) {
+            return String.format("%.1f / %.1f / %.1f", recent, mean, max);
+        }
+
+        private String formatRate(ToDoubleFunction<GtpClientMetrics> rate) {
+            return String.format("%.1f", rate.applyAsDouble(metrics));
+        }
+
+        @Override
+        public int getRowCount() {
+            return METRIC_KEYS.length;
+        }
+
+        @Override
+        public int getColumnCount() {
+            return 2;
+        }
+
+        @Override
+        public String getColumnName(int column) {
+            return resourceBundle.getString(column == 0 ? "GtpMetricsPanel.column.metric" : "GtpMetricsPanel.column.value");
+        }
+
+        @Override
+        public Object getValueAt(int rowIndex, int columnIndex) {
+            return columnIndex == 0 ? resourceBundle.getString(METRIC_KEYS[rowIndex]) : values[rowIndex];
+        }
+    }
+
+    private final MetricsTableModel tableModel;
+    private final Timer refreshTimer;
+    private volatile GtpClientMetrics metrics;
+
+    public GtpMetricsPanel() {
+        super(new BorderLayout());
+
+        tableModel = new MetricsTableModel();
+        JTable metricsTable = new JTable(tableModel);
+        metricsTable.setFillsViewportHeight(true);
+        metricsTable.getColumnModel().getColumn(0).setPreferredWidth(180);
+        metricsTable.getColumnModel().getColumn(1).setPreferredWidth(140);
+
+        JScrollPane scrollPane = new JScrollPane(metricsTable);
+        scrollPane.setPreferredSize(new Dimension(320, 0));
+        add(scrollPane, BorderLayout.CENTER);
+
+        JButton buttonReset = new JButton(resourceBundle.getString("GtpMetricsPanel.buttonReset.text"));
+        buttonReset.addActionListener(e -> {
+            if (metrics != null) {
+                metrics.reset();
+                tableModel.refresh();
+            }
+        });
+        add(buttonReset, BorderLayout.SOUTH);
+
+        refreshTimer = new Timer(REFRESH_INTERVAL_MILLIS, e -> tableModel.refresh());
+    }
+
+    public void setMetrics(GtpClientMetrics metrics) {
+        this.metrics = metrics;
+        SwingUtilities.invokeLater(tableModel::refresh);
+    }
+
+    @Override
+    public void setVisible(boolean visible) {
+        super.setVisible(visible);
+        if (visible) {
+            tableModel.refresh();
+            refreshTimer.start();
+        } else {
+            refreshTimer.stop();
+        }
+    }
+}
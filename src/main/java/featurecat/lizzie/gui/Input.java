@@ -4,7 +4,6 @@ import com.google.common.collect.ImmutableMap;
 import org.apache.commons.lang3.tuple.ImmutablePair;
 import featurecat.lizzie.Lizzie;
 import featurecat.lizzie.analysis.DetailedScoreEstimator;
-import featurecat.lizzie.rules.Board;
 
 import javax.swing.*;
 import java.awt.event.*;
@@ -189,7 +188,7 @@ public class Input implements MouseListener, KeyListener, MouseWheelListener, Mo
 
                 String detailedScoreDescription = String.format(
                         resourceBundle.getString("LizzieFrame.prompt.detailedScoreEstimation")
-                        , Lizzie.scoreEstimator.getEstimatorName(), Board.BOARD_SIZE == 19 ? 7.5 : 6.5, colorDescription, absoluteScore
+                        , Lizzie.scoreEstimator.getEstimatorName(), Lizzie.board.getGeometry().getSize() == 19 ? 7.5 : 6.5, colorDescription, absoluteScore
                         , detailedScore.getBlackTerritoryCount()
                         , detailedScore.getWhiteTerritoryCount()
                         , detailedScore.getBlackDeadCount()
@@ -206,7 +205,7 @@ public class Input implements MouseListener, KeyListener, MouseWheelListener, Mo
                 String colorDescription = COLOR_DISPLAY_STRING.getOrDefault(estimatedScore.getLeft(), "?");
                 double score = estimatedScore.getRight();
                 JOptionPane.showMessageDialog(Lizzie.frame
-                        , String.format(resourceBundle.getString("LizzieFrame.prompt.scoreEstimation"), Lizzie.scoreEstimator.getEstimatorName(), Board.BOARD_SIZE == 19 ? 7.5 : 6.5, colorDescription, score)
+                        , String.format(resourceBundle.getString("LizzieFrame.prompt.scoreEstimation"), Lizzie.scoreEstimator.getEstimatorName(), Lizzie.board.getGeometry().getSize() == 19 ? 7.5 : 6.5, colorDescription, score)
                         , "Lizzie"
                         , JOptionPane.INFORMATION_MESSAGE);
             }
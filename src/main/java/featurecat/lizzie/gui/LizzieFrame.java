@@ -2,7 +2,6 @@ package featurecat.lizzie.gui;
 
 import com.jhlabs.image.GaussianFilter;
 import featurecat.lizzie.Lizzie;
-import featurecat.lizzie.rules.Board;
 import featurecat.lizzie.rules.BoardHistoryNode;
 import featurecat.lizzie.rules.BoardStateChangeObserver;
 import featurecat.lizzie.rules.Stone;
@@ -56,7 +55,21 @@ public class LizzieFrame extends JFrame {
     public static final String LIZZIE_TITLE = String.format("MyLizzie %s", StringUtils.defaultString(Lizzie.getLizzieVersion(), "dev-edition"));
     public static final String LIZZIE_TRY_PLAY_TITLE = resourceBundle.getString("LizzieFrame.title.tryPlayingMode");
 
+    private static boolean fontsRegistered = false;
+
     static {
+        registerFonts();
+    }
+
+    /**
+     * Loads the bundled fonts. Startup calls it ahead of building the window, the later calls do nothing.
+     */
+    public static synchronized void registerFonts() {
+        if (fontsRegistered) {
+            return;
+        }
+        fontsRegistered = true;
+
         // load fonts
         try {
             GraphicsEnvironment ge = GraphicsEnvironment.getLocalGraphicsEnvironment();
@@ -242,6 +255,12 @@ public class LizzieFrame extends JFrame {
         });
         menu.add(item);
 
+        item = new JMenuItem(resourceBundle.getString("LizzieFrame.menu.game.review"));
+        item.addActionListener(e -> {
+            Lizzie.toggleGameReview();
+        });
+        menu.add(item);
+
         item = new JMenuItem(resourceBundle.getString("LizzieFrame.menu.game.tryPlayingMode"));
         item.addActionListener(e -> {
             if (Lizzie.board.isInTryPlayState()) {
@@ -313,7 +332,7 @@ public class LizzieFrame extends JFrame {
             g.fillRect(0, 0, width, height);
         }
 
-        int maxSize = Math.max(Math.min(width, height - topInset), Board.BOARD_SIZE + 5); // don't let maxWidth become too small
+        int maxSize = Math.max(Math.min(width, height - topInset), Lizzie.board.getGeometry().getSize() + 5); // don't let maxWidth become too small
 
         drawCommandString(g);
 
@@ -436,8 +455,9 @@ public class LizzieFrame extends JFrame {
     private AtomicReference<int[]> lastBoardCoordinates = new AtomicReference<>();
 
     public void onMouseMove(int x, int y) {
-        if (Lizzie.optionSetting.isMouseOverShowMove() && (Lizzie.board.getData().isBlackToPlay() && Lizzie.optionSetting.isShowBlackSuggestion()
-                || !Lizzie.board.getData().isBlackToPlay() && Lizzie.optionSetting.isShowWhiteSuggestion())) {
+        boolean blackToPlay = Lizzie.board.getSnapshot().isBlackToPlay();
+        if (Lizzie.optionSetting.isMouseOverShowMove() && (blackToPlay && Lizzie.optionSetting.isShowBlackSuggestion()
+                || !blackToPlay && Lizzie.optionSetting.isShowWhiteSuggestion())) {
             // check for board click
             int[] boardCoordinates = boardRenderer.convertScreenToCoordinates(x, y);
             int[] previousCoordinates = lastBoardCoordinates.getAndSet(boardCoordinates);
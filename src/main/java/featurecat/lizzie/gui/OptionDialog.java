@@ -7,6 +7,7 @@ package featurecat.lizzie.gui;
 import com.google.common.primitives.Ints;
 import featurecat.lizzie.Lizzie;
 import featurecat.lizzie.rules.Board;
+import featurecat.lizzie.rules.BoardGeometry;
 import org.apache.commons.lang3.StringUtils;
 import org.eclipse.collections.api.map.ImmutableMap;
 import org.eclipse.collections.api.map.MutableMap;
@@ -287,9 +288,10 @@ public class OptionDialog extends JDialog {
         Lizzie.frame.getBoardRenderer().forceCachedBackgroundImageRefresh();
         Lizzie.frame.getBoardRenderer().forceCachedStoneImageRefresh();
 
-        if (Board.BOARD_SIZE != Lizzie.optionSetting.getBoardSize().getWidth()) {
-            Board.changeBoardSize(Lizzie.optionSetting.getBoardSize().getWidth());
-            Lizzie.clearBoardAndState();
+        int newBoardSize = Lizzie.optionSetting.getBoardSize().getWidth();
+        if (Lizzie.board.getGeometry().getSize() != newBoardSize) {
+            Board.changeBoardSize(newBoardSize);
+            Lizzie.board.clear(BoardGeometry.of(newBoardSize));
         }
 
         Lizzie.frame.repaint();
@@ -3,6 +3,7 @@ package featurecat.lizzie.gui;
 import com.google.common.collect.ImmutableList;
 import com.google.common.primitives.Ints;
 import featurecat.lizzie.Lizzie;
+import featurecat.lizzie.rules.RulesKernel;
 import org.apache.commons.lang3.builder.EqualsBuilder;
 import org.apache.commons.lang3.builder.HashCodeBuilder;
 import org.apache.commons.lang3.builder.ToStringBuilder;
@@ -403,6 +404,13 @@ public class OptionSetting {
     private ColorSetting bestSuggestionColor;
     private boolean alwaysShowBlackWinrate;
     private boolean showWhiteWinrateWithWhiteFonts;
+    private int historyCheckpointInterval;
+    private RulesKernel.Kind rulesKernel;
+    private int enginePoolSize;
+    private int enginePoolWarmCount;
+    private long enginePoolIdleTimeout;
+    private int reviewVisits;
+    private int reviewTimeLimit;
 
     private WindowState mainWindowState;
     private WindowState analysisWindowState;
@@ -444,6 +452,13 @@ public class OptionSetting {
         bestSuggestionColor = new ColorSetting(Color.RED);
         alwaysShowBlackWinrate = false;
         showWhiteWinrateWithWhiteFonts = false;
+        historyCheckpointInterval = 32;
+        rulesKernel = RulesKernel.Kind.CHAIN_TRACKER;
+        enginePoolSize = 2;
+        enginePoolWarmCount = 1;
+        enginePoolIdleTimeout = 300;
+        reviewVisits = 400;
+        reviewTimeLimit = 10;
 
         // on 1080p windows screens, this is a good width/height
         mainWindowState = new WindowState(false, false, false, 100, 100, 657, 687);
@@ -624,6 +639,68 @@ public class OptionSetting {
         this.autoEnterTryPlayingMode = autoEnterTryPlayingMode;
     }
 
+    /**
+     * @return every how many moves the history stores a full position, 1 or less stores every position in full
+     */
+    public int getHistoryCheckpointInterval() {
+        return historyCheckpointInterval;
+    }
+
+    public void setHistoryCheckpointInterval(int historyCheckpointInterval) {
+        this.historyCheckpointInterval = historyCheckpointInterval;
+    }
+
+    /**
+     * @return the rules kernel boards play moves with, null if unknown to this version
+     */
+    public RulesKernel.Kind getRulesKernel() {
+        return rulesKernel;
+    }
+
+    public void setRulesKernel(RulesKernel.Kind rulesKernel) {
+        this.rulesKernel = rulesKernel;
+    }
+
+    public int getEnginePoolSize() {
+        return enginePoolSize;
+    }
+
+    public void setEnginePoolSize(int enginePoolSize) {
+        this.enginePoolSize = enginePoolSize;
+    }
+
+    public int getEnginePoolWarmCount() {
+        return enginePoolWarmCount;
+    }
+
+    public void setEnginePoolWarmCount(int enginePoolWarmCount) {
+        this.enginePoolWarmCount = enginePoolWarmCount;
+    }
+
+    public long getEnginePoolIdleTimeout() {
+        return enginePoolIdleTimeout;
+    }
+
+    public void setEnginePoolIdleTimeout(long enginePoolIdleTimeout) {
+        this.enginePoolIdleTimeout = enginePoolIdleTimeout;
+    }
+
+    public int getReviewVisits() {
+        return reviewVisits;
+    }
+
+    public void setReviewVisits(int reviewVisits) {
+        this.reviewVisits = reviewVisits;
+    }
+
+    public int getReviewTimeLimit() {
+        return reviewTimeLimit;
+    }
+
+    public void setReviewTimeLimit(int reviewTimeLimit) {
+        this.reviewTimeLimit = reviewTimeLimit;
+    }
+
     public ColorSetting getBestSuggestionColor() {
         return bestSuggestionColor;
     }
@@ -790,6 +867,13 @@ public class OptionSetting {
                 .append(autoStartAnalyzingAfterPlacingMoves, that.autoStartAnalyzingAfterPlacingMoves)
                 .append(alwaysShowBlackWinrate, that.alwaysShowBlackWinrate)
                 .append(showWhiteWinrateWithWhiteFonts, that.showWhiteWinrateWithWhiteFonts)
+                .append(historyCheckpointInterval, that.historyCheckpointInterval)
+                .append(rulesKernel, that.rulesKernel)
+                .append(enginePoolSize, that.enginePoolSize)
+                .append(enginePoolWarmCount, that.enginePoolWarmCount)
+                .append(enginePoolIdleTimeout, that.enginePoolIdleTimeout)
+                .append(reviewVisits, that.reviewVisits)
+                .append(reviewTimeLimit, that.reviewTimeLimit)
                 .append(winrateHistogramWindowShow, that.winrateHistogramWindowShow)
                 .append(boardSize, that.boardSize)
                 .append(boardColor, that.boardColor)
@@ -837,6 +921,13 @@ public class OptionSetting {
                 .append(bestSuggestionColor)
                 .append(alwaysShowBlackWinrate)
                 .append(showWhiteWinrateWithWhiteFonts)
+                .append(historyCheckpointInterval)
+                .append(rulesKernel)
+                .append(enginePoolSize)
+                .append(enginePoolWarmCount)
+                .append(enginePoolIdleTimeout)
+                .append(reviewVisits)
+                .append(reviewTimeLimit)
                 .append(mainWindowState)
                 .append(analysisWindowState)
                 .append(winrateHistogramWindowState)
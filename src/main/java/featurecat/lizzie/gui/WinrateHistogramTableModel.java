@@ -5,7 +5,6 @@ import org.jetbrains.annotations.NotNull;
 import featurecat.lizzie.Lizzie;
 import featurecat.lizzie.analysis.BestMoveObserver;
 import featurecat.lizzie.analysis.MoveData;
-import featurecat.lizzie.rules.Board;
 import featurecat.lizzie.rules.BoardData;
 import featurecat.lizzie.rules.BoardHistoryNode;
 import featurecat.lizzie.rules.BoardStateChangeObserver;
@@ -46,9 +45,10 @@ public class WinrateHistogramTableModel extends AbstractTableModel {
             public void headMoved(BoardHistoryNode oldHead, BoardHistoryNode newHead) {
                 int lastMoveNumberInTable = histogramEntryList.get(histogramEntryList.size() - 1).getMoveNumber();
                 if (newHead.getData().getMoveNumber() > lastMoveNumberInTable) {
-                    BoardHistoryNode node;
+                    // the head may jump several moves at once
+                    BoardHistoryNode node = oldHead;
                     do {
-                        node = oldHead.getNext();
+                        node = node.getNext();
                         addHistogramData(node.getData());
                     } while (node != newHead);
                 } else {
@@ -85,7 +85,7 @@ public class WinrateHistogramTableModel extends AbstractTableModel {
         Lizzie.leelaz.registerBestMoveObserver(new BestMoveObserver() {
             @Override
             public void bestMovesUpdated(List<MoveData> newBestMoves) {
-                int currentMoveNumber = Lizzie.board.getData().getMoveNumber();
+                int currentMoveNumber = Lizzie.board.getSnapshot().getData().getMoveNumber();
                 if (currentMoveNumber < histogramEntryList.size() && CollectionUtils.isNotEmpty(newBestMoves)) {
                     MoveData moveData = newBestMoves.get(0);
                     WinrateHistogramEntry histogramEntry = histogramEntryList.get(currentMoveNumber);
@@ -191,11 +191,14 @@ public class WinrateHistogramTableModel extends AbstractTableModel {
     public void rebuildHistogramData() {
         histogramEntryList.clear();
         histogramEntryFilteredList.clear();
-        Lizzie.board.getHistory().forEach(boardData -> {
-            if (boardData.getMoveNumber() >= 0) {
-                addHistogramData(boardData);
-            }
-        });
+        // The history nodes are live, so the walk holds the board lock against edits
+        synchronized (Lizzie.board) {
+            Lizzie.board.getHistory().forEach(boardData -> {
+                if (boardData.getMoveNumber() >= 0) {
+                    addHistogramData(boardData);
+                }
+            });
+        }
     }
 
     public void rebuildFilteredHistogramData() {
@@ -217,6 +220,36 @@ public class WinrateHistogramTableModel extends AbstractTableModel {
                 .collect(Collectors.toCollection(ArrayList::new));
     }
 
+    /**
+     * Refreshes the entry of a position whose winrate has changed, along with the winrate difference of the next entry.
+     *
+     * @param boardData the position
+     */
+    public void updateHistogramData(BoardData boardData) {
+        int index = -1;
+        for (int i = 0; i < histogramEntryList.size(); ++i) {
+            if (histogramEntryList.get(i).getMoveNumber() == boardData.getMoveNumber()) {
+                index = i;
+                break;
+            }
+        }
+        if (index < 0) {
+            return;
+        }
+
+        histogramEntryList.get(index).setBlackWinrate(boardData.getBlackWinrate());
+        for (int i = Math.max(index, 1); i <= index + 1 && i < histogramEntryList.size(); ++i) {
+            WinrateHistogramEntry entry = histogramEntryList.get(i);
+            entry.setBlackWindiff(entry.getBlackWinrate() - histogramEntryList.get(i - 1).getBlackWinrate());
+        }
+
+        rebuildFilteredHistogramData();
+        fireTableDataChanged();
+        if (refreshObserver != null) {
+            Lizzie.miscExecutor.execute(() -> refreshObserver.accept(WinrateHistogramTableModel.this));
+        }
+    }
+
     public void addHistogramData(BoardData boardData) {
         String color = getCurrentDisplayColor(boardData);
         String move = getCurrentDisplayMove(boardData);
@@ -235,8 +268,8 @@ public class WinrateHistogramTableModel extends AbstractTableModel {
     private String getCurrentDisplayMove(BoardData boardData) {
         String move;
         int[] lastMove = boardData.getLastMove();
-        if (lastMove != null && Board.isValid(lastMove[0], lastMove[1])) {
-            move = Board.convertCoordinatesToDisplayName(lastMove[0], lastMove[1]);
+        if (lastMove != null && boardData.getGeometry().isValid(lastMove[0], lastMove[1])) {
+            move = boardData.getGeometry().convertCoordinatesToDisplayName(lastMove[0], lastMove[1]);
         } else {
             move = "Pass";
         }
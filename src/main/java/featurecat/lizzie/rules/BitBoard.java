@@ -0,0 +1,435 @@
+package featurecat.lizzie.rules;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Bitboard rules kernel. Keeps one {@link PointMask} per color and answers whole-board questions such as legal
+ * moves, stones in atari, empty regions and Benson's unconditional life with word operations instead of per-point
+ * loops. As a {@link RulesKernel} it can stand in for {@link ChainTracker} when {@link Board} plays moves.
+ */
+public class BitBoard implements RulesKernel {
+    private static final int NO_KO = -1;
+
+    private final int boardSize;
+    private final PointMask black;
+    private final PointMask white;
+
+    // point forbidden to koColor by a simple ko, NO_KO if none
+    private int koIndex;
+    private Stone koColor;
+
+    // results of Benson's algorithm per color, cleared by any change of the position
+    private PointMask[] blackLife;
+    private PointMask[] whiteLife;
+
+    public BitBoard(int boardSize) {
+        this.boardSize = boardSize;
+        this.black = PointMask.empty(boardSize);
+        this.white = PointMask.empty(boardSize);
+        this.koIndex = NO_KO;
+        this.koColor = Stone.EMPTY;
+    }
+
+    private BitBoard(BitBoard other) {
+        this.boardSize = other.boardSize;
+        this.black = other.black.copy();
+        this.white = other.white.copy();
+        this.koIndex = other.koIndex;
+        this.koColor = other.koColor;
+    }
+
+    /**
+     * @param data the position
+     * @return a bitboard of the position, without ko information
+     */
+    public static BitBoard of(BoardData data) {
+        BitBoard bitBoard = new BitBoard(data.getGeometry().getSize());
+        int pointCount = data.getPointCount();
+        for (int i = 0; i < pointCount; ++i) {
+            bitBoard.put(i, data.getStone(i));
+        }
+        return bitBoard;
+    }
+
+    /**
+     * @param stones    the stones array of the position, indexed like {@link BoardGeometry#getIndex(int, int)}
+     * @param boardSize the board size
+     * @return a bitboard of the position, without ko information
+     */
+    public static BitBoard of(Stone[] stones, int boardSize) {
+        BitBoard bitBoard = new BitBoard(boardSize);
+        for (int i = 0; i < stones.length; ++i) {
+            bitBoard.put(i, stones[i]);
+        }
+        return bitBoard;
+    }
+
+    private void put(int index, Stone stone) {
+        if (stone == Stone.BLACK) {
+            black.set(index);
+        } else if (stone == Stone.WHITE) {
+            white.set(index);
+        }
+    }
+
+    public BitBoard copy() {
+        return new BitBoard(this);
+    }
+
+    @Override
+    public int getBoardSize() {
+        return boardSize;
+    }
+
+    @Override
+    public Stone getStone(int index) {
+        if (black.contains(index)) {
+            return Stone.BLACK;
+        } else if (white.contains(index)) {
+            return Stone.WHITE;
+        } else {
+            return Stone.EMPTY;
+        }
+    }
+
+    /**
+     * @param color BLACK or WHITE
+     * @return a copy of the stones of the color
+     */
+    public PointMask getStones(Stone color) {
+        return stonesOf(color).copy();
+    }
+
+    /**
+     * @return the empty points
+     */
+    public PointMask getEmpty() {
+        return black.copy().or(white).invert();
+    }
+
+    /**
+     * @return the point the given color may not play because of a simple ko, -1 if none
+     */
+    public int getKoIndex(Stone color) {
+        return color == koColor ? koIndex : NO_KO;
+    }
+
+    private PointMask stonesOf(Stone color) {
+        return color.isBlack() ? black : white;
+    }
+
+    /**
+     * @param index a stone index
+     * @return the chain containing the stone, empty for an empty point
+     */
+    public PointMask getChain(int index) {
+        Stone color = getStone(index);
+        if (color == Stone.EMPTY) {
+            return PointMask.empty(boardSize);
+        }
+        return PointMask.of(boardSize, index).floodFill(stonesOf(color));
+    }
+
+    /**
+     * @param chain a set of stones
+     * @return the empty points adjacent to the stones
+     */
+    public PointMask getLiberties(PointMask chain) {
+        return chain.neighbours().andNot(black).andNot(white);
+    }
+
+    /**
+     * @param index a stone index
+     * @return liberty count of the chain containing the stone, 0 for an empty point
+     */
+    @Override
+    public int getLibertyCount(int index) {
+        return getLiberties(getChain(index)).cardinality();
+    }
+
+    /**
+     * @param index a stone index
+     * @return stone count of the chain containing the stone, 0 for an empty point
+     */
+    @Override
+    public int getChainSize(int index) {
+        return getChain(index).cardinality();
+    }
+
+    /**
+     * Checks whether placing a stone would leave its own chain without liberties, taking captures into account.
+     *
+     * @param index the point to play -- must be empty
+     * @param color the color to play
+     * @return whether or not the move is suicidal
+     */
+    @Override
+    public boolean isSuicide(int index, Stone color) {
+        PointMask point = PointMask.of(boardSize, index);
+        PointMask adjacent = point.neighbours();
+        if (!adjacent.copy().andNot(black).andNot(white).isEmpty()) {
+            return false;
+        }
+        if (!findCapturedStones(index, color).isEmpty()) {
+            return false;
+        }
+
+        // the played point is still empty here, so it must not count as a liberty of its own chain
+        PointMask own = stonesOf(color).copy().set(index);
+        return getLiberties(point.floodFill(own)).clear(index).isEmpty();
+    }
+
+    /**
+     * Lists the enemy stones that placing a stone would capture, without changing the position.
+     *
+     * @param index the point to play -- must be empty
+     * @param color the color to play
+     * @return the captured stones
+     */
+    @Override
+    public PointMask findCapturedStones(int index, Stone color) {
+        PointMask enemy = stonesOf(color.opposite());
+        PointMask captured = PointMask.empty(boardSize);
+        PointMask adjacentEnemies = PointMask.of(boardSize, index).neighbours().and(enemy);
+        for (int neighbour = adjacentEnemies.firstIndex(); neighbour >= 0; neighbour = adjacentEnemies.firstIndex()) {
+            PointMask chain = PointMask.of(boardSize, neighbour).floodFill(enemy);
+            PointMask liberties = getLiberties(chain);
+            if (liberties.cardinality() == 1 && liberties.contains(index)) {
+                captured.or(chain);
+            }
+            adjacentEnemies.andNot(chain);
+        }
+        return captured;
+    }
+
+    /**
+     * Places a stone and removes the captured enemy stones. The move must be legal, check with
+     * {@link #isSuicide(int, Stone)} first.
+     *
+     * @param index the point to play -- must be empty
+     * @param color the color to play
+     * @return the captured stones
+     */
+    @Override
+    public PointMask play(int index, Stone color) {
+        if (getStone(index) != Stone.EMPTY) {
+            throw new IllegalArgumentException("Point " + index + " is already occupied.");
+        }
+
+        PointMask captured = findCapturedStones(index, color);
+        stonesOf(color).set(index);
+        stonesOf(color.opposite()).andNot(captured);
+        blackLife = null;
+        whiteLife = null;
+
+        koIndex = NO_KO;
+        koColor = Stone.EMPTY;
+        if (captured.cardinality() == 1) {
+            PointMask chain = getChain(index);
+            if (chain.cardinality() == 1 && getLiberties(chain).cardinality() == 1) {
+                // a single stone capturing a single stone leaves a simple ko
+                koIndex = captured.firstIndex();
+                koColor = color.opposite();
+            }
+        }
+        return captured;
+    }
+
+    /**
+     * A pass, which lifts any simple ko.
+     */
+    public void pass() {
+        koIndex = NO_KO;
+        koColor = Stone.EMPTY;
+    }
+
+    /**
+     * @param color BLACK or WHITE
+     * @return the chains of the color, one mask each
+     */
+    public List<PointMask> getChains(Stone color) {
+        return components(stonesOf(color));
+    }
+
+    /**
+     * @return the maximal orthogonally connected groups of empty points, one mask each
+     */
+    public List<PointMask> getEmptyRegions() {
+        return components(getEmpty());
+    }
+
+    /**
+     * @param color BLACK or WHITE
+     * @return the stones of the color whose chain has exactly one liberty
+     */
+    public PointMask getAtariStones(Stone color) {
+        PointMask atari = PointMask.empty(boardSize);
+        for (PointMask chain : getChains(color)) {
+            if (getLiberties(chain).cardinality() == 1) {
+                atari.or(chain);
+            }
+        }
+        return atari;
+    }
+
+    /**
+     * Computes every legal move of a color at once. An empty point is legal if it has an empty neighbour, touches an
+     * enemy chain in atari or touches an own chain with two or more liberties, unless a simple ko forbids it.
+     * Positional superko is not considered.
+     *
+     * @param color the color to play
+     * @return the legal points
+     */
+    public PointMask getLegalMoves(Stone color) {
+        PointMask empty = getEmpty();
+        PointMask reach = empty.neighbours();
+
+        for (PointMask chain : getChains(color.opposite())) {
+            if (getLiberties(chain).cardinality() == 1) {
+                reach.or(chain.neighbours());
+            }
+        }
+        for (PointMask chain : getChains(color)) {
+            if (getLiberties(chain).cardinality() >= 2) {
+                reach.or(chain.neighbours());
+            }
+        }
+
+        PointMask legal = reach.and(empty);
+        int ko = getKoIndex(color);
+        if (ko != NO_KO) {
+            legal.clear(ko);
+        }
+        return legal;
+    }
+
+    /**
+     * @param color BLACK or WHITE
+     * @return the stones of the color that are alive whatever the opponent plays, by Benson's algorithm
+     */
+    public PointMask getUnconditionallyAlive(Stone color) {
+        return unconditionalLife(color)[0].copy();
+    }
+
+    /**
+     * @param color BLACK or WHITE
+     * @return the points enclosed by unconditionally alive chains of the color that the opponent can never live in
+     */
+    public PointMask getUnconditionalTerritory(Stone color) {
+        return unconditionalLife(color)[1].copy();
+    }
+
+    private PointMask[] unconditionalLife(Stone color) {
+        if (color.isBlack()) {
+            if (blackLife == null) {
+                blackLife = benson(Stone.BLACK);
+            }
+            return blackLife;
+        } else {
+            if (whiteLife == null) {
+                whiteLife = benson(Stone.WHITE);
+            }
+            return whiteLife;
+        }
+    }
+
+    /**
+     * Benson's algorithm. Regions are the maximal connected sets of points not occupied by the color. A region is
+     * vital to a chain when every empty point of the region is a liberty of the chain. Chains with fewer than two
+     * vital regions are dropped, then regions touching a dropped chain are dropped, until nothing changes.
+     *
+     * @param color BLACK or WHITE
+     * @return the alive stones followed by the territory they enclose
+     */
+    private PointMask[] benson(Stone color) {
+        PointMask own = stonesOf(color);
+        PointMask empty = getEmpty();
+        List<PointMask> chains = getChains(color);
+        List<PointMask> regions = components(own.copy().invert());
+
+        int chainCount = chains.size();
+        int regionCount = regions.size();
+        PointMask[] regionBorders = new PointMask[regionCount];
+        boolean[][] vital = new boolean[chainCount][regionCount];
+        for (int r = 0; r < regionCount; ++r) {
+            PointMask region = regions.get(r);
+            PointMask regionEmpty = region.copy().and(empty);
+            regionBorders[r] = region.neighbours().and(own);
+            for (int c = 0; c < chainCount; ++c) {
+                PointMask chain = chains.get(c);
+                vital[c][r] = regionBorders[r].intersects(chain) && getLiberties(chain).containsAll(regionEmpty);
+            }
+        }
+
+        boolean[] aliveChains = new boolean[chainCount];
+        boolean[] liveRegions = new boolean[regionCount];
+        Arrays.fill(aliveChains, true);
+        Arrays.fill(liveRegions, true);
+
+        boolean changed = true;
+        while (changed) {
+            changed = false;
+
+            PointMask droppedStones = PointMask.empty(boardSize);
+            for (int c = 0; c < chainCount; ++c) {
+                if (aliveChains[c]) {
+                    int vitalCount = 0;
+                    for (int r = 0; r < regionCount && vitalCount < 2; ++r) {
+                        if (liveRegions[r] && vital[c][r]) {
+                            ++vitalCount;
+                        }
+                    }
+                    if (vitalCount < 2) {
+                        aliveChains[c] = false;
+                        changed = true;
+                    }
+                }
+                if (!aliveChains[c]) {
+                    droppedStones.or(chains.get(c));
+                }
+            }
+
+            for (int r = 0; r < regionCount; ++r) {
+                if (liveRegions[r] && regionBorders[r].intersects(droppedStones)) {
+                    liveRegions[r] = false;
+                    changed = true;
+                }
+            }
+        }
+
+        PointMask alive = PointMask.empty(boardSize);
+        for (int c = 0; c < chainCount; ++c) {
+            if (aliveChains[c]) {
+                alive.or(chains.get(c));
+            }
+        }
+
+        PointMask territory = PointMask.empty(boardSize);
+        for (int r = 0; r < regionCount; ++r) {
+            if (!liveRegions[r]) {
+                continue;
+            }
+            for (int c = 0; c < chainCount; ++c) {
+                if (aliveChains[c] && vital[c][r]) {
+                    territory.or(regions.get(r));
+                    break;
+                }
+            }
+        }
+
+        return new PointMask[]{alive, territory};
+    }
+
+    private List<PointMask> components(PointMask points) {
+        List<PointMask> result = new ArrayList<>();
+        PointMask remaining = points.copy();
+        for (int index = remaining.firstIndex(); index >= 0; index = remaining.firstIndex()) {
+            PointMask component = PointMask.of(boardSize, index).floodFill(points);
+            result.add(component);
+            remaining.andNot(component);
+        }
+        return result;
+    }
+}
@@ -5,48 +5,55 @@ import featurecat.lizzie.analysis.BestMoveObserver;
 import featurecat.lizzie.analysis.MoveData;
 import org.apache.commons.collections4.CollectionUtils;
 import org.apache.commons.lang3.ArrayUtils;
-import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.lang3.tuple.ImmutablePair;
 import org.eclipse.collections.api.set.MutableSet;
 import org.eclipse.collections.impl.factory.Sets;
 import org.jtrim2.utils.ObjectFinalizer;
 
 import java.io.Closeable;
-import java.util.Arrays;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Objects;
-import java.util.Optional;
 import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.function.BiConsumer;
 import java.util.function.Consumer;
 
 public class Board implements Closeable {
-    public final static String alphabet = "ABCDEFGHJKLMNOPQRST";
-    public static int BOARD_SIZE = Lizzie.optionSetting.getBoardSize().getWidth();
     private static List<Consumer<Integer>> boardSizeChangeObserver = new CopyOnWriteArrayList<>();
 
     private final ObjectFinalizer objectFinalizer;
 
+    private volatile BoardGeometry geometry;
     private BoardHistoryList history;
     private BoardTryPlayState tryPlayState;
     private BoardStateChangeObserverCollection observerCollection;
     private BestMoveObserver bestMoveObserver;
+    // Null to follow the settings
+    private RulesKernel.Kind rulesKernelKind;
+    private RulesKernel rulesKernel;
+    private BoardData rulesKernelData;
+    private volatile BoardSnapshot snapshot;
 
+    /**
+     * Creates a board of the size in the settings
+     */
     public Board() {
+        this(BoardGeometry.of(Lizzie.optionSetting.getBoardSize().getWidth()));
+    }
+
+    public Board(BoardGeometry geometry) {
+        this.geometry = geometry;
         objectFinalizer = new ObjectFinalizer(this::doCleanup, "Board.cleanup");
 
-        initBoardHistoryList();
         tryPlayState = null;
+        initBoardHistoryList();
         observerCollection = new BoardStateChangeObserverCollection();
 
         bestMoveObserver = new BestMoveObserver() {
             @Override
             public void bestMovesUpdated(List<MoveData> newBestMoves) {
                 synchronized (Board.this) {
-                    if (CollectionUtils.isNotEmpty(newBestMoves)) {
-                        BoardData boardData = getData();
-                        boardData.tryUpdateVariationInfo(newBestMoves);
-                    }
+                    updateVariations(history.getHead(), newBestMoves);
                 }
             }
 
@@ -62,10 +69,51 @@ public class Board implements Closeable {
     }
 
     private void initBoardHistoryList() {
-        Stone[] stones = new Stone[BOARD_SIZE * BOARD_SIZE];
-        Arrays.fill(stones, Stone.EMPTY);
+        int size = geometry.getSize();
+        byte[] stones = PackedStones.newEmpty(geometry.getPointCount());
 
-        history = new BoardHistoryList(new BoardData(ImmutablePair.of(BOARD_SIZE, BOARD_SIZE), stones, null, Stone.EMPTY, true, new Zobrist(), 0, new int[BOARD_SIZE * BOARD_SIZE], Sets.mutable.empty(), 0, 0));
+        history = new BoardHistoryList(new BoardData(ImmutablePair.of(size, size), stones, null, Stone.EMPTY, true, new Zobrist(size), 0, new short[geometry.getPointCount()], Sets.mutable.empty(), 0, 0));
+        publishSnapshot();
+    }
+
+    /**
+     * Publishes the current state for lock free readers. Must be called with the board lock held after every change,
+     * before notifying observers
+     */
+    private void publishSnapshot() {
+        BoardHistoryNode head = history.getHead();
+        BoardHistoryNode nextNode = head.getNext();
+        snapshot = new BoardSnapshot(history.getInitialNode()
+                , head
+                , tryPlayState != null
+                , tryPlayBeginMoveNumber()
+                , nextNode == null ? null : nextNode.getData().getLastMove()
+                , history.size()
+        );
+    }
+
+    /**
+     * Stores the engine suggestions of a position, publishing them to lock free readers if it is the head. Thread safe
+     *
+     * @param node      the position
+     * @param bestMoves the suggestions, ignored if empty
+     */
+    public synchronized void updateVariations(BoardHistoryNode node, List<MoveData> bestMoves) {
+        if (CollectionUtils.isEmpty(bestMoves)) {
+            return;
+        }
+
+        node.getData().tryUpdateVariationInfo(bestMoves);
+        if (node == history.getHead()) {
+            publishSnapshot();
+        }
+    }
+
+    /**
+     * @return the latest published state, readable without locking the board
+     */
+    public BoardSnapshot getSnapshot() {
+        return snapshot;
     }
 
     public synchronized void clear() {
@@ -74,8 +122,26 @@ public class Board implements Closeable {
         observerCollection.boardCleared(history.getInitialNode(), history.getHead());
     }
 
+    /**
+     * Clears the board and switches it to another size
+     *
+     * @param newGeometry the geometry of the new size
+     */
+    public synchronized void clear(BoardGeometry newGeometry) {
+        geometry = newGeometry;
+        clear();
+    }
+
+    /**
+     * @return the geometry of this board
+     */
+    public BoardGeometry getGeometry() {
+        return geometry;
+    }
+
     public synchronized void resetHead() {
         history.resetHead();
+        publishSnapshot();
         observerCollection.boardCleared(history.getInitialNode(), history.getHead());
     }
 
@@ -102,16 +168,17 @@ public class Board implements Closeable {
     }
 
     public boolean isInTryPlayState() {
-        return tryPlayState != null;
+        return snapshot.isInTryPlayState();
     }
 
     public void enterTryPlayState() {
         synchronized (this) {
-            if (!isInTryPlayState()) {
+            if (tryPlayState == null) {
                 tryPlayState = new BoardTryPlayState(history.getHead(), history.getHead().getNext());
-                tryPlayState.cutMainStream();
+                tryPlayState.cutMainStream(history);
                 Lizzie.frame.showTryPlayTitle();
 
+                publishSnapshot();
                 if (tryPlayState.getNextPartBegin() != null) {
                     observerCollection.mainStreamCut(tryPlayState.getMainStreamEnd(), history.getHead());
                 }
@@ -120,33 +187,33 @@ public class Board implements Closeable {
     }
 
     public int getTryPlayStateBeginMoveNumber() {
-        synchronized (this) {
-            if (isInTryPlayState()) {
-                return tryPlayState.getMainStreamEnd().getData().getMoveNumber();
-            } else {
-                return 0;
-            }
-        }
+        return snapshot.getTryPlayStateBeginMoveNumber();
+    }
+
+    private int tryPlayBeginMoveNumber() {
+        return tryPlayState == null ? 0 : tryPlayState.getMainStreamEnd().getData().getMoveNumber();
     }
 
     public void leaveTryPlayState() {
         synchronized (this) {
-            if (isInTryPlayState()) {
+            if (tryPlayState != null) {
                 if (!tryPlayState.isMainStreamConnected()) {
-                    gotoMove(getTryPlayStateBeginMoveNumber());
+                    gotoMove(tryPlayBeginMoveNumber());
                     BoardHistoryNode tryPlayBeginNode = tryPlayState.getMainStreamEnd().getNext();
                     if (tryPlayBeginNode != null) {
                         tryPlayState.getMainStreamEnd().addTryPlayHistory(tryPlayBeginNode);
                     }
 
-                    tryPlayState.restoreMainStream();
+                    tryPlayState.restoreMainStream(history);
 
+                    publishSnapshot();
                     observerCollection.mainStreamCut(tryPlayState.getMainStreamEnd(), history.getHead());
                 }
 
                 Lizzie.frame.restoreDefaultTitle();
                 BoardHistoryNode nextBegin = tryPlayState.getNextPartBegin();
                 tryPlayState = null;
+                publishSnapshot();
                 if (nextBegin != null) {
                     observerCollection.mainStreamAppended(nextBegin, history.getHead());
                 }
@@ -159,151 +226,64 @@ public class Board implements Closeable {
     }
 
     /**
-     * Calculates the array index of a stone stored at (x, y)
-     *
-     * @param x the x coordinate
-     * @param y the y coordinate
-     * @return the array index
-     */
-    public static int getIndex(int x, int y) {
-        return x * Board.BOARD_SIZE + y;
-    }
-
-    /**
-     * Converts a named coordinate eg C16, T5, K10, etc to an x and y coordinate
+     * The pass. Thread safe
      *
-     * @param namedCoordinate a capitalized version of the named coordinate. Must be a valid 19x19 Go coordinate, without I
-     * @return an array containing x, followed by y
+     * @param color the type of pass
      */
-    public static int[] convertNameToCoordinates(String namedCoordinate) {
-        if (StringUtils.isEmpty(namedCoordinate) || StringUtils.equalsIgnoreCase(namedCoordinate, "pass")) {
-            return new int[]{BOARD_SIZE, BOARD_SIZE};
-        } else {
-            // coordinates take the form C16 A19 Q5 K10 etc. I is not used.
-            int x = alphabet.indexOf(namedCoordinate.charAt(0));
-            if (x < 0) {
-                return new int[]{BOARD_SIZE, BOARD_SIZE};
-            }
-            int y;
-            try {
-                y = Integer.parseInt(namedCoordinate.substring(1)) - 1;
-            } catch (NumberFormatException e) {
-                return new int[]{BOARD_SIZE, BOARD_SIZE};
+    private void pass(Stone color) {
+        synchronized (this) {
+            BoardHistoryNode oldHead = history.getHead();
+            if (appendPass(color)) {
+                notifyMovesAppended(oldHead);
             }
-
-            return new int[]{x, y};
-        }
-    }
-
-    public static int[] convertDisplayNameToCoordinates(String namedCoordinate) {
-        int[] result = convertNameToCoordinates(namedCoordinate);
-        if (isValid(result[0], result[1]) && !Lizzie.optionSetting.isA1OnTop()) {
-            result[1] = BOARD_SIZE - 1 - result[1];
         }
-        return result;
     }
 
     /**
-     * Converts a x and y coordinate to a named coordinate eg C16, T5, K10, etc
+     * Appends a pass after the head without notifying the append. Must be called with the board lock held
      *
-     * @param x x coordinate -- must be valid
-     * @param y y coordinate -- must be valid
-     * @return a string representing the coordinate
+     * @param color the type of pass
+     * @return whether or not the pass was appended
      */
-    public static String convertCoordinatesToName(int x, int y) {
-        if (isValid(x, y)) {
-            // coordinates take the form C16 A19 Q5 K10 etc. I is not used.
-            return alphabet.charAt(x) + "" + (y + 1);
-        } else {
-            return "Pass";
+    private boolean appendPass(Stone color) {
+        // Forbid passing if the current move is before the move when try play state began
+        if (tryPlayState != null && history.getMoveNumber() < tryPlayBeginMoveNumber()) {
+            return false;
         }
-    }
 
-    public static String convertCoordinatesToName(int[] coords) {
-        if (ArrayUtils.isEmpty(coords) || coords.length != 2) {
-            return "Pass";
-        } else {
-            return convertCoordinatesToName(coords[0], coords[1]);
+        // Forbid successive two passing
+        if (history.getLastMove() == null && !Objects.equals(history.getLastMoveColor(), Stone.EMPTY)) {
+            return false;
         }
-    }
 
-    public static String convertCoordinatesToDisplayName(int x, int y) {
-        if (isValid(x, y)) {
-            // coordinates take the form C16 A19 Q5 K10 etc. I is not used.
-            if (Lizzie.optionSetting.isA1OnTop()) {
-                return alphabet.charAt(x) + "" + (y + 1);
-            } else {
-                return alphabet.charAt(x) + "" + (BOARD_SIZE - y);
-            }
-        } else {
-            return "Pass";
+        // If pass move happens in history middle, auto swith to try play mode
+        if (Lizzie.optionSetting.isAutoEnterTryPlayingMode() && tryPlayState == null && history.getHead().getNext() != null) {
+            enterTryPlayState();
         }
-    }
 
-    public static String convertCoordinatesToDisplayName(int[] coords) {
-        if (ArrayUtils.isEmpty(coords) || coords.length != 2) {
-            return "Pass";
-        } else {
-            return convertCoordinatesToDisplayName(coords[0], coords[1]);
-        }
-    }
+        BoardData data = history.getData();
+        Zobrist zobrist = history.getZobrist();
+        int moveNumber = history.getMoveNumber() + 1;
+        zobrist.toggleSideToMove();
+        zobrist.clearKoPoint();
 
-    /**
-     * Checks if a coordinate is valid
-     *
-     * @param x x coordinate
-     * @param y y coordinate
-     * @return whether or not this coordinate is part of the board
-     */
-    public static boolean isValid(int x, int y) {
-        return x >= 0 && x < BOARD_SIZE && y >= 0 && y < BOARD_SIZE;
-    }
+        // build the new game state
+        BoardData newState = new BoardData(data, null, color, !history.isBlacksTurn(), zobrist, moveNumber, Sets.mutable.empty(), data.getBlackPrisonersCount(), data.getWhitePrisonersCount());
+        checkpointIfDue(newState);
 
-    public static boolean isValid(int[] coords) {
-        return ArrayUtils.isNotEmpty(coords) && coords.length == 2 && isValid(coords[0], coords[1]);
-    }
-
-    /**
-     * The pass. Thread safe
-     *
-     * @param color the type of pass
-     */
-    private void pass(Stone color) {
-        synchronized (this) {
-            // Forbid passing if the current move is before the move when try play state began
-            if (isInTryPlayState() && history.getMoveNumber() < getTryPlayStateBeginMoveNumber()) {
-                return;
-            }
-
-            // Forbid successive two passing
-            if (history.getLastMove() == null && !Objects.equals(history.getLastMoveColor(), Stone.EMPTY)) {
-                return;
-            }
-
-            // If pass move happens in history middle, auto swith to try play mode
-            if (Lizzie.optionSetting.isAutoEnterTryPlayingMode() && !isInTryPlayState() && getHistory().getHead().getNext() != null) {
-                enterTryPlayState();
-            }
-
-            Stone[] stones = history.getStones().clone();
-            Zobrist zobrist = history.getZobrist();
-            int moveNumber = history.getMoveNumber() + 1;
-            int[] moveNumberList = history.getMoveNumberList().clone();
-
-            // build the new game state
-            BoardData newState = new BoardData(stones, null, color, !history.isBlacksTurn(), zobrist, moveNumber, moveNumberList, Sets.mutable.empty(), history.getData().getBlackPrisonersCount(), history.getData().getWhitePrisonersCount());
-
-            // update history with pass
-            if (history.getHead().getNext() != null) {
-                history.getHead().disconnectNextNode();
-                observerCollection.mainStreamCut(history.getHead(), history.getHead());
-            }
-            BoardHistoryNode oldHead = history.getHead();
-            history.add(newState);
-            BoardHistoryNode newHead = history.getHead();
-            observerCollection.mainStreamAppended(newHead, oldHead);
-            observerCollection.headMoved(oldHead, newHead);
+        // update history with pass
+        if (history.getHead().getNext() != null) {
+            history.disconnectNextNode(history.getHead());
+            publishSnapshot();
+            observerCollection.mainStreamCut(history.getHead(), history.getHead());
+        }
+        boolean rulesKernelValid = rulesKernelData == history.getData();
+        history.add(newState);
+        if (rulesKernelValid) {
+            // A pass does not change any chain
+            rulesKernelData = newState;
         }
+        return true;
     }
 
     /**
@@ -322,193 +302,229 @@ public class Board implements Closeable {
      */
     private void place(int x, int y, Stone color) {
         synchronized (this) {
-            if (!color.equals(Stone.BLACK) && !color.equals(Stone.WHITE)) {
-                return;
+            BoardHistoryNode oldHead = history.getHead();
+            if (appendPlace(x, y, color)) {
+                notifyMovesAppended(oldHead);
             }
+        }
+    }
 
-            if (!isValid(x, y) || history.getStones()[getIndex(x, y)] != Stone.EMPTY)
-                return;
+    /**
+     * Appends a stone placement after the head without notifying the append. Must be called with the board lock held
+     *
+     * @param x     x coordinate
+     * @param y     y coordinate
+     * @param color the type of stone to place
+     * @return whether or not the move was legal and appended
+     */
+    private boolean appendPlace(int x, int y, Stone color) {
+        if (!color.equals(Stone.BLACK) && !color.equals(Stone.WHITE)) {
+            return false;
+        }
 
-            // Forbid placing a stone if the current move is before the move when try play state began
-            if (isInTryPlayState() && history.getMoveNumber() < getTryPlayStateBeginMoveNumber()) {
-                return;
-            }
+        if (!geometry.isValid(x, y) || history.getData().getStone(geometry.getIndex(x, y)) != Stone.EMPTY)
+            return false;
 
-            // If stone placement happens in history middle, auto swith to try play mode
-            if (Lizzie.optionSetting.isAutoEnterTryPlayingMode() && !isInTryPlayState() && getHistory().getHead().getNext() != null) {
-                enterTryPlayState();
-            }
+        // Forbid placing a stone if the current move is before the move when try play state began
+        if (tryPlayState != null && history.getMoveNumber() < tryPlayBeginMoveNumber()) {
+            return false;
+        }
 
-            // load a copy of the data at the current node of history
-            Stone[] stones = history.getStones().clone();
-            Zobrist zobrist = history.getZobrist();
-            int[] lastMove = new int[]{x, y}; // keep track of the last played stone
-            int moveNumber = history.getMoveNumber() + 1;
-            int[] moveNumberList = history.getMoveNumberList().clone();
+        // If stone placement happens in history middle, auto swith to try play mode
+        if (Lizzie.optionSetting.isAutoEnterTryPlayingMode() && tryPlayState == null && history.getHead().getNext() != null) {
+            enterTryPlayState();
+        }
 
-            moveNumberList[Board.getIndex(x, y)] = moveNumber;
+        // check to see if the player made a suicidal coordinate
+        RulesKernel kernel = obtainRulesKernel();
+        int index = geometry.getIndex(x, y);
+        if (kernel.isSuicide(index, color)) {
+            return false;
+        }
 
-            // set the stone at (x, y) to color
-            stones[getIndex(x, y)] = color;
-            zobrist.toggleStone(x, y, color);
+        // the new position only records the move and its captures on top of the current one
+        BoardData data = history.getData();
+        Zobrist zobrist = history.getZobrist();
+        int[] lastMove = new int[]{x, y}; // keep track of the last played stone
+        int moveNumber = history.getMoveNumber() + 1;
+
+        zobrist.toggleStone(x, y, color);
+        zobrist.toggleSideToMove();
+        zobrist.clearKoPoint();
+
+        // remove enemy stones
+        MutableSet<Coordinates> removedStones = Sets.mutable.empty();
+        Stone enemyColor = color.opposite();
+        kernel.findCapturedStones(index, color).forEach(capturedIndex -> {
+            int capturedX = geometry.getX(capturedIndex);
+            int capturedY = geometry.getY(capturedIndex);
+
+            zobrist.toggleStone(capturedX, capturedY, enemyColor);
+            removedStones.add(Coordinates.of(capturedX, capturedY));
+        });
 
-            // remove enemy stones
-            MutableSet<Coordinates> removedStones = Sets.mutable.empty();
-            removeDeadChain(removedStones, x + 1, y, color.opposite(), stones, zobrist);
-            removeDeadChain(removedStones, x, y + 1, color.opposite(), stones, zobrist);
-            removeDeadChain(removedStones, x - 1, y, color.opposite(), stones, zobrist);
-            removeDeadChain(removedStones, x, y - 1, color.opposite(), stones, zobrist);
+        // build the new game state
+        int blackPrisonersCount = history.getData().getBlackPrisonersCount();
+        int whitePrisonersCount = history.getData().getWhitePrisonersCount();
+        if (color.equals(Stone.BLACK)) {
+            blackPrisonersCount += removedStones.size();
+        } else {
+            whitePrisonersCount += removedStones.size();
+        }
+        BoardData newState = new BoardData(data, lastMove, color, !history.isBlacksTurn(), zobrist, moveNumber, removedStones, blackPrisonersCount, whitePrisonersCount);
 
-            // check to see if the player made a suicidal coordinate
-            boolean isSuicidal = removeDeadChain(Sets.mutable.empty(), x, y, color, stones, zobrist);
+        // don't make this coordinate if it violates superko
+        if (history.violatesSuperko(newState))
+            return false;
 
-            for (int i = 0; i < BOARD_SIZE * BOARD_SIZE; i++) {
-                if (stones[i].equals(Stone.EMPTY)) {
-                    moveNumberList[i] = 0;
-                }
-            }
+        checkpointIfDue(newState);
 
-            // build the new game state
-            int blackPrisonersCount = history.getData().getBlackPrisonersCount();
-            int whitePrisonersCount = history.getData().getWhitePrisonersCount();
-            if (color.equals(Stone.BLACK)) {
-                blackPrisonersCount += removedStones.size();
-            } else {
-                whitePrisonersCount += removedStones.size();
-            }
-            BoardData newState = new BoardData(stones, lastMove, color, !history.isBlacksTurn(), zobrist, moveNumber, moveNumberList, removedStones, blackPrisonersCount, whitePrisonersCount);
+        PointMask captured = kernel.play(index, color);
+        if (captured.cardinality() == 1 && kernel.getChainSize(index) == 1 && kernel.getLibertyCount(index) == 1) {
+            // a single stone capturing a single stone leaves a simple ko
+            int koIndex = captured.firstIndex();
+            zobrist.setKoPoint(geometry.getX(koIndex), geometry.getY(koIndex));
+        }
 
-            // don't make this coordinate if it is suicidal or violates superko
-            if (isSuicidal || history.violatesSuperko(newState))
-                return;
+        // update history with this coordinate
+        if (history.getHead().getNext() != null) {
+            history.disconnectNextNode(history.getHead());
+            publishSnapshot();
+            observerCollection.mainStreamCut(history.getHead(), history.getHead());
+        }
+        history.add(newState);
+        rulesKernelData = newState;
+        return true;
+    }
 
-            // update history with this coordinate
-            if (history.getHead().getNext() != null) {
-                history.getHead().disconnectNextNode();
-                observerCollection.mainStreamCut(history.getHead(), history.getHead());
-            }
+    /**
+     * Appends several moves after the head under a single lock acquisition. Illegal moves are skipped, like with
+     * place and pass, and moves without a color are played by the side to move at their turn, so a skipped move does
+     * not shift the colors of the following ones. Observers get one mainStreamAppended for the whole range and one headMoved to the last
+     * appended node, instead of one pair per move. Thread safe
+     *
+     * @param moves the moves to append, in order
+     * @return number of moves appended
+     */
+    public int applyMoves(List<Move> moves) {
+        synchronized (this) {
             BoardHistoryNode oldHead = history.getHead();
-            history.add(newState);
-            BoardHistoryNode newHead = history.getHead();
-            observerCollection.mainStreamAppended(newHead, oldHead);
-            observerCollection.headMoved(oldHead, newHead);
+            int appendedCount = 0;
+            for (Move move : moves) {
+                Stone color = move.getColor();
+                if (color == null) {
+                    color = history.isBlacksTurn() ? Stone.BLACK : Stone.WHITE;
+                }
+                boolean appended;
+                if (move.isPass()) {
+                    appended = appendPass(color);
+                } else {
+                    appended = appendPlace(move.getCoordinates().getX(), move.getCoordinates().getY(), color);
+                }
+                if (appended) {
+                    ++appendedCount;
+                }
+            }
+
+            if (appendedCount > 0) {
+                notifyMovesAppended(oldHead);
+            }
+            return appendedCount;
         }
     }
 
+    private void notifyMovesAppended(BoardHistoryNode oldHead) {
+        BoardHistoryNode newHead = history.getHead();
+        publishSnapshot();
+        observerCollection.mainStreamAppended(oldHead.getNext(), oldHead);
+        observerCollection.headMoved(oldHead, newHead);
+    }
+
     /**
-     * overloaded method for place(), chooses color in an alternating pattern
+     * Turns a newly created delta position into a checkpoint once it is far enough from the previous checkpoint, so
+     * that materializing any position replays a bounded number of moves.
      *
-     * @param x x coordinate
-     * @param y y coordinate
+     * @param newState the new position
      */
-    public void place(int x, int y) {
-        place(x, y, history.isBlacksTurn() ? Stone.BLACK : Stone.WHITE);
+    private static void checkpointIfDue(BoardData newState) {
+        if (newState.getDeltaDepth() >= Lizzie.optionSetting.getHistoryCheckpointInterval()) {
+            newState.convertToCheckpoint();
+        }
     }
 
     /**
-     * overloaded method for place. To be used by the LeelaZ engine. Color is then assumed to be alternating, anyway.
+     * Gets the rules kernel of the current head. Successive placements reuse the kernel incrementally, while any
+     * other head change, or a change of the kernel kind, makes it rebuilt from the head's stones.
      *
-     * @param namedCoordinate the coordinate to place a stone,
+     * @return the rules kernel matching the head position
      */
-    public void place(String namedCoordinate) {
-        int[] coordinates = convertNameToCoordinates(namedCoordinate);
+    private RulesKernel obtainRulesKernel() {
+        RulesKernel.Kind kind = getRulesKernelKind();
+        boolean kindChanged = rulesKernel != null && (rulesKernel instanceof BitBoard) != (kind == RulesKernel.Kind.BIT_BOARD);
+        if (rulesKernel == null || kindChanged || rulesKernelData != history.getData() || rulesKernel.getBoardSize() != geometry.getSize()) {
+            rulesKernel = RulesKernel.of(kind, history.getData());
+            rulesKernelData = history.getData();
+        }
+        return rulesKernel;
+    }
 
-        place(coordinates[0], coordinates[1]);
+    /**
+     * @return the rules kernel this board plays moves with
+     */
+    public synchronized RulesKernel.Kind getRulesKernelKind() {
+        if (rulesKernelKind != null) {
+            return rulesKernelKind;
+        }
+        RulesKernel.Kind kind = Lizzie.optionSetting.getRulesKernel();
+        return kind == null ? RulesKernel.Kind.CHAIN_TRACKER : kind;
     }
 
     /**
-     * Removes a chain if it has no liberties
-     *
+     * Makes this board play moves with the given rules kernel instead of the one in the settings.
      *
-     * @param removedStones record for coords of removed stones
-     * @param x       x coordinate -- needn't be valid
-     * @param y       y coordinate -- needn't be valid
-     * @param color   the color of the chain to remove
-     * @param stones  the stones array to modify
-     * @param zobrist the zobrist object to modify
-     * @return whether or not stones were removed
+     * @param rulesKernelKind the kernel, null to follow the settings
      */
-    private boolean removeDeadChain(MutableSet<Coordinates> removedStones, int x, int y, Stone color, Stone[] stones, Zobrist zobrist) {
-        if (!isValid(x, y) || stones[getIndex(x, y)] != color)
-            return false;
-
-        boolean hasLiberties = hasLibertiesHelper(x, y, color, stones);
-
-        // either remove stones or reset what hasLibertiesHelper does to the board
-        cleanupHasLibertiesHelper(removedStones, x, y, color.recursed(), stones, zobrist, !hasLiberties);
-
-        // if hasLiberties is false, then we removed stones
-        return !hasLiberties;
+    public synchronized void setRulesKernelKind(RulesKernel.Kind rulesKernelKind) {
+        this.rulesKernelKind = rulesKernelKind;
     }
 
     /**
-     * Recursively determines if a chain has liberties. Alters the state of stones, so it must be counteracted
+     * overloaded method for place(), chooses color in an alternating pattern
      *
-     * @param x      x coordinate -- needn't be valid
-     * @param y      y coordinate -- needn't be valid
-     * @param color  the color of the chain to be investigated
-     * @param stones the stones array to modify
-     * @return whether or not this chain has liberties
+     * @param x x coordinate
+     * @param y y coordinate
      */
-    private boolean hasLibertiesHelper(int x, int y, Stone color, Stone[] stones) {
-        if (!isValid(x, y))
-            return false;
-
-        if (stones[getIndex(x, y)] == Stone.EMPTY)
-            return true; // a liberty was found
-        else if (stones[getIndex(x, y)] != color)
-            return false; // we are either neighboring an enemy stone, or one we've already recursed on
-
-        // set this index to be the recursed color to keep track of where we've already searched
-        stones[getIndex(x, y)] = color.recursed();
-
-        // set removeDeadChain to true if any recursive calls return true. Recurse in all 4 directions
-        boolean hasLiberties = hasLibertiesHelper(x + 1, y, color, stones) ||
-                hasLibertiesHelper(x, y + 1, color, stones) ||
-                hasLibertiesHelper(x - 1, y, color, stones) ||
-                hasLibertiesHelper(x, y - 1, color, stones);
-
-        return hasLiberties;
+    public void place(int x, int y) {
+        place(x, y, history.isBlacksTurn() ? Stone.BLACK : Stone.WHITE);
     }
 
     /**
-     * cleans up what hasLibertyHelper does to the board state
+     * overloaded method for place. To be used by the LeelaZ engine. Color is then assumed to be alternating, anyway.
      *
-     * @param removedStones record for coords of removed stones
-     * @param x            x coordinate -- needn't be valid
-     * @param y            y coordinate -- needn't be valid
-     * @param color        color to clean up. Must be a recursed stone type
-     * @param stones       the stones array to modify
-     * @param zobrist      the zobrist object to modify
-     * @param removeStones if true, we will remove all these stones. otherwise, we will set them to their unrecursed version
+     * @param namedCoordinate the coordinate to place a stone,
      */
-    private void cleanupHasLibertiesHelper(MutableSet<Coordinates> removedStones, int x, int y, Stone color, Stone[] stones, Zobrist zobrist, boolean removeStones) {
-        if (!isValid(x, y) || stones[getIndex(x, y)] != color)
-            return;
-
-        if (removeStones) {
-            removedStones.add(Coordinates.of(x, y));
-        }
-
-        stones[getIndex(x, y)] = removeStones ? Stone.EMPTY : color.unrecursed();
-        if (removeStones) {
-            zobrist.toggleStone(x, y, color.unrecursed());
-        }
+    public void place(String namedCoordinate) {
+        int[] coordinates = geometry.convertNameToCoordinates(namedCoordinate);
 
-        // use the flood fill algorithm to replace all adjacent recursed stones
-        cleanupHasLibertiesHelper(removedStones, x + 1, y, color, stones, zobrist, removeStones);
-        cleanupHasLibertiesHelper(removedStones, x, y + 1, color, stones, zobrist, removeStones);
-        cleanupHasLibertiesHelper(removedStones, x - 1, y, color, stones, zobrist, removeStones);
-        cleanupHasLibertiesHelper(removedStones, x, y - 1, color, stones, zobrist, removeStones);
+        place(coordinates[0], coordinates[1]);
     }
 
     /**
      * get current board state
      *
-     * @return the stones array corresponding to the current board state
+     * @return an unpacked copy of the stones array corresponding to the current board state
      */
     public Stone[] getStones() {
-        return history.getStones();
+        return snapshot.getData().getStonesOnBoard();
+    }
+
+    /**
+     * @param x x coordinate -- must be valid
+     * @param y y coordinate -- must be valid
+     * @return the stone at (x, y) in the current board state
+     */
+    public Stone getStone(int x, int y) {
+        return snapshot.getData().getStone(geometry.getIndex(x, y));
     }
 
     /**
@@ -517,16 +533,16 @@ public class Board implements Closeable {
      * @return the last played stone
      */
     public int[] getLastMove() {
-        return history.getLastMove();
+        return snapshot.getData().getLastMove();
     }
 
     /**
      * get current board move number
      *
-     * @return the int array corresponding to the current board move number
+     * @return an unpacked copy of the int array corresponding to the current board move number
      */
     public int[] getMoveNumberList() {
-        return history.getMoveNumberList();
+        return snapshot.getData().getMoveNumberListOnBoard();
     }
 
     /**
@@ -536,6 +552,7 @@ public class Board implements Closeable {
         synchronized (this) {
             BoardHistoryNode oldHead = history.getHead();
             if (history.next() != null) {
+                publishSnapshot();
                 observerCollection.headMoved(oldHead, history.getHead());
                 return true;
             } else {
@@ -544,8 +561,11 @@ public class Board implements Closeable {
         }
     }
 
+    /**
+     * @return the position of the head, from the latest published snapshot
+     */
     public BoardData getData() {
-        return history.getData();
+        return snapshot.getData();
     }
 
     /**
@@ -555,6 +575,7 @@ public class Board implements Closeable {
         synchronized (this) {
             BoardHistoryNode oldHead = history.getHead();
             if (history.previous() != null) {
+                publishSnapshot();
                 observerCollection.headMoved(oldHead, history.getHead());
                 return true;
             } else {
@@ -564,7 +585,7 @@ public class Board implements Closeable {
     }
 
     public int getMoveNumber(int x, int y) {
-        return history.getMoveNumberList()[getIndex(x, y)];
+        return snapshot.getData().getMoveNumberOnBoard(geometry.getIndex(x, y));
     }
 
     public void gotoMove(int moveNumber) {
@@ -576,37 +597,31 @@ public class Board implements Closeable {
         }
     }
 
+    /**
+     * Jumps along the main line in one step, observers get a single head move for the whole distance. Thread safe
+     *
+     * @param moveDiff number of moves to go forward, negative to go backward
+     */
     public void gotoMoveByDiff(int moveDiff) {
-        if (moveDiff > 0) {
-            goForward(moveDiff);
-        } else if (moveDiff < 0) {
-            goBackward(-moveDiff);
-        }
-    }
-
-    private void goForward(final int count) {
-        Lizzie.leelaz.batchGtpCommands(() -> {
-            for (int i = 0; i < count; ++i) {
-                if (!nextMove()) {
-                    break;
-                }
-            }
-        });
-    }
-
-    private void goBackward(final int count) {
-        Lizzie.leelaz.batchGtpCommands(() -> {
-            for (int i = 0; i < count; ++i) {
-                if (!previousMove()) {
-                    break;
+        if (moveDiff != 0) {
+            Lizzie.leelaz.batchGtpCommands(() -> {
+                synchronized (this) {
+                    BoardHistoryNode oldHead = history.getHead();
+                    long targetIndex = (long) oldHead.getDepth() + moveDiff;
+                    history.seek((int) Math.max(Integer.MIN_VALUE, Math.min(Integer.MAX_VALUE, targetIndex)));
+                    if (history.getHead() != oldHead) {
+                        publishSnapshot();
+                        observerCollection.headMoved(oldHead, history.getHead());
+                    }
                 }
-            }
-        });
+            });
+        }
     }
 
     public void dropSuccessiveMoves() {
         synchronized (this) {
-            history.getHead().disconnectNextNode();
+            history.disconnectNextNode(history.getHead());
+            publishSnapshot();
             observerCollection.mainStreamCut(history.getHead(), history.getHead());
         }
     }
@@ -623,32 +638,43 @@ public class Board implements Closeable {
         objectFinalizer.doFinalize();
     }
 
+    /**
+     * Plays the first suggestion whose move is legal on the current position, passing if that suggestion is a pass.
+     * Suggestions may lag behind the board, so they are checked against the legal-move mask of the position.
+     */
     public void playBestMove() {
-        Optional<int[]> bestMove;
-        synchronized (this) {
-            bestMove = history.getData().getBestMove();
+        BoardSnapshot current = snapshot;
+        BoardData data = current.getData();
+        List<VariationData> variations = current.getVariations();
+        if (CollectionUtils.isEmpty(variations)) {
+            return;
         }
-        bestMove.ifPresent(coordinates -> {
-            if (ArrayUtils.isNotEmpty(coordinates) && coordinates.length == 2 && Board.isValid(coordinates[0], coordinates[1])) {
-                place(coordinates[0], coordinates[1]);
-            } else {
+
+        PointMask legalMoves = BitBoard.of(data).getLegalMoves(data.isBlackToPlay() ? Stone.BLACK : Stone.WHITE);
+        for (VariationData variation : variations) {
+            if (ArrayUtils.isEmpty(variation.getVariation())) {
+                continue;
+            }
+
+            int point = variation.getVariation()[0];
+            if (PointCodec.isPass(point)) {
                 pass();
+                return;
             }
-        });
+            if (geometry.isValidPoint(point) && legalMoves.contains(geometry.getIndex(PointCodec.getX(point), PointCodec.getY(point)))) {
+                place(PointCodec.getX(point), PointCodec.getY(point));
+                return;
+            }
+        }
     }
 
     public int[] getNextMoveCoordinate() {
-        BoardHistoryNode nextNode = history.getHead().getNext();
-        if (nextNode == null) {
-            return null;
-        } else {
-            return nextNode.getData().getLastMove();
-        }
+        return snapshot.getNextMoveCoordinate();
     }
 
     public void changeMove(int moveNumber, final int[] convertedCoords) {
         changeMove(moveNumber, (board, nodeToChange) -> {
-            if (Board.isValid(convertedCoords)) {
+            if (geometry.isValid(convertedCoords)) {
                 board.place(convertedCoords[0], convertedCoords[1]);
             } else {
                 board.pass();
@@ -693,13 +719,16 @@ public class Board implements Closeable {
         changeCallback.accept(this, nodeToChange);
 
         if (needRestruct != null) {
+            // Colors follow the turn, as the changed move may have changed it or made a later move illegal
+            List<Move> moves = new ArrayList<>();
             for (BoardData data : needRestruct) {
-                if (Board.isValid(data.getLastMove())) {
-                    place(data.getLastMove()[0], data.getLastMove()[1]);
+                if (geometry.isValid(data.getLastMove())) {
+                    moves.add(Move.place(data.getLastMove()[0], data.getLastMove()[1]));
                 } else {
-                    pass();
+                    moves.add(Move.pass());
                 }
             }
+            applyMoves(moves);
         }
 
         gotoMove(currentMoveNumber);
@@ -713,8 +742,12 @@ public class Board implements Closeable {
         boardSizeChangeObserver.remove(observer);
     }
 
+    /**
+     * Notifies the board size change observers, such as engines, of a new size of the main board
+     *
+     * @param newSize the new board size
+     */
     public static void changeBoardSize(final int newSize) {
-        BOARD_SIZE = newSize;
         Lizzie.miscExecutor.execute(() -> boardSizeChangeObserver.forEach(observer -> observer.accept(newSize)));
     }
 }
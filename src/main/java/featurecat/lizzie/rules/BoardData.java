@@ -1,45 +1,99 @@
 package featurecat.lizzie.rules;
 
 import org.apache.commons.collections4.CollectionUtils;
+import org.apache.commons.lang3.ArrayUtils;
 import org.apache.commons.lang3.tuple.ImmutablePair;
 import featurecat.lizzie.analysis.MoveData;
 import org.eclipse.collections.api.set.MutableSet;
 
+import java.util.ArrayDeque;
 import java.util.List;
 import java.util.Optional;
 import java.util.stream.Collectors;
 
 public class BoardData {
+    /**
+     * Full stone and move number planes of a position. Never modified once published.
+     */
+    static final class Planes {
+        // 2-bit packed, see PackedStones
+        final byte[] stones;
+        final short[] moveNumbers;
+
+        Planes(byte[] stones, short[] moveNumbers) {
+            this.stones = stones;
+            this.moveNumbers = moveNumbers;
+        }
+    }
+
     private ImmutablePair<Integer, Integer> boardSize;
 
-    private Stone[] stonesOnBoard;
+    // Null for a delta position whose planes are not materialized, see BoardPositionCache
+    private volatile Planes planes;
+    // The previous position of a delta position, null for a checkpoint
+    private BoardData deltaBase;
+    private int deltaDepth;
+    // The cache of the history holding this position, null until the position joins a history
+    private volatile BoardPositionCache positionCache;
     private int[] lastMove;
     private Stone lastMoveColor;
     private boolean blackToPlay;
     private Zobrist zobrist;
     private int moveNumber;
-    private int[] moveNumberListOnBoard;
     private MutableSet<Coordinates> removedEnemyStoneIndexes;
     private int blackPrisonersCount;
     private int whitePrisonersCount;
 
-    private List<VariationData> variationDataList;
+    // Replaced as a whole on update, read without the board lock
+    private volatile List<VariationData> variationDataList;
 
-    public BoardData(ImmutablePair<Integer, Integer> boardSize, Stone[] stonesOnBoard, int[] lastMove, Stone lastMoveColor, boolean blackToPlay, Zobrist zobrist, int moveNumber, int[] moveNumberListOnBoard, List<VariationData> variationDataList, MutableSet<Coordinates> removedEnemyStoneIndexes, int blackPrisonersCount, int whitePrisonersCount) {
+    public BoardData(ImmutablePair<Integer, Integer> boardSize, byte[] stonesOnBoard, int[] lastMove, Stone lastMoveColor, boolean blackToPlay, Zobrist zobrist, int moveNumber, short[] moveNumbersOnBoard, List<VariationData> variationDataList, MutableSet<Coordinates> removedEnemyStoneIndexes, int blackPrisonersCount, int whitePrisonersCount) {
         this.boardSize = boardSize;
-        this.stonesOnBoard = stonesOnBoard;
+        this.planes = new Planes(stonesOnBoard, moveNumbersOnBoard);
+        this.deltaBase = null;
+        this.deltaDepth = 0;
         this.lastMove = lastMove;
         this.lastMoveColor = lastMoveColor;
         this.blackToPlay = blackToPlay;
         this.zobrist = zobrist;
         this.moveNumber = moveNumber;
-        this.moveNumberListOnBoard = moveNumberListOnBoard;
         this.variationDataList = variationDataList;
         this.removedEnemyStoneIndexes = removedEnemyStoneIndexes;
         this.blackPrisonersCount = blackPrisonersCount;
         this.whitePrisonersCount = whitePrisonersCount;
     }
 
+    /**
+     * Creates a delta position, which only stores the move and the captured stones on top of deltaBase. Its planes
+     * are materialized on demand by replaying the deltas from the nearest available position.
+     *
+     * @param deltaBase the previous position
+     */
+    public BoardData(BoardData deltaBase, int[] lastMove, Stone lastMoveColor, boolean blackToPlay, Zobrist zobrist, int moveNumber, MutableSet<Coordinates> removedEnemyStoneIndexes, int blackPrisonersCount, int whitePrisonersCount) {
+        this.boardSize = deltaBase.boardSize;
+        this.planes = null;
+        this.deltaBase = deltaBase;
+        this.deltaDepth = deltaBase.deltaDepth + 1;
+        this.positionCache = deltaBase.positionCache;
+        this.lastMove = lastMove;
+        this.lastMoveColor = lastMoveColor;
+        this.blackToPlay = blackToPlay;
+        this.zobrist = zobrist;
+        this.moveNumber = moveNumber;
+        this.variationDataList = null;
+        this.removedEnemyStoneIndexes = removedEnemyStoneIndexes;
+        this.blackPrisonersCount = blackPrisonersCount;
+        this.whitePrisonersCount = whitePrisonersCount;
+    }
+
+    public BoardData(ImmutablePair<Integer, Integer> boardSize, byte[] stonesOnBoard, int[] lastMove, Stone lastMoveColor, boolean blackToPlay, Zobrist zobrist, int moveNumber, short[] moveNumbersOnBoard, MutableSet<Coordinates> removedEnemyStoneIndexes, int blackPrisonersCount, int whitePrisonersCount) {
+        this(boardSize, stonesOnBoard, lastMove, lastMoveColor, blackToPlay, zobrist, moveNumber, moveNumbersOnBoard, null, removedEnemyStoneIndexes, blackPrisonersCount, whitePrisonersCount);
+    }
+
+    public BoardData(ImmutablePair<Integer, Integer> boardSize, Stone[] stonesOnBoard, int[] lastMove, Stone lastMoveColor, boolean blackToPlay, Zobrist zobrist, int moveNumber, int[] moveNumberListOnBoard, List<VariationData> variationDataList, MutableSet<Coordinates> removedEnemyStoneIndexes, int blackPrisonersCount, int whitePrisonersCount) {
+        this(boardSize, PackedStones.pack(stonesOnBoard), lastMove, lastMoveColor, blackToPlay, zobrist, moveNumber, PackedStones.packMoveNumbers(moveNumberListOnBoard), variationDataList, removedEnemyStoneIndexes, blackPrisonersCount, whitePrisonersCount);
+    }
+
     public BoardData(ImmutablePair<Integer, Integer> boardSize, Stone[] stonesOnBoard, int[] lastMove, Stone lastMoveColor, boolean blackToPlay, Zobrist zobrist, int moveNumber, int[] moveNumberListOnBoard, MutableSet<Coordinates> removedEnemyStoneIndexes, int blackPrisonersCount, int whitePrisonersCount) {
         this(boardSize, stonesOnBoard, lastMove, lastMoveColor, blackToPlay, zobrist, moveNumber, moveNumberListOnBoard, null, removedEnemyStoneIndexes, blackPrisonersCount, whitePrisonersCount);
     }
@@ -52,12 +106,135 @@ public class BoardData {
         return boardSize;
     }
 
+    public int getPointCount() {
+        return boardSize.getLeft() * boardSize.getRight();
+    }
+
+    /**
+     * @return the geometry of the board this position belongs to
+     */
+    public BoardGeometry getGeometry() {
+        return BoardGeometry.of(boardSize.getLeft());
+    }
+
+    /**
+     * Adapter for legacy callers. Prefer {@link #getStone(int)} or {@link #getStoneOnBoard(int, int)} in loops.
+     *
+     * @return a fresh unpacked copy of the stones on board
+     */
     public Stone[] getStonesOnBoard() {
-        return stonesOnBoard;
+        return PackedStones.unpack(getPlanes().stones, getPointCount());
     }
 
     public void setStonesOnBoard(Stone[] stonesOnBoard) {
-        this.stonesOnBoard = stonesOnBoard;
+        planes = new Planes(PackedStones.pack(stonesOnBoard), getPlanes().moveNumbers);
+        deltaBase = null;
+        deltaDepth = 0;
+    }
+
+    /**
+     * @return the packed stones. Callers must not modify it, clone it before building a new position
+     */
+    public byte[] getPackedStonesOnBoard() {
+        return getPlanes().stones;
+    }
+
+    public Stone getStone(int index) {
+        return PackedStones.get(getPlanes().stones, index);
+    }
+
+    /**
+     * @return whether or not this position stores its full planes
+     */
+    public boolean isCheckpoint() {
+        return deltaBase == null;
+    }
+
+    /**
+     * @return number of delta positions between this position and its checkpoint, 0 for a checkpoint
+     */
+    public int getDeltaDepth() {
+        return deltaDepth;
+    }
+
+    /**
+     * Turns a delta position into a checkpoint by materializing and keeping its planes.
+     */
+    public void convertToCheckpoint() {
+        if (deltaBase != null) {
+            planes = buildPlanes();
+            deltaBase = null;
+            deltaDepth = 0;
+        }
+    }
+
+    /**
+     * Makes this position keep its materialized planes in the cache of a history. Delta positions created from this
+     * one use the same cache.
+     *
+     * @param positionCache the cache
+     */
+    void setPositionCache(BoardPositionCache positionCache) {
+        this.positionCache = positionCache;
+    }
+
+    private Planes getPlanes() {
+        Planes currentPlanes = planes;
+        BoardPositionCache cache = positionCache;
+        if (currentPlanes == null) {
+            currentPlanes = buildPlanes();
+            planes = currentPlanes;
+            if (cache != null) {
+                cache.add(this);
+            }
+        } else if (deltaBase != null && cache != null) {
+            cache.touch(this);
+        }
+        return currentPlanes;
+    }
+
+    /**
+     * Drops the materialized planes of a delta position. Called by the cache on eviction.
+     */
+    void releasePlanes() {
+        if (deltaBase != null) {
+            planes = null;
+        }
+    }
+
+    private Planes buildPlanes() {
+        // Walk back to the nearest position whose planes are available, then replay forward
+        ArrayDeque<BoardData> pendingDeltas = new ArrayDeque<>();
+        BoardData base = this;
+        Planes basePlanes;
+        while ((basePlanes = base.planes) == null) {
+            pendingDeltas.push(base);
+            base = base.deltaBase;
+        }
+
+        byte[] stones = basePlanes.stones.clone();
+        short[] moveNumbers = basePlanes.moveNumbers.clone();
+        while (!pendingDeltas.isEmpty()) {
+            pendingDeltas.pop().applyDelta(stones, moveNumbers);
+        }
+
+        return new Planes(stones, moveNumbers);
+    }
+
+    private void applyDelta(byte[] stones, short[] moveNumbers) {
+        if (!isPass()) {
+            int index = coordsToIndex(lastMove[0], lastMove[1]);
+            PackedStones.set(stones, index, lastMoveColor);
+            moveNumbers[index] = (short) moveNumber;
+        }
+
+        if (removedEnemyStoneIndexes != null) {
+            for (Coordinates coordinates : removedEnemyStoneIndexes) {
+                int index = coordsToIndex(coordinates.getX(), coordinates.getY());
+                PackedStones.set(stones, index, Stone.EMPTY);
+                moveNumbers[index] = 0;
+            }
+        }
     }
 
     public int[] getLastMove() {
@@ -100,12 +277,30 @@ public class BoardData {
         this.moveNumber = moveNumber;
     }
 
+    /**
+     * Adapter for legacy callers. Prefer {@link #getMoveNumberOnBoard(int)} in loops.
+     *
+     * @return a fresh unpacked copy of the move numbers on board
+     */
     public int[] getMoveNumberListOnBoard() {
-        return moveNumberListOnBoard;
+        return PackedStones.unpackMoveNumbers(getPlanes().moveNumbers);
     }
 
     public void setMoveNumberListOnBoard(int[] moveNumberListOnBoard) {
-        this.moveNumberListOnBoard = moveNumberListOnBoard;
+        planes = new Planes(getPlanes().stones, PackedStones.packMoveNumbers(moveNumberListOnBoard));
+        deltaBase = null;
+        deltaDepth = 0;
+    }
+
+    /**
+     * @return the move number plane. Callers must not modify it, clone it before building a new position
+     */
+    public short[] getPackedMoveNumbersOnBoard() {
+        return getPlanes().moveNumbers;
+    }
+
+    public int getMoveNumberOnBoard(int index) {
+        return PackedStones.getMoveNumber(getPlanes().moveNumbers, index);
     }
 
     public List<VariationData> getVariationDataList() {
@@ -222,20 +417,18 @@ public class BoardData {
 
     public Stone getStoneOnBoard(int row, int col) {
         int index = coordsToIndex(row, col);
-        try {
-            return stonesOnBoard[index];
-        } catch (ArrayIndexOutOfBoundsException e) {
+        if (index < 0 || index >= getPointCount()) {
             return null;
         }
+        return getStone(index);
     }
 
     public int getMoveNumberOnBoard(int row, int col) {
         int index = coordsToIndex(row, col);
-        try {
-            return moveNumberListOnBoard[index];
-        } catch (ArrayIndexOutOfBoundsException e) {
+        if (index < 0 || index >= getPointCount()) {
             return 0;
         }
+        return getMoveNumberOnBoard(index);
     }
 
     public Optional<int[]> getBestMove() {
@@ -244,10 +437,10 @@ public class BoardData {
         }
 
         VariationData bestVariation = variationDataList.get(0);
-        if (CollectionUtils.isEmpty(bestVariation.getVariation())) {
+        if (ArrayUtils.isEmpty(bestVariation.getVariation())) {
             return Optional.empty();
         } else {
-            return Optional.ofNullable(bestVariation.getVariation().get(0));
+            return Optional.of(getGeometry().convertPointToCoordinates(bestVariation.getVariation()[0]));
         }
     }
 }
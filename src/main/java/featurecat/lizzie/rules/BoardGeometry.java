@@ -0,0 +1,211 @@
+package featurecat.lizzie.rules;
+
+import featurecat.lizzie.Lizzie;
+import org.apache.commons.lang3.ArrayUtils;
+import org.apache.commons.lang3.StringUtils;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Size dependent helpers of a square board: point indexes, coordinate validity and coordinate names. Instances are
+ * immutable and shared per size, so boards of different sizes can live side by side.
+ */
+public class BoardGeometry {
+    public final static String alphabet = "ABCDEFGHJKLMNOPQRST";
+
+    private static final ConcurrentHashMap<Integer, BoardGeometry> geometries = new ConcurrentHashMap<>();
+
+    private final int size;
+    // Display names by point code, with A1 at the bottom
+    private final String[] flippedNames;
+
+    /**
+     * @param size the board size
+     * @return the shared geometry of a size x size board
+     */
+    public static BoardGeometry of(int size) {
+        return geometries.computeIfAbsent(size, BoardGeometry::new);
+    }
+
+    private BoardGeometry(int size) {
+        if (size < 2 || size > alphabet.length()) {
+            throw new IllegalArgumentException("Unsupported board size: " + size);
+        }
+        this.size = size;
+
+        flippedNames = new String[PointCodec.MAX_SIZE * PointCodec.MAX_SIZE];
+        for (int x = 0; x < size; ++x) {
+            for (int y = 0; y < size; ++y) {
+                flippedNames[PointCodec.of(x, y)] = alphabet.charAt(x) + String.valueOf(size - y);
+            }
+        }
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    /**
+     * @return number of points on the board
+     */
+    public int getPointCount() {
+        return size * size;
+    }
+
+    /**
+     * Calculates the array index of a stone stored at (x, y)
+     *
+     * @param x the x coordinate
+     * @param y the y coordinate
+     * @return the array index
+     */
+    public int getIndex(int x, int y) {
+        return x * size + y;
+    }
+
+    public int getX(int index) {
+        return index / size;
+    }
+
+    public int getY(int index) {
+        return index % size;
+    }
+
+    /**
+     * Checks if a coordinate is valid
+     *
+     * @param x x coordinate
+     * @param y y coordinate
+     * @return whether or not this coordinate is part of the board
+     */
+    public boolean isValid(int x, int y) {
+        return x >= 0 && x < size && y >= 0 && y < size;
+    }
+
+    public boolean isValid(int[] coords) {
+        return ArrayUtils.isNotEmpty(coords) && coords.length == 2 && isValid(coords[0], coords[1]);
+    }
+
+    /**
+     * @param point a {@link PointCodec} code
+     * @return whether or not the point is part of the board
+     */
+    public boolean isValidPoint(int point) {
+        return isValid(PointCodec.getX(point), PointCodec.getY(point));
+    }
+
+    /**
+     * @param point a {@link PointCodec} code
+     * @return an array containing x, followed by y, the pass coordinates if the point is not on the board
+     */
+    public int[] convertPointToCoordinates(int point) {
+        if (!isValidPoint(point)) {
+            return passCoordinates();
+        }
+        return new int[]{PointCodec.getX(point), PointCodec.getY(point)};
+    }
+
+    /**
+     * @return the coordinates standing for a pass
+     */
+    public int[] passCoordinates() {
+        return new int[]{size, size};
+    }
+
+    /**
+     * Converts a named coordinate eg C16, T5, K10, etc to an x and y coordinate
+     *
+     * @param namedCoordinate a capitalized version of the named coordinate, without I
+     * @return an array containing x, followed by y
+     */
+    public int[] convertNameToCoordinates(String namedCoordinate) {
+        if (StringUtils.isEmpty(namedCoordinate) || StringUtils.equalsIgnoreCase(namedCoordinate, "pass")) {
+            return passCoordinates();
+        } else {
+            // coordinates take the form C16 A19 Q5 K10 etc. I is not used.
+            int x = alphabet.indexOf(namedCoordinate.charAt(0));
+            if (x < 0) {
+                return passCoordinates();
+            }
+            int y;
+            try {
+                y = Integer.parseInt(namedCoordinate.substring(1)) - 1;
+            } catch (NumberFormatException e) {
+                return passCoordinates();
+            }
+
+            return new int[]{x, y};
+        }
+    }
+
+    public int[] convertDisplayNameToCoordinates(String namedCoordinate) {
+        int[] result = convertNameToCoordinates(namedCoordinate);
+        if (isValid(result[0], result[1]) && !Lizzie.optionSetting.isA1OnTop()) {
+            result[1] = size - 1 - result[1];
+        }
+        return result;
+    }
+
+    /**
+     * Converts a x and y coordinate to a named coordinate eg C16, T5, K10, etc
+     *
+     * @param x x coordinate -- must be valid
+     * @param y y coordinate -- must be valid
+     * @return a string representing the coordinate
+     */
+    public String convertCoordinatesToName(int x, int y) {
+        if (isValid(x, y)) {
+            // coordinates take the form C16 A19 Q5 K10 etc. I is not used.
+            return alphabet.charAt(x) + "" + (y + 1);
+        } else {
+            return "Pass";
+        }
+    }
+
+    public String convertCoordinatesToName(int[] coords) {
+        if (ArrayUtils.isEmpty(coords) || coords.length != 2) {
+            return "Pass";
+        } else {
+            return convertCoordinatesToName(coords[0], coords[1]);
+        }
+    }
+
+    public String convertCoordinatesToDisplayName(int x, int y) {
+        if (isValid(x, y)) {
+            // coordinates take the form C16 A19 Q5 K10 etc. I is not used.
+            if (Lizzie.optionSetting.isA1OnTop()) {
+                return alphabet.charAt(x) + "" + (y + 1);
+            } else {
+                return alphabet.charAt(x) + "" + (size - y);
+            }
+        } else {
+            return "Pass";
+        }
+    }
+
+    /**
+     * Like {@link #convertCoordinatesToDisplayName(int, int)}, from the precomputed names.
+     *
+     * @param point a {@link PointCodec} code
+     * @return a string representing the point
+     */
+    public String getPointDisplayName(int point) {
+        if (!isValidPoint(point)) {
+            return PointCodec.PASS_NAME;
+        }
+        return Lizzie.optionSetting.isA1OnTop() ? PointCodec.getName(point) : flippedNames[point];
+    }
+
+    public String convertCoordinatesToDisplayName(int[] coords) {
+        if (ArrayUtils.isEmpty(coords) || coords.length != 2) {
+            return "Pass";
+        } else {
+            return convertCoordinatesToDisplayName(coords[0], coords[1]);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return size + "x" + size;
+    }
+}
@@ -3,6 +3,7 @@ package featurecat.lizzie.rules;
 import org.jetbrains.annotations.NotNull;
 
 import java.util.AbstractCollection;
+import java.util.ArrayList;
 import java.util.Iterator;
 
 /**
@@ -37,6 +38,12 @@ public class BoardHistoryList extends AbstractCollection<BoardData> {
 
     private BoardHistoryNode head;
 
+    // Nodes reachable from the initial node by following next, indexed by depth. The head is always one of them
+    private final ArrayList<BoardHistoryNode> mainLine = new ArrayList<>();
+
+    // Materialized planes of the delta positions of this history
+    private final BoardPositionCache positionCache = new BoardPositionCache();
+
     public BoardHistoryNode getHead() {
         return head;
     }
@@ -55,8 +62,10 @@ public class BoardHistoryList extends AbstractCollection<BoardData> {
      * @param data the data to be stored for the first entry
      */
     public BoardHistoryList(BoardData data) {
+        data.setPositionCache(positionCache);
         initialNode = new BoardHistoryNode(data);
         head = initialNode;
+        mainLine.add(initialNode);
     }
 
     /**
@@ -66,14 +75,95 @@ public class BoardHistoryList extends AbstractCollection<BoardData> {
      */
     @Override
     public boolean add(BoardData data) {
-        BoardHistoryNode newNode = new BoardHistoryNode(data);
+        data.setPositionCache(positionCache);
+        BoardHistoryNode newNode = new BoardHistoryNode(data, head);
 
         head.connectNextNode(newNode);
+        truncateMainLineAfter(head);
+        mainLine.add(newNode);
         head = newNode;
 
         return true;
     }
 
+    /**
+     * Disconnects the nodes after node, which must be on the main line.
+     *
+     * @param node the new last node of the main line
+     */
+    public void disconnectNextNode(BoardHistoryNode node) {
+        node.disconnectNextNode();
+        truncateMainLineAfter(node);
+    }
+
+    /**
+     * Cuts the main line after node, which must be on it. Unlike {@link #disconnectNextNode(BoardHistoryNode)}, the
+     * cut nodes keep their link back to node, so they can be reconnected later.
+     *
+     * @param node the new last node of the main line
+     */
+    public void cutAfter(BoardHistoryNode node) {
+        node.setNext(null);
+        truncateMainLineAfter(node);
+    }
+
+    /**
+     * Connects nextNode and its successors after node, which must be on the main line.
+     *
+     * @param node     a node of the main line
+     * @param nextNode the node to connect
+     */
+    public void connectNextNode(BoardHistoryNode node, BoardHistoryNode nextNode) {
+        node.connectNextNode(nextNode);
+        truncateMainLineAfter(node);
+        for (BoardHistoryNode p = nextNode; p != null; p = p.getNext()) {
+            mainLine.add(p);
+        }
+    }
+
+    private void truncateMainLineAfter(BoardHistoryNode node) {
+        int size = node.getDepth() + 1;
+        if (mainLine.size() > size) {
+            mainLine.subList(size, mainLine.size()).clear();
+        }
+    }
+
+    /**
+     * @param index distance from the initial node
+     * @return the node of the main line at index, null if out of range
+     */
+    public BoardHistoryNode getNode(int index) {
+        return index >= 0 && index < mainLine.size() ? mainLine.get(index) : null;
+    }
+
+    /**
+     * Moves the pointer to the main line node at index, clamped to the main line.
+     *
+     * @param index distance from the initial node
+     * @return the data of the new head
+     */
+    public BoardData seek(int index) {
+        head = mainLine.get(Math.max(0, Math.min(index, mainLine.size() - 1)));
+        return head.getData();
+    }
+
+    /**
+     * @param node a node
+     * @return whether or not the node is on the main line
+     */
+    public boolean isOnMainLine(BoardHistoryNode node) {
+        return node != null && node.getDepth() < mainLine.size() && mainLine.get(node.getDepth()) == node;
+    }
+
+    /**
+     * @param from a node of the main line
+     * @param to   a node of the main line
+     * @return the signed number of moves from from to to
+     */
+    public int distance(BoardHistoryNode from, BoardHistoryNode to) {
+        return to.getDepth() - from.getDepth();
+    }
+
     /**
      * moves the pointer to the left, returns the data stored there
      *
@@ -161,19 +251,8 @@ public class BoardHistoryList extends AbstractCollection<BoardData> {
      * @return whether or not the given position violates the superko rule at the head's state
      */
     public boolean violatesSuperko(BoardData data) {
-        BoardHistoryNode head = this.head;
-
-        // check to see if this position has occurred before
-        while (head.getPrevious() != null) {
-            // if two zobrist hashes are equal, and it's the same player to coordinate, they are the same position
-            if (data.getZobrist().equals(head.getData().getZobrist()) && data.isBlackToPlay() == head.getData().isBlackToPlay())
-                return true;
-
-            head = head.getPrevious();
-        }
-
-        // no position matched this position, so it's valid
-        return false;
+        // every node knows the positions on its path, so a lookup replaces walking back the history
+        return head.hasOccurredOnPath(BoardHistoryNode.positionKeyOf(data));
     }
 
     @NotNull
@@ -185,17 +264,15 @@ public class BoardHistoryList extends AbstractCollection<BoardData> {
     @Override
     public void clear() {
         head = initialNode;
-        initialNode.disconnectNextNode();
+        disconnectNextNode(initialNode);
     }
 
     @Override
     public int size() {
-        return initialNode.distanceToEnd();
+        return mainLine.size();
     }
 
     public BoardHistoryNode getEndNode() {
-        BoardHistoryNode p;
-        for (p = initialNode; p.getNext() != null; p = p.getNext()) ;
-        return p;
+        return mainLine.get(mainLine.size() - 1);
     }
 }
@@ -1,6 +1,8 @@
 package featurecat.lizzie.rules;
 
 import org.jetbrains.annotations.NotNull;
+import org.pcollections.HashTreePSet;
+import org.pcollections.PSet;
 
 import java.util.ArrayList;
 import java.util.Iterator;
@@ -17,14 +19,56 @@ public class BoardHistoryNode implements Iterable<BoardData> {
 
     private ArrayList<BoardHistoryNode> tryPlayHistory;
 
+    // Position keys of every node from the first node up to this one, shared with the parent's set
+    private final PSet<Long> pathPositionKeys;
+    // Distance from the first node
+    private final int depth;
+
     /**
      * Initializes a new list node
      */
     public BoardHistoryNode(BoardData data) {
+        this(data, null);
+    }
+
+    /**
+     * Initializes a new list node following parent, whose path positions are extended with this position
+     *
+     * @param data   the data of the node
+     * @param parent the node this one will follow, null for a first node
+     */
+    public BoardHistoryNode(BoardData data, BoardHistoryNode parent) {
         previous = null;
         next = null;
         this.data = data;
         tryPlayHistory = new ArrayList<>();
+
+        long positionKey = positionKeyOf(data);
+        pathPositionKeys = parent == null ? HashTreePSet.singleton(positionKey) : parent.pathPositionKeys.plus(positionKey);
+        depth = parent == null ? 0 : parent.depth + 1;
+    }
+
+    /**
+     * @return distance from the first node of the history
+     */
+    public int getDepth() {
+        return depth;
+    }
+
+    /**
+     * @param data a position
+     * @return the key identifying the stones and the side to move of the position
+     */
+    public static long positionKeyOf(BoardData data) {
+        return data.getZobrist().getPositionHash();
+    }
+
+    /**
+     * @param positionKey a key computed by {@link #positionKeyOf(BoardData)}
+     * @return whether or not the position occurred on the path from the first node to this one
+     */
+    public boolean hasOccurredOnPath(long positionKey) {
+        return pathPositionKeys.contains(positionKey);
     }
 
     /**
@@ -102,23 +146,20 @@ public class BoardHistoryNode implements Iterable<BoardData> {
             return OptionalInt.empty();
         }
 
-        // Forward
-        int count = 0;
-        for (BoardHistoryNode node = this; node != null; node = node.next, ++count) {
-            if (node == anotherNode) {
-                return OptionalInt.of(count);
+        // Depths tell the only possible distance, so only walk that far in that direction to check the link
+        int distance = anotherNode.depth - depth;
+        BoardHistoryNode node = this;
+        if (distance >= 0) {
+            for (int i = 0; i < distance && node != null; ++i) {
+                node = node.next;
             }
-        }
-
-        // Backaward
-        count = 0;
-        for (BoardHistoryNode node = this; node != null; node = node.previous, --count) {
-            if (node == anotherNode) {
-                return OptionalInt.of(count);
+        } else {
+            for (int i = 0; i > distance && node != null; --i) {
+                node = node.previous;
             }
         }
 
-        return OptionalInt.empty();
+        return node == anotherNode ? OptionalInt.of(distance) : OptionalInt.empty();
     }
 
     public int distanceToEnd() {
@@ -0,0 +1,61 @@
+package featurecat.lizzie.rules;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A small LRU of recently viewed delta positions whose planes are materialized. Each history has its own cache, so
+ * a game being reviewed in the background does not evict the positions of the game on screen. Evicted positions drop
+ * their planes and rebuild them from the nearest checkpoint when viewed again.
+ */
+class BoardPositionCache {
+    static final int DEFAULT_CAPACITY = 64;
+
+    private final int capacity;
+    private final LinkedHashMap<BoardData, Boolean> positions;
+    // Most recently used position, so that repeated reads of one position skip the lock
+    private volatile BoardData lastUsed;
+
+    BoardPositionCache() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    BoardPositionCache(int capacity) {
+        this.capacity = capacity;
+        positions = new LinkedHashMap<>(capacity * 2, 0.75f, true);
+    }
+
+    /**
+     * Records a position whose planes were just materialized, evicting the least recently used ones over capacity.
+     *
+     * @param data the position
+     */
+    synchronized void add(BoardData data) {
+        positions.put(data, Boolean.TRUE);
+        lastUsed = data;
+
+        Iterator<Map.Entry<BoardData, Boolean>> iterator = positions.entrySet().iterator();
+        while (positions.size() > capacity && iterator.hasNext()) {
+            BoardData eldest = iterator.next().getKey();
+            iterator.remove();
+            eldest.releasePlanes();
+        }
+    }
+
+    /**
+     * Marks a cached position as the most recently used one.
+     *
+     * @param data the position
+     */
+    void touch(BoardData data) {
+        if (lastUsed == data) {
+            return;
+        }
+        synchronized (this) {
+            // get moves the entry to the end of the access order
+            positions.get(data);
+            lastUsed = data;
+        }
+    }
+}
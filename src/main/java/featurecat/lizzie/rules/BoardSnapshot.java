@@ -0,0 +1,86 @@
+package featurecat.lizzie.rules;
+
+import java.util.List;
+
+/**
+ * A shallow view of the board state, published by {@link Board} after every change. Readers outside the board lock,
+ * such as the renderer and analysis observers, get a consistent head, position, side to move, variations of the head
+ * and try play state from one snapshot without locking.
+ * <p>
+ * The values captured here never change, but the history nodes are live: their links follow later edits of the
+ * history, so walking the nodes still takes the board lock.
+ */
+public class BoardSnapshot {
+    private final BoardHistoryNode initialNode;
+    private final BoardHistoryNode head;
+    private final BoardData data;
+    private final boolean blackToPlay;
+    private final List<VariationData> variations;
+    private final boolean inTryPlayState;
+    private final int tryPlayStateBeginMoveNumber;
+    private final int[] nextMoveCoordinate;
+    private final int historySize;
+
+    public BoardSnapshot(BoardHistoryNode initialNode, BoardHistoryNode head, boolean inTryPlayState, int tryPlayStateBeginMoveNumber, int[] nextMoveCoordinate, int historySize) {
+        this.initialNode = initialNode;
+        this.head = head;
+        this.data = head.getData();
+        this.blackToPlay = data.isBlackToPlay();
+        this.variations = data.getVariationDataList();
+        this.inTryPlayState = inTryPlayState;
+        this.tryPlayStateBeginMoveNumber = tryPlayStateBeginMoveNumber;
+        this.nextMoveCoordinate = nextMoveCoordinate;
+        this.historySize = historySize;
+    }
+
+    public BoardHistoryNode getInitialNode() {
+        return initialNode;
+    }
+
+    public BoardHistoryNode getHead() {
+        return head;
+    }
+
+    /**
+     * @return the position of the head when the snapshot was taken
+     */
+    public BoardData getData() {
+        return data;
+    }
+
+    public boolean isBlackToPlay() {
+        return blackToPlay;
+    }
+
+    /**
+     * @return the variations of the head when the snapshot was taken, null if none
+     */
+    public List<VariationData> getVariations() {
+        return variations;
+    }
+
+    public boolean isInTryPlayState() {
+        return inTryPlayState;
+    }
+
+    /**
+     * @return move number where the try play state began, 0 if not in try play state
+     */
+    public int getTryPlayStateBeginMoveNumber() {
+        return tryPlayStateBeginMoveNumber;
+    }
+
+    /**
+     * @return coordinates of the move following the head, null if none or a pass
+     */
+    public int[] getNextMoveCoordinate() {
+        return nextMoveCoordinate;
+    }
+
+    /**
+     * @return number of nodes on the main line, the initial node included
+     */
+    public int getHistorySize() {
+        return historySize;
+    }
+}
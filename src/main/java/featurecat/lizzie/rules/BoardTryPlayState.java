@@ -17,12 +17,12 @@ public class BoardTryPlayState {
         return nextPartBegin;
     }
 
-    public void cutMainStream() {
-        mainStreamEnd.setNext(null);
+    public void cutMainStream(BoardHistoryList history) {
+        history.cutAfter(mainStreamEnd);
     }
 
-    public void restoreMainStream() {
-        mainStreamEnd.connectNextNode(nextPartBegin);
+    public void restoreMainStream(BoardHistoryList history) {
+        history.connectNextNode(mainStreamEnd, nextPartBegin);
     }
 
     public boolean isMainStreamConnected() {
@@ -0,0 +1,346 @@
+package featurecat.lizzie.rules;
+
+import org.eclipse.collections.api.list.primitive.MutableIntList;
+import org.eclipse.collections.impl.list.mutable.primitive.IntArrayList;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * Incremental chain and liberty tracking for one board position. Every chain is kept as a circular linked list
+ * of stone indexes with a liberty set stored at its representative index, so capture and suicide checks only
+ * touch the chains adjacent to the played point instead of flood filling the board.
+ */
+public class ChainTracker implements RulesKernel {
+    private static final int NONE = -1;
+
+    private final int boardSize;
+    private final int[] neighbours;
+
+    private final Stone[] stones;
+    // Representative index of the chain each stone belongs to, NONE for empty points
+    private final int[] chainIds;
+    // Circular linked list through the stones of one chain
+    private final int[] nextStones;
+    // Valid at representative indexes only
+    private final int[] chainSizes;
+    private final BitSet[] liberties;
+
+    public ChainTracker(int boardSize) {
+        this.boardSize = boardSize;
+        this.neighbours = buildNeighbourTable(boardSize);
+
+        int area = boardSize * boardSize;
+        stones = new Stone[area];
+        chainIds = new int[area];
+        nextStones = new int[area];
+        chainSizes = new int[area];
+        liberties = new BitSet[area];
+
+        Arrays.fill(stones, Stone.EMPTY);
+        Arrays.fill(chainIds, NONE);
+        Arrays.fill(nextStones, NONE);
+    }
+
+    /**
+     * Builds the chains of an existing position. Costs one pass over the board.
+     *
+     * @param data      the position
+     * @param boardSize the board size
+     * @return a tracker for the position
+     */
+    public static ChainTracker of(BoardData data, int boardSize) {
+        ChainTracker tracker = new ChainTracker(boardSize);
+        int pointCount = tracker.stones.length;
+        for (int i = 0; i < pointCount; ++i) {
+            tracker.stones[i] = data.getStone(i);
+        }
+
+        tracker.buildChains();
+        return tracker;
+    }
+
+    /**
+     * Builds the chains of an existing position. Costs one pass over the board.
+     *
+     * @param stones    the stones array of the position, indexed like {@link BoardGeometry#getIndex(int, int)}
+     * @param boardSize the board size
+     * @return a tracker for the position
+     */
+    public static ChainTracker of(Stone[] stones, int boardSize) {
+        ChainTracker tracker = new ChainTracker(boardSize);
+        for (int i = 0; i < stones.length; ++i) {
+            if (stones[i] == Stone.BLACK || stones[i] == Stone.WHITE) {
+                tracker.stones[i] = stones[i];
+            }
+        }
+
+        tracker.buildChains();
+        return tracker;
+    }
+
+    private void buildChains() {
+        MutableIntList pending = new IntArrayList();
+        for (int i = 0; i < stones.length; ++i) {
+            if (stones[i] != Stone.EMPTY && chainIds[i] == NONE) {
+                buildChain(i, pending);
+            }
+        }
+    }
+
+    private void buildChain(int root, MutableIntList pending) {
+        Stone color = stones[root];
+        BitSet chainLiberties = new BitSet(stones.length);
+        int lastStone = root;
+        int size = 0;
+
+        chainIds[root] = root;
+        nextStones[root] = root;
+        pending.clear();
+        pending.add(root);
+        while (pending.notEmpty()) {
+            int index = pending.removeAtIndex(pending.size() - 1);
+            ++size;
+            if (index != root) {
+                nextStones[index] = nextStones[lastStone];
+                nextStones[lastStone] = index;
+                lastStone = index;
+            }
+
+            for (int k = index * 4, end = k + 4; k < end; ++k) {
+                int neighbour = neighbours[k];
+                if (neighbour == NONE) {
+                    continue;
+                }
+                if (stones[neighbour] == Stone.EMPTY) {
+                    chainLiberties.set(neighbour);
+                } else if (stones[neighbour] == color && chainIds[neighbour] == NONE) {
+                    chainIds[neighbour] = root;
+                    pending.add(neighbour);
+                }
+            }
+        }
+
+        chainSizes[root] = size;
+        liberties[root] = chainLiberties;
+    }
+
+    @Override
+    public int getBoardSize() {
+        return boardSize;
+    }
+
+    @Override
+    public Stone getStone(int index) {
+        return stones[index];
+    }
+
+    /**
+     * @param index a stone index
+     * @return liberty count of the chain containing the stone, 0 for an empty point
+     */
+    @Override
+    public int getLibertyCount(int index) {
+        int chainId = chainIds[index];
+        return chainId == NONE ? 0 : liberties[chainId].cardinality();
+    }
+
+    /**
+     * @param index a stone index
+     * @return stone count of the chain containing the stone, 0 for an empty point
+     */
+    @Override
+    public int getChainSize(int index) {
+        int chainId = chainIds[index];
+        return chainId == NONE ? 0 : chainSizes[chainId];
+    }
+
+    /**
+     * Checks whether placing a stone would leave its own chain without liberties, taking captures into account.
+     *
+     * @param index the point to play -- must be empty
+     * @param color the color to play
+     * @return whether or not the move is suicidal
+     */
+    @Override
+    public boolean isSuicide(int index, Stone color) {
+        for (int k = index * 4, end = k + 4; k < end; ++k) {
+            int neighbour = neighbours[k];
+            if (neighbour == NONE) {
+                continue;
+            }
+
+            Stone neighbourStone = stones[neighbour];
+            if (neighbourStone == Stone.EMPTY) {
+                return false;
+            }
+
+            int libertyCount = liberties[chainIds[neighbour]].cardinality();
+            if (neighbourStone == color ? libertyCount > 1 : libertyCount == 1) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Lists the enemy stones that placing a stone would capture, without changing the position.
+     *
+     * @param index the point to play -- must be empty
+     * @param color the color to play
+     * @return the captured stones
+     */
+    @Override
+    public PointMask findCapturedStones(int index, Stone color) {
+        PointMask captured = PointMask.empty(boardSize);
+        Stone enemy = color.opposite();
+        int[] visitedChains = new int[4];
+        int visitedCount = 0;
+
+        for (int k = index * 4, end = k + 4; k < end; ++k) {
+            int neighbour = neighbours[k];
+            if (neighbour == NONE || stones[neighbour] != enemy) {
+                continue;
+            }
+
+            int chainId = chainIds[neighbour];
+            if (contains(visitedChains, visitedCount, chainId)) {
+                continue;
+            }
+            visitedChains[visitedCount++] = chainId;
+
+            if (liberties[chainId].cardinality() == 1) {
+                int stone = chainId;
+                do {
+                    captured.set(stone);
+                    stone = nextStones[stone];
+                } while (stone != chainId);
+            }
+        }
+
+        return captured;
+    }
+
+    /**
+     * Places a stone and updates chains, liberties and captures incrementally. The move must be legal, check with
+     * {@link #isSuicide(int, Stone)} first.
+     *
+     * @param index the point to play -- must be empty
+     * @param color the color to play
+     * @return the captured stones
+     */
+    @Override
+    public PointMask play(int index, Stone color) {
+        if (stones[index] != Stone.EMPTY) {
+            throw new IllegalArgumentException("Point " + index + " is already occupied.");
+        }
+
+        stones[index] = color;
+        chainIds[index] = index;
+        nextStones[index] = index;
+        chainSizes[index] = 1;
+        liberties[index] = new BitSet(stones.length);
+
+        for (int k = index * 4, end = k + 4; k < end; ++k) {
+            int neighbour = neighbours[k];
+            if (neighbour == NONE) {
+                continue;
+            }
+
+            if (stones[neighbour] == Stone.EMPTY) {
+                liberties[index].set(neighbour);
+            } else {
+                liberties[chainIds[neighbour]].clear(index);
+            }
+        }
+
+        for (int k = index * 4, end = k + 4; k < end; ++k) {
+            int neighbour = neighbours[k];
+            if (neighbour != NONE && stones[neighbour] == color && chainIds[neighbour] != chainIds[index]) {
+                mergeChains(chainIds[index], chainIds[neighbour]);
+            }
+        }
+
+        PointMask captured = PointMask.empty(boardSize);
+        Stone enemy = color.opposite();
+        for (int k = index * 4, end = k + 4; k < end; ++k) {
+            int neighbour = neighbours[k];
+            if (neighbour != NONE && stones[neighbour] == enemy && liberties[chainIds[neighbour]].isEmpty()) {
+                removeChain(chainIds[neighbour], captured);
+            }
+        }
+
+        return captured;
+    }
+
+    private void mergeChains(int chainA, int chainB) {
+        int large = chainSizes[chainA] >= chainSizes[chainB] ? chainA : chainB;
+        int small = large == chainA ? chainB : chainA;
+
+        int stone = small;
+        do {
+            chainIds[stone] = large;
+            stone = nextStones[stone];
+        } while (stone != small);
+
+        // Splice the two circular lists
+        int temp = nextStones[large];
+        nextStones[large] = nextStones[small];
+        nextStones[small] = temp;
+
+        chainSizes[large] += chainSizes[small];
+        liberties[large].or(liberties[small]);
+        liberties[small] = null;
+    }
+
+    private void removeChain(int chainId, PointMask captured) {
+        int[] removedStones = new int[chainSizes[chainId]];
+        int removedCount = 0;
+        int stone = chainId;
+        do {
+            int next = nextStones[stone];
+            removedStones[removedCount++] = stone;
+            captured.set(stone);
+            stones[stone] = Stone.EMPTY;
+            chainIds[stone] = NONE;
+            nextStones[stone] = NONE;
+            stone = next;
+        } while (stone != chainId);
+        liberties[chainId] = null;
+
+        // Removed stones become liberties of every chain around them
+        for (int i = 0; i < removedCount; ++i) {
+            int removed = removedStones[i];
+            for (int k = removed * 4, end = k + 4; k < end; ++k) {
+                int neighbour = neighbours[k];
+                if (neighbour != NONE && stones[neighbour] != Stone.EMPTY) {
+                    liberties[chainIds[neighbour]].set(removed);
+                }
+            }
+        }
+    }
+
+    private static boolean contains(int[] values, int count, int value) {
+        for (int i = 0; i < count; ++i) {
+            if (values[i] == value) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static int[] buildNeighbourTable(int boardSize) {
+        int[] table = new int[boardSize * boardSize * 4];
+        for (int x = 0; x < boardSize; ++x) {
+            for (int y = 0; y < boardSize; ++y) {
+                int k = (x * boardSize + y) * 4;
+                table[k] = x + 1 < boardSize ? (x + 1) * boardSize + y : NONE;
+                table[k + 1] = y + 1 < boardSize ? x * boardSize + y + 1 : NONE;
+                table[k + 2] = x > 0 ? (x - 1) * boardSize + y : NONE;
+                table[k + 3] = y > 0 ? x * boardSize + y - 1 : NONE;
+            }
+        }
+        return table;
+    }
+}
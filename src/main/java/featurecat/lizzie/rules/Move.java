@@ -0,0 +1,82 @@
+package featurecat.lizzie.rules;
+
+import org.apache.commons.lang3.builder.EqualsBuilder;
+import org.apache.commons.lang3.builder.HashCodeBuilder;
+import org.apache.commons.lang3.builder.ToStringBuilder;
+
+/**
+ * A move to apply on a board, see {@link Board#applyMoves(java.util.List)}. A move without a color is played by the
+ * side to move when it is applied, like {@link Board#place(int, int)} and {@link Board#pass()}.
+ */
+public class Move {
+    // Null for the side to move
+    private final Stone color;
+    // Null for a pass
+    private final Coordinates coordinates;
+
+    public static Move place(Stone color, int x, int y) {
+        return new Move(color, Coordinates.of(x, y));
+    }
+
+    public static Move place(int x, int y) {
+        return new Move(null, Coordinates.of(x, y));
+    }
+
+    public static Move pass(Stone color) {
+        return new Move(color, null);
+    }
+
+    public static Move pass() {
+        return new Move(null, null);
+    }
+
+    private Move(Stone color, Coordinates coordinates) {
+        this.color = color;
+        this.coordinates = coordinates;
+    }
+
+    /**
+     * @return the color of the move, null for the side to move
+     */
+    public Stone getColor() {
+        return color;
+    }
+
+    public boolean isPass() {
+        return coordinates == null;
+    }
+
+    /**
+     * @return the coordinates of the move, null for a pass
+     */
+    public Coordinates getCoordinates() {
+        return coordinates;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        Move that = (Move) o;
+        return new EqualsBuilder()
+                .append(color, that.color)
+                .append(coordinates, that.coordinates)
+                .isEquals();
+    }
+
+    @Override
+    public int hashCode() {
+        return new HashCodeBuilder(17, 37)
+                .append(color)
+                .append(coordinates)
+                .toHashCode();
+    }
+
+    @Override
+    public String toString() {
+        return new ToStringBuilder(this)
+                .append("color", color)
+                .append("coordinates", coordinates)
+                .toString();
+    }
+}
@@ -0,0 +1,100 @@
+package featurecat.lizzie.rules;
+
+/**
+ * Helpers for the 2-bit packed stone arrays used by {@link BoardData}. Each byte holds four points, an all-zero
+ * array is an empty board.
+ */
+public final class PackedStones {
+    private static final byte EMPTY_CODE = 0;
+    private static final byte BLACK_CODE = 1;
+    private static final byte WHITE_CODE = 2;
+
+    private PackedStones() {
+    }
+
+    /**
+     * @param pointCount number of points on the board
+     * @return a packed array representing an empty board
+     */
+    public static byte[] newEmpty(int pointCount) {
+        return new byte[(pointCount + 3) >> 2];
+    }
+
+    public static Stone get(byte[] packed, int index) {
+        switch ((packed[index >> 2] >> ((index & 3) << 1)) & 3) {
+            case BLACK_CODE:
+                return Stone.BLACK;
+            case WHITE_CODE:
+                return Stone.WHITE;
+            default:
+                return Stone.EMPTY;
+        }
+    }
+
+    /**
+     * Stores a stone. Ghost and recursed variants are stored as their plain color.
+     *
+     * @param packed the packed array to modify
+     * @param index  the point index
+     * @param stone  the stone to store
+     */
+    public static void set(byte[] packed, int index, Stone stone) {
+        int shift = (index & 3) << 1;
+        int code;
+        if (stone == Stone.EMPTY) {
+            code = EMPTY_CODE;
+        } else if (stone.isBlack()) {
+            code = BLACK_CODE;
+        } else {
+            code = WHITE_CODE;
+        }
+        packed[index >> 2] = (byte) ((packed[index >> 2] & ~(3 << shift)) | (code << shift));
+    }
+
+    public static byte[] pack(Stone[] stones) {
+        byte[] packed = newEmpty(stones.length);
+        for (int i = 0; i < stones.length; ++i) {
+            set(packed, i, stones[i]);
+        }
+        return packed;
+    }
+
+    public static Stone[] unpack(byte[] packed, int pointCount) {
+        Stone[] stones = new Stone[pointCount];
+        for (int i = 0; i < pointCount; ++i) {
+            stones[i] = get(packed, i);
+        }
+        return stones;
+    }
+
+    /**
+     * @param moveNumbers move numbers of each point
+     * @return the move numbers narrowed to shorts, read back with {@link #getMoveNumber(short[], int)}
+     */
+    public static short[] packMoveNumbers(int[] moveNumbers) {
+        short[] packed = new short[moveNumbers.length];
+        for (int i = 0; i < moveNumbers.length; ++i) {
+            packed[i] = (short) moveNumbers[i];
+        }
+        return packed;
+    }
+
+    public static int[] unpackMoveNumbers(short[] packed) {
+        int[] moveNumbers = new int[packed.length];
+        for (int i = 0; i < packed.length; ++i) {
+            moveNumbers[i] = getMoveNumber(packed, i);
+        }
+        return moveNumbers;
+    }
+
+    /**
+     * Move numbers are stored unsigned, so games up to 65535 moves are represented exactly.
+     *
+     * @param packed the move number plane
+     * @param index  the point index
+     * @return the move number of the stone at the point, 0 if none
+     */
+    public static int getMoveNumber(short[] packed, int index) {
+        return packed[index] & 0xFFFF;
+    }
+}
@@ -0,0 +1,117 @@
+package featurecat.lizzie.rules;
+
+import java.util.Arrays;
+
+/**
+ * Compact int codes of board points, the same for every board size: x * MAX_SIZE + y, or PASS. The names and SGF
+ * letters of all codes are built once, so engine moves reach the screen without substring, parseInt or new arrays.
+ * Whether a code is on a given board is up to {@link BoardGeometry}.
+ */
+public final class PointCodec {
+    public static final int MAX_SIZE = BoardGeometry.alphabet.length();
+    public static final int PASS = -1;
+    public static final String PASS_NAME = "Pass";
+
+    private static final int CODE_COUNT = MAX_SIZE * MAX_SIZE;
+    private static final String[] names = new String[CODE_COUNT];
+    private static final String[] sgfLetters = new String[CODE_COUNT];
+    // Column of a letter, either case, -1 for other characters
+    private static final int[] columnOfChar = new int[128];
+
+    static {
+        Arrays.fill(columnOfChar, -1);
+        for (int x = 0; x < MAX_SIZE; ++x) {
+            char letter = BoardGeometry.alphabet.charAt(x);
+            columnOfChar[letter] = x;
+            columnOfChar[Character.toLowerCase(letter)] = x;
+
+            for (int y = 0; y < MAX_SIZE; ++y) {
+                int code = x * MAX_SIZE + y;
+                names[code] = letter + String.valueOf(y + 1);
+                sgfLetters[code] = String.valueOf(new char[]{(char) ('a' + x), (char) ('a' + y)});
+            }
+        }
+    }
+
+    private PointCodec() {
+    }
+
+    /**
+     * @return the code of (x, y), PASS if no board has such a point
+     */
+    public static int of(int x, int y) {
+        if (x < 0 || x >= MAX_SIZE || y < 0 || y >= MAX_SIZE) {
+            return PASS;
+        }
+        return x * MAX_SIZE + y;
+    }
+
+    public static boolean isPass(int code) {
+        return code < 0 || code >= CODE_COUNT;
+    }
+
+    /**
+     * @return the x coordinate, -1 for PASS
+     */
+    public static int getX(int code) {
+        return isPass(code) ? -1 : code / MAX_SIZE;
+    }
+
+    /**
+     * @return the y coordinate, -1 for PASS
+     */
+    public static int getY(int code) {
+        return isPass(code) ? -1 : code % MAX_SIZE;
+    }
+
+    /**
+     * Reads a named coordinate eg C16, d4 or pass.
+     *
+     * @param text the text holding the name
+     * @param start the start of the name
+     * @param end the end of the name, exclusive
+     * @return the code, PASS for a pass or anything that is not a point
+     */
+    public static int parse(CharSequence text, int start, int end) {
+        if (end - start < 2) {
+            return PASS;
+        }
+
+        char letter = text.charAt(start);
+        int x = letter < columnOfChar.length ? columnOfChar[letter] : -1;
+        if (x < 0) {
+            return PASS;
+        }
+
+        int row = 0;
+        for (int i = start + 1; i < end; ++i) {
+            char c = text.charAt(i);
+            if (c < '0' || c > '9') {
+                return PASS;
+            }
+            row = row * 10 + (c - '0');
+            if (row > MAX_SIZE) {
+                return PASS;
+            }
+        }
+        return of(x, row - 1);
+    }
+
+    public static int parse(String name) {
+        return name == null ? PASS : parse(name, 0, name.length());
+    }
+
+    /**
+     * @return the name used by engines eg C16, or "Pass"
+     */
+    public static String getName(int code) {
+        return isPass(code) ? PASS_NAME : names[code];
+    }
+
+    /**
+     * @return the two SGF letters of a point, null for PASS since passes are written according to the board size
+     */
+    public static String getSgfLetters(int code) {
+        return isPass(code) ? null : sgfLetters[code];
+    }
+}
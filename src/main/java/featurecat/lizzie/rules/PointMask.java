@@ -0,0 +1,316 @@
+package featurecat.lizzie.rules;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.IntConsumer;
+
+/**
+ * A set of board points stored as 64-bit words, one bit per point indexed like {@link BoardGeometry#getIndex(int, int)}.
+ * A 19x19 board fits in six words, so neighbour, union and flood fill operations over the whole board cost a handful
+ * of word operations. Masks are mutable, the combining operations modify the receiver and return it for chaining.
+ */
+public final class PointMask {
+    private final Layout layout;
+    private final long[] words;
+
+    private PointMask(Layout layout, long[] words) {
+        this.layout = layout;
+        this.words = words;
+    }
+
+    /**
+     * @param boardSize the board size
+     * @return a mask without any point
+     */
+    public static PointMask empty(int boardSize) {
+        Layout layout = Layout.of(boardSize);
+        return new PointMask(layout, new long[layout.wordCount]);
+    }
+
+    /**
+     * @param boardSize the board size
+     * @return a mask with every point of the board
+     */
+    public static PointMask full(int boardSize) {
+        Layout layout = Layout.of(boardSize);
+        return new PointMask(layout, layout.onBoard.clone());
+    }
+
+    /**
+     * @param boardSize the board size
+     * @param index     the point index
+     * @return a mask with a single point
+     */
+    public static PointMask of(int boardSize, int index) {
+        return empty(boardSize).set(index);
+    }
+
+    public int getBoardSize() {
+        return layout.boardSize;
+    }
+
+    public PointMask copy() {
+        return new PointMask(layout, words.clone());
+    }
+
+    public boolean contains(int index) {
+        return (words[index >>> 6] & (1L << index)) != 0;
+    }
+
+    public PointMask set(int index) {
+        words[index >>> 6] |= 1L << index;
+        return this;
+    }
+
+    public PointMask clear(int index) {
+        words[index >>> 6] &= ~(1L << index);
+        return this;
+    }
+
+    public PointMask clear() {
+        Arrays.fill(words, 0L);
+        return this;
+    }
+
+    public boolean isEmpty() {
+        for (long word : words) {
+            if (word != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return number of points in the mask
+     */
+    public int cardinality() {
+        int count = 0;
+        for (long word : words) {
+            count += Long.bitCount(word);
+        }
+        return count;
+    }
+
+    /**
+     * @return the lowest point index in the mask, -1 if the mask is empty
+     */
+    public int firstIndex() {
+        for (int w = 0; w < words.length; ++w) {
+            if (words[w] != 0) {
+                return (w << 6) + Long.numberOfTrailingZeros(words[w]);
+            }
+        }
+        return -1;
+    }
+
+    public PointMask and(PointMask other) {
+        for (int w = 0; w < words.length; ++w) {
+            words[w] &= other.words[w];
+        }
+        return this;
+    }
+
+    public PointMask or(PointMask other) {
+        for (int w = 0; w < words.length; ++w) {
+            words[w] |= other.words[w];
+        }
+        return this;
+    }
+
+    public PointMask andNot(PointMask other) {
+        for (int w = 0; w < words.length; ++w) {
+            words[w] &= ~other.words[w];
+        }
+        return this;
+    }
+
+    /**
+     * Replaces the mask with the board points it does not contain.
+     *
+     * @return this mask
+     */
+    public PointMask invert() {
+        for (int w = 0; w < words.length; ++w) {
+            words[w] = ~words[w] & layout.onBoard[w];
+        }
+        return this;
+    }
+
+    public boolean intersects(PointMask other) {
+        for (int w = 0; w < words.length; ++w) {
+            if ((words[w] & other.words[w]) != 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public boolean containsAll(PointMask other) {
+        for (int w = 0; w < words.length; ++w) {
+            if ((other.words[w] & ~words[w]) != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return a new mask with every point orthogonally adjacent to a point of this mask
+     */
+    public PointMask neighbours() {
+        long[] result = new long[words.length];
+        neighboursInto(words, result);
+        return new PointMask(layout, result);
+    }
+
+    /**
+     * Grows the mask through orthogonally connected points of an area, like a flood fill started from every point
+     * of the mask at once. Points of the mask outside the area are dropped.
+     *
+     * @param area the points the fill may spread over
+     * @return this mask
+     */
+    public PointMask floodFill(PointMask area) {
+        and(area);
+        long[] grown = new long[words.length];
+        boolean changed = true;
+        while (changed) {
+            Arrays.fill(grown, 0L);
+            neighboursInto(words, grown);
+            changed = false;
+            for (int w = 0; w < words.length; ++w) {
+                long word = (words[w] | grown[w]) & area.words[w];
+                if (word != words[w]) {
+                    words[w] = word;
+                    changed = true;
+                }
+            }
+        }
+        return this;
+    }
+
+    /**
+     * Calls the consumer with every point index of the mask in ascending order.
+     *
+     * @param consumer the consumer
+     */
+    public void forEach(IntConsumer consumer) {
+        for (int w = 0; w < words.length; ++w) {
+            long word = words[w];
+            while (word != 0) {
+                consumer.accept((w << 6) + Long.numberOfTrailingZeros(word));
+                word &= word - 1;
+            }
+        }
+    }
+
+    public int[] toIndexes() {
+        int[] indexes = new int[cardinality()];
+        int count = 0;
+        for (int w = 0; w < words.length; ++w) {
+            long word = words[w];
+            while (word != 0) {
+                indexes[count++] = (w << 6) + Long.numberOfTrailingZeros(word);
+                word &= word - 1;
+            }
+        }
+        return indexes;
+    }
+
+    private void neighboursInto(long[] source, long[] target) {
+        // index + 1 and index - 1 move along y, masked so they do not wrap to the next column
+        shiftUpOr(source, layout.notLastY, 1, target);
+        shiftDownOr(source, layout.notFirstY, 1, target);
+        // index + size and index - size move along x
+        shiftUpOr(source, layout.onBoard, layout.boardSize, target);
+        shiftDownOr(source, layout.onBoard, layout.boardSize, target);
+        for (int w = 0; w < target.length; ++w) {
+            target[w] &= layout.onBoard[w];
+        }
+    }
+
+    /**
+     * target |= (source & mask) shifted towards higher indexes
+     */
+    private static void shiftUpOr(long[] source, long[] mask, int distance, long[] target) {
+        int wordShift = distance >>> 6;
+        int bitShift = distance & 63;
+        for (int w = target.length - 1; w >= wordShift; --w) {
+            long word = (source[w - wordShift] & mask[w - wordShift]) << bitShift;
+            if (bitShift != 0 && w - wordShift - 1 >= 0) {
+                word |= (source[w - wordShift - 1] & mask[w - wordShift - 1]) >>> (64 - bitShift);
+            }
+            target[w] |= word;
+        }
+    }
+
+    /**
+     * target |= (source & mask) shifted towards lower indexes
+     */
+    private static void shiftDownOr(long[] source, long[] mask, int distance, long[] target) {
+        int wordShift = distance >>> 6;
+        int bitShift = distance & 63;
+        for (int w = 0; w + wordShift < source.length; ++w) {
+            long word = (source[w + wordShift] & mask[w + wordShift]) >>> bitShift;
+            if (bitShift != 0 && w + wordShift + 1 < source.length) {
+                word |= (source[w + wordShift + 1] & mask[w + wordShift + 1]) << (64 - bitShift);
+            }
+            target[w] |= word;
+        }
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        PointMask that = (PointMask) o;
+        return layout.boardSize == that.layout.boardSize && Arrays.equals(words, that.words);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * layout.boardSize + Arrays.hashCode(words);
+    }
+
+    @Override
+    public String toString() {
+        return Arrays.toString(toIndexes());
+    }
+
+    /**
+     * Edge masks of one board size, shared by every mask of that size.
+     */
+    private static final class Layout {
+        private static final ConcurrentHashMap<Integer, Layout> layouts = new ConcurrentHashMap<>();
+
+        private final int boardSize;
+        private final int wordCount;
+        private final long[] onBoard;
+        private final long[] notFirstY;
+        private final long[] notLastY;
+
+        private static Layout of(int boardSize) {
+            return layouts.computeIfAbsent(boardSize, Layout::new);
+        }
+
+        private Layout(int boardSize) {
+            int pointCount = boardSize * boardSize;
+            this.boardSize = boardSize;
+            this.wordCount = (pointCount + 63) >>> 6;
+            this.onBoard = new long[wordCount];
+            this.notFirstY = new long[wordCount];
+            this.notLastY = new long[wordCount];
+            for (int index = 0; index < pointCount; ++index) {
+                long bit = 1L << index;
+                onBoard[index >>> 6] |= bit;
+                if (index % boardSize != 0) {
+                    notFirstY[index >>> 6] |= bit;
+                }
+                if (index % boardSize != boardSize - 1) {
+                    notLastY[index >>> 6] |= bit;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package featurecat.lizzie.rules;
+
+/**
+ * The rules side of one board position: chains, liberties, captures and suicide, with points indexed like
+ * {@link BoardGeometry#getIndex(int, int)}. Ko and superko are left to the caller. {@link Board} keeps one kernel in
+ * step with its head.
+ */
+public interface RulesKernel {
+    enum Kind {
+        /**
+         * {@link ChainTracker}, updated incrementally by every placement
+         */
+        CHAIN_TRACKER,
+        /**
+         * {@link BitBoard}, answering with whole-board masks
+         */
+        BIT_BOARD
+    }
+
+    /**
+     * Builds a kernel of an existing position.
+     *
+     * @param kind the implementation
+     * @param data the position
+     * @return the kernel
+     */
+    static RulesKernel of(Kind kind, BoardData data) {
+        if (kind == Kind.BIT_BOARD) {
+            return BitBoard.of(data);
+        } else {
+            return ChainTracker.of(data, data.getGeometry().getSize());
+        }
+    }
+
+    int getBoardSize();
+
+    Stone getStone(int index);
+
+    /**
+     * @param index a stone index
+     * @return liberty count of the chain containing the stone, 0 for an empty point
+     */
+    int getLibertyCount(int index);
+
+    /**
+     * @param index a stone index
+     * @return stone count of the chain containing the stone, 0 for an empty point
+     */
+    int getChainSize(int index);
+
+    /**
+     * Checks whether placing a stone would leave its own chain without liberties, taking captures into account.
+     *
+     * @param index the point to play -- must be empty
+     * @param color the color to play
+     * @return whether or not the move is suicidal
+     */
+    boolean isSuicide(int index, Stone color);
+
+    /**
+     * Lists the enemy stones that placing a stone would capture, without changing the position.
+     *
+     * @param index the point to play -- must be empty
+     * @param color the color to play
+     * @return the captured stones
+     */
+    PointMask findCapturedStones(int index, Stone color);
+
+    /**
+     * Places a stone and removes the captured enemy stones. The move must be legal, check with
+     * {@link #isSuicide(int, Stone)} first.
+     *
+     * @param index the point to play -- must be empty
+     * @param color the color to play
+     * @return the captured stones
+     */
+    PointMask play(int index, Stone color);
+}
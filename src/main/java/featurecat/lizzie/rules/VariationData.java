@@ -2,22 +2,19 @@ package featurecat.lizzie.rules;
 
 import featurecat.lizzie.analysis.MoveData;
 
-import java.util.ArrayList;
-import java.util.List;
-import java.util.stream.Collectors;
-
 public class VariationData {
-    private List<int[]> variation;
+    // PointCodec codes, shared with the move data
+    private int[] variation;
     private int playouts;
     private double winrate;
 
     public VariationData(MoveData moveData) {
         playouts = moveData.getPlayouts();
         winrate = moveData.getWinrate();
-        variation = moveData.getVariation().stream().map(Board::convertNameToCoordinates).collect(Collectors.toCollection(ArrayList::new));
+        variation = moveData.getVariation();
     }
 
-    public List<int[]> getVariation() {
+    public int[] getVariation() {
         return variation;
     }
 
@@ -1,34 +1,68 @@
 package featurecat.lizzie.rules;
 
-import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
- * Used to maintain zobrist hashes for ko detection
+ * Used to maintain zobrist hashes for ko detection. The random tables are generated per board size from a fixed
+ * seed, so a hash value identifies the same position across runs and machines.
  */
 public class Zobrist {
-    private static final long[] blackZobrist, whiteZobrist;
+    /**
+     * Random keys of one board size.
+     */
+    private static class Table {
+        private final long[] blackKeys;
+        private final long[] whiteKeys;
+        private final long[] koKeys;
+        private final long whiteToPlayKey;
 
-    // initialize zobrist hashing
-    static {
-        Random random = new Random();
-        blackZobrist = new long[Board.BOARD_SIZE * Board.BOARD_SIZE];
-        whiteZobrist = new long[Board.BOARD_SIZE * Board.BOARD_SIZE];
+        private Table(int boardSize) {
+            int area = boardSize * boardSize;
+            // Keep the seed derivation unchanged, persisted hashes depend on it
+            long state = SEED ^ (boardSize * 0x9E3779B97F4A7C15L);
+            blackKeys = new long[area];
+            whiteKeys = new long[area];
+            koKeys = new long[area];
 
-        for (int i = 0; i < blackZobrist.length; i++) {
-            blackZobrist[i] = random.nextLong();
-            whiteZobrist[i] = random.nextLong();
+            for (int i = 0; i < area; i++) {
+                blackKeys[i] = splitMix64(state += GOLDEN_GAMMA);
+                whiteKeys[i] = splitMix64(state += GOLDEN_GAMMA);
+            }
+            for (int i = 0; i < area; i++) {
+                koKeys[i] = splitMix64(state += GOLDEN_GAMMA);
+            }
+            whiteToPlayKey = splitMix64(state + GOLDEN_GAMMA);
         }
     }
 
-    // hash to be used to compare two board states
+    private static final long SEED = 0x4C495A5A49453139L;
+    private static final long GOLDEN_GAMMA = 0x9E3779B97F4A7C15L;
+    private static final int NO_KO = -1;
+
+    private static final ConcurrentHashMap<Integer, Table> tables = new ConcurrentHashMap<>();
+
+    private final int boardSize;
+    private final Table table;
+
+    // hash of the stones and the side to move, used to compare two board states
     private long zhash;
+    // index of the point forbidden by a simple ko, NO_KO if none
+    private int koIndex;
 
-    public Zobrist() {
-        zhash = 0;
+    /**
+     * Creates the hash of an empty board with black to play.
+     *
+     * @param boardSize the board size
+     */
+    public Zobrist(int boardSize) {
+        this(boardSize, 0, NO_KO);
     }
 
-    public Zobrist(long zhash) {
+    private Zobrist(int boardSize, long zhash, int koIndex) {
+        this.boardSize = boardSize;
+        this.table = tables.computeIfAbsent(boardSize, Table::new);
         this.zhash = zhash;
+        this.koIndex = koIndex;
     }
 
     /**
@@ -36,7 +70,25 @@ public class Zobrist {
      * @return a copy of this zobrist
      */
     public Zobrist clone() {
-        return new Zobrist(zhash);
+        return new Zobrist(boardSize, zhash, koIndex);
+    }
+
+    public int getBoardSize() {
+        return boardSize;
+    }
+
+    /**
+     * @return the 64-bit hash of the stones, the side to move and the ko point
+     */
+    public long getHash() {
+        return koIndex == NO_KO ? zhash : zhash ^ table.koKeys[koIndex];
+    }
+
+    /**
+     * @return the 64-bit hash of the stones and the side to move only, as used by positional superko
+     */
+    public long getPositionHash() {
+        return zhash;
     }
 
     /**
@@ -49,26 +101,52 @@ public class Zobrist {
     public void toggleStone(int x, int y, Stone color) {
         switch (color) {
             case BLACK:
-                zhash ^= blackZobrist[Board.getIndex(x, y)];
+                zhash ^= table.blackKeys[x * boardSize + y];
                 break;
             case WHITE:
-                zhash ^= whiteZobrist[Board.getIndex(x, y)];
+                zhash ^= table.whiteKeys[x * boardSize + y];
                 break;
         }
     }
 
+    /**
+     * Call this method after each move, passes included, to alter the side to move.
+     */
+    public void toggleSideToMove() {
+        zhash ^= table.whiteToPlayKey;
+    }
+
+    /**
+     * @param x x coordinate of the point forbidden by a simple ko -- must be valid
+     * @param y y coordinate of the point forbidden by a simple ko -- must be valid
+     */
+    public void setKoPoint(int x, int y) {
+        koIndex = x * boardSize + y;
+    }
+
+    public void clearKoPoint() {
+        koIndex = NO_KO;
+    }
+
+    private static long splitMix64(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
     @Override
     public boolean equals(Object o) {
-        return o instanceof Zobrist && (((Zobrist) o).zhash == zhash);
+        return o instanceof Zobrist && ((Zobrist) o).boardSize == boardSize && ((Zobrist) o).getHash() == getHash();
     }
 
     @Override
     public int hashCode() {
-        return (int) zhash;
+        long hash = getHash();
+        return (int) (hash ^ (hash >>> 32));
     }
 
     @Override
     public String toString() {
-        return "" + zhash;
+        return "" + getHash();
     }
 }
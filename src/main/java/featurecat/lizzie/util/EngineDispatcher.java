@@ -0,0 +1,172 @@
+package featurecat.lizzie.util;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs the engine I/O and notification work of all engines on one bounded thread pool. Each stream of work gets a
+ * lane: tasks of a lane run one at a time in submission order, while different lanes share the pool threads. The
+ * thread count therefore stays the same however many engines are running, and idle engines hold no threads at all.
+ * <p>
+ * Lane tasks must not block waiting for the work of other lanes, since all lanes may be waiting for the same threads.
+ */
+public class EngineDispatcher {
+    private static final Logger logger = LogManager.getLogger(EngineDispatcher.class);
+
+    private static final int THREAD_COUNT = Math.max(4, Runtime.getRuntime().availableProcessors());
+    private static final long IDLE_THREAD_KEEP_ALIVE_SECONDS = 60;
+    // A busy lane gives way to the others after this many tasks
+    private static final int TASKS_PER_TURN = 64;
+
+    private static final ThreadPoolExecutor sharedPool;
+
+    static {
+        AtomicInteger threadNumber = new AtomicInteger();
+        ThreadFactory threadFactory = runnable -> {
+            Thread thread = new Thread(runnable, "engine-dispatcher-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+
+        sharedPool = new ThreadPoolExecutor(THREAD_COUNT, THREAD_COUNT
+                , IDLE_THREAD_KEEP_ALIVE_SECONDS, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), threadFactory);
+        sharedPool.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * An ordered executor on the shared pool. Shutting a lane down only affects its own tasks.
+     */
+    public static class Lane extends AbstractExecutorService {
+        private final String name;
+        private final Queue<Runnable> tasks;
+        // Guarded by this
+        private boolean scheduled;
+        private boolean shutdown;
+        private Thread runningThread;
+
+        private Lane(String name) {
+            this.name = name;
+            tasks = new ArrayDeque<>();
+            scheduled = false;
+            shutdown = false;
+            runningThread = null;
+        }
+
+        @Override
+        public synchronized void execute(@NotNull Runnable command) {
+            if (shutdown) {
+                throw new RejectedExecutionException("Lane " + name + " has been shut down.");
+            }
+
+            tasks.add(command);
+            if (!scheduled) {
+                scheduled = true;
+                sharedPool.execute(this::runTasks);
+            }
+        }
+
+        private void runTasks() {
+            for (int i = 0; i < TASKS_PER_TURN; ++i) {
+                Runnable task;
+                synchronized (this) {
+                    task = tasks.poll();
+                    if (task == null) {
+                        scheduled = false;
+                        runningThread = null;
+                        notifyAll();
+                        return;
+                    }
+                    runningThread = Thread.currentThread();
+                }
+
+                try {
+                    task.run();
+                } catch (RuntimeException e) {
+                    logger.error("Error in running a task of lane " + name + ".", e);
+                } finally {
+                    synchronized (this) {
+                        runningThread = null;
+                    }
+                    // An interrupt from shutdownNow must not reach the tasks of other lanes
+                    Thread.interrupted();
+                }
+            }
+
+            sharedPool.execute(this::runTasks);
+        }
+
+        @Override
+        public synchronized void shutdown() {
+            shutdown = true;
+            notifyAll();
+        }
+
+        @NotNull
+        @Override
+        public synchronized List<Runnable> shutdownNow() {
+            shutdown = true;
+            List<Runnable> pendingTasks = new ArrayList<>(tasks);
+            tasks.clear();
+            if (runningThread != null) {
+                runningThread.interrupt();
+            }
+            notifyAll();
+            return pendingTasks;
+        }
+
+        @Override
+        public synchronized boolean isShutdown() {
+            return shutdown;
+        }
+
+        @Override
+        public synchronized boolean isTerminated() {
+            return shutdown && !scheduled;
+        }
+
+        @Override
+        public synchronized boolean awaitTermination(long timeout, @NotNull TimeUnit unit) throws InterruptedException {
+            long deadline = System.nanoTime() + unit.toNanos(timeout);
+            while (!isTerminated()) {
+                long remaining = deadline - System.nanoTime();
+                if (remaining <= 0) {
+                    return false;
+                }
+                TimeUnit.NANOSECONDS.timedWait(this, remaining);
+            }
+            return true;
+        }
+
+        @Override
+        public String toString() {
+            return "Lane " + name;
+        }
+    }
+
+    private EngineDispatcher() {
+    }
+
+    /**
+     * Creates a lane, to be shut down like any executor when no longer needed.
+     *
+     * @param name the name of the lane, used in error messages
+     * @return the lane
+     */
+    public static ExecutorService newLane(String name) {
+        return new Lane(name);
+    }
+}
@@ -0,0 +1,127 @@
+package featurecat.lizzie.util;
+
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.util.function.Consumer;
+
+/**
+ * Splits a byte stream into text lines. Complete lines are decoded straight from the incoming buffer, only the
+ * unfinished tail of a chunk is copied into a reused carry-over buffer. The charset decoder and the char buffer are
+ * reused for every line, so multi-byte characters split across chunks survive and no per-byte work is done besides
+ * searching for line ends. Not thread safe, use one decoder per stream.
+ */
+public class LineDecoder {
+    static final int INITIAL_CAPACITY = 4096;
+
+    private final CharsetDecoder decoder;
+    // bytes of an unfinished line, in write mode
+    private ByteBuffer pending;
+    private CharBuffer chars;
+
+    public LineDecoder(Charset charset) {
+        decoder = charset.newDecoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        pending = ByteBuffer.allocate(INITIAL_CAPACITY);
+        chars = CharBuffer.allocate(INITIAL_CAPACITY);
+    }
+
+    /**
+     * Consumes every remaining byte of the buffer and hands out the lines completed by them. Lines keep their line
+     * terminator.
+     *
+     * @param buffer       the incoming bytes, its position is moved to its limit
+     * @param lineConsumer receives each complete line
+     */
+    public void decode(ByteBuffer buffer, Consumer<String> lineConsumer) {
+        int limit = buffer.limit();
+        while (buffer.hasRemaining()) {
+            int lineEnd = indexOfLineFeed(buffer);
+            if (lineEnd < 0) {
+                appendPending(buffer);
+                break;
+            }
+
+            buffer.limit(lineEnd + 1);
+            String line;
+            if (pending.position() == 0) {
+                line = decodeLine(buffer);
+            } else {
+                appendPending(buffer);
+                pending.flip();
+                line = decodeLine(pending);
+                pending.clear();
+            }
+            buffer.limit(limit);
+            buffer.position(lineEnd + 1);
+
+            lineConsumer.accept(line);
+        }
+    }
+
+    /**
+     * Drops the bytes of an unfinished line.
+     */
+    public void reset() {
+        pending.clear();
+        decoder.reset();
+    }
+
+    private static int indexOfLineFeed(ByteBuffer buffer) {
+        if (buffer.hasArray()) {
+            byte[] array = buffer.array();
+            int offset = buffer.arrayOffset();
+            for (int i = buffer.position(), end = buffer.limit(); i < end; ++i) {
+                if (array[offset + i] == '\n') {
+                    return i;
+                }
+            }
+        } else {
+            for (int i = buffer.position(), end = buffer.limit(); i < end; ++i) {
+                if (buffer.get(i) == '\n') {
+                    return i;
+                }
+            }
+        }
+        return -1;
+    }
+
+    private void appendPending(ByteBuffer buffer) {
+        if (pending.remaining() < buffer.remaining()) {
+            ByteBuffer larger = ByteBuffer.allocate(Math.max(pending.capacity() * 2, pending.position() + buffer.remaining()));
+            pending.flip();
+            larger.put(pending);
+            pending = larger;
+        }
+        pending.put(buffer);
+    }
+
+    private String decodeLine(ByteBuffer in) {
+        decoder.reset();
+        chars.clear();
+        for (; ; ) {
+            CoderResult result = decoder.decode(in, chars, true);
+            if (result.isOverflow()) {
+                growChars();
+            } else {
+                break;
+            }
+        }
+        while (decoder.flush(chars).isOverflow()) {
+            growChars();
+        }
+        chars.flip();
+        return chars.toString();
+    }
+
+    private void growChars() {
+        CharBuffer larger = CharBuffer.allocate(chars.capacity() * 2);
+        chars.flip();
+        larger.put(chars);
+        chars = larger;
+    }
+}
@@ -0,0 +1,84 @@
+package featurecat.lizzie.util;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * Records how long each phase of the startup takes and when it runs, measured from the JVM start. Phases may run on
+ * different threads at the same time, the report tells which thread ran each of them.
+ */
+public class StartupTimer {
+    private static class Phase {
+        private final String name;
+        private final String threadName;
+        private final long beginMillis;
+        private final long endMillis;
+
+        Phase(String name, String threadName, long beginMillis, long endMillis) {
+            this.name = name;
+            this.threadName = threadName;
+            this.beginMillis = beginMillis;
+            this.endMillis = endMillis;
+        }
+    }
+
+    private final long originMillis;
+    // Guarded by this
+    private final List<Phase> phases;
+
+    public StartupTimer() {
+        long jvmStartTime;
+        try {
+            jvmStartTime = ManagementFactory.getRuntimeMXBean().getStartTime();
+        } catch (RuntimeException e) {
+            jvmStartTime = System.currentTimeMillis();
+        }
+        originMillis = jvmStartTime;
+        phases = new ArrayList<>();
+    }
+
+    public <T> T call(String name, Supplier<T> phase) {
+        long beginMillis = System.currentTimeMillis();
+        try {
+            return phase.get();
+        } finally {
+            record(name, beginMillis, System.currentTimeMillis());
+        }
+    }
+
+    public void run(String name, Runnable phase) {
+        call(name, () -> {
+            phase.run();
+            return null;
+        });
+    }
+
+    /**
+     * Records a point in time, such as the first analysis result.
+     *
+     * @param name the name of the event
+     */
+    public void mark(String name) {
+        long now = System.currentTimeMillis();
+        record(name, now, now);
+    }
+
+    private synchronized void record(String name, long beginMillis, long endMillis) {
+        phases.add(new Phase(name, Thread.currentThread().getName(), beginMillis, endMillis));
+    }
+
+    public synchronized String report() {
+        StringBuilder builder = new StringBuilder("Startup phases (ms since JVM start):");
+        phases.stream()
+                .sorted((a, b) -> Long.compare(a.beginMillis, b.beginMillis))
+                .forEach(phase -> builder.append(String.format("%n  %-24s %7d - %7d %7d ms  [%s]"
+                        , phase.name
+                        , phase.beginMillis - originMillis
+                        , phase.endMillis - originMillis
+                        , phase.endMillis - phase.beginMillis
+                        , phase.threadName)));
+        return builder.toString();
+    }
+}
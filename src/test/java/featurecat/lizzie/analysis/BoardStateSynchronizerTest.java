@@ -0,0 +1,224 @@
+package featurecat.lizzie.analysis;
+
+import com.google.common.util.concurrent.AbstractFuture;
+import com.google.common.util.concurrent.ListenableFuture;
+import featurecat.lizzie.rules.BoardData;
+import featurecat.lizzie.rules.BoardHistoryNode;
+import featurecat.lizzie.rules.Stone;
+import featurecat.lizzie.rules.Zobrist;
+import org.apache.commons.lang3.tuple.ImmutablePair;
+import org.eclipse.collections.impl.factory.Sets;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class BoardStateSynchronizerTest {
+    private static final int BOARD_SIZE = 9;
+
+    /**
+     * A command as seen by the synchronizer. It stays cancellable until it is marked as sent to the engine.
+     */
+    private static class StubCommand extends AbstractFuture<List<String>> {
+        private final String command;
+        private boolean sent;
+
+        private StubCommand(String command) {
+            this.command = command;
+        }
+
+        private void markSent() {
+            sent = true;
+        }
+
+        private void answer(String... lines) {
+            sent = true;
+            set(Arrays.asList(lines));
+        }
+
+        @Override
+        public boolean cancel(boolean mayInterruptIfRunning) {
+            return !sent && super.cancel(mayInterruptIfRunning);
+        }
+    }
+
+    private final List<StubCommand> postedCommands = new ArrayList<>();
+    private BoardStateSynchronizer synchronizer;
+    private BoardHistoryNode root;
+
+    @Before
+    public void setUp() {
+        synchronizer = new BoardStateSynchronizer() {
+            @Override
+            protected List<ListenableFuture<List<String>>> handleGtpCommands(List<String> commands) {
+                List<ListenableFuture<List<String>>> futures = new ArrayList<>();
+                for (String command : commands) {
+                    StubCommand stubCommand = new StubCommand(command);
+                    postedCommands.add(stubCommand);
+                    futures.add(stubCommand);
+                }
+                return futures;
+            }
+        };
+
+        Stone[] stones = new Stone[BOARD_SIZE * BOARD_SIZE];
+        Arrays.fill(stones, Stone.EMPTY);
+        BoardData initialData = new BoardData(ImmutablePair.of(BOARD_SIZE, BOARD_SIZE), stones, null, Stone.EMPTY, true
+                , new Zobrist(BOARD_SIZE), 0, new int[BOARD_SIZE * BOARD_SIZE], Sets.mutable.empty(), 0, 0);
+        root = new BoardHistoryNode(initialData);
+    }
+
+    /**
+     * @return a node after the given one, with a stone of the side to move
+     */
+    private static BoardHistoryNode play(BoardHistoryNode parent, int x, int y) {
+        BoardData parentData = parent.getData();
+        Stone color = parentData.isBlackToPlay() ? Stone.BLACK : Stone.WHITE;
+        Zobrist zobrist = parentData.getZobrist().clone();
+        zobrist.toggleStone(x, y, color);
+        zobrist.toggleSideToMove();
+        BoardData data = new BoardData(parentData, new int[]{x, y}, color, !parentData.isBlackToPlay(), zobrist
+                , parentData.getMoveNumber() + 1, Sets.mutable.empty(), 0, 0);
+
+        BoardHistoryNode node = new BoardHistoryNode(data, parent);
+        node.setPrevious(parent);
+        return node;
+    }
+
+    /**
+     * @return the nodes of a line from the given node, playing down the given column
+     */
+    private static List<BoardHistoryNode> line(BoardHistoryNode from, int x, int length) {
+        List<BoardHistoryNode> nodes = new ArrayList<>();
+        BoardHistoryNode node = from;
+        for (int y = 0; y < length; ++y) {
+            node = play(node, x, y);
+            nodes.add(node);
+        }
+        return nodes;
+    }
+
+    private static String playCommand(BoardHistoryNode node) {
+        return BoardStateSynchronizer.replayCommandOf(node.getData());
+    }
+
+    private List<String> takePostedCommands() {
+        List<String> commands = postedCommands.stream().map(command -> command.command).collect(Collectors.toList());
+        postedCommands.clear();
+        return commands;
+    }
+
+    /**
+     * Brings the engine to the node and answers every command on the way.
+     */
+    private void syncTo(BoardHistoryNode node) {
+        synchronizer.boardCleared(root, node);
+        postedCommands.forEach(command -> command.answer("= ", ""));
+        postedCommands.clear();
+    }
+
+    @Test
+    public void movesForwardWithPlaysAndBackWithUndos() {
+        List<BoardHistoryNode> main = line(root, 0, 3);
+
+        synchronizer.headMoved(root, main.get(2));
+        List<StubCommand> forward = new ArrayList<>(postedCommands);
+        assertThat(takePostedCommands()).containsExactly(playCommand(main.get(0)), playCommand(main.get(1)), playCommand(main.get(2)));
+        forward.forEach(command -> command.answer("= ", ""));
+
+        synchronizer.headMoved(main.get(2), main.get(0));
+        assertThat(takePostedCommands()).containsExactly("undo", "undo");
+    }
+
+    @Test
+    public void switchesBranchesThroughTheCommonAncestor() {
+        List<BoardHistoryNode> main = line(root, 0, 3);
+        List<BoardHistoryNode> branch = line(main.get(0), 1, 2);
+        syncTo(main.get(2));
+
+        synchronizer.headMoved(main.get(2), branch.get(1));
+        assertThat(takePostedCommands()).containsExactly("undo", "undo", playCommand(branch.get(0)), playCommand(branch.get(1)));
+    }
+
+    @Test
+    public void replaysFromScratchWhenShorterThanTheUndos() {
+        List<BoardHistoryNode> main = line(root, 0, 6);
+        List<BoardHistoryNode> branch = line(root, 1, 1);
+        syncTo(main.get(5));
+
+        synchronizer.headMoved(main.get(5), branch.get(0));
+        assertThat(takePostedCommands()).containsExactly("clear_board", playCommand(branch.get(0)));
+    }
+
+    @Test
+    public void cancelsStagedCommandsOnly() {
+        List<BoardHistoryNode> main = line(root, 0, 3);
+
+        synchronizer.headMoved(root, main.get(2));
+        List<StubCommand> firstStep = new ArrayList<>(postedCommands);
+        postedCommands.clear();
+        // The engine has the first move, the others are still staged
+        firstStep.get(0).markSent();
+
+        BoardHistoryNode other = play(main.get(0), 2, 2);
+        synchronizer.headMoved(main.get(2), other);
+        assertThat(firstStep.get(0).isCancelled()).isFalse();
+        assertThat(firstStep.get(1).isCancelled()).isTrue();
+        assertThat(firstStep.get(2).isCancelled()).isTrue();
+        // Only the difference from the move the engine has
+        assertThat(takePostedCommands()).containsExactly(playCommand(other));
+    }
+
+    @Test
+    public void startsFromTheOldPositionWhenEverythingIsCancelled() {
+        List<BoardHistoryNode> main = line(root, 0, 3);
+        syncTo(main.get(0));
+
+        synchronizer.headMoved(main.get(0), main.get(2));
+        postedCommands.clear();
+
+        synchronizer.headMoved(main.get(2), main.get(1));
+        assertThat(takePostedCommands()).containsExactly(playCommand(main.get(1)));
+    }
+
+    @Test
+    public void replaysFromScratchAfterARejectedCommand() {
+        List<BoardHistoryNode> main = line(root, 0, 3);
+        syncTo(main.get(0));
+
+        synchronizer.headMoved(main.get(0), main.get(2));
+        List<StubCommand> step = new ArrayList<>(postedCommands);
+        postedCommands.clear();
+        step.get(0).answer("? illegal move", "");
+        // The move after the rejected one is dropped
+        assertThat(step.get(1).isCancelled()).isTrue();
+
+        synchronizer.headMoved(main.get(2), main.get(1));
+        assertThat(takePostedCommands()).containsExactly("clear_board", playCommand(main.get(0)), playCommand(main.get(1)));
+    }
+
+    @Test
+    public void replaysFromScratchAfterACommandWithoutResponse() {
+        List<BoardHistoryNode> main = line(root, 0, 2);
+        syncTo(main.get(0));
+
+        synchronizer.headMoved(main.get(0), main.get(1));
+        // Completed by a lost engine
+        postedCommands.get(0).answer();
+        postedCommands.clear();
+
+        synchronizer.headMoved(main.get(1), main.get(0));
+        List<StubCommand> replay = new ArrayList<>(postedCommands);
+        assertThat(takePostedCommands()).containsExactly("clear_board", playCommand(main.get(0)));
+
+        // Back in step once the replay is answered
+        replay.forEach(command -> command.answer("= ", ""));
+        synchronizer.headMoved(main.get(0), main.get(1));
+        assertThat(takePostedCommands()).containsExactly(playCommand(main.get(1)));
+    }
+}
@@ -0,0 +1,159 @@
+package featurecat.lizzie.analysis;
+
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class GeneralGtpClientTest {
+    private static final long TIMEOUT_SECONDS = 30;
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private GeneralGtpClient client;
+
+    @After
+    public void tearDown() {
+        if (client != null) {
+            client.shutdown(10, TimeUnit.SECONDS);
+        }
+    }
+
+    private GeneralGtpClient startEngine(String... options) {
+        client = new GeneralGtpClient(StandInGtpEngine.commandLine(options));
+        client.start();
+        return client;
+    }
+
+    /**
+     * @return the path of a transcript where the given command takes the given time before answering
+     */
+    private String slowCommandTranscript(String command, long millis) throws IOException {
+        File file = temporaryFolder.newFile("transcript.txt");
+        Files.write(file.toPath(), Arrays.asList("> " + command, "~ " + millis, "< = done", "<"), StandardCharsets.UTF_8);
+        return file.getPath();
+    }
+
+    private static List<String> get(GtpFuture future) throws Exception {
+        return future.get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+    }
+
+    private static void awaitCondition(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(TIMEOUT_SECONDS);
+        while (!condition.getAsBoolean()) {
+            assertThat(System.currentTimeMillis()).as("waiting time").isLessThan(deadline);
+            Thread.sleep(10);
+        }
+    }
+
+    @Test
+    public void answersCommandsWithAndWithoutIds() throws Exception {
+        startEngine("--flavor", "v2");
+
+        List<String> nameResponse = get(client.postCommand("name"));
+        assertThat(GtpCommand.isSuccessfulResponse(nameResponse)).isTrue();
+        assertThat(GtpCommand.getLineWithoutResponseHeader(nameResponse, 0).trim()).isEqualTo("Leela Zero");
+
+        List<String> numberedResponse = get(client.postCommand("42 protocol_version"));
+        assertThat(GtpCommand.parseCommandId(numberedResponse.get(0), 1)).isEqualTo(42);
+        assertThat(GtpCommand.getLineWithoutResponseHeader(numberedResponse, 0).trim()).isEqualTo("2");
+
+        List<String> unknownResponse = get(client.postCommand("no_such_command"));
+        assertThat(GtpCommand.isSuccessfulResponse(unknownResponse)).isFalse();
+        assertThat(unknownResponse.get(0)).startsWith("?");
+    }
+
+    @Test
+    public void keepsTheBoardAcrossCommands() throws Exception {
+        startEngine("--flavor", "v2");
+
+        assertThat(GtpCommand.isSuccessfulResponse(get(client.postCommand("boardsize 9")))).isTrue();
+        assertThat(GtpCommand.isSuccessfulResponse(get(client.postCommand("play b E5")))).isTrue();
+        assertThat(GtpCommand.isSuccessfulResponse(get(client.postCommand("play w E5")))).isFalse();
+        assertThat(GtpCommand.isSuccessfulResponse(get(client.postCommand("play w J9")))).isTrue();
+        // Outside of a 9x9 board
+        assertThat(GtpCommand.isSuccessfulResponse(get(client.postCommand("play b T19")))).isFalse();
+    }
+
+    @Test
+    public void streamsContinuousCommandUntilTheNextCommand() throws Exception {
+        startEngine("--flavor", "v2", "--width", "3");
+
+        List<String> lines = new CopyOnWriteArrayList<>();
+        GtpFuture analysis = client.postCommand("lz-analyze 5", true, lines::add);
+        awaitCondition(() -> lines.stream().anyMatch(line -> line.startsWith("info")));
+        assertThat(analysis.isDone()).isFalse();
+
+        List<String> nameResponse = get(client.postCommand("name"));
+        assertThat(GtpCommand.isSuccessfulResponse(nameResponse)).isTrue();
+        assertThat(analysis.isDone()).isTrue();
+
+        MoveData firstMove = LzAnalyzeLineScanner.parseFirstMove(lines.stream()
+                .filter(line -> line.startsWith("info"))
+                .findFirst()
+                .orElse(null));
+        assertThat(firstMove).isNotNull();
+    }
+
+    @Test
+    public void cancelsStagedCommandsOnly() throws Exception {
+        startEngine("--flavor", "v2", "--transcript", slowCommandTranscript("slow_command", 1000));
+
+        List<String> sentCommands = new CopyOnWriteArrayList<>();
+        client.registerGtpCommandObserver(sentCommands::add);
+
+        GtpFuture slow = client.postCommand("slow_command");
+        awaitCondition(() -> sentCommands.contains("slow_command"));
+        // Without pipelining this one stays staged until the slow command is answered
+        GtpFuture staged = client.postCommand("name");
+
+        assertThat(staged.cancel(false)).isTrue();
+        assertThat(staged.isCancelled()).isTrue();
+        assertThat(staged.isDone()).isTrue();
+        assertThat(slow.cancel(false)).isFalse();
+
+        assertThat(GtpCommand.getLineWithoutResponseHeader(get(slow), 0).trim()).isEqualTo("done");
+        assertThat(GtpCommand.isSuccessfulResponse(get(client.postCommand("version")))).isTrue();
+        assertThat(sentCommands).doesNotContain("name");
+    }
+
+    @Test
+    public void pipeliningNeedsTheProbeCommand() throws Exception {
+        // Phoenix does not know heatmap
+        startEngine("--flavor", "phoenix");
+        assertThat(client.detectPipelining()).isFalse();
+        assertThat(client.isPipelining()).isFalse();
+    }
+
+    @Test
+    public void pipelinedResponsesMatchTheirCommands() throws Exception {
+        // The stand-in takes a while on heatmap, like a network evaluation
+        startEngine("--flavor", "v2");
+        assertThat(client.detectPipelining()).isTrue();
+        assertThat(client.isPipelining()).isTrue();
+
+        List<GtpFuture> futures = new ArrayList<>();
+        for (int i = 1; i <= 200; ++i) {
+            futures.add(client.postCommand(i + (i % 2 == 0 ? " name" : " protocol_version")));
+        }
+        for (int i = 1; i <= futures.size(); ++i) {
+            List<String> response = get(futures.get(i - 1));
+            assertThat(GtpCommand.parseCommandId(response.get(0), 1)).isEqualTo(i);
+            assertThat(GtpCommand.getLineWithoutResponseHeader(response, 0).trim()).isEqualTo(i % 2 == 0 ? "Leela Zero" : "2");
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package featurecat.lizzie.analysis;
+
+import featurecat.lizzie.analysis.EngineCapabilityCache.AnalyzerKind;
+import featurecat.lizzie.analysis.EngineCapabilityCache.Capability;
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class GtpBasedAnalyzerBuilderTest {
+    private GeneralGtpClient client;
+
+    @After
+    public void tearDown() {
+        if (client != null) {
+            client.shutdown(10, TimeUnit.SECONDS);
+        }
+    }
+
+    private Capability detect(String flavor) {
+        client = new GeneralGtpClient(StandInGtpEngine.commandLine("--flavor", flavor));
+        client.start();
+        return new GtpBasedAnalyzerBuilder().setGtpClient(client).detectCapability();
+    }
+
+    @Test
+    public void detectsLeelazV2() {
+        Capability capability = detect("v2");
+
+        assertThat(capability.getEngineName()).isEqualTo("Leela Zero");
+        assertThat(capability.getAnalyzerKind()).isEqualTo(AnalyzerKind.LEELAZ_V2);
+        assertThat(capability.isPipelining()).isTrue();
+        assertThat(client.isPipelining()).isTrue();
+    }
+
+    @Test
+    public void detectsLeelazV1() {
+        Capability capability = detect("v1");
+
+        assertThat(capability.getEngineName()).isEqualTo("Leela Zero");
+        assertThat(capability.getAnalyzerKind()).isEqualTo(AnalyzerKind.LEELAZ_V1);
+    }
+
+    @Test
+    public void detectsClassicModifiedLeelaz() {
+        Capability capability = detect("classic");
+
+        assertThat(capability.getEngineName()).isEqualTo("Leela Zero");
+        assertThat(capability.getAnalyzerKind()).isEqualTo(AnalyzerKind.CLASSIC_MODIFIED_LEELAZ);
+    }
+
+    @Test
+    public void detectsPhoenix() {
+        Capability capability = detect("phoenix");
+
+        assertThat(capability.getEngineName()).isEqualTo("Leela Zero Phoenix");
+        assertThat(capability.getAnalyzerKind()).isEqualTo(AnalyzerKind.PHOENIX);
+    }
+
+    @Test
+    public void leavesTheEngineUsableAfterDetection() throws Exception {
+        detect("v2");
+
+        // The lz-analyze of the version probe must be over
+        assertThat(GtpCommand.getLineWithoutResponseHeader(client.postCommand("7 name").get(30, TimeUnit.SECONDS), 0).trim())
+                .isEqualTo("Leela Zero");
+    }
+}
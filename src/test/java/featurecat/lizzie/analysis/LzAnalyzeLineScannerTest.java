@@ -0,0 +1,101 @@
+package featurecat.lizzie.analysis;
+
+import featurecat.lizzie.rules.PointCodec;
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class LzAnalyzeLineScannerTest {
+    private static int[] points(String... names) {
+        int[] points = new int[names.length];
+        for (int i = 0; i < names.length; ++i) {
+            points[i] = PointCodec.parse(names[i]);
+        }
+        return points;
+    }
+
+    private static void assertMove(MoveData moveData, String move, int playouts, double winrate, double probability, String... variation) {
+        assertThat(moveData).isNotNull();
+        assertThat(moveData.getPoint()).isEqualTo(PointCodec.parse(move));
+        assertThat(moveData.getPlayouts()).isEqualTo(playouts);
+        assertThat(moveData.getWinrate()).isEqualTo(winrate);
+        assertThat(moveData.getProbability()).isEqualTo(probability);
+        assertThat(moveData.getVariation()).containsExactly(points(variation));
+    }
+
+    @Test
+    public void readsVersion1Line() {
+        MoveData moveData = LzAnalyzeLineScanner.parseFirstMove("info move D16 visits 7 winrate 4704 network 2305 pv D16 Q16 D4");
+
+        assertMove(moveData, "D16", 7, 47.04, 23.05, "D16", "Q16", "D4");
+    }
+
+    @Test
+    public void readsEveryMoveOfVersion2Line() {
+        List<MoveData> moves = LzAnalyzeLineScanner.parseMoves("info move D16 visits 7 winrate 4704 prior 2305 lcb 4563 order 0 pv D16 Q16 D4"
+                + " info move Q16 visits 3 winrate 4500 prior 1980 lcb 4012 order 1 pv Q16 D16");
+
+        assertThat(moves).hasSize(2);
+        assertMove(moves.get(0), "D16", 7, 47.04, 23.05, "D16", "Q16", "D4");
+        assertMove(moves.get(1), "Q16", 3, 45.0, 19.8, "Q16", "D16");
+    }
+
+    @Test
+    public void firstMoveOfVersion2LineIgnoresTheRest() {
+        MoveData moveData = LzAnalyzeLineScanner.parseFirstMove("info move D16 visits 7 winrate 4704 pv D16 info move Q16 visits 3 winrate 4500 pv Q16");
+
+        assertMove(moveData, "D16", 7, 47.04, 0.0, "D16");
+    }
+
+    @Test
+    public void skipsOrderLcbAndUnknownFields() {
+        MoveData moveData = LzAnalyzeLineScanner.parseFirstMove("info move C3 visits 10 winrate 5000 order 2 scoreMean -3.5 lcb 4800 N 1.5 utility 0.25 pv C3 D4");
+
+        assertMove(moveData, "C3", 10, 50.0, 1.5, "C3", "D4");
+    }
+
+    @Test
+    public void readsPriorAsPercentOrHundredthsOfPercent() {
+        // Older engines print the percentage times 100 without a point
+        assertThat(LzAnalyzeLineScanner.parseFirstMove("info move D4 visits 1 winrate 5000 prior 2305 pv D4").getProbability()).isEqualTo(23.05);
+        assertThat(LzAnalyzeLineScanner.parseFirstMove("info move D4 visits 1 winrate 5000 prior 23.05 pv D4").getProbability()).isEqualTo(23.05);
+        assertThat(LzAnalyzeLineScanner.parseFirstMove("info move D4 visits 1 winrate 5000 network 50 pv D4").getProbability()).isEqualTo(0.5);
+        assertThat(LzAnalyzeLineScanner.parseFirstMove("info move D4 visits 1 winrate 5000 N 0.5 pv D4").getProbability()).isEqualTo(0.5);
+        assertThat(LzAnalyzeLineScanner.parseFirstMove("info move D4 visits 1 winrate 5000 N 100.00 pv D4").getProbability()).isEqualTo(100.0);
+    }
+
+    @Test
+    public void readsPasses() {
+        MoveData moveData = LzAnalyzeLineScanner.parseFirstMove("info move pass visits 5 winrate 1000 prior 10 pv pass d4 PASS");
+
+        assertMove(moveData, "pass", 5, 10.0, 0.1, "pass", "D4", "pass");
+        assertThat(PointCodec.isPass(moveData.getPoint())).isTrue();
+    }
+
+    @Test
+    public void rejectsInvalidLines() {
+        assertThat(LzAnalyzeLineScanner.parseFirstMove(null)).isNull();
+        assertThat(LzAnalyzeLineScanner.parseMoves(null)).isNull();
+        assertThat(LzAnalyzeLineScanner.parseFirstMove("= ")).isNull();
+        assertThat(LzAnalyzeLineScanner.parseFirstMove("info move I5 visits 1 winrate 5000 pv D4")).isNull();
+        assertThat(LzAnalyzeLineScanner.parseFirstMove("info move D4 visits many winrate 5000 pv D4")).isNull();
+        assertThat(LzAnalyzeLineScanner.parseFirstMove("info move D4 visits 1 winrate 5000")).isNull();
+    }
+
+    @Test
+    public void stopsAtTheFirstInvalidBlock() {
+        List<MoveData> moves = LzAnalyzeLineScanner.parseMoves("info move D4 visits 1 winrate 5000 pv D4 Q16 info move broken");
+
+        assertThat(moves).hasSize(1);
+        assertMove(moves.get(0), "D4", 1, 50.0, 0.0, "D4", "Q16");
+    }
+
+    @Test
+    public void readsTheSameMovesAsTheFormerGrammar() {
+        for (String line : LzAnalyzeParserBenchmark.generateLines(2000, 7)) {
+            assertThat(LzAnalyzeLineScanner.parseMoves(line)).as(line).isEqualTo(LzAnalyzeParserBenchmark.parseWithParboiled(line));
+        }
+    }
+}
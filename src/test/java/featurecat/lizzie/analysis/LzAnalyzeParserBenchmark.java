@@ -0,0 +1,261 @@
+package featurecat.lizzie.analysis;
+
+import com.google.common.collect.Streams;
+import org.eclipse.collections.api.list.MutableList;
+import org.eclipse.collections.api.map.MutableMap;
+import org.eclipse.collections.impl.factory.Lists;
+import org.eclipse.collections.impl.factory.Maps;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.parboiled.BaseParser;
+import org.parboiled.Parboiled;
+import org.parboiled.Rule;
+import org.parboiled.parserunners.AbstractParseRunner;
+import org.parboiled.parserunners.ReportingParseRunner;
+import org.parboiled.support.ParsingResult;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Compares {@link LzAnalyzeLineScanner} with the parboiled grammar it replaced, on lines like those of a 19x19 game.
+ * Scores are per line. {@link LzAnalyzeLineScannerTest} checks that both read the same moves. Run main from the test
+ * class path.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class LzAnalyzeParserBenchmark {
+    private static final int LINE_COUNT = 1000;
+
+    private List<String> lines;
+
+    /**
+     * The parboiled grammar formerly used by the analyzers, kept only as the baseline.
+     */
+    static class EngineOutputLineParser extends BaseParser<Object> {
+        Rule EngineLine() {
+            return Sequence(
+                    MoveData()
+                    , ZeroOrMore(
+                            Sequence(Spaces(), MoveData())
+                    )
+            );
+        }
+
+        // info move D16 visits 7 winrate 4704 pv D16 Q16 D4
+        Rule MoveData() {
+            return Sequence(
+                    String("info"), pushInitialValueMap()
+                    , Spaces()
+                    , String("move")
+                    , Spaces()
+                    , Move(), saveMatchToValueMap("MOVE")
+                    , Spaces()
+                    , String("visits")
+                    , Spaces()
+                    , IntNumber(), saveMatchToValueMap("CALCULATION")
+                    , Spaces()
+                    , String("winrate")
+                    , Spaces()
+                    , DoubleNumber(), saveMatchToValueMap("VALUE")
+                    , Optional(
+                            Spaces()
+                            , FirstOf(String("network"), String("N"))
+                            , Spaces()
+                            , DoubleNumber(), saveMatchToValueMap("POLICY")
+                    )
+                    , Optional(
+                            Spaces()
+                            , String("order")
+                            , Spaces()
+                            , DoubleNumber(), saveMatchToValueMap("ORDER")
+                    )
+                    , Spaces()
+                    , String("pv"), saveAttrToValueMap("PV", Lists.mutable.empty())
+                    , ZeroOrMore(Sequence(Spaces(), Move(), pushMatchToList("PV")))
+            );
+        }
+
+        Rule Move() {
+            return FirstOf(Coord(), IgnoreCase("pass"));
+        }
+
+        Rule Coord() {
+            return Sequence(XCoord(), YCoord());
+        }
+
+        Rule XCoord() {
+            return AnyOf("ABCDEFGHJKLMNOPQRSTabcdefghjklmnopqrst");
+        }
+
+        Rule YCoord() {
+            return IntNumber();
+        }
+
+        Rule DoubleNumber() {
+            return Sequence(
+                    Optional(AnyOf("+-")),
+                    OneOrMore(Digit()),
+                    Optional(Ch('.'), ZeroOrMore(Digit()))
+            );
+        }
+
+        Rule IntNumber() {
+            return Sequence(Optional(AnyOf("+-")), OneOrMore(Digit()));
+        }
+
+        Rule Digit() {
+            return CharRange('0', '9');
+        }
+
+        Rule Spaces() {
+            return OneOrMore(SpaceChar());
+        }
+
+        Rule SpaceChar() {
+            return AnyOf(" \t\r\n");
+        }
+
+        boolean pushInitialValueMap() {
+            MutableMap<String, Object> valueMap = Maps.mutable.empty();
+            push(valueMap);
+
+            return true;
+        }
+
+        boolean saveMatchToValueMap(String key) {
+            return saveAttrToValueMap(key, match());
+        }
+
+        boolean saveAttrToValueMap(String key, Object value) {
+            MutableMap<String, Object> valueMap = (MutableMap<String, Object>) peek();
+            valueMap.put(key, value);
+
+            return true;
+        }
+
+        boolean pushMatchToList(String listKey) {
+            return pushToList(listKey, match());
+        }
+
+        boolean pushToList(String listKey, String value) {
+            MutableMap<String, Object> valueMap = (MutableMap<String, Object>) peek();
+            MutableList<String> list = (MutableList<String>) valueMap.get(listKey);
+            list.add(value);
+
+            return true;
+        }
+    }
+
+    private static final EngineOutputLineParser parser = Parboiled.createParser(EngineOutputLineParser.class);
+    private static final AbstractParseRunner<?> runner = new ReportingParseRunner(parser.EngineLine());
+
+    static MutableList<MoveData> parseWithParboiled(String line) {
+        ParsingResult<?> result = runner.run(line);
+        if (!result.matched) {
+            return null;
+        }
+
+        return Streams.stream(result.valueStack)
+                .map(o -> {
+                    MutableMap<String, Object> data = (MutableMap<String, Object>) o;
+
+                    MutableList<String> variation = (MutableList<String>) data.get("PV");
+                    String coordinate = (String) data.get("MOVE");
+                    int playouts = Integer.parseInt((String) data.get("CALCULATION"));
+                    double winrate = Double.parseDouble((String) data.get("VALUE")) / 100.0;
+                    String policy = (String) data.get("POLICY");
+                    double probability = policy == null ? 0.0
+                            : policy.indexOf('.') >= 0 ? Double.parseDouble(policy) : Double.parseDouble(policy) / 100.0;
+
+                    return new MoveData(coordinate, playouts, winrate, probability, variation);
+                })
+                .collect(Collectors.toCollection(Lists.mutable::empty))
+                .reverseThis()
+                ;
+    }
+
+    /**
+     * @return random lines of version 2 engines, with both kinds of policy values and a few passes
+     */
+    static List<String> generateLines(int count, long seed) {
+        Random random = new Random(seed);
+        String columns = "ABCDEFGHJKLMNOPQRST";
+        List<String> lines = new ArrayList<>(count);
+        for (int i = 0; i < count; ++i) {
+            StringBuilder line = new StringBuilder();
+            int moveCount = 1 + random.nextInt(20);
+            for (int order = 0; order < moveCount; ++order) {
+                if (order > 0) {
+                    line.append(' ');
+                }
+                line.append("info move ").append(columns.charAt(random.nextInt(19))).append(1 + random.nextInt(19))
+                        .append(" visits ").append(random.nextInt(50000))
+                        .append(" winrate ").append(random.nextInt(10001))
+                        .append(" network ").append(random.nextBoolean() ? String.valueOf(random.nextInt(10001)) : String.format(Locale.ROOT, "%.2f", random.nextDouble() * 100))
+                        .append(" order ").append(order)
+                        .append(" pv");
+                int pvLength = 1 + random.nextInt(25);
+                for (int j = 0; j < pvLength; ++j) {
+                    line.append(' ');
+                    if (random.nextInt(50) == 0) {
+                        line.append("pass");
+                    } else {
+                        line.append(columns.charAt(random.nextInt(19))).append(1 + random.nextInt(19));
+                    }
+                }
+            }
+            lines.add(line.toString());
+        }
+        return lines;
+    }
+
+    @Setup
+    public void setUp() {
+        lines = generateLines(LINE_COUNT, 42);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(LINE_COUNT)
+    public void parboiled(Blackhole blackhole) {
+        for (String line : lines) {
+            blackhole.consume(parseWithParboiled(line));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(LINE_COUNT)
+    public void scanner(Blackhole blackhole) {
+        for (String line : lines) {
+            blackhole.consume(LzAnalyzeLineScanner.parseMoves(line));
+        }
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(LzAnalyzeParserBenchmark.class.getSimpleName())
+                .build()
+        ).run();
+    }
+}
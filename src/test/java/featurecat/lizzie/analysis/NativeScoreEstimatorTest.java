@@ -0,0 +1,74 @@
+package featurecat.lizzie.analysis;
+
+import featurecat.lizzie.rules.BitBoard;
+import featurecat.lizzie.rules.Stone;
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class NativeScoreEstimatorTest {
+    private static final double KOMI = 6.5;
+
+    /**
+     * Rows are y from the top, columns are x. X is black, O is white, any other character is empty.
+     */
+    private static BitBoard position(String... rows) {
+        int boardSize = rows.length;
+        Stone[] stones = new Stone[boardSize * boardSize];
+        for (int y = 0; y < boardSize; ++y) {
+            for (int x = 0; x < boardSize; ++x) {
+                char c = rows[y].charAt(x);
+                stones[x * boardSize + y] = c == 'X' ? Stone.BLACK : c == 'O' ? Stone.WHITE : Stone.EMPTY;
+            }
+        }
+        return BitBoard.of(stones, boardSize);
+    }
+
+    @Test
+    public void whiteStonesInsideBensonAliveGroupAreDeadAndCountedOnce() {
+        // The black group has two eyes, the first column and the third one, so it is alive by Benson's algorithm.
+        // The white stones in the first column support each other enough to pass the reach test on their own.
+        BitBoard bitBoard = position(
+                ".XXX.....",
+                ".X.X.....",
+                "OX.X.....",
+                ".X.X.....",
+                "OX.X.....",
+                ".X.X.....",
+                "OX.X.....",
+                ".X.X.....",
+                ".X.X....."
+        );
+        assertThat(bitBoard.getUnconditionallyAlive(Stone.BLACK).cardinality()).isEqualTo(19);
+
+        DetailedScoreEstimator.DetailedScore score = NativeScoreEstimator.estimateDetailedScore(bitBoard, 0, 0, KOMI);
+
+        assertThat(score.getWhiteDeadCount()).isEqualTo(3);
+        assertThat(score.getBlackDeadCount()).isEqualTo(0);
+        assertThat(score.getWhiteTerritoryCount()).isEqualTo(0);
+        assertThat(score.getBlackTerritoryCount()).isEqualTo(81 - 19);
+        assertThat(score.getScore()).isEqualTo(81 - KOMI);
+    }
+
+    @Test
+    public void separateGroupsSplitTheBoard() {
+        BitBoard bitBoard = position(
+                "..X.O....",
+                "..X.O....",
+                "..X.O....",
+                "..X.O....",
+                "..X.O....",
+                "..X.O....",
+                "..X.O....",
+                "..X.O....",
+                "..X.O...."
+        );
+
+        DetailedScoreEstimator.DetailedScore score = NativeScoreEstimator.estimateDetailedScore(bitBoard, 0, 0, KOMI);
+
+        assertThat(score.getBlackDeadCount()).isEqualTo(0);
+        assertThat(score.getWhiteDeadCount()).isEqualTo(0);
+        assertThat(score.getBlackTerritoryCount()).isEqualTo(18);
+        assertThat(score.getWhiteTerritoryCount()).isEqualTo(36);
+    }
+}
@@ -0,0 +1,251 @@
+package featurecat.lizzie.analysis;
+
+import org.apache.logging.log4j.Level;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.core.LogEvent;
+import org.apache.logging.log4j.core.LoggerContext;
+import org.apache.logging.log4j.core.appender.AbstractAppender;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class SocketGtpClientTest {
+    private static final long TIMEOUT_SECONDS = 30;
+    private static final String HOST = "localhost";
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private int port;
+    private Process engine;
+    private SocketGtpClient client;
+    private final List<String> loggedErrors = new CopyOnWriteArrayList<>();
+    private AbstractAppender errorAppender;
+
+    @Before
+    public void setUp() throws IOException {
+        try (ServerSocket serverSocket = new ServerSocket(0)) {
+            port = serverSocket.getLocalPort();
+        }
+
+        errorAppender = new AbstractAppender("SocketGtpClientTest errors", null, null) {
+            @Override
+            public void append(LogEvent event) {
+                if (event.getLevel().isMoreSpecificThan(Level.ERROR)) {
+                    loggedErrors.add(event.getMessage().getFormattedMessage());
+                }
+            }
+        };
+        errorAppender.start();
+        ((LoggerContext) LogManager.getContext(false)).getRootLogger().addAppender(errorAppender);
+    }
+
+    @After
+    public void tearDown() {
+        if (client != null) {
+            client.shutdown(10, TimeUnit.SECONDS);
+        }
+        stopEngine();
+
+        ((LoggerContext) LogManager.getContext(false)).getRootLogger().removeAppender(errorAppender);
+        errorAppender.stop();
+    }
+
+    /**
+     * Starts the stand-in engine on the test port and waits until it takes connections.
+     */
+    private void startEngine(String... options) throws Exception {
+        List<String> commandLine = new ArrayList<>(StandInGtpEngine.commandLine(options));
+        commandLine.add("--listen");
+        commandLine.add(String.valueOf(port));
+        engine = new ProcessBuilder(commandLine)
+                .redirectOutput(ProcessBuilder.Redirect.INHERIT)
+                .redirectError(ProcessBuilder.Redirect.INHERIT)
+                .start();
+
+        long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(TIMEOUT_SECONDS);
+        for (; ; ) {
+            // The stand-in serves one connection at a time and goes back to accepting once this one is closed
+            try (Socket probe = new Socket(HOST, port)) {
+                return;
+            } catch (IOException e) {
+                assertThat(System.currentTimeMillis()).as("waiting time").isLessThan(deadline);
+                Thread.sleep(50);
+            }
+        }
+    }
+
+    /**
+     * Kills the stand-in engine, which drops the connection without a word.
+     */
+    private void stopEngine() {
+        if (engine != null) {
+            engine.destroyForcibly();
+            try {
+                engine.waitFor(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            engine = null;
+        }
+    }
+
+    /**
+     * @return the path of a transcript where the given command takes the given time before answering
+     */
+    private String slowCommandTranscript(String command, long millis) throws IOException {
+        File file = temporaryFolder.newFile("transcript.txt");
+        Files.write(file.toPath(), Arrays.asList("> " + command, "~ " + millis, "< = done", "<"), StandardCharsets.UTF_8);
+        return file.getPath();
+    }
+
+    /**
+     * @return the path of a transcript where the given command answers a header and many lines, then hangs
+     */
+    private String hangingResponseTranscript(String command, int lineCount) throws IOException {
+        File file = temporaryFolder.newFile("transcript.txt");
+        List<String> lines = new ArrayList<>();
+        lines.add("> " + command);
+        lines.add("< = line 0");
+        lines.addAll(IntStream.rangeClosed(1, lineCount).mapToObj(i -> "< line " + i).collect(Collectors.toList()));
+        lines.add("~ 60000");
+        Files.write(file.toPath(), lines, StandardCharsets.UTF_8);
+        return file.getPath();
+    }
+
+    private static List<String> get(GtpFuture future) throws Exception {
+        return future.get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+    }
+
+    private static void awaitCondition(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(TIMEOUT_SECONDS);
+        while (!condition.getAsBoolean()) {
+            assertThat(System.currentTimeMillis()).as("waiting time").isLessThan(deadline);
+            Thread.sleep(10);
+        }
+    }
+
+    @Test
+    public void reconnectsAndSendsStagedCommands() throws Exception {
+        startEngine("--flavor", "v2");
+        client = new SocketGtpClient(HOST, port);
+        CountDownLatch reconnected = new CountDownLatch(1);
+        client.registerReconnectObserver(reconnected::countDown);
+        client.start();
+
+        assertThat(GtpCommand.isSuccessfulResponse(get(client.postCommand("boardsize 9")))).isTrue();
+        assertThat(reconnected.getCount()).isEqualTo(1);
+
+        stopEngine();
+        awaitCondition(() -> !client.isRunning());
+        // Staged while the connection is down
+        GtpFuture staged = client.postCommand("play b E5");
+
+        startEngine("--flavor", "v2");
+        assertThat(reconnected.await(TIMEOUT_SECONDS, TimeUnit.SECONDS)).isTrue();
+        assertThat(GtpCommand.isSuccessfulResponse(get(staged))).isTrue();
+        // The engine behind the new connection starts over on 19x19, so this fits
+        assertThat(GtpCommand.isSuccessfulResponse(get(client.postCommand("play w T19")))).isTrue();
+    }
+
+    @Test
+    public void completesTheRunningCommandWhenTheConnectionIsLost() throws Exception {
+        startEngine("--flavor", "v2", "--transcript", slowCommandTranscript("slow_command", 60000));
+        client = new SocketGtpClient(HOST, port);
+        List<String> sentCommands = new CopyOnWriteArrayList<>();
+        client.registerGtpCommandObserver(sentCommands::add);
+        client.start();
+
+        GtpFuture slow = client.postCommand("slow_command");
+        awaitCondition(() -> sentCommands.contains("slow_command"));
+        assertThat(slow.isDone()).isFalse();
+
+        stopEngine();
+        assertThat(GtpCommand.isSuccessfulResponse(get(slow))).isFalse();
+    }
+
+    @Test
+    public void linesOfTheLostConnectionDoNotReachCommandsSentAfterReconnect() throws Exception {
+        startEngine("--flavor", "v2", "--transcript", hangingResponseTranscript("spew", 100));
+        client = new SocketGtpClient(HOST, port);
+        CountDownLatch reconnected = new CountDownLatch(1);
+        client.registerReconnectObserver(reconnected::countDown);
+        // Holds the stdout lane at the response header, so the rest of the response is still waiting when the
+        // connection is lost
+        CountDownLatch headerReached = new CountDownLatch(1);
+        CountDownLatch connectionLost = new CountDownLatch(1);
+        client.registerStdoutLineConsumer(line -> {
+            if (line.startsWith("= line 0")) {
+                headerReached.countDown();
+                try {
+                    connectionLost.await(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        });
+        client.start();
+
+        GtpFuture spew = client.postCommand("spew");
+        assertThat(headerReached.await(TIMEOUT_SECONDS, TimeUnit.SECONDS)).isTrue();
+        // Lets the rest of the response arrive before the engine goes away
+        Thread.sleep(200);
+        stopEngine();
+        awaitCondition(() -> !client.isRunning());
+        connectionLost.countDown();
+
+        List<String> spewResponse = get(spew);
+        // Lines keep their terminator
+        assertThat(spewResponse.get(0)).startsWith("= line 0");
+
+        startEngine("--flavor", "v2");
+        assertThat(reconnected.await(TIMEOUT_SECONDS, TimeUnit.SECONDS)).isTrue();
+        List<String> nameResponse = get(client.postCommand("name"));
+        assertThat(nameResponse.get(0)).startsWith("= Leela Zero");
+        assertThat(nameResponse).noneMatch(line -> line.startsWith("line"));
+        assertThat(loggedErrors).isEmpty();
+    }
+
+    @Test
+    public void dropsAConnectionThatStopsAnswering() throws Exception {
+        // The first keepalive hangs well past its timeout, the engine answers again afterwards
+        startEngine("--flavor", "v2", "--transcript", slowCommandTranscript("name", 5000));
+        client = new SocketGtpClient(HOST, port, 200, 500);
+        List<String> sentCommands = new CopyOnWriteArrayList<>();
+        client.registerGtpCommandObserver(sentCommands::add);
+        CountDownLatch reconnected = new CountDownLatch(1);
+        client.registerReconnectObserver(reconnected::countDown);
+        client.start();
+
+        // Sent on its own once the connection is idle
+        awaitCondition(() -> sentCommands.contains("name"));
+        assertThat(reconnected.await(TIMEOUT_SECONDS, TimeUnit.SECONDS)).isTrue();
+
+        // Connections made while the engine still hangs may be dropped as well, until it serves the latest one
+        long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(TIMEOUT_SECONDS);
+        while (!GtpCommand.isSuccessfulResponse(get(client.postCommand("version")))) {
+            assertThat(System.currentTimeMillis()).as("waiting time").isLessThan(deadline);
+        }
+        assertThat(client.isRunning()).isTrue();
+    }
+}
@@ -0,0 +1,584 @@
+package featurecat.lizzie.analysis;
+
+import featurecat.lizzie.rules.BitBoard;
+import featurecat.lizzie.rules.BoardGeometry;
+import featurecat.lizzie.rules.PointMask;
+import featurecat.lizzie.rules.Stone;
+import org.apache.commons.lang3.StringUtils;
+
+import java.io.BufferedReader;
+import java.io.FileOutputStream;
+import java.io.FileDescriptor;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A stand-in GTP engine for the client tests, load tests and trying the client without a real engine or GPU. It
+ * speaks enough GTP to pass the analyzer detection of {@link GtpBasedAnalyzerBuilder}, keeps a real board for legal
+ * candidate moves and emits synthetic analysis in the output format of one of the supported engines:
+ * <ul>
+ * <li>v2: Leela Zero with lz-analyze, all candidates in one info line</li>
+ * <li>v1: Leela Zero with lz-analyze, one info line per candidate</li>
+ * <li>classic: modified Leela Zero pondering on time_left, ~begin/~end blocks on stderr</li>
+ * <li>phoenix: Leela Zero Phoenix, info lines on stderr all the time</li>
+ * </ul>
+ * A recorded transcript may be replayed instead: each line starting with "&gt; " is a command, the lines after it are
+ * the reply, "&lt; " for stdout, "! " for stderr and "~ " followed by milliseconds for a pause. Commands that match
+ * the next command of the transcript get the recorded reply, the others the synthetic one.
+ * <p>
+ * Options: --flavor v2|v1|classic|phoenix, --width candidates, --pv length, --rate reports per second (overrides the
+ * lz-analyze interval), --visits visits added per report, --delay startup milliseconds, --seed random seed,
+ * --transcript file, --listen port to serve GTP on a TCP port instead of stdin/stdout, one connection at a time.
+ */
+public class StandInGtpEngine {
+    public enum Flavor {
+        LEELAZ_V2("v2", "Leela Zero"),
+        LEELAZ_V1("v1", "Leela Zero"),
+        CLASSIC("classic", "Leela Zero"),
+        PHOENIX("phoenix", "Leela Zero Phoenix");
+
+        private final String option;
+        private final String engineName;
+
+        Flavor(String option, String engineName) {
+            this.option = option;
+            this.engineName = engineName;
+        }
+
+        public static Flavor ofOption(String option) {
+            for (Flavor flavor : values()) {
+                if (flavor.option.equalsIgnoreCase(option)) {
+                    return flavor;
+                }
+            }
+            throw new IllegalArgumentException("Unknown flavor: " + option);
+        }
+    }
+
+    private static final List<String> COMMON_COMMANDS = Arrays.asList(
+            "protocol_version", "name", "version", "known_command", "list_commands", "quit", "boardsize", "clear_board"
+            , "komi", "play", "genmove", "undo", "time_settings", "time_left"
+    );
+    private static final int DEFAULT_ANALYZE_INTERVAL = 10;
+    // Stands in for one network evaluation, long enough for the pipelining probe to send its next command
+    private static final long HEATMAP_MILLIS = 100;
+
+    private final Flavor flavor;
+    private final int width;
+    private final int pvLength;
+    private final double rate;
+    private final int visitStep;
+    private final Random random;
+    private final Deque<List<String>> transcript;
+
+    private volatile PrintStream stdout;
+    private final PrintStream stderr;
+    private final ScheduledExecutorService reporter;
+    private ScheduledFuture<?> analysis;
+    // Whether the running analysis is the response of lz-analyze, which ends with a blank line
+    private boolean continuousAnalysis;
+
+    private BoardGeometry geometry;
+    private BitBoard board;
+    private Stone toPlay;
+    private final Deque<BitBoard> history;
+
+    public StandInGtpEngine(Flavor flavor, int width, int pvLength, double rate, int visitStep, long seed, List<String> transcriptLines) {
+        this.flavor = flavor;
+        this.width = width;
+        this.pvLength = pvLength;
+        this.rate = rate;
+        this.visitStep = visitStep;
+        random = new Random(seed);
+        transcript = parseTranscript(transcriptLines);
+
+        stdout = new PrintStream(new FileOutputStream(FileDescriptor.out), false);
+        stderr = new PrintStream(new FileOutputStream(FileDescriptor.err), false);
+        reporter = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "stand-in-reporter");
+            thread.setDaemon(true);
+            return thread;
+        });
+        history = new ArrayDeque<>();
+        resetBoard(19);
+    }
+
+    /**
+     * Builds the command line that runs the stand-in engine with the class path of the current JVM, to be handed to
+     * {@link GtpClientBuilder#setCommandLine(List)}.
+     *
+     * @param options the engine options
+     * @return the command line
+     */
+    public static List<String> commandLine(String... options) {
+        List<String> commandLine = new ArrayList<>();
+        commandLine.add(Paths.get(System.getProperty("java.home"), "bin", "java").toString());
+        commandLine.add("-cp");
+        commandLine.add(System.getProperty("java.class.path"));
+        commandLine.add(StandInGtpEngine.class.getName());
+        commandLine.addAll(Arrays.asList(options));
+        return commandLine;
+    }
+
+    private static Deque<List<String>> parseTranscript(List<String> lines) {
+        Deque<List<String>> entries = new ArrayDeque<>();
+        List<String> entry = null;
+        for (String line : lines) {
+            if (line.startsWith("> ")) {
+                entry = new ArrayList<>();
+                entry.add(line.substring(2).trim());
+                entries.add(entry);
+            } else if (entry != null && (line.startsWith("< ") || line.startsWith("! ") || line.startsWith("~ ")
+                    || line.equals("<") || line.equals("!"))) {
+                entry.add(line);
+            }
+        }
+        return entries;
+    }
+
+    private void resetBoard(int boardSize) {
+        geometry = BoardGeometry.of(boardSize);
+        board = new BitBoard(boardSize);
+        toPlay = Stone.BLACK;
+        history.clear();
+    }
+
+    public void run() throws IOException {
+        run(System.in);
+        reporter.shutdownNow();
+    }
+
+    /**
+     * Serves GTP over TCP like "socat TCP-LISTEN:port,fork EXEC:engine" would, with a fresh board per connection.
+     * Analysis output that the real engines write to stderr stays on the process stderr.
+     *
+     * @param port the port to listen on
+     */
+    public void listen(int port) throws IOException {
+        try (ServerSocket serverSocket = new ServerSocket(port)) {
+            for (; ; ) {
+                try (Socket socket = serverSocket.accept()) {
+                    socket.setTcpNoDelay(true);
+                    stdout = new PrintStream(socket.getOutputStream(), false, StandardCharsets.UTF_8.name());
+                    resetBoard(geometry.getSize());
+                    run(socket.getInputStream());
+                    stopAnalysis();
+                } catch (IOException e) {
+                    stopAnalysis();
+                    writeLine(stderr, "Connection lost: " + e.getMessage());
+                }
+            }
+        } finally {
+            reporter.shutdownNow();
+        }
+    }
+
+    private void run(InputStream input) throws IOException {
+        if (flavor == Flavor.PHOENIX) {
+            // Phoenix ponders on its own and reports on stderr
+            startAnalysis(DEFAULT_ANALYZE_INTERVAL, false);
+        }
+
+        BufferedReader reader = new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8));
+        String line;
+        while ((line = reader.readLine()) != null) {
+            line = line.trim();
+            if (line.isEmpty() || line.startsWith("#")) {
+                continue;
+            }
+
+            String[] tokens = line.split("\\s+");
+            String id = "";
+            int commandIndex = 0;
+            if (StringUtils.isNumeric(tokens[0])) {
+                id = tokens[0];
+                commandIndex = 1;
+                if (tokens.length == 1) {
+                    continue;
+                }
+            }
+            String[] arguments = Arrays.copyOfRange(tokens, commandIndex + 1, tokens.length);
+
+            // Any command interrupts an ongoing analysis
+            stopAnalysis();
+            String command = tokens[commandIndex].toLowerCase();
+            String commandWithArguments = String.join(" ", Arrays.copyOfRange(tokens, commandIndex, tokens.length));
+            if (!replayTranscript(id, commandWithArguments) && !handleCommand(id, command, arguments)) {
+                break;
+            }
+        }
+    }
+
+    private boolean replayTranscript(String id, String commandWithArguments) {
+        List<String> entry = transcript.peek();
+        if (entry == null || !entry.get(0).equals(commandWithArguments)) {
+            return false;
+        }
+        transcript.poll();
+
+        for (String line : entry.subList(1, entry.size())) {
+            String text = line.length() > 2 ? line.substring(2) : "";
+            if (line.startsWith("~")) {
+                try {
+                    Thread.sleep(Long.parseLong(text.trim()));
+                } catch (InterruptedException | NumberFormatException e) {
+                    // Skip the pause
+                }
+            } else if (line.startsWith("!")) {
+                writeLine(stderr, text);
+            } else if (text.startsWith("=") || text.startsWith("?")) {
+                writeLine(stdout, text.charAt(0) + id + text.substring(1));
+            } else {
+                writeLine(stdout, text);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return false to quit
+     */
+    private boolean handleCommand(String id, String command, String[] arguments) {
+        switch (command) {
+            case "protocol_version":
+                reply(id, "2");
+                break;
+            case "name":
+                reply(id, flavor.engineName);
+                break;
+            case "version":
+                reply(id, "0.16");
+                break;
+            case "known_command":
+                reply(id, String.valueOf(arguments.length > 0 && listCommands().contains(arguments[0])));
+                break;
+            case "list_commands":
+                reply(id, String.join("\n", listCommands()));
+                break;
+            case "quit":
+                reply(id, "");
+                return false;
+            case "boardsize":
+                try {
+                    resetBoard(Integer.parseInt(arguments[0]));
+                    reply(id, "");
+                } catch (RuntimeException e) {
+                    fail(id, "unacceptable size");
+                }
+                break;
+            case "clear_board":
+                resetBoard(geometry.getSize());
+                reply(id, "");
+                break;
+            case "play":
+                if (arguments.length < 2 || !play(parseColor(arguments[0]), arguments[1])) {
+                    fail(id, "illegal move");
+                } else {
+                    reply(id, "");
+                }
+                break;
+            case "genmove": {
+                Stone color = arguments.length > 0 ? parseColor(arguments[0]) : toPlay;
+                int[] candidates = pickCandidates(color, 1);
+                String move = candidates.length == 0 ? "pass" : nameOf(candidates[0]);
+                play(color, move);
+                reply(id, move);
+                break;
+            }
+            case "undo":
+                if (history.isEmpty()) {
+                    fail(id, "cannot undo");
+                } else {
+                    board = history.pop();
+                    toPlay = toPlay.opposite();
+                    reply(id, "");
+                }
+                break;
+            case "time_left":
+                reply(id, "");
+                if (flavor == Flavor.CLASSIC) {
+                    startAnalysis(DEFAULT_ANALYZE_INTERVAL, false);
+                }
+                break;
+            case "lz-analyze":
+                if (flavor == Flavor.LEELAZ_V1 || flavor == Flavor.LEELAZ_V2) {
+                    writeLine(stdout, "=" + id);
+                    startAnalysis(parseInterval(arguments), true);
+                } else {
+                    fail(id, "unknown command");
+                }
+                break;
+            case "heatmap":
+                if (flavor == Flavor.PHOENIX) {
+                    fail(id, "unknown command");
+                    break;
+                }
+                try {
+                    Thread.sleep(HEATMAP_MILLIS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                writeLine(stderr, "heatmap of " + geometry.getSize() + "x" + geometry.getSize());
+                reply(id, "");
+                break;
+            case "komi":
+            case "time_settings":
+                reply(id, "");
+                break;
+            default:
+                fail(id, "unknown command");
+                break;
+        }
+        return true;
+    }
+
+    private List<String> listCommands() {
+        List<String> commands = new ArrayList<>(COMMON_COMMANDS);
+        if (flavor != Flavor.PHOENIX) {
+            commands.add("heatmap");
+        }
+        if (flavor == Flavor.LEELAZ_V1 || flavor == Flavor.LEELAZ_V2) {
+            commands.add("lz-analyze");
+        }
+        return commands;
+    }
+
+    private static Stone parseColor(String color) {
+        return StringUtils.startsWithIgnoreCase(color, "w") ? Stone.WHITE : Stone.BLACK;
+    }
+
+    private static int parseInterval(String[] arguments) {
+        for (String argument : arguments) {
+            if (StringUtils.isNumeric(argument)) {
+                return Integer.parseInt(argument);
+            }
+        }
+        return DEFAULT_ANALYZE_INTERVAL;
+    }
+
+    private boolean play(Stone color, String move) {
+        BitBoard before = board.copy();
+        if (StringUtils.equalsIgnoreCase(move, "pass")) {
+            board.pass();
+        } else {
+            int[] coordinates = geometry.convertNameToCoordinates(move.toUpperCase());
+            if (!geometry.isValid(coordinates)) {
+                return false;
+            }
+            int index = geometry.getIndex(coordinates[0], coordinates[1]);
+            if (!board.getLegalMoves(color).contains(index)) {
+                return false;
+            }
+            board.play(index, color);
+        }
+
+        history.push(before);
+        toPlay = color.opposite();
+        return true;
+    }
+
+    private String nameOf(int index) {
+        return geometry.convertCoordinatesToName(geometry.getX(index), geometry.getY(index));
+    }
+
+    /**
+     * @return up to count distinct legal points in random order
+     */
+    private int[] pickCandidates(Stone color, int count) {
+        int[] legal = board.getLegalMoves(color).toIndexes();
+        for (int i = legal.length - 1; i > 0; --i) {
+            int j = random.nextInt(i + 1);
+            int swap = legal[i];
+            legal[i] = legal[j];
+            legal[j] = swap;
+        }
+        return Arrays.copyOf(legal, Math.min(count, legal.length));
+    }
+
+    private synchronized void startAnalysis(int intervalCentiseconds, boolean continuousResponse) {
+        int[] candidates = pickCandidates(toPlay, width);
+        List<List<String>> variations = new ArrayList<>(candidates.length);
+        PointMask empty = board.getEmpty();
+        for (int candidate : candidates) {
+            List<String> variation = new ArrayList<>(pvLength);
+            variation.add(nameOf(candidate));
+            int[] followUps = empty.copy().clear(candidate).toIndexes();
+            for (int i = 1; i < pvLength && i <= followUps.length; ++i) {
+                variation.add(nameOf(followUps[random.nextInt(followUps.length)]));
+            }
+            variations.add(variation);
+        }
+        int[] winrates = new int[candidates.length];
+        int[] priors = new int[candidates.length];
+        for (int i = 0; i < candidates.length; ++i) {
+            winrates[i] = 3000 + random.nextInt(4000);
+            priors[i] = 10000 / (i + 2);
+        }
+
+        long periodMillis = rate > 0 ? Math.max(1, (long) (1000 / rate)) : Math.max(1, intervalCentiseconds * 10L);
+        int[] reportCount = {0};
+        analysis = reporter.scheduleAtFixedRate(() -> {
+            synchronized (this) {
+                // A report must not follow the end of the lz-analyze response
+                if (analysis == null) {
+                    return;
+                }
+                ++reportCount[0];
+                report(candidates, variations, winrates, priors, reportCount[0]);
+            }
+        }, periodMillis, periodMillis, TimeUnit.MILLISECONDS);
+        continuousAnalysis = continuousResponse;
+    }
+
+    private synchronized void stopAnalysis() {
+        if (analysis != null) {
+            analysis.cancel(false);
+            analysis = null;
+            if (continuousAnalysis) {
+                // Ends the response of lz-analyze
+                writeLine(stdout, "");
+            }
+        }
+    }
+
+    private void report(int[] candidates, List<List<String>> variations, int[] winrates, int[] priors, int reportCount) {
+        int totalVisits = reportCount * visitStep;
+        // Earlier candidates get more visits, like a search converging on them
+        int[] visits = new int[candidates.length];
+        int remaining = totalVisits;
+        for (int i = 0; i < candidates.length; ++i) {
+            visits[i] = i == candidates.length - 1 ? remaining : remaining / 2;
+            remaining -= visits[i];
+        }
+
+        switch (flavor) {
+            case LEELAZ_V2:
+            case PHOENIX: {
+                StringBuilder line = new StringBuilder();
+                for (int i = 0; i < candidates.length; ++i) {
+                    if (i > 0) {
+                        line.append(' ');
+                    }
+                    line.append("info move ").append(variations.get(i).get(0))
+                            .append(" visits ").append(visits[i])
+                            .append(" winrate ").append(winrates[i])
+                            .append(" network ").append(priors[i])
+                            .append(" order ").append(flavor == Flavor.PHOENIX ? candidates.length - 1 - i : i)
+                            .append(" pv ").append(String.join(" ", variations.get(i)));
+                }
+                writeLine(flavor == Flavor.PHOENIX ? stderr : stdout, line.toString());
+                break;
+            }
+            case LEELAZ_V1:
+                for (int i = 0; i < candidates.length; ++i) {
+                    writeLine(stdout, "info move " + variations.get(i).get(0) + " visits " + visits[i]
+                            + " winrate " + winrates[i] + " network " + priors[i]
+                            + " pv " + String.join(" ", variations.get(i)));
+                }
+                break;
+            case CLASSIC: {
+                StringBuilder block = new StringBuilder("~begin\n");
+                for (int i = 0; i < candidates.length; ++i) {
+                    block.append(String.format("%4s -> %7d (V: %5.2f%%) (N: %5.2f%%) PV: %s%n"
+                            , variations.get(i).get(0), visits[i], winrates[i] / 100.0, priors[i] / 100.0
+                            , String.join(" ", variations.get(i))));
+                }
+                block.append("~end");
+                writeLine(stderr, block.toString());
+                break;
+            }
+        }
+    }
+
+    private void reply(String id, String response) {
+        writeLine(stdout, "=" + id + " " + response + "\n");
+    }
+
+    private void fail(String id, String message) {
+        writeLine(stdout, "?" + id + " " + message + "\n");
+    }
+
+    private static void writeLine(PrintStream stream, String text) {
+        synchronized (stream) {
+            stream.print(text);
+            stream.print('\n');
+            stream.flush();
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        Flavor flavor = Flavor.LEELAZ_V2;
+        int width = 10;
+        int pvLength = 8;
+        double rate = 0;
+        int visitStep = 50;
+        long delay = 0;
+        long seed = 1;
+        int listenPort = -1;
+        List<String> transcriptLines = new ArrayList<>();
+
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            String value = args[i + 1];
+            switch (args[i]) {
+                case "--flavor":
+                    flavor = Flavor.ofOption(value);
+                    break;
+                case "--width":
+                    width = Integer.parseInt(value);
+                    break;
+                case "--pv":
+                    pvLength = Integer.parseInt(value);
+                    break;
+                case "--rate":
+                    rate = Double.parseDouble(value);
+                    break;
+                case "--visits":
+                    visitStep = Integer.parseInt(value);
+                    break;
+                case "--delay":
+                    delay = Long.parseLong(value);
+                    break;
+                case "--seed":
+                    seed = Long.parseLong(value);
+                    break;
+                case "--listen":
+                    listenPort = Integer.parseInt(value);
+                    break;
+                case "--transcript":
+                    transcriptLines = Files.readAllLines(Paths.get(value), StandardCharsets.UTF_8);
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown option: " + args[i]);
+            }
+        }
+
+        if (delay > 0) {
+            // Stands in for loading the network
+            Thread.sleep(delay);
+        }
+
+        StandInGtpEngine engine = new StandInGtpEngine(flavor, width, pvLength, rate, visitStep, seed, transcriptLines);
+        if (listenPort >= 0) {
+            engine.listen(listenPort);
+        } else {
+            engine.run();
+        }
+    }
+}
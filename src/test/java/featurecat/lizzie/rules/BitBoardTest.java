@@ -0,0 +1,180 @@
+package featurecat.lizzie.rules;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static featurecat.lizzie.rules.Positions.index;
+import static featurecat.lizzie.rules.Positions.mask;
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class BitBoardTest {
+    private static BitBoard position(String... rows) {
+        return BitBoard.of(Positions.parse(rows), rows.length);
+    }
+
+    @Test
+    public void chainsSharingAnEyeAreBothAlive() {
+        BitBoard bitBoard = position(
+                ".X.X.",
+                ".X.X.",
+                ".X.X.",
+                ".X.X.",
+                ".X.X."
+        );
+
+        assertThat(bitBoard.getUnconditionallyAlive(Stone.BLACK).cardinality()).isEqualTo(10);
+        assertThat(bitBoard.getUnconditionalTerritory(Stone.BLACK).cardinality()).isEqualTo(15);
+        assertThat(bitBoard.getUnconditionallyAlive(Stone.WHITE).isEmpty()).isTrue();
+    }
+
+    @Test
+    public void chainWithOneEyeIsNotAlive() {
+        BitBoard bitBoard = position(
+                ".X...",
+                ".X...",
+                ".X...",
+                ".X...",
+                ".X..."
+        );
+
+        assertThat(bitBoard.getUnconditionallyAlive(Stone.BLACK).isEmpty()).isTrue();
+        assertThat(bitBoard.getUnconditionalTerritory(Stone.BLACK).isEmpty()).isTrue();
+    }
+
+    @Test
+    public void enemyStonesInsideAnEyeDoNotMatter() {
+        BitBoard bitBoard = position(
+                ".XXX.....",
+                ".X.X.....",
+                "OX.X.....",
+                ".X.X.....",
+                "OX.X.....",
+                ".X.X.....",
+                "OX.X.....",
+                ".X.X.....",
+                ".X.X....."
+        );
+
+        assertThat(bitBoard.getUnconditionallyAlive(Stone.BLACK).cardinality()).isEqualTo(19);
+        // The first column and the inside of the third one, but not the open side of the board
+        PointMask territory = bitBoard.getUnconditionalTerritory(Stone.BLACK);
+        assertThat(territory.cardinality()).isEqualTo(9 + 8);
+        assertThat(territory.contains(index(9, 0, 2))).isTrue();
+        assertThat(territory.contains(index(9, 5, 5))).isFalse();
+        assertThat(bitBoard.getUnconditionallyAlive(Stone.WHITE).isEmpty()).isTrue();
+    }
+
+    @Test
+    public void emptyBoardHasNothingAlive() {
+        BitBoard bitBoard = new BitBoard(19);
+
+        assertThat(bitBoard.getUnconditionallyAlive(Stone.BLACK).isEmpty()).isTrue();
+        assertThat(bitBoard.getUnconditionalTerritory(Stone.WHITE).isEmpty()).isTrue();
+        assertThat(bitBoard.getLegalMoves(Stone.BLACK)).isEqualTo(PointMask.full(19));
+    }
+
+    @Test
+    public void simpleKoForbidsTheRetakeUntilAPass() {
+        BitBoard bitBoard = position(
+                ".XO..",
+                "XO.O.",
+                ".XO..",
+                ".....",
+                "....."
+        );
+        int take = index(5, 2, 1);
+        int retake = index(5, 1, 1);
+
+        assertThat(bitBoard.play(take, Stone.BLACK)).isEqualTo(mask(5, 1, 1));
+        assertThat(bitBoard.getKoIndex(Stone.WHITE)).isEqualTo(retake);
+        assertThat(bitBoard.getKoIndex(Stone.BLACK)).isEqualTo(-1);
+        assertThat(bitBoard.getLegalMoves(Stone.WHITE).contains(retake)).isFalse();
+        assertThat(bitBoard.getAtariStones(Stone.BLACK)).isEqualTo(mask(5, 2, 1));
+
+        bitBoard.pass();
+        assertThat(bitBoard.getKoIndex(Stone.WHITE)).isEqualTo(-1);
+        assertThat(bitBoard.getLegalMoves(Stone.WHITE).contains(retake)).isTrue();
+    }
+
+    @Test
+    public void legalMovesExcludeSuicide() {
+        BitBoard bitBoard = position(
+                ".X...",
+                "X....",
+                ".....",
+                ".....",
+                "....."
+        );
+        int corner = index(5, 0, 0);
+
+        assertThat(bitBoard.getLegalMoves(Stone.WHITE).contains(corner)).isFalse();
+        assertThat(bitBoard.getLegalMoves(Stone.BLACK).contains(corner)).isTrue();
+        assertThat(bitBoard.getLegalMoves(Stone.WHITE).cardinality()).isEqualTo(25 - 2 - 1);
+    }
+
+    @Test
+    public void agreesWithChainTrackerOnRandomGames() {
+        int[] boardSizes = {9, 13, 19};
+        for (int boardSize : boardSizes) {
+            for (long seed = 1; seed <= 3; ++seed) {
+                playRandomGame(boardSize, new Random(seed * 31 + boardSize));
+            }
+        }
+    }
+
+    private static void playRandomGame(int boardSize, Random random) {
+        int pointCount = boardSize * boardSize;
+        BitBoard bitBoard = new BitBoard(boardSize);
+        ChainTracker tracker = new ChainTracker(boardSize);
+        Stone color = Stone.BLACK;
+        int captureCount = 0;
+
+        for (int moveNumber = 0; moveNumber < pointCount * 2; ++moveNumber) {
+            String context = "move " + moveNumber + " of a " + boardSize + "x" + boardSize + " game";
+
+            // The legal moves of the masks are the empty points that are not suicide, apart from the ko
+            PointMask expectedLegal = PointMask.empty(boardSize);
+            for (int i = 0; i < pointCount; ++i) {
+                if (tracker.getStone(i) == Stone.EMPTY && !tracker.isSuicide(i, color)) {
+                    expectedLegal.set(i);
+                }
+            }
+            int ko = bitBoard.getKoIndex(color);
+            if (ko >= 0) {
+                expectedLegal.clear(ko);
+            }
+            PointMask legal = bitBoard.getLegalMoves(color);
+            assertThat(legal).as(context).isEqualTo(expectedLegal);
+
+            if (legal.isEmpty()) {
+                bitBoard.pass();
+            } else {
+                int[] candidates = legal.toIndexes();
+                int move = candidates[random.nextInt(candidates.length)];
+
+                assertThat(bitBoard.isSuicide(move, color)).as(context).isFalse();
+                PointMask expectedCaptures = tracker.findCapturedStones(move, color);
+                assertThat(bitBoard.findCapturedStones(move, color)).as(context).isEqualTo(expectedCaptures);
+                assertThat(tracker.play(move, color)).as(context).isEqualTo(expectedCaptures);
+                assertThat(bitBoard.play(move, color)).as(context).isEqualTo(expectedCaptures);
+                captureCount += expectedCaptures.cardinality();
+            }
+            color = color.opposite();
+
+            PointMask expectedAtari = PointMask.empty(boardSize);
+            for (int i = 0; i < pointCount; ++i) {
+                assertThat(bitBoard.getStone(i)).as(context).isEqualTo(tracker.getStone(i));
+                assertThat(bitBoard.getLibertyCount(i)).as(context).isEqualTo(tracker.getLibertyCount(i));
+                assertThat(bitBoard.getChainSize(i)).as(context).isEqualTo(tracker.getChainSize(i));
+                if (tracker.getStone(i) == color && tracker.getLibertyCount(i) == 1) {
+                    expectedAtari.set(i);
+                }
+            }
+            assertThat(bitBoard.getAtariStones(color)).as(context).isEqualTo(expectedAtari);
+        }
+
+        // Filling the board makes captures happen, otherwise the comparison would miss them
+        assertThat(captureCount).isGreaterThan(0);
+    }
+}
@@ -0,0 +1,192 @@
+package featurecat.lizzie.rules;
+
+import featurecat.lizzie.analysis.MoveData;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@RunWith(Parameterized.class)
+public class BoardTest {
+    @Parameterized.Parameters(name = "{0}")
+    public static Collection<Object[]> kinds() {
+        return Arrays.asList(new Object[][]{{RulesKernel.Kind.CHAIN_TRACKER}, {RulesKernel.Kind.BIT_BOARD}});
+    }
+
+    @Parameterized.Parameter
+    public RulesKernel.Kind kind;
+
+    private Board board;
+
+    @Before
+    public void setUp() {
+        board = new Board(BoardGeometry.of(9));
+        board.setRulesKernelKind(kind);
+    }
+
+    /**
+     * Places the stones with alternating colors, passing for the color that runs out first, and leaves black to play.
+     *
+     * @param black x and y of each black stone
+     * @param white x and y of each white stone
+     */
+    private void setUpStones(int[][] black, int[][] white) {
+        for (int i = 0; i < Math.max(black.length, white.length); ++i) {
+            if (i < black.length) {
+                board.place(black[i][0], black[i][1]);
+            } else {
+                board.pass();
+            }
+            if (i < white.length) {
+                board.place(white[i][0], white[i][1]);
+            } else {
+                board.pass();
+            }
+        }
+        assertThat(board.getHistory().getMoveNumber()).isEqualTo(2 * Math.max(black.length, white.length));
+        if (!board.getHistory().isBlacksTurn()) {
+            board.pass();
+        }
+    }
+
+    private void assertRejected(int x, int y) {
+        int moveNumber = board.getHistory().getMoveNumber();
+        boolean blacksTurn = board.getHistory().isBlacksTurn();
+
+        board.place(x, y);
+
+        assertThat(board.getStone(x, y)).isEqualTo(Stone.EMPTY);
+        assertThat(board.getHistory().getMoveNumber()).isEqualTo(moveNumber);
+        assertThat(board.getHistory().isBlacksTurn()).isEqualTo(blacksTurn);
+    }
+
+    /**
+     * The shape of a ko whose left point is (x + 1, y + 1) and right point is (x + 2, y + 1), with neither filled.
+     */
+    private static int[][] koBlackStones(int x, int y) {
+        return new int[][]{{x, y + 1}, {x + 1, y}, {x + 1, y + 2}};
+    }
+
+    private static int[][] koWhiteStones(int x, int y) {
+        return new int[][]{{x + 3, y + 1}, {x + 2, y}, {x + 2, y + 2}};
+    }
+
+    private static int[][] concat(int[][]... parts) {
+        return Arrays.stream(parts).flatMap(Arrays::stream).toArray(int[][]::new);
+    }
+
+    @Test
+    public void capturesAndCountsPrisoners() {
+        board.place(1, 0);
+        board.place(0, 0);
+        board.place(0, 1);
+
+        assertThat(board.getStone(0, 0)).isEqualTo(Stone.EMPTY);
+        assertThat(board.getStone(0, 1)).isEqualTo(Stone.BLACK);
+        assertThat(board.getData().getBlackPrisonersCount()).isEqualTo(1);
+        assertThat(board.getData().getWhitePrisonersCount()).isEqualTo(0);
+        assertThat(board.getHistory().isBlacksTurn()).isFalse();
+    }
+
+    @Test
+    public void rejectsSuicideAndOccupiedPoints() {
+        board.place(1, 0);
+        board.place(8, 8);
+        board.place(0, 1);
+
+        assertRejected(0, 0);
+        assertThat(board.getStone(1, 0)).isEqualTo(Stone.BLACK);
+        board.place(1, 0);
+        assertThat(board.getStone(1, 0)).isEqualTo(Stone.BLACK);
+        assertThat(board.getHistory().isBlacksTurn()).isFalse();
+    }
+
+    @Test
+    public void forbidsSecondPassInARow() {
+        board.pass();
+        board.pass();
+
+        assertThat(board.getHistory().getMoveNumber()).isEqualTo(1);
+        assertThat(board.getHistory().isBlacksTurn()).isFalse();
+    }
+
+    @Test
+    public void appliedMovesWithoutColorFollowTheTurn() {
+        int appendedCount = board.applyMoves(Arrays.asList(Move.place(4, 4), Move.place(4, 4), Move.place(5, 5), Move.pass(), Move.place(6, 6)));
+
+        // The occupied point is skipped, so the stone after it is still white
+        assertThat(appendedCount).isEqualTo(4);
+        assertThat(board.getStone(4, 4)).isEqualTo(Stone.BLACK);
+        assertThat(board.getStone(5, 5)).isEqualTo(Stone.WHITE);
+        assertThat(board.getStone(6, 6)).isEqualTo(Stone.WHITE);
+        assertThat(board.getHistory().isBlacksTurn()).isTrue();
+    }
+
+    @Test
+    public void forbidsImmediateKoRetake() {
+        setUpStones(koBlackStones(0, 0), concat(koWhiteStones(0, 0), new int[][]{{1, 1}}));
+
+        board.place(2, 1);
+        assertThat(board.getStone(1, 1)).isEqualTo(Stone.EMPTY);
+        assertThat(board.getData().getBlackPrisonersCount()).isEqualTo(1);
+
+        assertRejected(1, 1);
+
+        // After an exchange elsewhere the position differs, so the retake is allowed
+        board.place(8, 8);
+        board.place(8, 0);
+        board.place(1, 1);
+        assertThat(board.getStone(1, 1)).isEqualTo(Stone.WHITE);
+        assertThat(board.getStone(2, 1)).isEqualTo(Stone.EMPTY);
+    }
+
+    @Test
+    public void forbidsTripleKoRepetition() {
+        // Three kos side by side, white holding the first and the third, black the second
+        int[][] black = concat(koBlackStones(0, 0), koBlackStones(0, 3), koBlackStones(0, 6), new int[][]{{2, 4}});
+        int[][] white = concat(koWhiteStones(0, 0), koWhiteStones(0, 3), koWhiteStones(0, 6), new int[][]{{1, 1}, {1, 7}});
+        setUpStones(black, white);
+
+        // Each move takes a ko, none of them is an immediate retake
+        int[][] cycle = {{2, 1}, {1, 4}, {2, 7}, {1, 1}, {2, 4}};
+        for (int[] move : cycle) {
+            int moveNumber = board.getHistory().getMoveNumber();
+            board.place(move[0], move[1]);
+            assertThat(board.getHistory().getMoveNumber()).isEqualTo(moveNumber + 1);
+        }
+
+        // Taking the third ko back would repeat the position after the setup, with black to play
+        assertRejected(1, 7);
+        assertThat(board.getStone(2, 7)).isEqualTo(Stone.BLACK);
+
+        // Any other move keeps the game going
+        board.place(8, 8);
+        assertThat(board.getStone(8, 8)).isEqualTo(Stone.WHITE);
+    }
+
+    @Test
+    public void snapshotsKeepTheVariationsOfTheHead() {
+        board.place(4, 4);
+        BoardHistoryNode firstMove = board.getHistory().getHead();
+        BoardSnapshot beforeVariations = board.getSnapshot();
+
+        board.updateVariations(firstMove, Collections.singletonList(new MoveData(PointCodec.of(3, 3), 100, 50.0, 0.5, new int[]{PointCodec.of(3, 3)})));
+        assertThat(beforeVariations.getVariations()).isNull();
+        assertThat(board.getSnapshot().getVariations()).hasSize(1);
+        assertThat(board.getSnapshot().isBlackToPlay()).isFalse();
+
+        // Variations of a position off the head leave the published ones alone
+        board.place(3, 3);
+        BoardSnapshot afterMove = board.getSnapshot();
+        board.updateVariations(firstMove, Collections.singletonList(new MoveData(PointCodec.of(5, 5), 100, 50.0, 0.5, new int[]{PointCodec.of(5, 5)})));
+        assertThat(board.getSnapshot()).isSameAs(afterMove);
+        assertThat(afterMove.getVariations()).isNull();
+        assertThat(afterMove.isBlackToPlay()).isTrue();
+    }
+}
@@ -0,0 +1,85 @@
+package featurecat.lizzie.rules;
+
+import org.junit.Test;
+
+import static featurecat.lizzie.rules.Positions.index;
+import static featurecat.lizzie.rules.Positions.mask;
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class PointMaskTest {
+    private static final int[] BOARD_SIZES = {9, 13, 19};
+
+    private static PointMask expectedNeighbours(int boardSize, int x, int y) {
+        PointMask expected = PointMask.empty(boardSize);
+        int[][] offsets = {{-1, 0}, {1, 0}, {0, -1}, {0, 1}};
+        for (int[] offset : offsets) {
+            int nx = x + offset[0];
+            int ny = y + offset[1];
+            if (nx >= 0 && nx < boardSize && ny >= 0 && ny < boardSize) {
+                expected.set(index(boardSize, nx, ny));
+            }
+        }
+        return expected;
+    }
+
+    @Test
+    public void neighboursOfEveryPointStayOnTheBoard() {
+        for (int boardSize : BOARD_SIZES) {
+            for (int x = 0; x < boardSize; ++x) {
+                for (int y = 0; y < boardSize; ++y) {
+                    PointMask neighbours = PointMask.of(boardSize, index(boardSize, x, y)).neighbours();
+                    assertThat(neighbours).as("neighbours of (%d, %d) on %dx%d", x, y, boardSize, boardSize)
+                            .isEqualTo(expectedNeighbours(boardSize, x, y));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void neighboursDoNotWrapAroundColumns() {
+        for (int boardSize : BOARD_SIZES) {
+            int last = boardSize - 1;
+            // The index after the bottom of a column is the top of the next one
+            assertThat(PointMask.of(boardSize, index(boardSize, 0, last)).neighbours().contains(index(boardSize, 1, 0))).isFalse();
+            assertThat(PointMask.of(boardSize, index(boardSize, 1, 0)).neighbours().contains(index(boardSize, 0, last))).isFalse();
+            assertThat(PointMask.of(boardSize, index(boardSize, last, last)).neighbours()).isEqualTo(mask(boardSize, last - 1, last, last, last - 1));
+        }
+    }
+
+    @Test
+    public void neighboursOfTheFullBoardAreTheFullBoard() {
+        for (int boardSize : BOARD_SIZES) {
+            PointMask full = PointMask.full(boardSize);
+            assertThat(full.cardinality()).isEqualTo(boardSize * boardSize);
+            assertThat(full.neighbours()).isEqualTo(full);
+            assertThat(PointMask.empty(boardSize).invert()).isEqualTo(full);
+            assertThat(full.copy().invert().isEmpty()).isTrue();
+        }
+    }
+
+    @Test
+    public void floodFillFollowsConnectedPointsOnly() {
+        int boardSize = 9;
+        PointMask area = mask(boardSize, 0, 8, 1, 8, 1, 7, 2, 0, 2, 1);
+
+        PointMask filled = PointMask.of(boardSize, index(boardSize, 0, 8)).floodFill(area);
+
+        // (2, 0) follows (1, 8) in index order without being adjacent
+        assertThat(filled).isEqualTo(mask(boardSize, 0, 8, 1, 8, 1, 7));
+    }
+
+    @Test
+    public void setOperationsMatchIndexes() {
+        int boardSize = 19;
+        PointMask a = mask(boardSize, 0, 0, 3, 3, 18, 18);
+        PointMask b = mask(boardSize, 3, 3, 10, 10);
+
+        assertThat(a.copy().and(b).toIndexes()).containsExactly(index(boardSize, 3, 3));
+        assertThat(a.copy().or(b).cardinality()).isEqualTo(4);
+        assertThat(a.copy().andNot(b).toIndexes()).containsExactly(index(boardSize, 0, 0), index(boardSize, 18, 18));
+        assertThat(a.intersects(b)).isTrue();
+        assertThat(a.containsAll(b)).isFalse();
+        assertThat(a.firstIndex()).isEqualTo(0);
+        assertThat(PointMask.empty(boardSize).firstIndex()).isEqualTo(-1);
+    }
+}
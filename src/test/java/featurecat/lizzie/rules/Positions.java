@@ -0,0 +1,39 @@
+package featurecat.lizzie.rules;
+
+/**
+ * Builds test positions from text diagrams.
+ */
+final class Positions {
+    private Positions() {
+    }
+
+    /**
+     * Rows are y from the top, columns are x. X is black, O is white, any other character is empty.
+     *
+     * @param rows the rows of a square board
+     * @return the stones indexed like {@link BoardGeometry#getIndex(int, int)}
+     */
+    static Stone[] parse(String... rows) {
+        int boardSize = rows.length;
+        Stone[] stones = new Stone[boardSize * boardSize];
+        for (int y = 0; y < boardSize; ++y) {
+            for (int x = 0; x < boardSize; ++x) {
+                char c = rows[y].charAt(x);
+                stones[index(boardSize, x, y)] = c == 'X' ? Stone.BLACK : c == 'O' ? Stone.WHITE : Stone.EMPTY;
+            }
+        }
+        return stones;
+    }
+
+    static int index(int boardSize, int x, int y) {
+        return x * boardSize + y;
+    }
+
+    static PointMask mask(int boardSize, int... coordinates) {
+        PointMask mask = PointMask.empty(boardSize);
+        for (int i = 0; i < coordinates.length; i += 2) {
+            mask.set(index(boardSize, coordinates[i], coordinates[i + 1]));
+        }
+        return mask;
+    }
+}
@@ -0,0 +1,165 @@
+package featurecat.lizzie.rules;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+
+import java.util.Arrays;
+import java.util.Collection;
+
+import static featurecat.lizzie.rules.Positions.index;
+import static featurecat.lizzie.rules.Positions.mask;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@RunWith(Parameterized.class)
+public class RulesKernelTest {
+    private static final int SIZE = 5;
+
+    @Parameterized.Parameters(name = "{0}")
+    public static Collection<Object[]> kinds() {
+        return Arrays.asList(new Object[][]{{RulesKernel.Kind.CHAIN_TRACKER}, {RulesKernel.Kind.BIT_BOARD}});
+    }
+
+    @Parameterized.Parameter
+    public RulesKernel.Kind kind;
+
+    private RulesKernel kernel(String... rows) {
+        Stone[] stones = Positions.parse(rows);
+        if (kind == RulesKernel.Kind.BIT_BOARD) {
+            return BitBoard.of(stones, rows.length);
+        } else {
+            return ChainTracker.of(stones, rows.length);
+        }
+    }
+
+    @Test
+    public void capturesStoneInTheCorner() {
+        RulesKernel kernel = kernel(
+                "OX...",
+                ".....",
+                ".....",
+                ".....",
+                "....."
+        );
+        int move = index(SIZE, 0, 1);
+
+        assertThat(kernel.isSuicide(move, Stone.BLACK)).isFalse();
+        assertThat(kernel.findCapturedStones(move, Stone.BLACK)).isEqualTo(mask(SIZE, 0, 0));
+        // Looking for captures leaves the position alone
+        assertThat(kernel.getStone(index(SIZE, 0, 0))).isEqualTo(Stone.WHITE);
+
+        assertThat(kernel.play(move, Stone.BLACK)).isEqualTo(mask(SIZE, 0, 0));
+        assertThat(kernel.getStone(index(SIZE, 0, 0))).isEqualTo(Stone.EMPTY);
+        assertThat(kernel.getStone(move)).isEqualTo(Stone.BLACK);
+        assertThat(kernel.getChainSize(move)).isEqualTo(1);
+        assertThat(kernel.getLibertyCount(move)).isEqualTo(3);
+        // The capture gives a liberty back to the stone next to it
+        assertThat(kernel.getLibertyCount(index(SIZE, 1, 0))).isEqualTo(3);
+    }
+
+    @Test
+    public void capturesSeveralChainsAtOnce() {
+        RulesKernel kernel = kernel(
+                ".OX..",
+                "OX...",
+                "X....",
+                ".....",
+                "....."
+        );
+        int move = index(SIZE, 0, 0);
+
+        // Surrounded by white, but capturing
+        assertThat(kernel.isSuicide(move, Stone.BLACK)).isFalse();
+        assertThat(kernel.play(move, Stone.BLACK)).isEqualTo(mask(SIZE, 1, 0, 0, 1));
+        assertThat(kernel.getLibertyCount(move)).isEqualTo(2);
+        assertThat(kernel.getChainSize(move)).isEqualTo(1);
+    }
+
+    @Test
+    public void capturesChainOnTheEdge() {
+        RulesKernel kernel = kernel(
+                "OOO..",
+                "XXX..",
+                ".....",
+                ".....",
+                "....."
+        );
+        int move = index(SIZE, 3, 0);
+
+        assertThat(kernel.getChainSize(index(SIZE, 1, 0))).isEqualTo(3);
+        assertThat(kernel.getLibertyCount(index(SIZE, 1, 0))).isEqualTo(1);
+        assertThat(kernel.play(move, Stone.BLACK)).isEqualTo(mask(SIZE, 0, 0, 1, 0, 2, 0));
+        assertThat(kernel.getLibertyCount(move)).isEqualTo(3);
+        assertThat(kernel.getLibertyCount(index(SIZE, 0, 1))).isEqualTo(7);
+    }
+
+    @Test
+    public void detectsSuicide() {
+        RulesKernel kernel = kernel(
+                ".X...",
+                "X....",
+                ".....",
+                ".....",
+                "....."
+        );
+        int corner = index(SIZE, 0, 0);
+
+        assertThat(kernel.isSuicide(corner, Stone.WHITE)).isTrue();
+        assertThat(kernel.isSuicide(corner, Stone.BLACK)).isFalse();
+        assertThat(kernel.isSuicide(index(SIZE, 2, 2), Stone.WHITE)).isFalse();
+    }
+
+    @Test
+    public void detectsSuicideOfChain() {
+        RulesKernel kernel = kernel(
+                ".OX..",
+                "XX...",
+                ".....",
+                ".....",
+                "....."
+        );
+        int corner = index(SIZE, 0, 0);
+
+        // Filling the last liberty of its own chain
+        assertThat(kernel.isSuicide(corner, Stone.WHITE)).isTrue();
+        // Capturing the white stone instead
+        assertThat(kernel.isSuicide(corner, Stone.BLACK)).isFalse();
+    }
+
+    @Test
+    public void mergesChains() {
+        RulesKernel kernel = kernel(
+                "X.X..",
+                ".....",
+                "..X..",
+                ".....",
+                "....."
+        );
+        int move = index(SIZE, 1, 0);
+
+        assertThat(kernel.play(move, Stone.BLACK).isEmpty()).isTrue();
+        assertThat(kernel.getChainSize(index(SIZE, 0, 0))).isEqualTo(3);
+        assertThat(kernel.getLibertyCount(index(SIZE, 2, 0))).isEqualTo(4);
+        assertThat(kernel.getChainSize(index(SIZE, 2, 2))).isEqualTo(1);
+
+        kernel.play(index(SIZE, 2, 1), Stone.BLACK);
+        assertThat(kernel.getChainSize(index(SIZE, 2, 2))).isEqualTo(5);
+        assertThat(kernel.getLibertyCount(index(SIZE, 0, 0))).isEqualTo(7);
+        assertThat(kernel.getChainSize(index(SIZE, 4, 4))).isEqualTo(0);
+        assertThat(kernel.getLibertyCount(index(SIZE, 4, 4))).isEqualTo(0);
+    }
+
+    @Test
+    public void refusesOccupiedPoint() {
+        RulesKernel kernel = kernel(
+                "X....",
+                ".....",
+                ".....",
+                ".....",
+                "....."
+        );
+
+        assertThatThrownBy(() -> kernel.play(index(SIZE, 0, 0), Stone.WHITE)).isInstanceOf(IllegalArgumentException.class);
+    }
+}
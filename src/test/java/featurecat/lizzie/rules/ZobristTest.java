@@ -0,0 +1,79 @@
+package featurecat.lizzie.rules;
+
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ZobristTest {
+    @Test
+    public void keysAreFixedAcrossRuns() {
+        // Persisted hashes depend on these values, see the seed derivation of Zobrist
+        Zobrist zobrist = new Zobrist(19);
+        zobrist.toggleStone(3, 3, Stone.BLACK);
+        assertThat(zobrist.getHash()).isEqualTo(0xFA3073B728067954L);
+
+        zobrist.toggleStone(15, 15, Stone.WHITE);
+        assertThat(zobrist.getHash()).isEqualTo(0xAABF186E2B44A6DBL);
+    }
+
+    @Test
+    public void sameStonesGiveTheSameHashInAnyOrder() {
+        Zobrist first = new Zobrist(19);
+        first.toggleStone(3, 3, Stone.BLACK);
+        first.toggleStone(15, 15, Stone.WHITE);
+
+        Zobrist second = new Zobrist(19);
+        second.toggleStone(15, 15, Stone.WHITE);
+        second.toggleStone(3, 3, Stone.BLACK);
+
+        assertThat(second).isEqualTo(first);
+        assertThat(second.getHash()).isEqualTo(first.getHash());
+    }
+
+    @Test
+    public void togglingTwiceRestoresTheHash() {
+        Zobrist zobrist = new Zobrist(9);
+        long empty = zobrist.getHash();
+
+        zobrist.toggleStone(4, 4, Stone.BLACK);
+        assertThat(zobrist.getHash()).isNotEqualTo(empty);
+        zobrist.toggleStone(4, 4, Stone.BLACK);
+        assertThat(zobrist.getHash()).isEqualTo(empty);
+
+        zobrist.toggleSideToMove();
+        assertThat(zobrist.getPositionHash()).isNotEqualTo(empty);
+        zobrist.toggleSideToMove();
+        assertThat(zobrist.getPositionHash()).isEqualTo(empty);
+    }
+
+    @Test
+    public void colorsAndSizesHaveTheirOwnKeys() {
+        Zobrist black = new Zobrist(19);
+        black.toggleStone(3, 3, Stone.BLACK);
+        Zobrist white = new Zobrist(19);
+        white.toggleStone(3, 3, Stone.WHITE);
+        Zobrist smaller = new Zobrist(13);
+        smaller.toggleStone(3, 3, Stone.BLACK);
+
+        assertThat(white.getHash()).isNotEqualTo(black.getHash());
+        assertThat(smaller.getHash()).isNotEqualTo(black.getHash());
+    }
+
+    @Test
+    public void koPointIsLeftOutOfThePositionHash() {
+        Zobrist zobrist = new Zobrist(19);
+        zobrist.toggleStone(3, 3, Stone.BLACK);
+        long hash = zobrist.getHash();
+
+        zobrist.setKoPoint(3, 4);
+        assertThat(zobrist.getHash()).isNotEqualTo(hash);
+        assertThat(zobrist.getPositionHash()).isEqualTo(hash);
+
+        Zobrist copy = zobrist.clone();
+        assertThat(copy.getHash()).isEqualTo(zobrist.getHash());
+
+        zobrist.clearKoPoint();
+        assertThat(zobrist.getHash()).isEqualTo(hash);
+        assertThat(copy.getHash()).isNotEqualTo(hash);
+    }
+}
@@ -0,0 +1,103 @@
+package featurecat.lizzie.util;
+
+import org.apache.commons.lang3.StringUtils;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class LineDecoderTest {
+    private final LineDecoder decoder = new LineDecoder(StandardCharsets.UTF_8);
+    private final List<String> lines = new ArrayList<>();
+
+    private void decode(byte[] bytes) {
+        decoder.decode(ByteBuffer.wrap(bytes), lines::add);
+    }
+
+    private void decode(String text) {
+        decode(text.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void keepsAMultiByteCharacterSplitAcrossChunks() {
+        byte[] bytes = "= 囲碁\n".getBytes(StandardCharsets.UTF_8);
+        // Splits the three bytes of the first character after its first byte
+        int split = "= ".length() + 1;
+
+        decode(Arrays.copyOfRange(bytes, 0, split));
+        assertThat(lines).isEmpty();
+        decode(Arrays.copyOfRange(bytes, split, bytes.length));
+
+        assertThat(lines).containsExactly("= 囲碁\n");
+    }
+
+    @Test
+    public void joinsALongLineSpanningSeveralChunks() {
+        String line = StringUtils.repeat("info move D4 visits 1 ", LineDecoder.INITIAL_CAPACITY / 5) + "\n";
+        byte[] bytes = line.getBytes(StandardCharsets.UTF_8);
+        assertThat(bytes.length).isGreaterThan(3 * LineDecoder.INITIAL_CAPACITY);
+
+        int chunkSize = LineDecoder.INITIAL_CAPACITY / 3;
+        for (int start = 0; start < bytes.length; start += chunkSize) {
+            decode(Arrays.copyOfRange(bytes, start, Math.min(start + chunkSize, bytes.length)));
+        }
+
+        assertThat(lines).containsExactly(line);
+    }
+
+    @Test
+    public void decodesALongLineWithinOneChunk() {
+        String line = StringUtils.repeat("囲", 2 * LineDecoder.INITIAL_CAPACITY) + "\n";
+
+        decode(line);
+
+        assertThat(lines).containsExactly(line);
+    }
+
+    @Test
+    public void keepsCarriageReturnsOfCrLfTerminators() {
+        decode("= Leela Zero\r\n\r\n");
+
+        assertThat(lines).containsExactly("= Leela Zero\r\n", "\r\n");
+    }
+
+    @Test
+    public void splitsSeveralLinesOfOneChunk() {
+        decode("=1 \n\n=2 Leela Zero\n\n=3 0.17");
+
+        assertThat(lines).containsExactly("=1 \n", "\n", "=2 Leela Zero\n", "\n");
+
+        decode("\n\n");
+        assertThat(lines).endsWith("=3 0.17\n", "\n");
+    }
+
+    @Test
+    public void splitsLinesOfADirectBuffer() {
+        byte[] bytes = "=1 \n\n=2 Leela Zero\n".getBytes(StandardCharsets.UTF_8);
+        ByteBuffer buffer = ByteBuffer.allocateDirect(bytes.length);
+        buffer.put(bytes);
+        buffer.flip();
+
+        decoder.decode(buffer, lines::add);
+
+        assertThat(lines).containsExactly("=1 \n", "\n", "=2 Leela Zero\n");
+        assertThat(buffer.hasRemaining()).isFalse();
+    }
+
+    @Test
+    public void resetDropsAPartialLine() {
+        byte[] bytes = "= 囲碁\n".getBytes(StandardCharsets.UTF_8);
+        // Leaves half a character behind
+        decode(Arrays.copyOfRange(bytes, 0, 3));
+
+        decoder.reset();
+        decode("= Leela Zero\n");
+
+        assertThat(lines).containsExactly("= Leela Zero\n");
+    }
+}